@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bisq.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}. A change is only reported as significant if the
+ * confidence intervals of both runs do not overlap.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar io.bisq.benchmarks.CompareResults before.json after.json}
+ */
+public class CompareResults {
+    private static final class Result {
+        private final String unit;
+        private final double score;
+        private final double scoreError;
+
+        private Result(String unit, double score, double scoreError) {
+            this.unit = unit;
+            this.score = score;
+            this.scoreError = scoreError;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <before.json> <after.json>");
+            System.exit(1);
+        }
+
+        Map<String, Result> before = readResults(args[0]);
+        Map<String, Result> after = readResults(args[1]);
+        System.out.println(String.format("%-70s %24s %24s %9s", "Benchmark", "Before", "After", "Change"));
+        before.forEach((name, beforeResult) -> {
+            Result afterResult = after.get(name);
+            if (afterResult == null) {
+                System.out.println(String.format("%-70s %24s %24s", name, format(beforeResult), "missing"));
+                return;
+            }
+
+            double change = (afterResult.score - beforeResult.score) / beforeResult.score * 100;
+            boolean isSignificant = Math.abs(afterResult.score - beforeResult.score) >
+                    beforeResult.scoreError + afterResult.scoreError;
+            System.out.println(String.format("%-70s %24s %24s %+8.1f%%%s", name, format(beforeResult),
+                    format(afterResult), change, isSignificant ? " *" : ""));
+        });
+        after.keySet().stream()
+                .filter(name -> !before.containsKey(name))
+                .forEach(name -> System.out.println(String.format("%-70s %24s %24s", name, "missing",
+                        format(after.get(name)))));
+        System.out.println("* Significant: the confidence intervals do not overlap. For time based modes a " +
+                "negative change is an improvement, for throughput a positive one.");
+    }
+
+    // Key is the benchmark name with its params, e.g. io.bisq.benchmarks.ProtoBenchmark.fromProto(envelope=addOffer)
+    private static Map<String, Result> readResults(String fileName) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8)) {
+            for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+                JsonObject benchmark = element.getAsJsonObject();
+                String name = benchmark.get("benchmark").getAsString();
+                if (benchmark.has("params")) {
+                    name += benchmark.getAsJsonObject("params").entrySet().stream()
+                            .map(param -> param.getKey() + "=" + param.getValue().getAsString())
+                            .collect(Collectors.joining(",", "(", ")"));
+                }
+                JsonObject primaryMetric = benchmark.getAsJsonObject("primaryMetric");
+                double scoreError = primaryMetric.get("scoreError").getAsString().equals("NaN") ?
+                        0 : primaryMetric.get("scoreError").getAsDouble();
+                results.put(name, new Result(primaryMetric.get("scoreUnit").getAsString(),
+                        primaryMetric.get("score").getAsDouble(),
+                        scoreError));
+            }
+        }
+        return results;
+    }
+
+    private static String format(Result result) {
+        return String.format("%.3f ± %.3f %s", result.score, result.scoreError, result.unit);
+    }
+}
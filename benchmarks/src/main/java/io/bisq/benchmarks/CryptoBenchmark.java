@@ -0,0 +1,90 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bisq.benchmarks;
+
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.Encryption;
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.common.crypto.Sig;
+import io.bisq.core.trade.messages.PublishDepositTxRequest;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verification of storage entries and the encryption of direct and mailbox messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CryptoBenchmark {
+    private KeyPair signatureKeyPair;
+    private KeyPair encryptionKeyPair;
+    private SecretKey secretKey;
+    // The hash we sign for an AddDataMessage of an offer
+    private byte[] hashOfOfferAndSeqNr;
+    private byte[] signature;
+    private PublishDepositTxRequest tradeMessage;
+    private byte[] serializedTradeMessage;
+    private byte[] encryptedTradeMessage;
+
+    @Setup
+    public void setup() throws CryptoException {
+        Fixtures fixtures = new Fixtures();
+        signatureKeyPair = fixtures.getSignatureKeyPair();
+        encryptionKeyPair = fixtures.getEncryptionKeyPair();
+        secretKey = Encryption.generateSecretKey();
+        hashOfOfferAndSeqNr = P2PDataStorage.getHashOfDataAndSeqNr(fixtures.createOfferPayload(), 1);
+        signature = Sig.sign(signatureKeyPair.getPrivate(), hashOfOfferAndSeqNr);
+        tradeMessage = fixtures.createPublishDepositTxRequest();
+        serializedTradeMessage = tradeMessage.toProtoNetworkEnvelope().toByteArray();
+        encryptedTradeMessage = Encryption.encryptPayloadWithHmac(serializedTradeMessage, secretKey);
+    }
+
+    @Benchmark
+    public byte[] sign() throws CryptoException {
+        return Sig.sign(signatureKeyPair.getPrivate(), hashOfOfferAndSeqNr);
+    }
+
+    @Benchmark
+    public boolean verify() throws CryptoException {
+        return Sig.verify(signatureKeyPair.getPublic(), hashOfOfferAndSeqNr, signature);
+    }
+
+    @Benchmark
+    public byte[] encryptPayloadWithHmac() throws CryptoException {
+        return Encryption.encryptPayloadWithHmac(serializedTradeMessage, secretKey);
+    }
+
+    @Benchmark
+    public byte[] decryptPayloadWithHmac() throws CryptoException {
+        return Encryption.decryptPayloadWithHmac(encryptedTradeMessage, secretKey);
+    }
+
+    // Everything a sender does for a direct or mailbox message without a session key
+    @Benchmark
+    public SealedAndSigned encryptHybridWithSignature() throws CryptoException {
+        return EncryptionService.encryptHybridWithSignature(tradeMessage, signatureKeyPair, encryptionKeyPair.getPublic());
+    }
+}
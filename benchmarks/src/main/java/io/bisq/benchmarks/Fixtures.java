@@ -0,0 +1,271 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bisq.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.Encryption;
+import io.bisq.common.crypto.PubKeyRing;
+import io.bisq.common.crypto.Sig;
+import io.bisq.common.locale.Country;
+import io.bisq.common.locale.Region;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.util.Utilities;
+import io.bisq.core.btc.data.RawTransactionInput;
+import io.bisq.core.dao.blockchain.btcd.PubKeyScript;
+import io.bisq.core.dao.blockchain.btcd.ScriptType;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksResponse;
+import io.bisq.core.dao.blockchain.vo.*;
+import io.bisq.core.offer.OfferPayload;
+import io.bisq.core.payment.payload.PaymentMethod;
+import io.bisq.core.payment.payload.SepaAccountPayload;
+import io.bisq.core.trade.messages.PublishDepositTxRequest;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.PrefixedSealedAndSignedMessage;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.messages.AddDataMessage;
+import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import lombok.Getter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Realistic payloads for the benchmarks. Sizes and field contents follow what we see on mainnet, so changes in
+ * serialization or hashing show up with the same weight as in production. Random data is created from a fixed seed,
+ * only the keys differ between runs.
+ */
+public class Fixtures {
+    // Names of the network envelopes used as JMH @Param values
+    public static final String ADD_OFFER = "addOffer";
+    public static final String TRADE_MESSAGE = "tradeMessage";
+    public static final String ADD_MAILBOX = "addMailbox";
+    public static final String BSQ_BLOCKS = "bsqBlocks";
+
+    // A GetBsqBlocksResponse of a node which was offline for about a day
+    private static final int NUM_BSQ_BLOCKS = 144;
+    private static final int BSQ_TXS_PER_BLOCK = 3;
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private final Random random = new Random(1);
+    @Getter
+    private final KeyPair signatureKeyPair;
+    @Getter
+    private final KeyPair encryptionKeyPair;
+    @Getter
+    private final PubKeyRing pubKeyRing;
+    private final NodeAddress nodeAddress = new NodeAddress("3d6gi4wgjnpx4thn.onion:9999");
+    private final NodeAddress peersNodeAddress = new NodeAddress("lfn3dd5ixnlfolqm.onion:9999");
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Fixtures() {
+        signatureKeyPair = Sig.generateKeyPair();
+        encryptionKeyPair = Encryption.generateKeyPair();
+        pubKeyRing = new PubKeyRing(signatureKeyPair.getPublic(), encryptionKeyPair.getPublic(), null);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public NetworkEnvelope createNetworkEnvelope(String name) throws CryptoException {
+        switch (name) {
+            case ADD_OFFER:
+                return createAddOfferMessage();
+            case TRADE_MESSAGE:
+                return createPublishDepositTxRequest();
+            case ADD_MAILBOX:
+                return createAddMailboxMessage();
+            case BSQ_BLOCKS:
+                return createGetBsqBlocksResponse();
+            default:
+                throw new IllegalArgumentException("Unknown fixture " + name);
+        }
+    }
+
+    // A SEPA account accepting all euro countries. That is the most used and one of the largest payment accounts.
+    public SepaAccountPayload createSepaAccountPayload() {
+        List<Country> acceptedCountries = new ArrayList<>();
+        Region region = new Region("EU", "Europe");
+        for (String code : Arrays.asList("AT", "BE", "CY", "DE", "EE", "ES", "FI", "FR", "GR", "IE", "IT", "LT", "LU",
+                "LV", "MT", "NL", "PT", "SI", "SK"))
+            acceptedCountries.add(new Country(code, code, region));
+
+        SepaAccountPayload payload = new SepaAccountPayload(PaymentMethod.SEPA_ID, UUID.randomUUID().toString(),
+                acceptedCountries);
+        payload.setCountryCode("DE");
+        payload.setHolderName("Max Mustermann");
+        payload.setIban("DE89370400440532013000");
+        payload.setBic("COBADEFFXXX");
+        payload.setSalt(randomBytes(32));
+        return payload;
+    }
+
+    public OfferPayload createOfferPayload() {
+        Map<String, String> extraDataMap = new HashMap<>();
+        extraDataMap.put(OfferPayload.ACCOUNT_AGE_WITNESS_HASH, Utilities.bytesAsHexString(randomBytes(20)));
+        return new OfferPayload(UUID.randomUUID().toString(),
+                System.currentTimeMillis(),
+                nodeAddress,
+                pubKeyRing,
+                OfferPayload.Direction.BUY,
+                0,
+                0.02,
+                true,
+                10_000_000,
+                5_000_000,
+                "BTC",
+                "EUR",
+                Collections.singletonList(new NodeAddress("ybmi4iaesugslxrw.onion:9999")),
+                Collections.singletonList(new NodeAddress("ybmi4iaesugslxrw.onion:9999")),
+                PaymentMethod.SEPA_ID,
+                UUID.randomUUID().toString(),
+                Utilities.bytesAsHexString(randomBytes(32)),
+                "DE",
+                Arrays.asList("AT", "BE", "CY", "DE", "EE", "ES", "FI", "FR", "GR", "IE", "IT", "LT", "LU", "LV",
+                        "MT", "NL", "PT", "SI", "SK"),
+                null,
+                null,
+                "0.6.4",
+                490_000,
+                20_000,
+                20_000,
+                true,
+                3_000_000,
+                1_000_000,
+                100_000_000,
+                TimeUnit.DAYS.toMillis(6),
+                false,
+                false,
+                0,
+                0,
+                false,
+                null,
+                extraDataMap,
+                1);
+    }
+
+    // The message the offerer's node broadcasts when publishing the offer
+    public AddDataMessage createAddOfferMessage() throws CryptoException {
+        OfferPayload offerPayload = createOfferPayload();
+        byte[] signature = Sig.sign(signatureKeyPair.getPrivate(), P2PDataStorage.getHashOfDataAndSeqNr(offerPayload, 1));
+        return new AddDataMessage(new ProtectedStorageEntry(offerPayload, signatureKeyPair.getPublic(), 1, signature));
+    }
+
+    // The trade message carrying the maker's full payment account data
+    public PublishDepositTxRequest createPublishDepositTxRequest() throws CryptoException {
+        byte[] preparedDepositTx = randomBytes(370);
+        return new PublishDepositTxRequest(UUID.randomUUID().toString(),
+                createSepaAccountPayload(),
+                UUID.randomUUID().toString(),
+                randomBytes(33),
+                randomString(4_000),
+                Utilities.bytesAsHexString(randomBytes(70)),
+                "1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2",
+                preparedDepositTx,
+                Collections.singletonList(new RawTransactionInput(0, randomBytes(250), 5_490_000)),
+                nodeAddress,
+                UUID.randomUUID().toString(),
+                Sig.sign(signatureKeyPair.getPrivate(), preparedDepositTx),
+                System.currentTimeMillis());
+    }
+
+    // A trade message sent as mailbox message, the way it gets broadcast if the peer is offline
+    public AddDataMessage createAddMailboxMessage() throws CryptoException {
+        PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = new PrefixedSealedAndSignedMessage(nodeAddress,
+                EncryptionService.encryptHybridWithSignature(createPublishDepositTxRequest(), signatureKeyPair,
+                        encryptionKeyPair.getPublic()),
+                peersNodeAddress.getAddressPrefixHash(),
+                UUID.randomUUID().toString());
+        MailboxStoragePayload mailboxStoragePayload = new MailboxStoragePayload(prefixedSealedAndSignedMessage,
+                signatureKeyPair.getPublic(), signatureKeyPair.getPublic());
+        byte[] signature = Sig.sign(signatureKeyPair.getPrivate(),
+                P2PDataStorage.getHashOfDataAndSeqNr(mailboxStoragePayload, 1));
+        return new AddDataMessage(new ProtectedMailboxStorageEntry(mailboxStoragePayload, signatureKeyPair.getPublic(),
+                1, signature, signatureKeyPair.getPublic()));
+    }
+
+    public GetBsqBlocksResponse createGetBsqBlocksResponse() {
+        List<BsqBlock> bsqBlocks = new ArrayList<>();
+        String previousBlockHash = randomHex(32);
+        for (int height = 500_000; height < 500_000 + NUM_BSQ_BLOCKS; height++) {
+            String blockHash = randomHex(32);
+            List<Tx> txs = new ArrayList<>();
+            for (int i = 0; i < BSQ_TXS_PER_BLOCK; i++)
+                txs.add(createTx(height, blockHash));
+            bsqBlocks.add(new BsqBlock(height, blockHash, previousBlockHash, txs));
+            previousBlockHash = blockHash;
+        }
+        return new GetBsqBlocksResponse(bsqBlocks, random.nextInt());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // A BSQ transfer with 2 inputs, receiver and change output
+    private Tx createTx(int height, String blockHash) {
+        String txId = randomHex(32);
+        List<TxInput> inputs = Arrays.asList(new TxInput(randomHex(32), 0), new TxInput(randomHex(32), 1));
+        List<TxOutput> outputs = Arrays.asList(createTxOutput(0, txId, height), createTxOutput(1, txId, height));
+        return new Tx(new TxVo(txId, height, blockHash, System.currentTimeMillis()), inputs, outputs);
+    }
+
+    private TxOutput createTxOutput(int index, String txId, int height) {
+        String address = "1" + randomString(33);
+        String pubKeyHash = randomHex(20);
+        PubKeyScript pubKeyScript = new PubKeyScript(1,
+                ScriptType.PUB_KEY_HASH,
+                ImmutableList.of(address),
+                "OP_DUP OP_HASH160 " + pubKeyHash + " OP_EQUALVERIFY OP_CHECKSIG",
+                "76a914" + pubKeyHash + "88ac");
+        return new TxOutput(index, 1_000 + random.nextInt(100_000), txId, pubKeyScript, address, null, height);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private String randomHex(int numBytes) {
+        return Utilities.bytesAsHexString(randomBytes(numBytes));
+    }
+
+    private String randomString(int length) {
+        String chars = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        return sb.toString();
+    }
+}
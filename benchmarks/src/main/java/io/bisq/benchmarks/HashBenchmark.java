@@ -0,0 +1,73 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bisq.benchmarks;
+
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.Hash;
+import io.bisq.common.util.Utilities;
+import io.bisq.core.offer.OfferPayload;
+import io.bisq.core.payment.payload.SepaAccountPayload;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.messages.AddDataMessage;
+import io.bisq.network.p2p.storage.payload.ProtectedStoragePayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of storage payloads in P2PDataStorage and of the account age witness input in AccountAgeWitnessService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HashBenchmark {
+    private OfferPayload offerPayload;
+    private ProtectedStoragePayload mailboxStoragePayload;
+    private SepaAccountPayload paymentAccountPayload;
+    private byte[] signaturePubKeyBytes;
+
+    @Setup
+    public void setup() throws CryptoException {
+        Fixtures fixtures = new Fixtures();
+        offerPayload = fixtures.createOfferPayload();
+        AddDataMessage addMailboxMessage = fixtures.createAddMailboxMessage();
+        mailboxStoragePayload = addMailboxMessage.getProtectedStorageEntry().getProtectedStoragePayload();
+        paymentAccountPayload = fixtures.createSepaAccountPayload();
+        signaturePubKeyBytes = fixtures.getPubKeyRing().getSignaturePubKeyBytes();
+    }
+
+    @Benchmark
+    public byte[] getHashOfOffer() {
+        return P2PDataStorage.getHash(offerPayload);
+    }
+
+    @Benchmark
+    public byte[] getHashOfMailboxPayload() {
+        return P2PDataStorage.getHash(mailboxStoragePayload);
+    }
+
+    // Same as AccountAgeWitnessService.getNewWitness and findWitness
+    @Benchmark
+    public byte[] getAccountAgeWitnessHash() {
+        byte[] accountInputDataWithSalt = Utilities.concatenateByteArrays(paymentAccountPayload.getAgeWitnessInputData(),
+                paymentAccountPayload.getSalt());
+        return Hash.getSha256Ripemd160hash(Utilities.concatenateByteArrays(accountInputDataWithSalt, signaturePubKeyBytes));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.bisq.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of the network envelopes through the proto resolver, the way Connection does it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProtoBenchmark {
+    @Param({Fixtures.ADD_OFFER, Fixtures.TRADE_MESSAGE, Fixtures.ADD_MAILBOX, Fixtures.BSQ_BLOCKS})
+    public String envelope;
+
+    private CoreNetworkProtoResolver networkProtoResolver;
+    private NetworkEnvelope networkEnvelope;
+    private byte[] serializedEnvelope;
+
+    @Setup
+    public void setup() throws CryptoException {
+        networkProtoResolver = new CoreNetworkProtoResolver();
+        networkEnvelope = new Fixtures().createNetworkEnvelope(envelope);
+        serializedEnvelope = networkEnvelope.toProtoNetworkEnvelope().toByteArray();
+    }
+
+    @Benchmark
+    public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        return networkEnvelope.toProtoNetworkEnvelope();
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return networkEnvelope.toProtoNetworkEnvelope().toByteArray();
+    }
+
+    @Benchmark
+    public NetworkEnvelope fromProto() throws InvalidProtocolBufferException {
+        return networkProtoResolver.fromProto(PB.NetworkEnvelope.parseFrom(serializedEnvelope));
+    }
+}
@@ -0,0 +1,214 @@
+package io.bisq.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer backed by a global hashed timing wheel. In contrast to the FrameRateTimer we don't poll all timers at each
+ * frame but only look at the bucket of the current tick, so scheduling and stopping is O(1) and only due timers get
+ * dispatched to the UserThread. Resolution is the same 100 ms as the MasterTimer's frame interval.
+ * Select it with UserThread.setTimerClass(HashedWheelTimer.class). Used in headless apps like the seed node.
+ */
+public class HashedWheelTimer implements Timer {
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    static final long TICK_MS = MasterTimer.FRAME_INTERVAL_MS;
+    // Must be a power of 2. With 512 buckets one round of the wheel takes 51.2 sec, longer delays need more rounds.
+    private static final int WHEEL_SIZE = 512;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+
+    // All state of the wheel and the scheduled timers is guarded by LOCK
+    private static final Object LOCK = new Object();
+    private static final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private static final long startNanos = System.nanoTime();
+    // Next tick to be processed
+    private static long tick;
+    private static int numLiveTimers;
+
+    static {
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            wheel[i] = new Bucket();
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("HashedWheelTimer")
+                .setDaemon(true)
+                .build());
+        ticker.scheduleAtFixedRate(HashedWheelTimer::onTick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Set when scheduled
+    private Runnable runnable;
+    private long intervalNanos;
+    private boolean isPeriodically;
+    private volatile boolean stopped;
+
+    // Position in the wheel, guarded by LOCK. bucket is null if not scheduled.
+    private long remainingRounds;
+    private Bucket bucket;
+    private HashedWheelTimer previous;
+    private HashedWheelTimer next;
+
+    public HashedWheelTimer() {
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Timer runLater(Duration delay, Runnable runnable) {
+        this.runnable = runnable;
+        this.intervalNanos = delay.toNanos();
+        synchronized (LOCK) {
+            schedule(System.nanoTime() + intervalNanos);
+        }
+        return this;
+    }
+
+    @Override
+    public Timer runPeriodically(Duration interval, Runnable runnable) {
+        this.runnable = runnable;
+        this.intervalNanos = interval.toNanos();
+        isPeriodically = true;
+        synchronized (LOCK) {
+            schedule(System.nanoTime() + intervalNanos);
+        }
+        return this;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        synchronized (LOCK) {
+            unschedule();
+        }
+    }
+
+    public static int getNumLiveTimers() {
+        synchronized (LOCK) {
+            return numLiveTimers;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the ticker thread. A delayed ticker catches up with all ticks which are due.
+    private static void onTick() {
+        try {
+            List<HashedWheelTimer> dueTimers = new ArrayList<>();
+            synchronized (LOCK) {
+                long currentTick = (System.nanoTime() - startNanos) / TICK_NANOS;
+                while (tick <= currentTick)
+                    expireBucket(wheel[(int) (tick++ & (WHEEL_SIZE - 1))], dueTimers);
+
+                // We reschedule after the buckets are processed, otherwise a periodic timer could end up in the
+                // bucket we are iterating
+                long now = System.nanoTime();
+                dueTimers.stream()
+                        .filter(timer -> timer.isPeriodically)
+                        .forEach(timer -> timer.schedule(now + timer.intervalNanos));
+            }
+            dueTimers.forEach(timer -> UserThread.execute(timer::fire));
+        } catch (Throwable t) {
+            // An exception would cancel the ticker
+            log.error("Error at processing the timer wheel: " + t.toString());
+            t.printStackTrace();
+        }
+    }
+
+    private static void expireBucket(Bucket bucket, List<HashedWheelTimer> dueTimers) {
+        HashedWheelTimer timer = bucket.head;
+        while (timer != null) {
+            HashedWheelTimer next = timer.next;
+            if (timer.remainingRounds <= 0) {
+                timer.unschedule();
+                dueTimers.add(timer);
+            } else {
+                timer.remainingRounds--;
+            }
+            timer = next;
+        }
+    }
+
+    // Called from the UserThread
+    private void fire() {
+        if (!stopped) {
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                log.error(t.getMessage());
+                t.printStackTrace();
+                stop();
+                throw t;
+            }
+        }
+    }
+
+    // Must be called with LOCK held
+    private void schedule(long deadlineNanos) {
+        if (stopped)
+            return;
+
+        unschedule();
+        long deadlineTick = Math.max((deadlineNanos - startNanos + TICK_NANOS - 1) / TICK_NANOS, tick);
+        remainingRounds = (deadlineTick - tick) / WHEEL_SIZE;
+        wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(this);
+        numLiveTimers++;
+    }
+
+    // Must be called with LOCK held
+    private void unschedule() {
+        if (bucket != null) {
+            bucket.remove(this);
+            numLiveTimers--;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Bucket
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Doubly linked list of the timers, so we can remove a stopped timer without a lookup
+    private static final class Bucket {
+        private HashedWheelTimer head;
+        private HashedWheelTimer tail;
+
+        private void add(HashedWheelTimer timer) {
+            timer.bucket = this;
+            timer.previous = tail;
+            timer.next = null;
+            if (tail == null)
+                head = timer;
+            else
+                tail.next = timer;
+            tail = timer;
+        }
+
+        private void remove(HashedWheelTimer timer) {
+            if (timer.previous == null)
+                head = timer.next;
+            else
+                timer.previous.next = timer.next;
+            if (timer.next == null)
+                tail = timer.previous;
+            else
+                timer.next.previous = timer.previous;
+            timer.bucket = null;
+            timer.previous = null;
+            timer.next = null;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in UserThread executor for headless nodes which partitions keyed work onto N ordered lanes.
+ * <p/>
+ * Unkeyed work (execute(Runnable), timers,...) runs on the main lane and never concurrently with any other work, so
+ * all existing code keeps its single threaded semantics. Work submitted with UserThread.execute(key, runnable) runs on
+ * the lane of the key. Work with the same key is executed in submission order, work of different keys runs in
+ * parallel with other keyed work, but not while main lane work is running. Keyed work therefore must only read the
+ * state it shares with other UserThread work. It must not rely on ordering relative to unkeyed work.
+ */
+@Slf4j
+public class ShardedExecutor implements Executor {
+    // Stats of a lane since the last call of getAndResetSnapshot
+    @Value
+    public static class LaneSnapshot {
+        private final String name;
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final long numTasks;
+        // Ratio of time spent running tasks
+        private final double utilization;
+        // Time the tasks waited for the lock, the main lane waits for the keyed lanes and vice versa
+        private final double averageLockWaitMs;
+
+        @Override
+        public String toString() {
+            return name + "{queueDepth=" + queueDepth +
+                    ", maxQueueDepth=" + maxQueueDepth +
+                    ", numTasks=" + numTasks +
+                    ", utilization=" + String.format("%.2f", utilization) +
+                    ", averageLockWaitMs=" + String.format("%.2f", averageLockWaitMs) +
+                    "}";
+        }
+    }
+
+    private static final class Lane {
+        private final String name;
+        private final Lock lock;
+        private final ExecutorService executor;
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong numTasks = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong lockWaitNanos = new AtomicLong();
+        private volatile long snapshotNanos = System.nanoTime();
+
+        private Lane(String name, Lock lock) {
+            this.name = name;
+            this.lock = lock;
+            executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat(name)
+                    .setDaemon(true)
+                    .build());
+        }
+
+        private void execute(Runnable command) {
+            maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+            executor.execute(() -> {
+                queueDepth.decrementAndGet();
+                long startNanos = System.nanoTime();
+                lock.lock();
+                long lockedNanos = System.nanoTime();
+                lockWaitNanos.addAndGet(lockedNanos - startNanos);
+                numTasks.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    lock.unlock();
+                    busyNanos.addAndGet(System.nanoTime() - lockedNanos);
+                }
+            });
+        }
+
+        private LaneSnapshot getAndResetSnapshot() {
+            long now = System.nanoTime();
+            long intervalNanos = Math.max(1, now - snapshotNanos);
+            snapshotNanos = now;
+            long tasks = numTasks.getAndSet(0);
+            long lockWait = lockWaitNanos.getAndSet(0);
+            return new LaneSnapshot(name,
+                    queueDepth.get(),
+                    maxQueueDepth.getAndSet(queueDepth.get()),
+                    tasks,
+                    Math.min(1, busyNanos.getAndSet(0) / (double) intervalNanos),
+                    tasks > 0 ? lockWait / (double) tasks / 1_000_000 : 0);
+        }
+    }
+
+    // Fair, so a stream of keyed work cannot starve the main lane
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private final Lane mainLane;
+    private final Lane[] lanes;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ShardedExecutor(String name, int numLanes) {
+        if (numLanes < 1)
+            throw new IllegalArgumentException("numLanes must be at least 1. numLanes=" + numLanes);
+
+        mainLane = new Lane(name, lock.writeLock());
+        lanes = new Lane[numLanes];
+        for (int i = 0; i < numLanes; i++)
+            lanes[i] = new Lane(name + "-lane-" + i, lock.readLock());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(Runnable command) {
+        mainLane.execute(command);
+    }
+
+    public void execute(Object key, Runnable command) {
+        lanes[(key.hashCode() & Integer.MAX_VALUE) % lanes.length].execute(command);
+    }
+
+    public int getNumLanes() {
+        return lanes.length;
+    }
+
+    // The first entry is the main lane
+    public List<LaneSnapshot> getAndResetSnapshot() {
+        List<LaneSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(mainLane.getAndResetSnapshot());
+        for (Lane lane : lanes)
+            snapshots.add(lane.getAndResetSnapshot());
+        return snapshots;
+    }
+
+    public void shutDown() {
+        for (Lane lane : lanes)
+            MoreExecutors.shutdownAndAwaitTermination(lane.executor, 500, TimeUnit.MILLISECONDS);
+        MoreExecutors.shutdownAndAwaitTermination(mainLane.executor, 500, TimeUnit.MILLISECONDS);
+    }
+}
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.time.Duration;
 import java.util.Random;
@@ -31,6 +32,8 @@ import java.util.concurrent.TimeUnit;
 public class UserThread {
     private static final Logger log = LoggerFactory.getLogger(UserThread.class);
     private static Class<? extends Timer> timerClass;
+    // Looked up once, so we don't pay for the reflective lookup at each timer
+    private static Constructor<? extends Timer> timerConstructor;
 
     public static Executor getExecutor() {
         return executor;
@@ -42,6 +45,7 @@ public class UserThread {
 
     public static void setTimerClass(Class<? extends Timer> timerClass) {
         UserThread.timerClass = timerClass;
+        timerConstructor = null;
     }
 
     static {
@@ -56,6 +60,15 @@ public class UserThread {
         UserThread.executor.execute(command);
     }
 
+    // Work with the same key is executed in order. With a ShardedExecutor work of different keys runs in parallel, so
+    // the command must only read state it shares with other UserThread work.
+    public static void execute(Object key, Runnable command) {
+        if (UserThread.executor instanceof ShardedExecutor)
+            ((ShardedExecutor) UserThread.executor).execute(key, command);
+        else
+            UserThread.executor.execute(command);
+    }
+
 
     // Prefer FxTimer if a delay is needed in a JavaFx class (gui module) 
     public static Timer runAfterRandomDelay(Runnable runnable, long minDelayInSec, long maxDelayInSec) {
@@ -85,7 +98,9 @@ public class UserThread {
 
     private static Timer getTimer() {
         try {
-            return timerClass.getDeclaredConstructor().newInstance();
+            if (timerConstructor == null)
+                timerConstructor = timerClass.getDeclaredConstructor();
+            return timerConstructor.newInstance();
         } catch (InstantiationException | NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
             String message = "Could not instantiate timer bsTimerClass=" + timerClass;
             log.error(message);
@@ -19,6 +19,10 @@ public class Capabilities {
         ACCOUNT_AGE_WITNESS,
         SEED_NODE,
         DAO_FULL_NODE,
+        COMPACT_DATA_SYNC,
+        BUNDLE_OF_ENVELOPES,
+        SESSION_KEY_ENCRYPTION,
+        COMPRESSED_ENVELOPE
     }
 
     // Application need to set supported capabilities at startup
@@ -26,6 +26,7 @@ import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.*;
@@ -42,6 +43,11 @@ public class Encryption {
 
     private static final String SYM_KEY_ALGO = "AES";
     private static final String SYM_CIPHER = "AES";
+    // Used with session keys which encrypt several messages. GCM authenticates the ciphertext, so we don't need a
+    // separate Hmac. A session key encrypts at most a few hundred messages, so random nonces don't repeat.
+    private static final String SYM_SESSION_CIPHER = "AES/GCM/NoPadding";
+    private static final int SESSION_NONCE_LENGTH = 12;
+    private static final int SESSION_TAG_LENGTH_BITS = 128;
 
     private static final String HMAC = "HmacSHA256";
 
@@ -87,6 +93,40 @@ public class Encryption {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Symmetric with session key
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The nonce must never be used twice with the same secret key
+    public static byte[] encryptSessionPayload(byte[] payload, SecretKey secretKey, byte[] nonce) throws CryptoException {
+        try {
+            Cipher cipher = Cipher.getInstance(SYM_SESSION_CIPHER, "BC");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(SESSION_TAG_LENGTH_BITS, nonce));
+            return cipher.doFinal(payload);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            throw new CryptoException(e);
+        }
+    }
+
+    // Fails if the authentication tag does not match
+    public static byte[] decryptSessionPayload(byte[] encryptedPayload, SecretKey secretKey, byte[] nonce) throws CryptoException {
+        try {
+            Cipher cipher = Cipher.getInstance(SYM_SESSION_CIPHER, "BC");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(SESSION_TAG_LENGTH_BITS, nonce));
+            return cipher.doFinal(encryptedPayload);
+        } catch (Throwable e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    public static byte[] generateSessionNonce() {
+        byte[] nonce = new byte[SESSION_NONCE_LENGTH];
+        new SecureRandom().nextBytes(nonce);
+        return nonce;
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Hmac
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -152,7 +192,10 @@ public class Encryption {
     }
 
     public static byte[] decryptPayloadWithHmac(byte[] encryptedPayloadWithHmac, SecretKey secretKey) throws CryptoException {
-        byte[] payloadWithHmac = decrypt(encryptedPayloadWithHmac, secretKey);
+        return getVerifiedPayload(decrypt(encryptedPayloadWithHmac, secretKey), secretKey);
+    }
+
+    private static byte[] getVerifiedPayload(byte[] payloadWithHmac, SecretKey secretKey) throws CryptoException {
         String payloadWithHmacAsHex = Hex.toHexString(payloadWithHmac);
         // first part is raw message
         int length = payloadWithHmacAsHex.length();
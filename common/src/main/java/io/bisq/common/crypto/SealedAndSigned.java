@@ -22,6 +22,7 @@ import io.bisq.common.proto.network.NetworkPayload;
 import io.bisq.generated.protobuffer.PB;
 import lombok.Value;
 
+import javax.annotation.Nullable;
 import java.security.PublicKey;
 
 @Value
@@ -31,15 +32,29 @@ public final class SealedAndSigned implements NetworkPayload {
     private final byte[] signature;
     private final byte[] sigPublicKeyBytes;
     transient private final PublicKey sigPublicKey;
+    // Only set if the payload is encrypted with a session key. Then the encryptedSecretKey is the same for all
+    // messages of that session and the payload is encrypted with AES/GCM with that nonce. The encryptedPayloadWithHmac
+    // contains the GCM authentication tag instead of a Hmac then.
+    @Nullable
+    private final byte[] iv;
 
     public SealedAndSigned(byte[] encryptedSecretKey,
                            byte[] encryptedPayloadWithHmac,
                            byte[] signature,
                            PublicKey sigPublicKey) {
+        this(encryptedSecretKey, encryptedPayloadWithHmac, signature, sigPublicKey, null);
+    }
+
+    public SealedAndSigned(byte[] encryptedSecretKey,
+                           byte[] encryptedPayloadWithHmac,
+                           byte[] signature,
+                           PublicKey sigPublicKey,
+                           @Nullable byte[] iv) {
         this.encryptedSecretKey = encryptedSecretKey;
         this.encryptedPayloadWithHmac = encryptedPayloadWithHmac;
         this.signature = signature;
         this.sigPublicKey = sigPublicKey;
+        this.iv = iv;
 
         sigPublicKeyBytes = Sig.getPublicKeyBytes(sigPublicKey);
     }
@@ -52,28 +67,33 @@ public final class SealedAndSigned implements NetworkPayload {
     private SealedAndSigned(byte[] encryptedSecretKey,
                             byte[] encryptedPayloadWithHmac,
                             byte[] signature,
-                            byte[] sigPublicKeyBytes) {
+                            byte[] sigPublicKeyBytes,
+                            @Nullable byte[] iv) {
         this.encryptedSecretKey = encryptedSecretKey;
         this.encryptedPayloadWithHmac = encryptedPayloadWithHmac;
         this.signature = signature;
         this.sigPublicKeyBytes = sigPublicKeyBytes;
+        this.iv = iv;
 
         sigPublicKey = Sig.getPublicKeyFromBytes(sigPublicKeyBytes);
     }
 
     public PB.SealedAndSigned toProtoMessage() {
-        return PB.SealedAndSigned.newBuilder()
+        PB.SealedAndSigned.Builder builder = PB.SealedAndSigned.newBuilder()
                 .setEncryptedSecretKey(ByteString.copyFrom(encryptedSecretKey))
                 .setEncryptedPayloadWithHmac(ByteString.copyFrom(encryptedPayloadWithHmac))
                 .setSignature(ByteString.copyFrom(signature))
-                .setSigPublicKeyBytes(ByteString.copyFrom(sigPublicKeyBytes))
-                .build();
+                .setSigPublicKeyBytes(ByteString.copyFrom(sigPublicKeyBytes));
+        if (iv != null)
+            builder.setIv(ByteString.copyFrom(iv));
+        return builder.build();
     }
 
     public static SealedAndSigned fromProto(PB.SealedAndSigned proto) {
         return new SealedAndSigned(proto.getEncryptedSecretKey().toByteArray(),
                 proto.getEncryptedPayloadWithHmac().toByteArray(),
                 proto.getSignature().toByteArray(),
-                proto.getSigPublicKeyBytes().toByteArray());
+                proto.getSigPublicKeyBytes().toByteArray(),
+                proto.getIv().isEmpty() ? null : proto.getIv().toByteArray());
     }
 }
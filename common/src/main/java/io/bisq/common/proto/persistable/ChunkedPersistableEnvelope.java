@@ -0,0 +1,48 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.proto.persistable;
+
+import com.google.protobuf.Message;
+
+import java.util.Iterator;
+
+/**
+ * Envelope holding large collections which gets persisted in chunks, so neither at write nor at read the whole
+ * structure needs to be in memory as protobuf message. Each chunk is a PersistableEnvelope message of the same type
+ * holding a part of the collections. The file format is described at ChunkedFileFormat.
+ */
+public interface ChunkedPersistableEnvelope extends PersistableEnvelope {
+    /**
+     * The first chunk carries all fields which are not part of a collection. The chunks are created while iterating,
+     * so only one of them needs to be in memory.
+     */
+    Iterator<Message> toProtoChunks(int maxItemsPerChunk);
+
+    /**
+     * Called on the envelope resolved from the first chunk with the envelopes resolved from the following chunks.
+     */
+    void mergeChunk(PersistableEnvelope chunk);
+
+    /**
+     * If true the chunks of a delayed save are created at the writer thread while the file is written, so the
+     * envelope must not change after it was queued up (e.g. a clone used as snapshot) or only hold immutable items in
+     * a concurrent collection, where a concurrently added item may or may not be written. Otherwise all chunks are
+     * created at queueUpForSave on the calling thread.
+     */
+    boolean canBeChunkedConcurrently();
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import io.bisq.common.proto.ProtobufferException;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * File format of ChunkedPersistableEnvelopes: a header followed by delimited PB.PersistableEnvelope records, one per
+ * chunk. The records are read and written one by one, so only a single chunk is in memory as protobuf message.
+ * <p/>
+ * A single message file (the format of all other envelopes and of files written by older versions) starts with the
+ * varint length of the message, which is never 0 as the envelope always has one of its fields set. The header starts
+ * with a 0 byte followed by magic bytes and the format version, so we can tell both formats apart.
+ */
+public final class ChunkedFileFormat {
+    private static final byte[] HEADER = {0, 'B', 'C', 'H', 'K', 1};
+    public static final int HEADER_LENGTH = HEADER.length;
+    static final int MAX_ITEMS_PER_CHUNK = 1000;
+
+    private ChunkedFileFormat() {
+    }
+
+    // Does not change the position of the buffer
+    public static boolean hasHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH)
+            return false;
+
+        for (int i = 0; i < HEADER_LENGTH; i++) {
+            if (buffer.get(buffer.position() + i) != HEADER[i])
+                return false;
+        }
+        return true;
+    }
+
+    // The stream must support mark. If there is no header the stream is reset to the start.
+    static boolean readHeader(InputStream inputStream) throws IOException {
+        inputStream.mark(HEADER_LENGTH);
+        byte[] bytes = new byte[HEADER_LENGTH];
+        int numRead = 0;
+        while (numRead < HEADER_LENGTH) {
+            int result = inputStream.read(bytes, numRead, HEADER_LENGTH - numRead);
+            if (result == -1)
+                break;
+            numRead += result;
+        }
+        if (numRead == HEADER_LENGTH && Arrays.equals(bytes, HEADER))
+            return true;
+
+        inputStream.reset();
+        return false;
+    }
+
+    // Returns the number of bytes written
+    static long write(ChunkedPersistableEnvelope envelope, OutputStream outputStream) throws IOException {
+        return write(envelope.toProtoChunks(MAX_ITEMS_PER_CHUNK), outputStream);
+    }
+
+    static long write(Iterator<Message> chunks, OutputStream outputStream) throws IOException {
+        outputStream.write(HEADER);
+        long numBytes = HEADER_LENGTH;
+        while (chunks.hasNext()) {
+            Message chunk = chunks.next();
+            chunk.writeDelimitedTo(outputStream);
+            int size = chunk.getSerializedSize();
+            numBytes += size + CodedOutputStream.computeUInt32SizeNoTag(size);
+        }
+        return numBytes;
+    }
+
+    // Must be called after readHeader
+    static PersistableEnvelope read(InputStream inputStream, PersistenceProtoResolver persistenceProtoResolver)
+            throws IOException {
+        PB.PersistableEnvelope proto = PB.PersistableEnvelope.parseDelimitedFrom(inputStream);
+        if (proto == null)
+            throw new ProtobufferException("Chunked file does not contain any chunk");
+
+        PersistableEnvelope envelope = persistenceProtoResolver.fromProto(proto);
+        if (!(envelope instanceof ChunkedPersistableEnvelope))
+            throw new ProtobufferException("Chunked file contains " + envelope.getClass().getSimpleName() +
+                    " which is not a ChunkedPersistableEnvelope");
+
+        while ((proto = PB.PersistableEnvelope.parseDelimitedFrom(inputStream)) != null)
+            ((ChunkedPersistableEnvelope) envelope).mergeChunk(persistenceProtoResolver.fromProto(proto));
+        return envelope;
+    }
+}
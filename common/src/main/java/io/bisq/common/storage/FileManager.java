@@ -17,32 +17,40 @@
 
 package io.bisq.common.storage;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.CycleDetectingLockFactory;
-import io.bisq.common.UserThread;
+import com.google.protobuf.Message;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
-import io.bisq.common.util.Utilities;
 import io.bisq.generated.protobuffer.PB;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
 import java.nio.file.Paths;
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Writes a persistable to its storage file.
+ * <p/>
+ * The persistable is serialized to its immutable protobuf message on the thread which queues up the save (usually
+ * the UserThread which also changes it), so the writer thread only writes a consistent snapshot and never touches
+ * the live objects. If more saves are queued up within the delay only the latest snapshot gets written.
+ * <p/>
+ * ChunkedPersistableEnvelopes are serialized chunk by chunk while writing if they support it (see
+ * ChunkedPersistableEnvelope.canBeChunkedConcurrently), otherwise their chunks are created when the save is queued up.
+ */
 @Slf4j
 public class FileManager<T extends PersistableEnvelope> {
+    // Writes the serialized persistable to the stream and returns the number of bytes written
+    private interface Snapshot {
+        long writeTo(OutputStream outputStream) throws IOException;
+    }
+
     private final File dir;
     private final File storageFile;
-    private final ScheduledThreadPoolExecutor executor;
-    private final AtomicBoolean savePending;
     private final long delay;
-    private final Callable<Void> saveFileTask;
-    private T persistable;
     private final PersistenceProtoResolver persistenceProtoResolver;
     private final ReentrantLock writeLock = CycleDetectingLockFactory.newInstance(CycleDetectingLockFactory.Policies.THROW).newReentrantLock("writeLock");
 
@@ -55,29 +63,7 @@ public class FileManager<T extends PersistableEnvelope> {
         this.storageFile = storageFile;
         this.persistenceProtoResolver = persistenceProtoResolver;
 
-        executor = Utilities.getScheduledThreadPoolExecutor("FileManager", 1, 10, 5);
-
-        // File must only be accessed from the auto-save executor from now on, to avoid simultaneous access.
-        savePending = new AtomicBoolean();
         this.delay = delay;
-
-        saveFileTask = () -> {
-            try {
-                Thread.currentThread().setName("Save-file-task-" + new Random().nextInt(10000));
-                // Runs in an auto save thread.
-                if (!savePending.getAndSet(false)) {
-                    // Some other scheduled request already beat us to it.
-                    return null;
-                }
-                saveNowInternal(persistable);
-            } catch (Throwable e) {
-                log.error("Error during saveFileTask", e);
-            }
-            return null;
-        };
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            UserThread.execute(FileManager.this::shutDown);
-        }, "FileManager.ShutDownHook"));
     }
 
 
@@ -87,9 +73,18 @@ public class FileManager<T extends PersistableEnvelope> {
 
     /**
      * Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread.
+     * Returns false if the file could not be written.
      */
-    public void saveNow(T persistable) {
-        saveNowInternal(persistable);
+    public boolean saveNow(T persistable) {
+        long now = System.currentTimeMillis();
+        try {
+            saveToFile(takeSnapshot(persistable), persistable, dir, storageFile);
+            log.trace("Save {} completed in {} msec", storageFile, System.currentTimeMillis() - now);
+            return true;
+        } catch (Throwable t) {
+            log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
+            return false;
+        }
     }
 
     /**
@@ -100,20 +95,30 @@ public class FileManager<T extends PersistableEnvelope> {
     }
 
     public void saveLater(T persistable, long delayInMilli) {
-        this.persistable = persistable;
-
-        if (savePending.getAndSet(true))
-            return;   // Already pending.
+        final Snapshot snapshot;
+        try {
+            snapshot = takeSnapshot(persistable);
+        } catch (Throwable t) {
+            log.error("Error in saveLater toProtoMessage: {}, {}", persistable.getClass().getSimpleName(), storageFile);
+            t.printStackTrace();
+            return;
+        }
 
-        executor.schedule(saveFileTask, delayInMilli, TimeUnit.MILLISECONDS);
+        // If a save is already pending it gets replaced, so only the latest state is written
+        PersistenceScheduler.getDefault().schedule(storageFile, storageFile.getName(), delayInMilli,
+                () -> saveToFile(snapshot, persistable, dir, storageFile));
     }
 
     @SuppressWarnings("unchecked")
     public synchronized T read(File file) {
         log.debug("Read from disc: {}", file.getName());
 
-        try (final FileInputStream fileInputStream = new FileInputStream(file)) {
-            PB.PersistableEnvelope persistable = PB.PersistableEnvelope.parseDelimitedFrom(fileInputStream);
+        try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            // Files of ChunkedPersistableEnvelopes start with a header, all others (and older files) are a single message
+            if (ChunkedFileFormat.readHeader(inputStream))
+                return (T) ChunkedFileFormat.read(inputStream, persistenceProtoResolver);
+
+            PB.PersistableEnvelope persistable = PB.PersistableEnvelope.parseDelimitedFrom(inputStream);
             return (T) persistenceProtoResolver.fromProto(persistable);
         } catch (Throwable t) {
             String errorMsg = "Exception at proto read: " + t.getMessage() + " file:" + file.getAbsolutePath();
@@ -141,19 +146,6 @@ public class FileManager<T extends PersistableEnvelope> {
         }
     }
 
-
-    /**
-     * Shut down auto-saving.
-     */
-    void shutDown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     public synchronized void removeAndBackupFile(String fileName) throws IOException {
         File corruptedBackupDir = new File(Paths.get(dir.getAbsolutePath(), "backup_of_corrupted_data").toString());
         if (!corruptedBackupDir.exists())
@@ -172,30 +164,36 @@ public class FileManager<T extends PersistableEnvelope> {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void saveNowInternal(T persistable) {
-        long now = System.currentTimeMillis();
-        saveToFile(persistable, dir, storageFile);
-        log.trace("Save {} completed in {} msec", storageFile, System.currentTimeMillis() - now);
+    // Called on the thread which changes the persistable
+    private Snapshot takeSnapshot(T persistable) {
+        if (persistable instanceof ChunkedPersistableEnvelope) {
+            ChunkedPersistableEnvelope chunkedPersistable = (ChunkedPersistableEnvelope) persistable;
+            if (chunkedPersistable.canBeChunkedConcurrently())
+                return outputStream -> ChunkedFileFormat.write(chunkedPersistable, outputStream);
+
+            List<Message> chunks = ImmutableList.copyOf(
+                    chunkedPersistable.toProtoChunks(ChunkedFileFormat.MAX_ITEMS_PER_CHUNK));
+            return outputStream -> ChunkedFileFormat.write(chunks.iterator(), outputStream);
+        }
+
+        PB.PersistableEnvelope protoPersistable = (PB.PersistableEnvelope) persistable.toProtoMessage();
+        if (protoPersistable.getSerializedSize() == 0)
+            log.error("protoPersistable is empty. persistable=" + persistable.getClass().getSimpleName());
+        return outputStream -> {
+            protoPersistable.writeDelimitedTo(outputStream);
+            return protoPersistable.getSerializedSize();
+        };
     }
 
-    private synchronized void saveToFile(T persistable, File dir, File storageFile) {
+    // Returns the number of bytes written. Throws if the file could not be written, the old file is kept in that case.
+    private synchronized long saveToFile(Snapshot snapshot, T persistable, File dir, File storageFile)
+            throws IOException {
         File tempFile = null;
         FileOutputStream fileOutputStream = null;
         PrintWriter printWriter = null;
 
         try {
             log.debug("Write to disc: {}", storageFile.getName());
-            PB.PersistableEnvelope protoPersistable;
-            try {
-                protoPersistable = (PB.PersistableEnvelope) persistable.toProtoMessage();
-                if (protoPersistable.toByteArray().length == 0)
-                    log.error("protoPersistable is empty. persistable=" + persistable.getClass().getSimpleName());
-            } catch (Throwable e) {
-                log.error("Error in saveToFile toProtoMessage: {}, {}", persistable.getClass().getSimpleName(), storageFile);
-                e.printStackTrace();
-                throw new RuntimeException(e);
-            }
-
             if (!dir.exists() && !dir.mkdir())
                 log.warn("make dir failed");
 
@@ -205,7 +203,7 @@ public class FileManager<T extends PersistableEnvelope> {
 
             log.debug("Writing protobuffer class:{} to file:{}", persistable.getClass(), storageFile.getName());
             writeLock.lock();
-            protoPersistable.writeDelimitedTo(fileOutputStream);
+            long numBytes = snapshot.writeTo(fileOutputStream);
 
             // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
             // to not write through to physical media for at least a few seconds, but this is the best we can do.
@@ -217,8 +215,7 @@ public class FileManager<T extends PersistableEnvelope> {
             // when rename temp file
             fileOutputStream.close();
             FileUtil.renameFile(tempFile, storageFile);
-        } catch (Throwable t) {
-            log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
+            return numBytes;
         } finally {
             if (writeLock.isLocked())
                 writeLock.unlock();
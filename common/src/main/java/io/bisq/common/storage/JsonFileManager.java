@@ -17,7 +17,6 @@
 
 package io.bisq.common.storage;
 
-import io.bisq.common.UserThread;
 import io.bisq.common.util.Utilities;
 import lombok.extern.slf4j.Slf4j;
 import org.json.simple.parser.JSONParser;
@@ -28,12 +27,9 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Paths;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class JsonFileManager {
-    private final ThreadPoolExecutor executor = Utilities.getThreadPoolExecutor("saveToDiscExecutor", 5, 50, 60);
     private final File dir;
 
 
@@ -47,30 +43,22 @@ public class JsonFileManager {
         if (!dir.exists())
             if (!dir.mkdir())
                 log.warn("make dir failed");
-
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            UserThread.execute(JsonFileManager.this::shutDown);
-        }, "WriteOnlyFileManager.ShutDownHook"));
     }
 
+    // Writes the pending files of our dir
     public void shutDown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        PersistenceScheduler.getDefault().flush(dir);
     }
 
+    // Errors are logged and counted as failed writes by the PersistenceScheduler
     public void writeToDisc(String json, String fileName) {
-        executor.execute(() -> {
-            File jsonFile = new File(Paths.get(dir.getAbsolutePath(), fileName + ".json").toString());
+        File jsonFile = new File(Paths.get(dir.getAbsolutePath(), fileName + ".json").toString());
+        PersistenceScheduler.getDefault().schedule(jsonFile, dir.getName(), 0, () -> {
             File tempFile = null;
             PrintWriter printWriter = null;
             try {
                 tempFile = File.createTempFile("temp", null, dir);
-                if (!executor.isShutdown() && !executor.isTerminated() && !executor.isTerminating())
-                    tempFile.deleteOnExit();
+                tempFile.deleteOnExit();
 
                 printWriter = new PrintWriter(tempFile);
                 printWriter.println(json);
@@ -87,9 +75,7 @@ public class JsonFileManager {
                 } else if (!tempFile.renameTo(jsonFile)) {
                     throw new IOException("Failed to rename " + tempFile + " to " + jsonFile);
                 }
-            } catch (Throwable t) {
-                log.error("storageFile " + jsonFile.toString());
-                t.printStackTrace();
+                return json.length();
             } finally {
                 if (tempFile != null && tempFile.exists()) {
                     log.warn("Temp file still exists after failed save. We will delete it now. storageFile=" + fileName);
@@ -0,0 +1,297 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import io.bisq.common.util.Utilities;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Central scheduler for all delayed writes of the FileManager and JsonFileManager instances.
+ * <p/>
+ * Writes are coalesced per file: if a write is already pending for a file the new write replaces it and keeps the
+ * pending schedule, so only the latest state gets written. Writes of the same file never run concurrently and all
+ * writes share a small thread pool, which limits the number of concurrent fsync heavy writes.
+ * Each file gets written at most once per minWriteIntervalMs, writes beyond that rate are deferred to the next free
+ * slot of the file. The limit is per file, so a bulk export of many files (e.g. the json files of all transactions)
+ * is not throttled.
+ * At JVM shutdown all pending writes are flushed in the order they have been queued up, without rate limit.
+ */
+@Slf4j
+public class PersistenceScheduler {
+    // The files are written with fsync, more parallel writes would only compete for the disk
+    private static final int MAX_CONCURRENT_WRITES = 2;
+    // Limits a file which gets saved in a loop to 50 writes per sec
+    private static final long MIN_WRITE_INTERVAL_MS = 20;
+    // If we hold more slots we remove the ones which are over already
+    private static final int PRUNE_NEXT_WRITE_TS_THRESHOLD = 1000;
+    private static final long FLUSH_TIMEOUT_MS = 5000;
+
+    private static final PersistenceScheduler DEFAULT = new PersistenceScheduler("PersistenceScheduler",
+            MAX_CONCURRENT_WRITES, MIN_WRITE_INTERVAL_MS);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT::flushAll, "PersistenceScheduler.ShutDownHook"));
+    }
+
+    public static PersistenceScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    // Writes the file and returns the number of bytes written
+    public interface WriteTask {
+        long write() throws Exception;
+    }
+
+    @Value
+    public static class StoreMetrics {
+        private final String storeName;
+        private final long numWrites;
+        // Writes which have been replaced by a later write before they got executed
+        private final long numCoalescedWrites;
+        private final long numFailedWrites;
+        private final long bytesWritten;
+        private final long maxWriteBytes;
+        private final long totalWriteMs;
+    }
+
+    // Pending and running write of a file
+    private static final class Entry {
+        private final File file;
+        private final String storeName;
+        private long delayInMilli;
+        private WriteTask task;
+        // Order of queuing up, used for the ordered flush
+        private long seqNr;
+        private ScheduledFuture<?> future;
+        private boolean writing;
+
+        private Entry(File file, String storeName) {
+            this.file = file;
+            this.storeName = storeName;
+        }
+    }
+
+    private static final class MutableMetrics {
+        private long numWrites;
+        private long numCoalescedWrites;
+        private long numFailedWrites;
+        private long bytesWritten;
+        private long maxWriteBytes;
+        private long totalWriteMs;
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long minWriteIntervalMs;
+    // All state below is guarded by this
+    private final Map<File, Entry> entries = new HashMap<>();
+    private final Map<String, MutableMetrics> metricsByStoreName = new TreeMap<>();
+    // Earliest time of the next write per file
+    private final Map<File, Long> nextWriteTsByFile = new HashMap<>();
+    private long seqNr;
+    private boolean shutDown;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PersistenceScheduler(String name, int maxConcurrentWrites, long minWriteIntervalMs) {
+        this.minWriteIntervalMs = minWriteIntervalMs;
+        executor = Utilities.getScheduledThreadPoolExecutor(name, maxConcurrentWrites, maxConcurrentWrites, 60);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Schedules a write of the file. If a write is already pending for that file it gets replaced by the new one.
+     * After shut down writes are executed on the calling thread, so late writes don't get lost.
+     */
+    public void schedule(File file, String storeName, long delayInMilli, WriteTask task) {
+        synchronized (this) {
+            if (!shutDown) {
+                Entry entry = entries.computeIfAbsent(file, key -> new Entry(file, storeName));
+                entry.delayInMilli = delayInMilli;
+                if (entry.task != null) {
+                    getMetrics(storeName).numCoalescedWrites++;
+                    entry.task = task;
+                    return;
+                }
+
+                entry.task = task;
+                entry.seqNr = seqNr++;
+                // If the file is currently written the new write gets scheduled once the running write is completed
+                if (!entry.writing)
+                    scheduleWrite(entry);
+                return;
+            }
+        }
+        execute(storeName, file, task);
+    }
+
+    /**
+     * Writes all pending writes of files inside dir on the calling thread. Waits for running writes to complete.
+     */
+    public void flush(File dir) {
+        flush(file -> dir.equals(file.getParentFile()));
+    }
+
+    public synchronized List<StoreMetrics> getMetrics() {
+        return metricsByStoreName.entrySet().stream()
+                .map(e -> new StoreMetrics(e.getKey(),
+                        e.getValue().numWrites,
+                        e.getValue().numCoalescedWrites,
+                        e.getValue().numFailedWrites,
+                        e.getValue().bytesWritten,
+                        e.getValue().maxWriteBytes,
+                        e.getValue().totalWriteMs))
+                .collect(Collectors.toList());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the shut down hook. All later writes are executed on the calling thread.
+    void flushAll() {
+        synchronized (this) {
+            shutDown = true;
+        }
+        flush(file -> true);
+        executor.shutdown();
+        log.info("Persistence flushed at shut down. Metrics: {}", getMetrics());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the executor
+    private void write(Entry entry) {
+        WriteTask task;
+        synchronized (this) {
+            if (entry.task == null || entry.writing)
+                return;
+            task = entry.task;
+            entry.task = null;
+            entry.future = null;
+            entry.writing = true;
+        }
+
+        try {
+            execute(entry.storeName, entry.file, task);
+        } finally {
+            synchronized (this) {
+                entry.writing = false;
+                if (entry.task != null) {
+                    if (!shutDown)
+                        scheduleWrite(entry);
+                } else {
+                    entries.remove(entry.file);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Must be called while holding the lock. Reserves the next free write slot of the file. A coalesced write keeps
+    // the slot of the write it replaces.
+    private void scheduleWrite(Entry entry) {
+        long now = System.currentTimeMillis();
+        long writeTs = Math.max(now + entry.delayInMilli, nextWriteTsByFile.getOrDefault(entry.file, 0L));
+        if (nextWriteTsByFile.size() >= PRUNE_NEXT_WRITE_TS_THRESHOLD)
+            nextWriteTsByFile.values().removeIf(nextWriteTs -> nextWriteTs <= now);
+        nextWriteTsByFile.put(entry.file, writeTs + minWriteIntervalMs);
+        entry.future = executor.schedule(() -> write(entry), writeTs - now, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(Predicate<File> filter) {
+        List<Runnable> pending = new ArrayList<>();
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+            // We wait for the running writes, otherwise they could overwrite the newer data of the flush
+            while (entries.values().stream().anyMatch(entry -> entry.writing && filter.test(entry.file))) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.warn("Running writes did not complete in {} ms. We flush anyway.", FLUSH_TIMEOUT_MS);
+                    break;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            entries.values().stream()
+                    .filter(entry -> entry.task != null && filter.test(entry.file))
+                    .sorted(Comparator.comparingLong(entry -> entry.seqNr))
+                    .forEach(entry -> {
+                        if (entry.future != null)
+                            entry.future.cancel(false);
+                        WriteTask task = entry.task;
+                        pending.add(() -> execute(entry.storeName, entry.file, task));
+                        entry.task = null;
+                        entry.future = null;
+                        if (!entry.writing)
+                            entries.remove(entry.file);
+                    });
+        }
+        pending.forEach(Runnable::run);
+    }
+
+    private void execute(String storeName, File file, WriteTask task) {
+        long ts = System.currentTimeMillis();
+        try {
+            long bytes = task.write();
+            long duration = System.currentTimeMillis() - ts;
+            log.trace("Write of {} with {} bytes completed in {} msec", file, bytes, duration);
+            synchronized (this) {
+                MutableMetrics metrics = getMetrics(storeName);
+                metrics.numWrites++;
+                metrics.bytesWritten += bytes;
+                metrics.maxWriteBytes = Math.max(metrics.maxWriteBytes, bytes);
+                metrics.totalWriteMs += duration;
+            }
+        } catch (Throwable t) {
+            log.error("Error at writing " + file, t);
+            synchronized (this) {
+                getMetrics(storeName).numFailedWrites++;
+            }
+        }
+    }
+
+    // Must be called while holding the lock
+    private MutableMetrics getMetrics(String storeName) {
+        return metricsByStoreName.computeIfAbsent(storeName, key -> new MutableMetrics());
+    }
+}
@@ -42,6 +42,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
  * <p/>
  * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
+ * All delayed writes are scheduled at the shared PersistenceScheduler, which coalesces them per file.
  */
 public class Storage<T extends PersistableEnvelope> {
     private static final Logger log = LoggerFactory.getLogger(Storage.class);
@@ -110,7 +111,7 @@ public class Storage<T extends PersistableEnvelope> {
         this.numMaxBackupFiles = numMaxBackupFiles;
     }
 
-    // Save delayed and on a background thread
+    // The persistable is serialized at the calling thread, only the write is delayed and done on a background thread
     public void queueUpForSave(T persistable) {
         if (persistable != null) {
             log.trace("save " + fileName);
@@ -133,6 +134,13 @@ public class Storage<T extends PersistableEnvelope> {
         }
     }
 
+    // Save at the calling thread. Only used by callers which run already on a background thread.
+    // Returns false if the file could not be written.
+    public boolean saveNow(T persistable) {
+        checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
+        return fileManager.saveNow(persistable);
+    }
+
     public void remove(String fileName) {
         fileManager.removeFile(fileName);
     }
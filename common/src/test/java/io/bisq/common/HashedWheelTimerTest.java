@@ -0,0 +1,88 @@
+/*
+ * This file is part of bisq.
+ *
+ * bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// UserThread uses the direct executor by default, so the timers run at the ticker thread
+public class HashedWheelTimerTest {
+
+    @Test
+    public void testRunLater() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long startTs = System.currentTimeMillis();
+        int numLiveTimers = HashedWheelTimer.getNumLiveTimers();
+        new HashedWheelTimer().runLater(Duration.ofMillis(300), latch::countDown);
+        assertEquals(numLiveTimers + 1, HashedWheelTimer.getNumLiveTimers());
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - startTs >= 300);
+        assertEquals(numLiveTimers, HashedWheelTimer.getNumLiveTimers());
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        int numLiveTimers = HashedWheelTimer.getNumLiveTimers();
+        Timer timer = new HashedWheelTimer().runLater(Duration.ofMillis(200), counter::incrementAndGet);
+        timer.stop();
+        assertEquals(numLiveTimers, HashedWheelTimer.getNumLiveTimers());
+
+        Thread.sleep(500);
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testRunPeriodically() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(3);
+        int numLiveTimers = HashedWheelTimer.getNumLiveTimers();
+        Timer timer = new HashedWheelTimer().runPeriodically(Duration.ofMillis(100), latch::countDown);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(numLiveTimers + 1, HashedWheelTimer.getNumLiveTimers());
+        timer.stop();
+        assertEquals(numLiveTimers, HashedWheelTimer.getNumLiveTimers());
+    }
+
+    @Test
+    public void testManyTimers() throws InterruptedException {
+        int numTimers = 10_000;
+        CountDownLatch latch = new CountDownLatch(numTimers / 2);
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < numTimers; i++) {
+            Timer timer = new HashedWheelTimer().runLater(Duration.ofMillis(i % 500), () -> {
+                counter.incrementAndGet();
+                latch.countDown();
+            });
+            if (i % 2 == 1)
+                timer.stop();
+        }
+
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(numTimers / 2, counter.get());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of bisq.
+ *
+ * bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ShardedExecutorTest {
+    private ShardedExecutor executor;
+
+    @Before
+    public void setup() {
+        executor = new ShardedExecutor("ShardedExecutorTest", 4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutDown();
+    }
+
+    @Test
+    public void testOrderPerKey() throws InterruptedException {
+        int numTasks = 1000;
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(numTasks);
+        for (int i = 0; i < numTasks; i++) {
+            int index = i;
+            executor.execute("key", () -> {
+                results.add(index);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, numTasks).boxed().collect(Collectors.toList()), results);
+    }
+
+    @Test
+    public void testKeyedWorkRunsInParallel() throws InterruptedException {
+        // Integer keys 0 and 1 map to different lanes. Both tasks only complete if they run at the same time.
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        for (int key = 0; key < 2; key++) {
+            executor.execute(key, () -> {
+                bothRunning.countDown();
+                try {
+                    if (bothRunning.await(5, TimeUnit.SECONDS))
+                        done.countDown();
+                } catch (InterruptedException ignore) {
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnkeyedWorkRunsExclusively() throws InterruptedException {
+        int numTasks = 2000;
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch latch = new CountDownLatch(numTasks);
+        for (int i = 0; i < numTasks; i++) {
+            if (i % 4 == 0) {
+                executor.execute(() -> {
+                    if (running.incrementAndGet() != 1)
+                        overlapped.set(true);
+                    running.decrementAndGet();
+                    latch.countDown();
+                });
+            } else {
+                executor.execute(i, () -> {
+                    running.addAndGet(1000);
+                    running.addAndGet(-1000);
+                    latch.countDown();
+                });
+            }
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+    }
+
+    @Test
+    public void testSnapshot() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        executor.execute(latch::countDown);
+        executor.execute(0, latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        List<ShardedExecutor.LaneSnapshot> snapshots = executor.getAndResetSnapshot();
+        assertEquals(executor.getNumLanes() + 1, snapshots.size());
+        assertEquals(1, snapshots.get(0).getNumTasks());
+        assertEquals(1, snapshots.get(1).getNumTasks());
+        assertEquals(0, executor.getAndResetSnapshot().get(0).getNumTasks());
+    }
+}
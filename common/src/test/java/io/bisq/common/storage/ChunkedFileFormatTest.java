@@ -0,0 +1,149 @@
+/*
+ * This file is part of bisq.
+ *
+ * bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.common.collect.Iterators;
+import com.google.common.io.Files;
+import com.google.protobuf.Message;
+import io.bisq.common.Payload;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
+import io.bisq.common.proto.persistable.NavigationPath;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ChunkedFileFormatTest {
+    // Uses the NavigationPath proto as it is the only collection envelope in common
+    private static class ChunkedPath implements ChunkedPersistableEnvelope {
+        private final List<String> path;
+
+        private ChunkedPath(List<String> path) {
+            this.path = path;
+        }
+
+        @Override
+        public Message toProtoMessage() {
+            return new NavigationPath(path).toProtoMessage();
+        }
+
+        @Override
+        public Iterator<Message> toProtoChunks(int maxItemsPerChunk) {
+            if (path.isEmpty())
+                return Iterators.singletonIterator(toProtoMessage());
+
+            return Iterators.transform(Iterators.partition(path.iterator(), maxItemsPerChunk),
+                    items -> new NavigationPath(items).toProtoMessage());
+        }
+
+        @Override
+        public void mergeChunk(PersistableEnvelope chunk) {
+            path.addAll(((ChunkedPath) chunk).path);
+        }
+
+        @Override
+        public boolean canBeChunkedConcurrently() {
+            return false;
+        }
+    }
+
+    private final PersistenceProtoResolver resolver = new PersistenceProtoResolver() {
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableEnvelope persistable) {
+            return new ChunkedPath(new ArrayList<>(persistable.getNavigationPath().getPathList()));
+        }
+
+        @Override
+        public Payload fromProto(PB.PaymentAccountPayload proto) {
+            return null;
+        }
+
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+            return null;
+        }
+    };
+
+    private File dir;
+    private File storageFile;
+
+    @Before
+    public void setup() {
+        dir = Files.createTempDir();
+        storageFile = new File(dir, "ChunkedPath");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File file : files)
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void testWriteAndReadChunks() throws IOException {
+        List<String> path = IntStream.range(0, ChunkedFileFormat.MAX_ITEMS_PER_CHUNK * 2 + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.toList());
+        FileManager<ChunkedPath> fileManager = new FileManager<>(dir, storageFile, 0, resolver);
+        fileManager.saveNow(new ChunkedPath(new ArrayList<>(path)));
+
+        try (FileInputStream inputStream = new FileInputStream(storageFile)) {
+            byte[] header = new byte[ChunkedFileFormat.HEADER_LENGTH];
+            assertEquals(header.length, inputStream.read(header));
+            assertTrue(ChunkedFileFormat.hasHeader(ByteBuffer.wrap(header)));
+        }
+        assertEquals(path, fileManager.read(storageFile).path);
+    }
+
+    @Test
+    public void testEmptyCollection() {
+        FileManager<ChunkedPath> fileManager = new FileManager<>(dir, storageFile, 0, resolver);
+        fileManager.saveNow(new ChunkedPath(new ArrayList<>()));
+        assertTrue(fileManager.read(storageFile).path.isEmpty());
+    }
+
+    @Test
+    public void testReadSingleMessageFile() throws IOException {
+        List<String> path = IntStream.range(0, 10).mapToObj(String::valueOf).collect(Collectors.toList());
+        try (FileOutputStream outputStream = new FileOutputStream(storageFile)) {
+            new NavigationPath(path).toProtoMessage().writeDelimitedTo(outputStream);
+        }
+        FileManager<ChunkedPath> fileManager = new FileManager<>(dir, storageFile, 0, resolver);
+        assertEquals(path, fileManager.read(storageFile).path);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of bisq.
+ *
+ * bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.common.io.Files;
+import io.bisq.common.Payload;
+import io.bisq.common.proto.persistable.NavigationPath;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileManagerTest {
+    private final PersistenceProtoResolver resolver = new PersistenceProtoResolver() {
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableEnvelope persistable) {
+            return NavigationPath.fromProto(persistable.getNavigationPath());
+        }
+
+        @Override
+        public Payload fromProto(PB.PaymentAccountPayload proto) {
+            return null;
+        }
+
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+            return null;
+        }
+    };
+
+    private File dir;
+    private File storageFile;
+
+    @Before
+    public void setup() {
+        dir = Files.createTempDir();
+        storageFile = new File(dir, "NavigationPath");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSaveLaterWritesStateAtQueueUp() throws InterruptedException {
+        NavigationPath navigationPath = new NavigationPath(new ArrayList<>(Arrays.asList("a", "b")));
+        FileManager<NavigationPath> fileManager = new FileManager<>(dir, storageFile, 100, resolver);
+        fileManager.saveLater(navigationPath);
+
+        // Changes after queuing up the save are not written
+        navigationPath.getPath().add("c");
+
+        long ts = System.currentTimeMillis();
+        while (!storageFile.exists() && System.currentTimeMillis() - ts < 5000)
+            Thread.sleep(10);
+        assertTrue(storageFile.exists());
+        assertEquals(Arrays.asList("a", "b"), fileManager.read(storageFile).getPath());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of bisq.
+ *
+ * bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PersistenceSchedulerTest {
+    private final File dir = new File("PersistenceSchedulerTest");
+    private PersistenceScheduler scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = new PersistenceScheduler("PersistenceSchedulerTest", 2, 0);
+    }
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+        File file = new File(dir, "store");
+        for (int i = 0; i < 10; i++) {
+            String value = "v" + i;
+            scheduler.schedule(file, "store", 100, () -> {
+                written.add(value);
+                latch.countDown();
+                return value.length();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(Collections.singletonList("v9"), written);
+
+        PersistenceScheduler.StoreMetrics metrics = scheduler.getMetrics().get(0);
+        assertEquals("store", metrics.getStoreName());
+        assertEquals(1, metrics.getNumWrites());
+        assertEquals(9, metrics.getNumCoalescedWrites());
+        assertEquals(2, metrics.getBytesWritten());
+    }
+
+    @Test
+    public void testOrderedFlush() {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        for (String name : new String[]{"c", "a", "b"}) {
+            scheduler.schedule(new File(dir, name), name, 60_000, () -> {
+                written.add(name);
+                return 1;
+            });
+        }
+        // Coalesced writes keep the position of the first queued write
+        scheduler.schedule(new File(dir, "c"), "c", 60_000, () -> {
+            written.add("c2");
+            return 1;
+        });
+
+        scheduler.flushAll();
+        assertEquals(3, written.size());
+        assertEquals("c2", written.get(0));
+        assertEquals("a", written.get(1));
+        assertEquals("b", written.get(2));
+
+        // After shut down we write on the calling thread
+        scheduler.schedule(new File(dir, "d"), "d", 60_000, () -> {
+            written.add("d");
+            return 1;
+        });
+        assertEquals("d", written.get(3));
+    }
+
+    @Test
+    public void testRateLimitPerFile() throws InterruptedException {
+        PersistenceScheduler rateLimitedScheduler = new PersistenceScheduler("PersistenceSchedulerTest", 2, 100);
+        File file = new File(dir, "file");
+        List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            rateLimitedScheduler.schedule(file, "store", 0, () -> {
+                timestamps.add(System.currentTimeMillis());
+                latch.countDown();
+                return 1;
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        // Timer resolution might let a write start a few ms early
+        assertTrue(timestamps.get(1) - timestamps.get(0) >= 90);
+        assertTrue(timestamps.get(2) - timestamps.get(1) >= 90);
+
+        // Other files of the same store, like the json files of a bulk export, are not delayed
+        int numFiles = 50;
+        CountDownLatch otherFilesLatch = new CountDownLatch(numFiles);
+        long ts = System.currentTimeMillis();
+        for (int i = 0; i < numFiles; i++) {
+            rateLimitedScheduler.schedule(new File(dir, "other" + i), "store", 0, () -> {
+                otherFilesLatch.countDown();
+                return 1;
+            });
+        }
+        assertTrue(otherFilesLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - ts < 1000);
+        rateLimitedScheduler.flushAll();
+    }
+
+    @Test
+    public void testFailedWrite() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(new File(dir, "store"), "store", 0, () -> {
+            latch.countDown();
+            throw new Exception("test");
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, scheduler.getMetrics().get(0).getNumFailedWrites());
+    }
+}
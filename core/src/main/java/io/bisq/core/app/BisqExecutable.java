@@ -18,6 +18,8 @@
 package io.bisq.core.app;
 
 import io.bisq.common.CommonOptionKeys;
+import io.bisq.common.ShardedExecutor;
+import io.bisq.common.UserThread;
 import io.bisq.core.btc.BtcOptionKeys;
 import io.bisq.core.btc.RegTestHost;
 import io.bisq.core.dao.DaoOptionKeys;
@@ -28,6 +30,7 @@ import io.bisq.network.p2p.P2PService;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.env.JOptCommandLinePropertySource;
 import org.springframework.util.StringUtils;
 
@@ -35,11 +38,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 import static java.lang.String.join;
 
+@Slf4j
 public abstract class BisqExecutable {
     private static final int EXIT_SUCCESS = 0;
     public static final int EXIT_FAILURE = 1;
@@ -95,6 +101,10 @@ public abstract class BisqExecutable {
                 description("Use localhost P2P network for development", false))
                 .withRequiredArg()
                 .ofType(boolean.class);
+        parser.accepts(NetworkOptionKeys.USE_NIO_FOR_P2P,
+                description("Use non-blocking IO for the localhost P2P network", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
         parser.accepts(NetworkOptionKeys.MAX_CONNECTIONS,
                 description("Max. connections a peer will try to keep", P2PService.MAX_CONNECTIONS_DEFAULT))
                 .withRequiredArg()
@@ -116,6 +126,10 @@ public abstract class BisqExecutable {
         parser.accepts(AppOptionKeys.MAX_MEMORY,
                 description("Max. permitted memory (used only at headless versions)", 600))
                 .withRequiredArg();
+        parser.accepts(AppOptionKeys.USER_THREAD_LANES,
+                description("Number of lanes for keyed work of the user thread, 0 for a single user thread " +
+                        "(used only at headless versions)", 0))
+                .withRequiredArg();
         parser.accepts(AppOptionKeys.APP_DATA_DIR_KEY,
                 description("Application data directory", BisqEnvironment.DEFAULT_APP_DATA_DIR))
                 .withRequiredArg();
@@ -206,6 +220,34 @@ public abstract class BisqExecutable {
 
     protected abstract void doExecute(OptionSet options);
 
+    // Used by the headless apps. Replaces the single threaded UserThread executor with a ShardedExecutor if the
+    // USER_THREAD_LANES option is set to a value > 0. Should be called before work is queued up at the UserThread.
+    protected static void useShardedUserThreadIfConfigured(BisqEnvironment environment, String name) {
+        String userThreadLanesOption = environment.getProperty(AppOptionKeys.USER_THREAD_LANES);
+        if (userThreadLanesOption == null || userThreadLanesOption.trim().isEmpty())
+            return;
+
+        int numLanes;
+        try {
+            numLanes = Integer.parseInt(userThreadLanesOption.trim());
+        } catch (NumberFormatException e) {
+            throw new BisqException("Invalid value '%s' for option %s. It must be the number of lanes.",
+                    userThreadLanesOption, AppOptionKeys.USER_THREAD_LANES);
+        }
+        if (numLanes < 0)
+            throw new BisqException("Invalid value '%s' for option %s. It must not be negative.",
+                    userThreadLanesOption, AppOptionKeys.USER_THREAD_LANES);
+        if (numLanes == 0)
+            return;
+
+        Executor replacedExecutor = UserThread.getExecutor();
+        UserThread.setExecutor(new ShardedExecutor(name, numLanes));
+        // Work queued up already at the replaced executor still gets executed before its thread terminates
+        if (replacedExecutor instanceof ExecutorService)
+            ((ExecutorService) replacedExecutor).shutdown();
+        log.info("We use a sharded UserThread with {} lanes", numLanes);
+    }
+
 
     public static void initAppDir(String appDir) {
         Path dir = Paths.get(appDir);
@@ -99,9 +99,7 @@ public class ArbitratorService {
         final List<String> bannedArbitrators = filterManager.getFilter() != null ? filterManager.getFilter().getArbitrators() : null;
         if (bannedArbitrators != null)
             log.warn("bannedArbitrators=" + bannedArbitrators);
-        Set<Arbitrator> arbitratorSet = p2PService.getDataMap().values().stream()
-                .filter(data -> data.getProtectedStoragePayload() instanceof Arbitrator)
-                .map(data -> (Arbitrator) data.getProtectedStoragePayload())
+        Set<Arbitrator> arbitratorSet = p2PService.getDataPayloads(Arbitrator.class).stream()
                 .filter(a -> bannedArbitrators == null ||
                         !bannedArbitrators.contains(a.getNodeAddress().getHostName()))
                 .collect(Collectors.toSet());
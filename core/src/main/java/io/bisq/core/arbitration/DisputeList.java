@@ -17,8 +17,10 @@
 
 package io.bisq.core.arbitration;
 
+import com.google.common.collect.Iterators;
 import com.google.protobuf.Message;
 import io.bisq.common.proto.ProtoUtil;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistedDataHost;
 import io.bisq.common.storage.Storage;
@@ -31,6 +33,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -43,7 +46,7 @@ import java.util.stream.Stream;
  * Calls to the List are delegated because this class intercepts the add/remove calls so changes
  * can be saved to disc.
  */
-public final class DisputeList implements PersistableEnvelope, PersistedDataHost {
+public final class DisputeList implements ChunkedPersistableEnvelope, PersistedDataHost {
     transient private final Storage<DisputeList> storage;
     @Getter
     private final ObservableList<Dispute> list = FXCollections.observableArrayList();
@@ -74,6 +77,28 @@ public final class DisputeList implements PersistableEnvelope, PersistedDataHost
                 .addAllDispute(ProtoUtil.collectionToProto(list))).build();
     }
 
+    @Override
+    public Iterator<Message> toProtoChunks(int maxItemsPerChunk) {
+        // We need at least one chunk
+        if (list.isEmpty())
+            return Iterators.singletonIterator(toProtoMessage());
+
+        return Iterators.transform(Iterators.partition(list.iterator(), maxItemsPerChunk),
+                disputes -> PB.PersistableEnvelope.newBuilder().setDisputeList(PB.DisputeList.newBuilder()
+                        .addAllDispute(ProtoUtil.collectionToProto(disputes))).build());
+    }
+
+    @Override
+    public void mergeChunk(PersistableEnvelope chunk) {
+        list.addAll(((DisputeList) chunk).getList());
+    }
+
+    // The disputes get changed by new chat messages, so the chunks are created when we queue up the save
+    @Override
+    public boolean canBeChunkedConcurrently() {
+        return false;
+    }
+
     @Nullable
     public static DisputeList fromProto(PB.DisputeList proto,
                                         CoreProtoResolver coreProtoResolver,
@@ -18,7 +18,9 @@
 package io.bisq.core.dao.blockchain.parse;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
 import com.google.protobuf.Message;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
 import io.bisq.common.storage.Storage;
@@ -44,7 +46,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 // Represents mutable state of BSQ chain data
 // We get accessed the data from different threads so we need to make sure it is thread safe.
 @Slf4j
-public class BsqChainState implements PersistableEnvelope {
+public class BsqChainState implements ChunkedPersistableEnvelope {
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Static
@@ -202,6 +204,55 @@ public class BsqChainState implements PersistableEnvelope {
         return builder;
     }
 
+    // The first chunk holds the single value fields, the following ones parts of the blocks, txs and unspent outputs.
+    // Like getBsqChainStateBuilder it does not use the lock, it is only called on the snapshotCandidate clone.
+    @Override
+    public Iterator<Message> toProtoChunks(int maxItemsPerChunk) {
+        final PB.BsqChainState.Builder builder = PB.BsqChainState.newBuilder()
+                .setGenesisTxId(genesisTxId)
+                .setGenesisBlockHeight(genesisBlockHeight)
+                .setChainHeadHeight(chainHeadHeight);
+        Optional.ofNullable(genesisTx).ifPresent(e -> builder.setGenesisTx(genesisTx.toProtoMessage()));
+
+        return Iterators.concat(
+                Iterators.singletonIterator(toChunk(builder)),
+                Iterators.transform(Iterators.partition(bsqBlocks.iterator(), maxItemsPerChunk),
+                        blocks -> toChunk(PB.BsqChainState.newBuilder()
+                                .addAllBsqBlocks(blocks.stream()
+                                        .map(BsqBlock::toProtoMessage)
+                                        .collect(Collectors.toList())))),
+                Iterators.transform(Iterators.partition(txMap.entrySet().iterator(), maxItemsPerChunk),
+                        entries -> toChunk(PB.BsqChainState.newBuilder()
+                                .putAllTxMap(entries.stream()
+                                        .collect(Collectors.toMap(Map.Entry::getKey,
+                                                v -> v.getValue().toProtoMessage()))))),
+                Iterators.transform(Iterators.partition(unspentTxOutputsMap.entrySet().iterator(), maxItemsPerChunk),
+                        entries -> toChunk(PB.BsqChainState.newBuilder()
+                                .putAllUnspentTxOutputsMap(entries.stream()
+                                        .collect(Collectors.toMap(k -> k.getKey().getAsString(),
+                                                v -> v.getValue().toProtoMessage()))))));
+    }
+
+    // We only queue up the snapshotCandidate for saving, which never changes after it got cloned
+    @Override
+    public boolean canBeChunkedConcurrently() {
+        return true;
+    }
+
+    private static Message toChunk(PB.BsqChainState.Builder builder) {
+        return PB.PersistableEnvelope.newBuilder().setBsqChainState(builder).build();
+    }
+
+    @Override
+    public void mergeChunk(PersistableEnvelope chunk) {
+        BsqChainState bsqChainStateChunk = (BsqChainState) chunk;
+        lock.write(() -> {
+            bsqBlocks.addAll(bsqChainStateChunk.bsqBlocks);
+            txMap.putAll(bsqChainStateChunk.txMap);
+            unspentTxOutputsMap.putAll(bsqChainStateChunk.unspentTxOutputsMap);
+        });
+    }
+
     public static PersistableEnvelope fromProto(PB.BsqChainState proto) {
         return new BsqChainState(new LinkedList<>(proto.getBsqBlocksList().stream()
                 .map(BsqBlock::fromProto)
@@ -489,12 +540,11 @@ public class BsqChainState implements PersistableEnvelope {
                             snapshotCandidate.chainHeadHeight != getChainHeadHeight())) {
                 // At trigger event we store the latest snapshotCandidate to disc
                 if (snapshotCandidate != null) {
-                    // We clone because storage is in a threaded context
-                    final BsqChainState cloned = getClone(snapshotCandidate);
+                    // The snapshotCandidate is a clone which never gets changed, we only replace it, so the storage
+                    // thread can serialize it without cloning it again
                     checkNotNull(storage, "storage must nto be null");
-                    storage.queueUpForSave(cloned);
-                    // dont access cloned anymore with methods as locks are transient!
-                    log.info("Saved snapshotCandidate to Disc at height " + cloned.chainHeadHeight);
+                    storage.queueUpForSave(snapshotCandidate);
+                    log.info("Saved snapshotCandidate to Disc at height " + snapshotCandidate.chainHeadHeight);
                 }
                 // Now we clone and keep it in memory for the next trigger
                 snapshotCandidate = getClone(this);
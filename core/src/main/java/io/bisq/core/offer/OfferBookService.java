@@ -156,10 +156,8 @@ public class OfferBookService {
     }
 
     public List<Offer> getOffers() {
-        return p2PService.getDataMap().values().stream()
-                .filter(data -> data.getProtectedStoragePayload() instanceof OfferPayload)
-                .map(data -> {
-                    OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
+        return p2PService.getDataPayloads(OfferPayload.class).stream()
+                .map(offerPayload -> {
                     Offer offer = new Offer(offerPayload);
                     offer.setPriceFeedService(priceFeedService);
                     return offer;
@@ -31,6 +31,7 @@ import io.bisq.core.user.User;
 import io.bisq.network.p2p.BootstrapListener;
 import io.bisq.network.p2p.P2PService;
 import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.Coin;
 
@@ -84,11 +85,8 @@ public class AccountAgeWitnessService {
                 addToMap((AccountAgeWitness) payload);
         });
 
-        // At startup the P2PDataStorage initializes earlier, otherwise we ge the listener called.
-        p2PService.getP2PDataStorage().getPersistableNetworkPayloadCollection().getMap().values().forEach(e -> {
-            if (e instanceof AccountAgeWitness)
-                addToMap((AccountAgeWitness) e);
-        });
+        // The witnesses loaded at startup are not copied to our map as that would deserialize all of them. We look
+        // them up in the P2PDataStorage when requested (see getWitnessByHash).
 
         if (p2PService.isBootstrapped()) {
             republishAllFiatAccounts();
@@ -128,7 +126,7 @@ public class AccountAgeWitnessService {
 
     public void publishMyAccountAgeWitness(PaymentAccountPayload paymentAccountPayload) {
         AccountAgeWitness accountAgeWitness = getMyWitness(paymentAccountPayload);
-        if (!accountAgeWitnessMap.containsKey(accountAgeWitness.getHashAsByteArray()))
+        if (!getWitnessByHash(accountAgeWitness.getHash()).isPresent())
             p2PService.addPersistableNetworkPayload(accountAgeWitness, false);
     }
 
@@ -154,11 +152,15 @@ public class AccountAgeWitnessService {
     public Optional<AccountAgeWitness> getWitnessByHash(byte[] hash) {
         P2PDataStorage.ByteArray hashAsByteArray = new P2PDataStorage.ByteArray(hash);
 
-        final boolean containsKey = accountAgeWitnessMap.containsKey(hashAsByteArray);
-        if (!containsKey)
-            log.debug("hash not found in accountAgeWitnessMap");
+        if (accountAgeWitnessMap.containsKey(hashAsByteArray))
+            return Optional.of(accountAgeWitnessMap.get(hashAsByteArray));
+
+        PersistableNetworkPayload payload = p2PService.getP2PDataStorage().getPersistableNetworkPayloadCollection().getMap().get(hashAsByteArray);
+        if (payload instanceof AccountAgeWitness)
+            return Optional.of((AccountAgeWitness) payload);
 
-        return accountAgeWitnessMap.containsKey(hashAsByteArray) ? Optional.of(accountAgeWitnessMap.get(hashAsByteArray)) : Optional.<AccountAgeWitness>empty();
+        log.debug("hash not found in accountAgeWitnessMap");
+        return Optional.empty();
     }
 
     public Optional<AccountAgeWitness> getWitnessByHashAsHex(String hashAsHex) {
@@ -21,6 +21,7 @@ import io.bisq.core.proto.CoreProtoResolver;
 import io.bisq.core.trade.messages.*;
 import io.bisq.core.trade.statistics.TradeStatistics;
 import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.BundleOfEnvelopes;
 import io.bisq.network.p2p.CloseConnectionMessage;
 import io.bisq.network.p2p.PrefixedSealedAndSignedMessage;
 import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
@@ -119,6 +120,9 @@ public class CoreNetworkProtoResolver extends CoreProtoResolver implements Netwo
 
                 case ADD_PERSISTABLE_NETWORK_PAYLOAD_MESSAGE:
                     return AddPersistableNetworkPayloadMessage.fromProto(proto.getAddPersistableNetworkPayloadMessage(), this, messageVersion);
+
+                case BUNDLE_OF_ENVELOPES:
+                    return BundleOfEnvelopes.fromProto(proto.getBundleOfEnvelopes(), this, messageVersion);
                 default:
                     throw new ProtobufferException("Unknown proto message case (PB.NetworkEnvelope). messageCase=" + proto.getMessageCase());
             }
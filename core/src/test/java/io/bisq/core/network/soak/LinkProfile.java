@@ -0,0 +1,25 @@
+package io.bisq.core.network.soak;
+
+import lombok.Value;
+
+/**
+ * Properties of a simulated link. Applied to the data each side writes, so a round trip has twice the latency.
+ */
+@Value
+public class LinkProfile {
+    public static final LinkProfile LAN = new LinkProfile(0, 0, 0, 0);
+    // Typical for a hidden service connection: about 1 sec round trip time, slow and varying throughput
+    public static final LinkProfile TOR = new LinkProfile(500, 300, 100 * 1024, 0);
+    // Like TOR but circuits break once in a while
+    public static final LinkProfile LOSSY_TOR = new LinkProfile(500, 300, 100 * 1024, 0.002);
+
+    // One way latency in ms
+    private final int latencyMs;
+    // Random additional latency between 0 and jitterMs
+    private final int jitterMs;
+    // 0 for unlimited
+    private final int bandwidthBytesPerSec;
+    // Probability that a write breaks the circuit. Over Tor we don't lose single packets but whole circuits, so we
+    // close the socket instead of dropping data.
+    private final double dropRate;
+}
@@ -0,0 +1,115 @@
+package io.bisq.core.network.soak;
+
+import lombok.Value;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records when a message got published and when each node received it. Only the first receipt of a node counts.
+ * Thread safe, as the listeners of the nodes are called from different threads.
+ */
+class PropagationTracker {
+    @Value
+    static class Stats {
+        private final int numEvents;
+        private final long expectedDeliveries;
+        private final long deliveries;
+        // Ratio of deliveries to expected deliveries
+        private final double coverage;
+        // Latency of the single deliveries in ms
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+        // Time until all expected receivers got the message, only for the events with full coverage
+        private final long fullPropagationP50;
+        private final long fullPropagationP90;
+    }
+
+    private static final class Event {
+        private final String type;
+        private final String publisher;
+        private final long publishNanos;
+        private final int expectedReceivers;
+        private final Map<String, Long> receivedNanos = new ConcurrentHashMap<>();
+
+        private Event(String type, String publisher, long publishNanos, int expectedReceivers) {
+            this.type = type;
+            this.publisher = publisher;
+            this.publishNanos = publishNanos;
+            this.expectedReceivers = expectedReceivers;
+        }
+    }
+
+    private final Map<String, Event> events = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Must be called before the message gets sent
+    void onPublished(String type, String key, String publisher, int expectedReceivers) {
+        events.put(key, new Event(type, publisher, System.nanoTime(), expectedReceivers));
+    }
+
+    void onReceived(String key, String receiver) {
+        long now = System.nanoTime();
+        Event event = events.get(key);
+        if (event != null && !event.publisher.equals(receiver))
+            event.receivedNanos.putIfAbsent(receiver, now);
+    }
+
+    Map<String, Stats> getStats() {
+        Map<String, List<Event>> eventsByType = new TreeMap<>();
+        events.values().forEach(event -> eventsByType.computeIfAbsent(event.type, e -> new ArrayList<>()).add(event));
+        Map<String, Stats> statsByType = new LinkedHashMap<>();
+        eventsByType.forEach((type, list) -> statsByType.put(type, getStats(list)));
+        return statsByType;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Stats getStats(List<Event> events) {
+        List<Long> latencies = new ArrayList<>();
+        List<Long> fullPropagationTimes = new ArrayList<>();
+        long expectedDeliveries = 0;
+        for (Event event : events) {
+            expectedDeliveries += event.expectedReceivers;
+            long maxLatency = 0;
+            for (long receivedNanos : event.receivedNanos.values()) {
+                long latency = TimeUnit.NANOSECONDS.toMillis(receivedNanos - event.publishNanos);
+                latencies.add(latency);
+                maxLatency = Math.max(maxLatency, latency);
+            }
+            if (event.receivedNanos.size() >= event.expectedReceivers)
+                fullPropagationTimes.add(maxLatency);
+        }
+        Collections.sort(latencies);
+        Collections.sort(fullPropagationTimes);
+        return new Stats(events.size(),
+                expectedDeliveries,
+                latencies.size(),
+                expectedDeliveries > 0 ? latencies.size() / (double) expectedDeliveries : 0,
+                getPercentile(latencies, 50),
+                getPercentile(latencies, 90),
+                getPercentile(latencies, 99),
+                getPercentile(latencies, 100),
+                getPercentile(fullPropagationTimes, 50),
+                getPercentile(fullPropagationTimes, 90));
+    }
+
+    // Nearest rank, -1 if we have no values
+    static long getPercentile(List<Long> sortedValues, int percentile) {
+        if (sortedValues.isEmpty())
+            return -1;
+
+        int rank = (int) Math.ceil(percentile / 100d * sortedValues.size());
+        return sortedValues.get(Math.max(0, rank - 1));
+    }
+}
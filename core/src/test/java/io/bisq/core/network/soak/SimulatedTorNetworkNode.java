@@ -0,0 +1,68 @@
+package io.bisq.core.network.soak;
+
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.LocalhostNetworkNode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Random;
+
+/**
+ * LocalhostNetworkNode whose inbound and outbound sockets apply the LinkProfile to the data they write.
+ */
+class SimulatedTorNetworkNode extends LocalhostNetworkNode {
+    private final LinkProfile linkProfile;
+    private final Random random;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SimulatedTorNetworkNode(int port, NetworkProtoResolver networkProtoResolver, LinkProfile linkProfile, long randomSeed) {
+        super(port, networkProtoResolver);
+        this.linkProfile = linkProfile;
+        this.random = new Random(randomSeed);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // LocalhostNetworkNode
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
+        Socket socket = new SimulatedTorSocket(linkProfile, nextRandomSeed());
+        socket.connect(new InetSocketAddress(peerNodeAddress.getHostName(), peerNodeAddress.getPort()));
+        return socket;
+    }
+
+    @Override
+    protected ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port) {
+            @Override
+            public Socket accept() throws IOException {
+                if (isClosed())
+                    throw new SocketException("Socket is closed");
+
+                Socket socket = new SimulatedTorSocket(linkProfile, nextRandomSeed());
+                implAccept(socket);
+                return socket;
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the server thread and from the NetworkNode executor
+    private synchronized long nextRandomSeed() {
+        return random.nextLong();
+    }
+}
@@ -0,0 +1,147 @@
+package io.bisq.core.network.soak;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Socket which delivers the written data with the latency, jitter and bandwidth of its LinkProfile. The data is
+ * handed over to a pump thread which writes it to the real socket when it is due, so the writer does not block
+ * (like with the large send buffers of Tor).
+ */
+@Slf4j
+class SimulatedTorSocket extends Socket {
+    private static final class Chunk {
+        private final byte[] data;
+        private final long dueNanos;
+
+        private Chunk(byte[] data, long dueNanos) {
+            this.data = data;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final LinkProfile linkProfile;
+    private final Random random;
+    private DelayedOutputStream delayedOutputStream;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Unconnected socket, used for ServerSocket.implAccept or connect
+    SimulatedTorSocket(LinkProfile linkProfile, long randomSeed) {
+        this.linkProfile = linkProfile;
+        this.random = new Random(randomSeed);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Socket
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (delayedOutputStream == null)
+            delayedOutputStream = new DelayedOutputStream(super.getOutputStream());
+        return delayedOutputStream;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (delayedOutputStream != null)
+            delayedOutputStream.stopPump();
+        super.close();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // DelayedOutputStream
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private class DelayedOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final LinkedBlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+        private final Thread pump;
+        private long linkFreeNanos;
+        private long lastDueNanos;
+        private volatile boolean stopped;
+
+        DelayedOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+            pump = new Thread(this::pump, "SimulatedTorLink-" + getLocalPort() + "-" + getPort());
+            pump.setDaemon(true);
+            pump.start();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            if (stopped)
+                throw new SocketException("Socket closed");
+
+            if (linkProfile.getDropRate() > 0 && random.nextDouble() < linkProfile.getDropRate()) {
+                log.debug("Simulated circuit failure at {}", SimulatedTorSocket.this);
+                SimulatedTorSocket.this.close();
+                throw new SocketException("Simulated circuit failure");
+            }
+
+            long now = System.nanoTime();
+            long transmissionNanos = linkProfile.getBandwidthBytesPerSec() > 0 ?
+                    TimeUnit.SECONDS.toNanos(length) / linkProfile.getBandwidthBytesPerSec() : 0;
+            linkFreeNanos = Math.max(now, linkFreeNanos) + transmissionNanos;
+            int latencyMs = linkProfile.getLatencyMs() +
+                    (linkProfile.getJitterMs() > 0 ? random.nextInt(linkProfile.getJitterMs()) : 0);
+            // Jitter must not reorder the data of a stream
+            lastDueNanos = Math.max(lastDueNanos, linkFreeNanos + TimeUnit.MILLISECONDS.toNanos(latencyMs));
+            queue.add(new Chunk(Arrays.copyOfRange(bytes, offset, offset + length), lastDueNanos));
+        }
+
+        // The pump flushes when it has written all due data
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            SimulatedTorSocket.this.close();
+        }
+
+        void stopPump() {
+            stopped = true;
+            pump.interrupt();
+        }
+
+        private void pump() {
+            try {
+                while (!stopped) {
+                    Chunk chunk = queue.take();
+                    long delay;
+                    while ((delay = chunk.dueNanos - System.nanoTime()) > 0 && !stopped)
+                        LockSupport.parkNanos(delay);
+
+                    outputStream.write(chunk.data);
+                    if (queue.isEmpty())
+                        outputStream.flush();
+                }
+            } catch (InterruptedException ignore) {
+            } catch (IOException e) {
+                if (!stopped)
+                    log.debug("Writing to the socket failed. {}", e.toString());
+            }
+        }
+    }
+}
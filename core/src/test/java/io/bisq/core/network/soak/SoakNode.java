@@ -0,0 +1,189 @@
+package io.bisq.core.network.soak;
+
+import io.bisq.common.Clock;
+import io.bisq.common.crypto.KeyRing;
+import io.bisq.common.crypto.KeyStorage;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.core.proto.persistable.CorePersistenceProtoResolver;
+import io.bisq.network.Socks5ProxyProvider;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.P2PService;
+import io.bisq.network.p2p.P2PServiceListener;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.peers.Broadcaster;
+import io.bisq.network.p2p.peers.PeerManager;
+import io.bisq.network.p2p.peers.getdata.RequestDataManager;
+import io.bisq.network.p2p.peers.keepalive.KeepAliveManager;
+import io.bisq.network.p2p.peers.peerexchange.PeerExchangeManager;
+import io.bisq.network.p2p.seed.SeedNodesRepository;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import lombok.Getter;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+/**
+ * A seed node or peer of the soak test. Wires up the same P2P services as the P2PModule does, but with a
+ * SimulatedTorNetworkNode.
+ */
+class SoakNode {
+    @Getter
+    private final String name;
+    @Getter
+    private final NodeAddress nodeAddress;
+    @Getter
+    private final KeyRing keyRing;
+    @Getter
+    private final P2PService p2PService;
+    private final Clock clock = new Clock();
+    private final CountDownLatch hiddenServicePublishedLatch = new CountDownLatch(1);
+    private final CountDownLatch bootstrappedLatch = new CountDownLatch(1);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SoakNode(String name, int port, Set<NodeAddress> seedNodeAddresses, SoakScenario scenario, File baseDir) {
+        this.name = name;
+        this.nodeAddress = new NodeAddress("localhost", port);
+
+        File dir = new File(baseDir, name);
+        File keyStorageDir = new File(dir, "keys");
+        File storageDir = new File(dir, "db");
+        //noinspection ResultOfMethodCallIgnored
+        keyStorageDir.mkdirs();
+        //noinspection ResultOfMethodCallIgnored
+        storageDir.mkdirs();
+
+        keyRing = new KeyRing(new KeyStorage(keyStorageDir));
+        CoreNetworkProtoResolver networkProtoResolver = new CoreNetworkProtoResolver();
+        CorePersistenceProtoResolver persistenceProtoResolver = new CorePersistenceProtoResolver(() -> null,
+                networkProtoResolver, storageDir);
+        SeedNodesRepository seedNodesRepository = new StaticSeedNodesRepository(seedNodeAddresses, nodeAddress);
+
+        NetworkNode networkNode = new SimulatedTorNetworkNode(port, networkProtoResolver, scenario.getLinkProfile(),
+                scenario.getRandomSeed() + port);
+        PeerManager peerManager = new PeerManager(networkNode, seedNodesRepository, clock, persistenceProtoResolver,
+                scenario.getMaxConnections(), storageDir);
+        Broadcaster broadcaster = new Broadcaster(networkNode, peerManager);
+        P2PDataStorage p2PDataStorage = new P2PDataStorage(networkNode, broadcaster, storageDir, persistenceProtoResolver);
+        RequestDataManager requestDataManager = new RequestDataManager(networkNode, seedNodesRepository, p2PDataStorage,
+                peerManager, null);
+        PeerExchangeManager peerExchangeManager = new PeerExchangeManager(networkNode, seedNodesRepository, peerManager);
+        KeepAliveManager keepAliveManager = new KeepAliveManager(networkNode, peerManager);
+        EncryptionService encryptionService = new EncryptionService(keyRing, networkProtoResolver);
+        p2PService = new P2PService(networkNode, peerManager, p2PDataStorage, requestDataManager, peerExchangeManager,
+                keepAliveManager, broadcaster, seedNodesRepository, new Socks5ProxyProvider("", ""),
+                encryptionService, keyRing);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the UserThread
+    void start() {
+        clock.start();
+        p2PService.start(new P2PServiceListener() {
+            @Override
+            public void onRequestingDataCompleted() {
+            }
+
+            @Override
+            public void onNoSeedNodeAvailable() {
+                // The first seed node has nobody to request the data from
+                bootstrappedLatch.countDown();
+            }
+
+            @Override
+            public void onNoPeersAvailable() {
+            }
+
+            @Override
+            public void onBootstrapComplete() {
+                bootstrappedLatch.countDown();
+            }
+
+            @Override
+            public void onTorNodeReady() {
+            }
+
+            @Override
+            public void onHiddenServicePublished() {
+                hiddenServicePublishedLatch.countDown();
+            }
+
+            @Override
+            public void onSetupFailed(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onRequestCustomBridges() {
+            }
+        });
+    }
+
+    CountDownLatch getHiddenServicePublishedLatch() {
+        return hiddenServicePublishedLatch;
+    }
+
+    CountDownLatch getBootstrappedLatch() {
+        return bootstrappedLatch;
+    }
+
+    // Called from the UserThread
+    void shutDown(Runnable completeHandler) {
+        clock.stop();
+        p2PService.shutDown(completeHandler);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // StaticSeedNodesRepository
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class StaticSeedNodesRepository implements SeedNodesRepository {
+        private final NodeAddress nodeAddressToExclude;
+        private Set<NodeAddress> seedNodeAddresses;
+
+        // A seed node does not request the data from itself
+        StaticSeedNodesRepository(Set<NodeAddress> seedNodeAddresses, NodeAddress nodeAddressToExclude) {
+            this.seedNodeAddresses = new HashSet<>(seedNodeAddresses);
+            this.nodeAddressToExclude = nodeAddressToExclude;
+        }
+
+        @Override
+        public void setTorSeedNodeAddresses(Set<NodeAddress> torSeedNodeAddresses) {
+            seedNodeAddresses = new HashSet<>(torSeedNodeAddresses);
+        }
+
+        @Override
+        public void setLocalhostSeedNodeAddresses(Set<NodeAddress> localhostSeedNodeAddresses) {
+            seedNodeAddresses = new HashSet<>(localhostSeedNodeAddresses);
+        }
+
+        @Override
+        public boolean isSeedNode(NodeAddress nodeAddress) {
+            return seedNodeAddresses.contains(nodeAddress);
+        }
+
+        @Override
+        public Set<NodeAddress> getSeedNodeAddresses() {
+            return seedNodeAddresses.stream()
+                    .filter(seedNodeAddress -> !seedNodeAddress.equals(nodeAddressToExclude))
+                    .collect(Collectors.toSet());
+        }
+
+        @Override
+        public String getOperator(NodeAddress nodeAddress) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.bisq.core.network.soak;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Machine readable result of a soak test run. Written as JSON, so runs before and after a change can be compared.
+ */
+@Value
+public class SoakResult {
+    private final SoakScenario scenario;
+    private final String gitRevision;
+    private final long startTime;
+    private final long workloadDurationMs;
+    // Propagation of offer add, refresh and remove and of the mailbox messages, by type
+    private final Map<String, PropagationTracker.Stats> propagation;
+    // Totals of all nodes during the workload
+    private final long numSentMessages;
+    private final long numReceivedMessages;
+    private final long sentBytes;
+    private final long receivedBytes;
+    // CPU time of the whole process during the workload divided by the received messages
+    private final long processCpuTimeMs;
+    private final double cpuMicrosPerReceivedMessage;
+    // Used heap after a GC, before and after the workload
+    private final long heapUsedBeforeBytes;
+    private final long heapUsedAfterBytes;
+    private final long heapGrowthBytes;
+}
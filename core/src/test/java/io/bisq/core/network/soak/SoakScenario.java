@@ -0,0 +1,67 @@
+package io.bisq.core.network.soak;
+
+import lombok.Value;
+
+/**
+ * Parameters of a soak test run. The defaults are a fixed scenario, so results of different runs are comparable as
+ * long as the same profile is used. All values can be overwritten with system properties, e.g.
+ * {@code -Dsoak.profile=tor -Dsoak.peers=30}.
+ */
+@Value
+public class SoakScenario {
+    private static final String PREFIX = "soak.";
+
+    private final String profile;
+    private final int numSeedNodes;
+    private final int numPeers;
+    private final int maxConnections;
+    // Offers are added, refreshed and removed by the peers. One operation per interval over all peers.
+    private final int offersPerPeer;
+    private final int refreshRounds;
+    private final int mailboxMessagesPerPeer;
+    private final int intervalMs;
+    // Time we wait after each phase so the messages can propagate
+    private final int settleTimeSec;
+    private final int basePort;
+    private final long randomSeed;
+    private final LinkProfile linkProfile;
+
+    public static SoakScenario fromSystemProperties() {
+        String profile = System.getProperty(PREFIX + "profile", "tor");
+        LinkProfile defaultLinkProfile;
+        switch (profile) {
+            case "lan":
+                defaultLinkProfile = LinkProfile.LAN;
+                break;
+            case "lossy-tor":
+                defaultLinkProfile = LinkProfile.LOSSY_TOR;
+                break;
+            case "tor":
+                defaultLinkProfile = LinkProfile.TOR;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown profile " + profile + ". Use lan, tor or lossy-tor.");
+        }
+
+        LinkProfile linkProfile = new LinkProfile(getInt("latencyMs", defaultLinkProfile.getLatencyMs()),
+                getInt("jitterMs", defaultLinkProfile.getJitterMs()),
+                getInt("bandwidthBytesPerSec", defaultLinkProfile.getBandwidthBytesPerSec()),
+                Double.parseDouble(System.getProperty(PREFIX + "dropRate", String.valueOf(defaultLinkProfile.getDropRate()))));
+        return new SoakScenario(profile,
+                getInt("seedNodes", 2),
+                getInt("peers", 10),
+                getInt("maxConnections", 12),
+                getInt("offersPerPeer", 5),
+                getInt("refreshRounds", 2),
+                getInt("mailboxMessagesPerPeer", 3),
+                getInt("intervalMs", 100),
+                getInt("settleTimeSec", 20),
+                getInt("basePort", 9100),
+                Long.parseLong(System.getProperty(PREFIX + "randomSeed", "1")),
+                linkProfile);
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        return Integer.parseInt(System.getProperty(PREFIX + key, String.valueOf(defaultValue)));
+    }
+}
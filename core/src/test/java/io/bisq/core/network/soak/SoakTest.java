@@ -0,0 +1,342 @@
+package io.bisq.core.network.soak;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.UserThread;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.common.util.Utilities;
+import io.bisq.core.alert.PrivateNotificationMessage;
+import io.bisq.core.alert.PrivateNotificationPayload;
+import io.bisq.core.offer.OfferPayload;
+import io.bisq.network.p2p.DecryptedMessageWithPubKey;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.SendMailboxMessageListener;
+import io.bisq.network.p2p.network.LocalhostNetworkNode;
+import io.bisq.network.p2p.network.Statistic;
+import io.bisq.network.p2p.storage.HashMapChangedListener;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.Security;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Soak test of the P2P network. Starts seed nodes and peers in-process on LocalhostNetworkNodes with simulated Tor
+ * links and replays a scripted workload:
+ * <ol>
+ * <li>every peer adds its offers</li>
+ * <li>every peer refreshes its offers (refreshRounds times)</li>
+ * <li>every peer sends mailbox messages to random other peers</li>
+ * <li>every peer removes its offers</li>
+ * </ol>
+ * The result contains the propagation percentiles, CPU time per message and heap growth and is written as JSON to
+ * the file given with {@code -Dsoak.output} (default soak-result.json).
+ * <p/>
+ * You can invoke this class directly from the command line, see SoakScenario for the parameters. As all nodes run in
+ * one process and share the UserThread, the absolute numbers are not those of a real network. Compare runs of the
+ * same scenario on the same machine before and after a change of P2PDataStorage, Broadcaster or Connection.
+ */
+@Slf4j
+@Ignore
+public class SoakTest {
+    private static final String OUTPUT_PROPERTY = "soak.output";
+
+    private final PropagationTracker tracker = new PropagationTracker();
+    // Offer id by payload hash, for mapping the received RefreshOfferMessages
+    private final Map<P2PDataStorage.ByteArray, String> offerIdByHash = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        SoakResult result = new SoakTest().run(SoakScenario.fromSystemProperties());
+        String json = Utilities.objectToJson(result);
+        File output = new File(System.getProperty(OUTPUT_PROPERTY, "soak-result.json"));
+        Files.write(output.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        System.out.println(json);
+        // The NetworkNode executors are no daemon threads
+        System.exit(0);
+    }
+
+    @Test
+    public void testDefaultScenario() throws Exception {
+        SoakResult result = run(SoakScenario.fromSystemProperties());
+        log.info(Utilities.objectToJson(result));
+        assertTrue(result.getPropagation().get("add").getCoverage() > 0.99);
+    }
+
+    SoakResult run(SoakScenario scenario) throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        UserThread.setExecutor(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("SoakTest-UserThread")
+                .setDaemon(true)
+                .build()));
+        LocalhostNetworkNode.setSimulateTorDelayTorNode(100);
+        LocalhostNetworkNode.setSimulateTorDelayHiddenService(100);
+
+        File baseDir = Files.createTempDirectory("soak").toFile();
+        long startTime = System.currentTimeMillis();
+        Set<NodeAddress> seedNodeAddresses = new HashSet<>();
+        for (int i = 0; i < scenario.getNumSeedNodes(); i++)
+            seedNodeAddresses.add(new NodeAddress("localhost", scenario.getBasePort() + i));
+
+        List<SoakNode> seedNodes = new ArrayList<>();
+        for (int i = 0; i < scenario.getNumSeedNodes(); i++)
+            seedNodes.add(new SoakNode("seed-" + i, scenario.getBasePort() + i, seedNodeAddresses, scenario, baseDir));
+        List<SoakNode> peers = new ArrayList<>();
+        for (int i = 0; i < scenario.getNumPeers(); i++)
+            peers.add(new SoakNode("peer-" + i, scenario.getBasePort() + scenario.getNumSeedNodes() + i,
+                    seedNodeAddresses, scenario, baseDir));
+        List<SoakNode> allNodes = new ArrayList<>(seedNodes);
+        allNodes.addAll(peers);
+        allNodes.forEach(this::addListeners);
+
+        try {
+            seedNodes.forEach(node -> UserThread.execute(node::start));
+            for (SoakNode node : seedNodes)
+                await(node.getHiddenServicePublishedLatch(), node);
+            peers.forEach(node -> UserThread.execute(node::start));
+            for (SoakNode node : peers)
+                await(node.getBootstrappedLatch(), node);
+            log.info("All {} nodes are bootstrapped after {} ms", allNodes.size(), System.currentTimeMillis() - startTime);
+
+            long heapUsedBefore = getHeapUsedAfterGc();
+            long cpuTimeBefore = getProcessCpuTimeNanos();
+            Statistic.Snapshot statisticBefore = Statistic.getTotalSnapshot();
+            long workloadStart = System.currentTimeMillis();
+
+            runWorkload(scenario, peers, allNodes.size() - 1);
+
+            long workloadDuration = System.currentTimeMillis() - workloadStart;
+            long cpuTime = getProcessCpuTimeNanos() - cpuTimeBefore;
+            Statistic.Snapshot statisticAfter = Statistic.getTotalSnapshot();
+            long heapUsedAfter = getHeapUsedAfterGc();
+            long numReceivedMessages = statisticAfter.getNumReceivedMessages() - statisticBefore.getNumReceivedMessages();
+            return new SoakResult(scenario,
+                    System.getProperty("soak.gitRevision", ""),
+                    startTime,
+                    workloadDuration,
+                    tracker.getStats(),
+                    statisticAfter.getNumSentMessages() - statisticBefore.getNumSentMessages(),
+                    numReceivedMessages,
+                    statisticAfter.getSentBytes() - statisticBefore.getSentBytes(),
+                    statisticAfter.getReceivedBytes() - statisticBefore.getReceivedBytes(),
+                    TimeUnit.NANOSECONDS.toMillis(cpuTime),
+                    numReceivedMessages > 0 && cpuTime >= 0 ? cpuTime / 1000d / numReceivedMessages : -1,
+                    heapUsedBefore,
+                    heapUsedAfter,
+                    heapUsedAfter - heapUsedBefore);
+        } finally {
+            CountDownLatch shutDownLatch = new CountDownLatch(allNodes.size());
+            allNodes.forEach(node -> UserThread.execute(() -> node.shutDown(shutDownLatch::countDown)));
+            shutDownLatch.await(30, TimeUnit.SECONDS);
+            FileUtil.deleteDirectory(baseDir);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Workload
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void runWorkload(SoakScenario scenario, List<SoakNode> peers, int numReceivers) throws Exception {
+        Random random = new Random(scenario.getRandomSeed());
+        Map<SoakNode, List<OfferPayload>> offersByPeer = new LinkedHashMap<>();
+        for (SoakNode peer : peers) {
+            List<OfferPayload> offers = new ArrayList<>();
+            for (int i = 0; i < scenario.getOffersPerPeer(); i++)
+                offers.add(createOfferPayload(peer, i, random));
+            offersByPeer.put(peer, offers);
+        }
+
+        log.info("Add offers");
+        forEachOffer(scenario, offersByPeer, (peer, offer) -> {
+            offerIdByHash.put(P2PDataStorage.getHashOfPayload(offer), offer.getId());
+            tracker.onPublished("add", "add:" + offer.getId(), peer.getName(), numReceivers);
+            peer.getP2PService().addProtectedStorageEntry(offer, true);
+        });
+
+        for (int round = 1; round <= scenario.getRefreshRounds(); round++) {
+            log.info("Refresh offers, round {}", round);
+            // The add used sequence number 1, each refresh increments it
+            int sequenceNumber = round + 1;
+            forEachOffer(scenario, offersByPeer, (peer, offer) -> {
+                tracker.onPublished("refresh", "refresh:" + offer.getId() + ":" + sequenceNumber, peer.getName(), numReceivers);
+                peer.getP2PService().refreshTTL(offer, true);
+            });
+        }
+
+        log.info("Send mailbox messages");
+        for (int i = 0; i < scenario.getMailboxMessagesPerPeer(); i++) {
+            for (SoakNode sender : peers) {
+                SoakNode receiver = peers.get(random.nextInt(peers.size()));
+                if (receiver == sender)
+                    continue;
+
+                String uid = UUID.randomUUID().toString();
+                PrivateNotificationMessage message = new PrivateNotificationMessage(
+                        new PrivateNotificationPayload("Soak test message " + uid), sender.getNodeAddress(), uid);
+                tracker.onPublished("mailbox", "mailbox:" + uid, sender.getName(), 1);
+                UserThread.execute(() -> sender.getP2PService().sendEncryptedMailboxMessage(receiver.getNodeAddress(),
+                        receiver.getKeyRing().getPubKeyRing(), message, new SendMailboxMessageListener() {
+                            @Override
+                            public void onArrived() {
+                            }
+
+                            @Override
+                            public void onStoredInMailbox() {
+                            }
+
+                            @Override
+                            public void onFault(String errorMessage) {
+                                log.warn("Sending mailbox message failed. {}", errorMessage);
+                            }
+                        }));
+                Thread.sleep(scenario.getIntervalMs());
+            }
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(scenario.getSettleTimeSec()));
+
+        log.info("Remove offers");
+        forEachOffer(scenario, offersByPeer, (peer, offer) -> {
+            tracker.onPublished("remove", "remove:" + offer.getId(), peer.getName(), numReceivers);
+            peer.getP2PService().removeData(offer, true);
+        });
+    }
+
+    private interface OfferOperation {
+        void apply(SoakNode peer, OfferPayload offerPayload);
+    }
+
+    // Runs the operations at the UserThread, one per interval, and waits for the settle time at the end
+    private void forEachOffer(SoakScenario scenario, Map<SoakNode, List<OfferPayload>> offersByPeer,
+                              OfferOperation operation) throws InterruptedException {
+        for (int i = 0; i < scenario.getOffersPerPeer(); i++) {
+            for (Map.Entry<SoakNode, List<OfferPayload>> entry : offersByPeer.entrySet()) {
+                OfferPayload offer = entry.getValue().get(i);
+                UserThread.execute(() -> operation.apply(entry.getKey(), offer));
+                Thread.sleep(scenario.getIntervalMs());
+            }
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(scenario.getSettleTimeSec()));
+    }
+
+    private void addListeners(SoakNode node) {
+        node.getP2PService().addHashSetChangedListener(new HashMapChangedListener() {
+            @Override
+            public void onAdded(ProtectedStorageEntry entry) {
+                if (entry.getProtectedStoragePayload() instanceof OfferPayload)
+                    tracker.onReceived("add:" + ((OfferPayload) entry.getProtectedStoragePayload()).getId(), node.getName());
+            }
+
+            @Override
+            public void onRemoved(ProtectedStorageEntry entry) {
+                if (entry.getProtectedStoragePayload() instanceof OfferPayload)
+                    tracker.onReceived("remove:" + ((OfferPayload) entry.getProtectedStoragePayload()).getId(), node.getName());
+            }
+        });
+        node.getP2PService().getNetworkNode().addMessageListener((networkEnvelope, connection) -> {
+            if (networkEnvelope instanceof RefreshOfferMessage) {
+                RefreshOfferMessage refreshOfferMessage = (RefreshOfferMessage) networkEnvelope;
+                String offerId = offerIdByHash.get(new P2PDataStorage.ByteArray(refreshOfferMessage.getHashOfPayload()));
+                if (offerId != null)
+                    tracker.onReceived("refresh:" + offerId + ":" + refreshOfferMessage.getSequenceNumber(), node.getName());
+            }
+        });
+        node.getP2PService().addDecryptedDirectMessageListener((decryptedMessageWithPubKey, peerNodeAddress) ->
+                onDecryptedMessage(decryptedMessageWithPubKey, node));
+        node.getP2PService().addDecryptedMailboxListener((decryptedMessageWithPubKey, senderNodeAddress) ->
+                onDecryptedMessage(decryptedMessageWithPubKey, node));
+    }
+
+    private void onDecryptedMessage(DecryptedMessageWithPubKey decryptedMessageWithPubKey, SoakNode node) {
+        if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof PrivateNotificationMessage)
+            tracker.onReceived("mailbox:" + ((PrivateNotificationMessage) decryptedMessageWithPubKey.getNetworkEnvelope()).getUid(),
+                    node.getName());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // An offer with the typical size of a SEPA offer
+    private static OfferPayload createOfferPayload(SoakNode owner, int index, Random random) {
+        String id = owner.getName() + "-offer-" + index;
+        Map<String, String> extraDataMap = new HashMap<>();
+        extraDataMap.put(OfferPayload.ACCOUNT_AGE_WITNESS_HASH, Utilities.bytesAsHexString(randomBytes(random, 20)));
+        return new OfferPayload(id,
+                System.currentTimeMillis(),
+                owner.getNodeAddress(),
+                owner.getKeyRing().getPubKeyRing(),
+                index % 2 == 0 ? OfferPayload.Direction.BUY : OfferPayload.Direction.SELL,
+                0,
+                0.02,
+                true,
+                10_000_000,
+                5_000_000,
+                "BTC",
+                "EUR",
+                Collections.singletonList(new NodeAddress("arbitrator.onion:9999")),
+                Collections.singletonList(new NodeAddress("mediator.onion:9999")),
+                "SEPA",
+                UUID.randomUUID().toString(),
+                Utilities.bytesAsHexString(randomBytes(random, 32)),
+                "DE",
+                Arrays.asList("AT", "BE", "DE", "ES", "FI", "FR", "IE", "IT", "NL", "PT"),
+                null,
+                null,
+                "0.6.0",
+                490_000,
+                20_000,
+                20_000,
+                true,
+                3_000_000,
+                1_000_000,
+                100_000_000,
+                TimeUnit.DAYS.toMillis(6),
+                false,
+                false,
+                0,
+                0,
+                false,
+                null,
+                extraDataMap,
+                1);
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void await(CountDownLatch latch, SoakNode node) throws InterruptedException {
+        if (!latch.await(120, TimeUnit.SECONDS))
+            throw new IllegalStateException(node.getName() + " did not start within 120 sec.");
+    }
+
+    private static long getHeapUsedAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long getProcessCpuTimeNanos() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+        return -1;
+    }
+}
@@ -36,7 +36,7 @@ public class P2pNetworkListItem {
 
     private final Statistic statistic;
     private final Connection connection;
-    private final Subscription sentBytesSubscription, receivedBytesSubscription, onionAddressSubscription, roundTripTimeSubscription;
+    private final Subscription onionAddressSubscription;
     private final Clock clock;
     private final BSFormatter formatter;
 
@@ -55,19 +55,13 @@ public class P2pNetworkListItem {
         this.formatter = formatter;
         this.statistic = connection.getStatistic();
 
-        sentBytesSubscription = EasyBind.subscribe(statistic.sentBytesProperty(),
-                e -> sentBytes.set(formatter.formatBytes((long) e)));
-        receivedBytesSubscription = EasyBind.subscribe(statistic.receivedBytesProperty(),
-                e -> receivedBytes.set(formatter.formatBytes((long) e)));
         onionAddressSubscription = EasyBind.subscribe(connection.peersNodeAddressProperty(),
                 nodeAddress -> onionAddress.set(nodeAddress != null ? nodeAddress.getFullAddress() : Res.get("settings.net.notKnownYet")));
-        roundTripTimeSubscription = EasyBind.subscribe(statistic.roundTripTimeProperty(),
-                roundTripTime -> this.roundTripTime.set((int) roundTripTime == 0 ? "-" : roundTripTime + " ms"));
 
         listener = new Clock.Listener() {
             @Override
             public void onSecondTick() {
-                onLastActivityChanged(statistic.getLastActivityTimestamp());
+                onStatisticChanged(statistic.getSnapshot());
                 updatePeerType();
                 updateConnectionType();
             }
@@ -81,11 +75,19 @@ public class P2pNetworkListItem {
             }
         };
         clock.addListener(listener);
-        onLastActivityChanged(statistic.getLastActivityTimestamp());
+        onStatisticChanged(statistic.getSnapshot());
         updatePeerType();
         updateConnectionType();
     }
 
+    // The statistic counters are not observable, we poll them at each clock tick
+    private void onStatisticChanged(Statistic.Snapshot snapshot) {
+        onLastActivityChanged(snapshot.getLastActivityTimestamp());
+        sentBytes.set(formatter.formatBytes(snapshot.getSentBytes()));
+        receivedBytes.set(formatter.formatBytes(snapshot.getReceivedBytes()));
+        roundTripTime.set(snapshot.getRoundTripTime() == 0 ? "-" : snapshot.getRoundTripTime() + " ms");
+    }
+
     private void onLastActivityChanged(long timeStamp) {
         // TODO
         // Got one case where System.currentTimeMillis() - timeStamp resulted in a negative value, 
@@ -94,10 +96,7 @@ public class P2pNetworkListItem {
     }
 
     public void cleanup() {
-        sentBytesSubscription.unsubscribe();
-        receivedBytesSubscription.unsubscribe();
         onionAddressSubscription.unsubscribe();
-        roundTripTimeSubscription.unsubscribe();
         clock.removeListener(listener);
     }
 
@@ -18,6 +18,7 @@
 package io.bisq.monitor;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.ShardedExecutor;
 import io.bisq.common.UserThread;
 import io.bisq.common.util.Profiler;
 import io.bisq.common.util.RestartUtil;
@@ -130,6 +131,8 @@ public class MonitorMain extends BisqExecutable {
         final MonitorEnvironment environment = getEnvironment(options);
         Monitor.setEnvironment(environment);
 
+        useShardedUserThreadIfConfigured(environment, "MonitorMain");
+
         UserThread.execute(() -> {
             try {
                 seedNodeMonitor = new Monitor();
@@ -168,6 +171,8 @@ public class MonitorMain extends BisqExecutable {
 
         UserThread.runPeriodically(() -> {
             Profiler.printSystemLoad(log);
+            if (UserThread.getExecutor() instanceof ShardedExecutor)
+                log.info("UserThread lanes: " + ((ShardedExecutor) UserThread.getExecutor()).getAndResetSnapshot());
             if (!stopped) {
                 long usedMemoryInMB = Profiler.getUsedMemoryInMB();
                 if (usedMemoryInMB > (maxMemory * 0.8)) {
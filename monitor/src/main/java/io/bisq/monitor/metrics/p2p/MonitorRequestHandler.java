@@ -89,7 +89,7 @@ class MonitorRequestHandler implements MessageListener {
                     .map(e -> e.getKey().bytes)
                     .collect(Collectors.toSet());
 
-            GetDataRequest getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+            GetDataRequest getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, null, null);
 
             if (timeoutTimer != null) {
                 log.warn("timeoutTimer was already set. That must not happen.");
@@ -17,12 +17,15 @@
 
 package io.bisq.network.crypto;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.bisq.common.crypto.*;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.DecryptedMessageWithPubKey;
+import io.bisq.network.p2p.storage.P2PDataStorage;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.SecretKey;
@@ -30,13 +33,49 @@ import javax.inject.Inject;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
 
 import static io.bisq.common.crypto.Encryption.decryptSecretKey;
 
+/**
+ * Besides the default hybrid encryption with a fresh secret key for each message we support a session mode for
+ * peers with the SESSION_KEY_ENCRYPTION capability: The secret key and its RSA encrypted form are reused for up to
+ * MAX_MESSAGES_PER_SESSION_KEY messages to the same receiver, and the receiver caches the decrypted secret key. So
+ * the RSA operations are only done once per session key instead of for each message of a trade. The payload is still
+ * signed per message.
+ * <p/>
+ * Session payloads are encrypted with AES/GCM and a fresh random nonce per message (carried in the iv field of
+ * SealedAndSigned), which authenticates the ciphertext without using the secret key for a separate Hmac.
+ */
 @Slf4j
 public class EncryptionService {
+    private static final int MAX_MESSAGES_PER_SESSION_KEY = 100;
+    private static final long SESSION_KEY_TTL_MIN = 60;
+
+    private static final class SessionKey {
+        private final SecretKey secretKey;
+        private final byte[] encryptedSecretKey;
+        private int numMessages;
+
+        private SessionKey(SecretKey secretKey, byte[] encryptedSecretKey) {
+            this.secretKey = secretKey;
+            this.encryptedSecretKey = encryptedSecretKey;
+        }
+    }
+
     private final KeyRing keyRing;
     private final NetworkProtoResolver networkProtoResolver;
+    // Our session keys by the receivers encryption pubKey
+    private final Cache<PublicKey, SessionKey> sessionKeys = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(SESSION_KEY_TTL_MIN, TimeUnit.MINUTES)
+            .build();
+    // Decrypted session keys of our peers by the hash of the encryptedSecretKey. The receiver keeps them a bit longer
+    // than the sender uses them.
+    private final Cache<P2PDataStorage.ByteArray, SecretKey> receivedSessionKeys = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(SESSION_KEY_TTL_MIN * 2, TimeUnit.MINUTES)
+            .build();
 
     @Inject
     public EncryptionService(KeyRing keyRing, NetworkProtoResolver networkProtoResolver) {
@@ -48,6 +87,23 @@ public class EncryptionService {
         return encryptHybridWithSignature(networkEnvelop, keyRing.getSignatureKeyPair(), pubKeyRing.getEncryptionPubKey());
     }
 
+    // Only use the session key if the receiver supports SESSION_KEY_ENCRYPTION. Mailbox messages must not use it as
+    // the receiver might have restarted (or updated) until it gets the message.
+    public SealedAndSigned encryptAndSign(PubKeyRing pubKeyRing, NetworkEnvelope networkEnvelop, boolean useSessionKey)
+            throws CryptoException {
+        if (!useSessionKey)
+            return encryptAndSign(pubKeyRing, networkEnvelop);
+
+        SessionKey sessionKey = getSessionKey(pubKeyRing.getEncryptionPubKey());
+        byte[] nonce = Encryption.generateSessionNonce();
+        byte[] encryptedPayload = Encryption.encryptSessionPayload(
+                networkEnvelop.toProtoNetworkEnvelope().toByteArray(), sessionKey.secretKey, nonce);
+        KeyPair signatureKeyPair = keyRing.getSignatureKeyPair();
+        byte[] signature = Sig.sign(signatureKeyPair.getPrivate(), Hash.getSha256Hash(encryptedPayload));
+        return new SealedAndSigned(sessionKey.encryptedSecretKey, encryptedPayload, signature,
+                signatureKeyPair.getPublic(), nonce);
+    }
+
     /**
      * @param sealedAndSigned The sealedAndSigned object.
      * @param privateKey      The private key for decryption
@@ -55,7 +111,10 @@ public class EncryptionService {
      * @throws CryptoException
      */
     public DecryptedDataTuple decryptHybridWithSignature(SealedAndSigned sealedAndSigned, PrivateKey privateKey) throws CryptoException {
-        SecretKey secretKey = decryptSecretKey(sealedAndSigned.getEncryptedSecretKey(), privateKey);
+        byte[] iv = sealedAndSigned.getIv();
+        SecretKey secretKey = iv != null ?
+                getReceivedSessionKey(sealedAndSigned.getEncryptedSecretKey(), privateKey) :
+                decryptSecretKey(sealedAndSigned.getEncryptedSecretKey(), privateKey);
         boolean isValid = Sig.verify(sealedAndSigned.getSigPublicKey(),
                 Hash.getSha256Hash(sealedAndSigned.getEncryptedPayloadWithHmac()),
                 sealedAndSigned.getSignature());
@@ -63,7 +122,9 @@ public class EncryptionService {
             throw new CryptoException("Signature verification failed.");
 
         try {
-            final byte[] bytes = Encryption.decryptPayloadWithHmac(sealedAndSigned.getEncryptedPayloadWithHmac(), secretKey);
+            final byte[] bytes = iv != null ?
+                    Encryption.decryptSessionPayload(sealedAndSigned.getEncryptedPayloadWithHmac(), secretKey, iv) :
+                    Encryption.decryptPayloadWithHmac(sealedAndSigned.getEncryptedPayloadWithHmac(), secretKey);
             final PB.NetworkEnvelope envelope = PB.NetworkEnvelope.parseFrom(bytes);
             NetworkEnvelope decryptedPayload = networkProtoResolver.fromProto(envelope);
             return new DecryptedDataTuple(decryptedPayload, sealedAndSigned.getSigPublicKey());
@@ -80,6 +141,29 @@ public class EncryptionService {
                 decryptedDataTuple.getSigPublicKey());
     }
 
+    // Can be called from the UserThread and from the MailboxMessageProcessor threads
+    private synchronized SessionKey getSessionKey(PublicKey encryptionPubKey) throws CryptoException {
+        SessionKey sessionKey = sessionKeys.getIfPresent(encryptionPubKey);
+        if (sessionKey == null || sessionKey.numMessages >= MAX_MESSAGES_PER_SESSION_KEY) {
+            SecretKey secretKey = Encryption.generateSecretKey();
+            sessionKey = new SessionKey(secretKey, Encryption.encryptSecretKey(secretKey, encryptionPubKey));
+            sessionKeys.put(encryptionPubKey, sessionKey);
+        }
+        sessionKey.numMessages++;
+        return sessionKey;
+    }
+
+    private SecretKey getReceivedSessionKey(byte[] encryptedSecretKey, PrivateKey privateKey) throws CryptoException {
+        // The decryption of the encryptedSecretKey always results in the same secret key, so it is safe to cache it.
+        P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(Hash.getSha256Hash(encryptedSecretKey));
+        SecretKey secretKey = receivedSessionKeys.getIfPresent(key);
+        if (secretKey == null) {
+            secretKey = decryptSecretKey(encryptedSecretKey, privateKey);
+            receivedSessionKeys.put(key, secretKey);
+        }
+        return secretKey;
+    }
+
     private static byte[] encryptPayloadWithHmac(NetworkEnvelope networkEnvelop, SecretKey secretKey) throws CryptoException {
         return Encryption.encryptPayloadWithHmac(networkEnvelop.toProtoNetworkEnvelope().toByteArray(), secretKey);
     }
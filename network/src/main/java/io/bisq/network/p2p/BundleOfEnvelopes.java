@@ -0,0 +1,74 @@
+package io.bisq.network.p2p;
+
+import io.bisq.common.app.Version;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Several broadcast messages for the same peer sent as one message. The receiving connection passes the contained
+ * messages one by one to the message listeners. Only sent to peers supporting the BUNDLE_OF_ENVELOPES capability.
+ */
+@Slf4j
+@EqualsAndHashCode(callSuper = true)
+@Value
+public final class BundleOfEnvelopes extends NetworkEnvelope {
+    // Protects the receiving node against huge bundles
+    public static final int MAX_ENVELOPES = 100;
+
+    private final List<BroadcastMessage> envelopes;
+
+    public BundleOfEnvelopes(List<BroadcastMessage> envelopes) {
+        this(envelopes, Version.getP2PMessageVersion());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private BundleOfEnvelopes(List<BroadcastMessage> envelopes, int messageVersion) {
+        super(messageVersion);
+        this.envelopes = envelopes;
+    }
+
+    @Override
+    public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        return getNetworkEnvelopeBuilder()
+                .setBundleOfEnvelopes(PB.BundleOfEnvelopes.newBuilder()
+                        .addAllEnvelopes(envelopes.stream()
+                                .map(NetworkEnvelope::toProtoNetworkEnvelope)
+                                .collect(Collectors.toList())))
+                .build();
+    }
+
+    // We only accept broadcast messages in a bundle. Other messages (e.g. nested bundles) are dropped.
+    public static BundleOfEnvelopes fromProto(PB.BundleOfEnvelopes proto, NetworkProtoResolver resolver, int messageVersion) {
+        List<BroadcastMessage> envelopes = new ArrayList<>();
+        for (PB.NetworkEnvelope envelope : proto.getEnvelopesList()) {
+            if (envelopes.size() == MAX_ENVELOPES) {
+                log.warn("We received a BundleOfEnvelopes with more than {} envelopes. We drop the rest.", MAX_ENVELOPES);
+                break;
+            }
+            if (envelope.getMessageCase() == PB.NetworkEnvelope.MessageCase.BUNDLE_OF_ENVELOPES) {
+                log.warn("We received a nested BundleOfEnvelopes. We drop it.");
+                continue;
+            }
+
+            NetworkEnvelope networkEnvelope = resolver.fromProto(envelope);
+            if (networkEnvelope instanceof BroadcastMessage)
+                envelopes.add((BroadcastMessage) networkEnvelope);
+            else
+                log.warn("We received a {} in a BundleOfEnvelopes. We drop it.", networkEnvelope.getClass().getSimpleName());
+        }
+        return new BundleOfEnvelopes(envelopes, messageVersion);
+    }
+}
@@ -0,0 +1,265 @@
+package io.bisq.network.p2p;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.UserThread;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decrypts the mailbox messages on a small worker pool instead of the UserThread. After a large GetDataResponse we
+ * get thousands of mailbox entries and the RSA, AES and HMAC operations of each of them would freeze the UI.
+ * <p/>
+ * The entries added in one UserThread cycle are collected and indexed by the address prefix hash of their
+ * PrefixedSealedAndSignedMessage. Only the entries with our own address prefix hash are candidates and get decrypted,
+ * all others cannot be for us. The results are delivered at the UserThread in the order the entries have been added.
+ * Only accessed from the UserThread, beside the decryption itself.
+ */
+@Slf4j
+class MailboxMessageProcessor {
+    private static final int NUM_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    // We don't hand over more decryption tasks to the executor than that. The rest waits at the UserThread, so the
+    // entries of a big batch don't hold all worker threads busy for a long time after we got shut down.
+    private static final int MAX_IN_FLIGHT = NUM_THREADS * 4;
+
+    interface Decrypter {
+        DecryptedMessageWithPubKey decrypt(SealedAndSigned sealedAndSigned) throws CryptoException;
+    }
+
+    private static final class Request {
+        private final ProtectedMailboxStorageEntry protectedMailboxStorageEntry;
+        private volatile boolean done;
+        @Nullable
+        private volatile DecryptedMessageWithPubKey result;
+
+        Request(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
+            this.protectedMailboxStorageEntry = protectedMailboxStorageEntry;
+        }
+    }
+
+    private final Decrypter decrypter;
+    private final Supplier<byte[]> addressPrefixHashSupplier;
+    private final BiConsumer<ProtectedMailboxStorageEntry, DecryptedMessageWithPubKey> resultHandler;
+    private final ExecutorService executor;
+
+    // Entries added in the current UserThread cycle, indexed by the address prefix hash
+    private final Map<P2PDataStorage.ByteArray, List<ProtectedMailboxStorageEntry>> entriesByAddressPrefixHash = new LinkedHashMap<>();
+    private int numIndexedEntries;
+    // Candidates in the order they have been added. Only the head gets delivered.
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+    // Candidates which are not handed over to the executor yet
+    private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+    private int numInFlight;
+    private boolean stopped;
+
+    // Progress of the current batch. A batch starts when we get entries while nothing is pending and ends when all
+    // candidates are delivered.
+    private long batchStartTime;
+    private int batchNumEntries;
+    private int batchNumCandidates;
+    private int batchNumDelivered;
+
+    // Metrics
+    private long numEntries;
+    private long numCandidates;
+    private long numDecrypted;
+    private long totalDecryptNanos;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The resultHandler is called at the UserThread with the successfully decrypted messages.
+    MailboxMessageProcessor(Decrypter decrypter,
+                            Supplier<byte[]> addressPrefixHashSupplier,
+                            BiConsumer<ProtectedMailboxStorageEntry, DecryptedMessageWithPubKey> resultHandler) {
+        this.decrypter = decrypter;
+        this.addressPrefixHashSupplier = addressPrefixHashSupplier;
+        this.resultHandler = resultHandler;
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("MailboxMessageProcessor-%d")
+                        .setDaemon(true)
+                        .build());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void add(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
+        if (stopped)
+            return;
+
+        byte[] addressPrefixHash = protectedMailboxStorageEntry.getMailboxStoragePayload()
+                .getPrefixedSealedAndSignedMessage().getAddressPrefixHash();
+        if (addressPrefixHash == null) {
+            log.debug("addressPrefixHash is null. The message is not intended for us.");
+            return;
+        }
+
+        if (numIndexedEntries == 0)
+            UserThread.execute(this::processIndexedEntries);
+
+        entriesByAddressPrefixHash.computeIfAbsent(new P2PDataStorage.ByteArray(addressPrefixHash), e -> new ArrayList<>())
+                .add(protectedMailboxStorageEntry);
+        numIndexedEntries++;
+    }
+
+    void shutDown() {
+        stopped = true;
+        entriesByAddressPrefixHash.clear();
+        numIndexedEntries = 0;
+        waiting.clear();
+        pending.clear();
+        MoreExecutors.shutdownAndAwaitTermination(executor, 500, TimeUnit.MILLISECONDS);
+    }
+
+    int getNumPending() {
+        return pending.size();
+    }
+
+    long getNumDecrypted() {
+        return numDecrypted;
+    }
+
+    @Override
+    public String toString() {
+        return "MailboxMessageProcessor{" +
+                "numEntries=" + numEntries +
+                ", numCandidates=" + numCandidates +
+                ", numDecrypted=" + numDecrypted +
+                ", numPending=" + pending.size() +
+                ", averageDecryptTimeMs=" + String.format("%.2f",
+                numCandidates > 0 ? totalDecryptNanos / (double) numCandidates / 1_000_000 : 0) +
+                '}';
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void processIndexedEntries() {
+        if (stopped || numIndexedEntries == 0)
+            return;
+
+        byte[] myAddressPrefixHash = addressPrefixHashSupplier.get();
+        List<ProtectedMailboxStorageEntry> candidates = myAddressPrefixHash != null ?
+                entriesByAddressPrefixHash.get(new P2PDataStorage.ByteArray(myAddressPrefixHash)) :
+                null;
+        int numEntriesOfCycle = numIndexedEntries;
+        entriesByAddressPrefixHash.clear();
+        numIndexedEntries = 0;
+
+        if (pending.isEmpty()) {
+            batchStartTime = System.currentTimeMillis();
+            batchNumEntries = 0;
+            batchNumCandidates = 0;
+            batchNumDelivered = 0;
+        }
+        numEntries += numEntriesOfCycle;
+        batchNumEntries += numEntriesOfCycle;
+        if (candidates == null) {
+            log.trace("None of the {} mailbox entries is intended for us.", numEntriesOfCycle);
+            if (pending.isEmpty())
+                logBatchCompleted();
+            return;
+        }
+
+        numCandidates += candidates.size();
+        batchNumCandidates += candidates.size();
+        candidates.forEach(entry -> {
+            Request request = new Request(entry);
+            pending.add(request);
+            waiting.add(request);
+        });
+        executeWaitingRequests();
+    }
+
+    private void executeWaitingRequests() {
+        while (numInFlight < MAX_IN_FLIGHT && !waiting.isEmpty()) {
+            Request request = waiting.poll();
+            numInFlight++;
+            executor.execute(() -> {
+                long startNanos = System.nanoTime();
+                try {
+                    request.result = decrypter.decrypt(request.protectedMailboxStorageEntry.getMailboxStoragePayload()
+                            .getPrefixedSealedAndSignedMessage().getSealedAndSigned());
+                } catch (CryptoException e) {
+                    log.debug(e.toString());
+                    log.debug("Decryption of prefixedSealedAndSignedMessage.sealedAndSigned failed. " +
+                            "That is expected if the message is not intended for us.");
+                } catch (Throwable t) {
+                    log.error("Exception at decryption of mailbox message. " + t.toString());
+                }
+                long decryptNanos = System.nanoTime() - startNanos;
+                request.done = true;
+
+                UserThread.execute(() -> onRequestCompleted(decryptNanos));
+            });
+        }
+    }
+
+    private void onRequestCompleted(long decryptNanos) {
+        if (stopped)
+            return;
+
+        numInFlight--;
+        totalDecryptNanos += decryptNanos;
+        deliverCompletedRequests();
+        executeWaitingRequests();
+    }
+
+    // We only deliver the results from the head of the queue to keep the order of the added entries
+    private void deliverCompletedRequests() {
+        int numDeliveredBefore = batchNumDelivered;
+        while (!pending.isEmpty() && pending.peek().done) {
+            Request request = pending.poll();
+            batchNumDelivered++;
+            DecryptedMessageWithPubKey result = request.result;
+            if (result != null) {
+                numDecrypted++;
+                try {
+                    resultHandler.accept(request.protectedMailboxStorageEntry, result);
+                } catch (Throwable t) {
+                    log.error("Exception at delivering decrypted mailbox message. " + t.toString());
+                    t.printStackTrace();
+                }
+            }
+        }
+
+        if (pending.isEmpty())
+            logBatchCompleted();
+        else if (batchNumDelivered / 100 > numDeliveredBefore / 100)
+            log.info("Processed {} of {} mailbox message candidates.", batchNumDelivered, batchNumCandidates);
+    }
+
+    private void logBatchCompleted() {
+        if (batchNumEntries < 100)
+            return;
+
+        long duration = Math.max(1, System.currentTimeMillis() - batchStartTime);
+        log.info("Processed {} mailbox entries in {} ms ({} entries/sec). {} entries had our address prefix hash " +
+                        "and got decrypted. {}", batchNumEntries, duration, batchNumEntries * 1000 / duration,
+                batchNumCandidates, this);
+    }
+}
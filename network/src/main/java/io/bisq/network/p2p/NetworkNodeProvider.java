@@ -24,11 +24,14 @@ import io.bisq.network.NetworkOptionKeys;
 import io.bisq.network.p2p.network.BridgeAddressProvider;
 import io.bisq.network.p2p.network.LocalhostNetworkNode;
 import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.network.NioNetworkNode;
 import io.bisq.network.p2p.network.TorNetworkNode;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
 import java.io.File;
 
+@Slf4j
 public class NetworkNodeProvider implements Provider<NetworkNode> {
 
     private final NetworkNode networkNode;
@@ -37,11 +40,19 @@ public class NetworkNodeProvider implements Provider<NetworkNode> {
     public NetworkNodeProvider(NetworkProtoResolver networkProtoResolver,
                                BridgeAddressProvider bridgeAddressProvider,
                                @Named(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P) boolean useLocalhostForP2P,
+                               @Named(NetworkOptionKeys.USE_NIO_FOR_P2P) boolean useNioForP2P,
                                @Named(NetworkOptionKeys.PORT_KEY) int port,
                                @Named(NetworkOptionKeys.TOR_DIR) File torDir) {
-        networkNode = useLocalhostForP2P ?
-                new LocalhostNetworkNode(port, networkProtoResolver) :
-                new TorNetworkNode(port, torDir, networkProtoResolver, bridgeAddressProvider);
+        if (useLocalhostForP2P) {
+            networkNode = useNioForP2P ?
+                    new NioNetworkNode(port, networkProtoResolver) :
+                    new LocalhostNetworkNode(port, networkProtoResolver);
+        } else {
+            // The Tor hidden service socket is a blocking socket, so we cannot use the NioNetworkNode with Tor.
+            if (useNioForP2P)
+                log.warn("useNioForP2P is only supported in combination with useLocalhostForP2P. We use the Tor network node.");
+            networkNode = new TorNetworkNode(port, torDir, networkProtoResolver, bridgeAddressProvider);
+        }
     }
 
     @Override
@@ -6,6 +6,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.Log;
 import io.bisq.common.crypto.CryptoException;
 import io.bisq.common.crypto.KeyRing;
@@ -71,6 +72,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     private final Set<DecryptedMailboxListener> decryptedMailboxListeners = new CopyOnWriteArraySet<>();
     private final Set<P2PServiceListener> p2pServiceListeners = new CopyOnWriteArraySet<>();
     private final Map<String, ProtectedMailboxStorageEntry> mailboxMap = new HashMap<>();
+    private final MailboxMessageProcessor mailboxMessageProcessor;
     private final Set<Runnable> shutDownResultHandlers = new CopyOnWriteArraySet<>();
     private final BooleanProperty hiddenServicePublished = new SimpleBooleanProperty();
     private final BooleanProperty preliminaryDataReceived = new SimpleBooleanProperty();
@@ -113,6 +115,10 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         this.encryptionService = encryptionService;
         this.keyRing = keyRing;
 
+        mailboxMessageProcessor = new MailboxMessageProcessor(encryptionService::decryptAndVerify,
+                () -> networkNode.getNodeAddress() != null ? networkNode.getNodeAddress().getAddressPrefixHash() : null,
+                this::onMailboxMessageDecrypted);
+
         this.networkNode.addConnectionListener(this);
         this.networkNode.addMessageListener(this);
         this.p2PDataStorage.addHashMapChangedListener(this);
@@ -181,6 +187,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             if (p2PDataStorage != null)
                 p2PDataStorage.shutDown();
 
+            mailboxMessageProcessor.shutDown();
+
             if (peerManager != null)
                 peerManager.shutDown();
 
@@ -261,6 +269,9 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         hiddenServicePublished.set(true);
 
         p2pServiceListeners.stream().forEach(SetupListener::onHiddenServicePublished);
+
+        // We don't wait for the initial data to connect to the peers we had good connections with before
+        peerExchangeManager.requestFromBestScoredPeers();
     }
 
     @Override
@@ -438,7 +449,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                     + "\nEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEEE\n", message);
             PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = new PrefixedSealedAndSignedMessage(
                     networkNode.getNodeAddress(),
-                    encryptionService.encryptAndSign(pubKeyRing, message),
+                    encryptionService.encryptAndSign(pubKeyRing, message, isSessionKeySupported(peersNodeAddress)),
                     peersNodeAddress.getAddressPrefixHash(),
                     UUID.randomUUID().toString());
             SettableFuture<Connection> future = networkNode.sendMessage(peersNodeAddress, prefixedSealedAndSignedMessage);
@@ -468,40 +479,30 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // MailboxMessages
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // The decryption is done by the mailboxMessageProcessor at a worker thread. The decrypted messages are delivered
+    // at onMailboxMessageDecrypted in the order the entries have been added.
     private void processProtectedMailboxStorageEntry(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
-        Log.traceCall();
         final NodeAddress nodeAddress = networkNode.getNodeAddress();
         // Seed nodes don't receive mailbox network_messages
-        if (nodeAddress != null && !seedNodesRepository.isSeedNode(nodeAddress)) {
-            Log.traceCall();
-            MailboxStoragePayload mailboxStoragePayload = protectedMailboxStorageEntry.getMailboxStoragePayload();
-            PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = mailboxStoragePayload.getPrefixedSealedAndSignedMessage();
-            if (verifyAddressPrefixHash(prefixedSealedAndSignedMessage)) {
-                try {
-                    DecryptedMessageWithPubKey decryptedMessageWithPubKey = encryptionService.decryptAndVerify(
-                            prefixedSealedAndSignedMessage.getSealedAndSigned());
-                    if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
-                        MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
-                        NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
-                        checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
-
-                        mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
-                        log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress="
-                                + senderNodeAddress + " / my address=" + getAddress());
-                        decryptedMailboxListeners.stream().forEach(
-                                e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
-                    } else {
-                        log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
-                                "decryptedMsgWithPubKey.message=", decryptedMessageWithPubKey.getNetworkEnvelope());
-                    }
-                } catch (CryptoException e) {
-                    log.debug(e.toString());
-                    log.debug("Decryption of prefixedSealedAndSignedMessage.sealedAndSigned failed. " +
-                            "That is expected if the message is not intended for us.");
-                }
-            } else {
-                log.debug("Wrong blurredAddressHash. The message is not intended for us.");
-            }
+        if (nodeAddress != null && !seedNodesRepository.isSeedNode(nodeAddress))
+            mailboxMessageProcessor.add(protectedMailboxStorageEntry);
+    }
+
+    private void onMailboxMessageDecrypted(ProtectedMailboxStorageEntry protectedMailboxStorageEntry,
+                                           DecryptedMessageWithPubKey decryptedMessageWithPubKey) {
+        if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
+            MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
+            NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
+            checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
+
+            mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
+            log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress="
+                    + senderNodeAddress + " / my address=" + getAddress());
+            decryptedMailboxListeners.stream().forEach(
+                    e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
+        } else {
+            log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
+                    "decryptedMsgWithPubKey.message=", decryptedMessageWithPubKey.getNetworkEnvelope());
         }
     }
 
@@ -790,6 +791,10 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         return p2PDataStorage.getMap();
     }
 
+    public <T extends ProtectedStoragePayload> List<T> getDataPayloads(Class<T> payloadClass) {
+        return p2PDataStorage.getPayloadsByClass(payloadClass);
+    }
+
     @VisibleForTesting
     public P2PDataStorage getP2PDataStorage() {
         return p2PDataStorage;
@@ -809,6 +814,17 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // We only know the capabilities of the peer if we have a connection to it already. Otherwise we use the
+    // default encryption.
+    private boolean isSessionKeySupported(NodeAddress peersNodeAddress) {
+        List<Integer> requiredCapabilities = Collections.singletonList(
+                Capabilities.Capability.SESSION_KEY_ENCRYPTION.ordinal());
+        return networkNode.getConfirmedConnections().stream()
+                .filter(connection -> peersNodeAddress.equals(connection.getPeersNodeAddressOptional().get()))
+                .anyMatch(connection -> Capabilities.isCapabilitySupported(requiredCapabilities,
+                        connection.getSupportedCapabilities()));
+    }
+
     private boolean verifyAddressPrefixHash(PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage) {
         if (networkNode.getNodeAddress() != null) {
             byte[] blurredAddressHash = networkNode.getNodeAddress().getAddressPrefixHash();
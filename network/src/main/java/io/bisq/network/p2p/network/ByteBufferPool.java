@@ -0,0 +1,65 @@
+package io.bisq.network.p2p.network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of buffers with a fixed size. Direct buffers are expensive to allocate and are only freed by the GC,
+ * so we reuse the read buffers of closed connections. Reading from a SocketChannel into a direct buffer also avoids
+ * the copy through the temporary direct buffer the JDK uses for heap buffers.
+ * <p/>
+ * Heap buffers are used for the chunks of received frames, as protobuf can parse them from the backing array.
+ */
+class ByteBufferPool {
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final boolean direct;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPooledBuffers = new AtomicInteger();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+        this(bufferSize, maxPooledBuffers, true);
+    }
+
+    ByteBufferPool(int bufferSize, int maxPooledBuffers, boolean direct) {
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.direct = direct;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null)
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+
+        numPooledBuffers.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    // The buffer must not be used by the caller afterwards
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != direct)
+            return;
+
+        if (numPooledBuffers.incrementAndGet() <= maxPooledBuffers)
+            buffers.add(buffer);
+        else
+            numPooledBuffers.decrementAndGet();
+    }
+
+    int getNumPooledBuffers() {
+        return numPooledBuffers.get();
+    }
+}
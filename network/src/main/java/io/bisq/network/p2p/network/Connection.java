@@ -38,10 +38,12 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -74,10 +76,19 @@ public class Connection implements MessageListener {
     // Leaving some constants package-private for tests to know limits.
     static final int PERMITTED_MESSAGE_SIZE = 200 * 1024;                       // 200 kb
     static final int MAX_PERMITTED_MESSAGE_SIZE = 10 * 1024 * 1024;         // 10 MB (425 offers resulted in about 660 kb, mailbox msg will add more to it) offer has usually 2 kb, mailbox 3kb.
+    // Messages with ExtendedDataSizePermission above that size get compressed if the peer supports it
+    private static final int COMPRESSION_THRESHOLD = 10 * 1024;                 // 10 kb
     //TODO decrease limits again after testing
     static final int MSG_THROTTLE_PER_SEC = 200;              // With MAX_MSG_SIZE of 200kb results in bandwidth of 40MB/sec or 5 mbit/sec
     static final int MSG_THROTTLE_PER_10_SEC = 1000;          // With MAX_MSG_SIZE of 200kb results in bandwidth of 20MB/sec or 2.5 mbit/sec
     private static final int SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
+    // If that many messages are waiting we drop keep alive and broadcast messages. If it is full with direct messages
+    // the peer does not keep up with our sends and we close the connection.
+    private static final int MAX_OUTBOUND_QUEUE_SIZE = 1000;
+    private static final long FLOOD_PAUSE_MS = 50;
+    // Drains the outbound queues after the flood pause, so the sending thread (often the UserThread) does not sleep
+    private static final ScheduledThreadPoolExecutor deferredDrainExecutor =
+            Utilities.getScheduledThreadPoolExecutor("Connection.deferredDrain-%d", 4, 4, 60);
 
     public static int getPermittedMessageSize() {
         return PERMITTED_MESSAGE_SIZE;
@@ -91,12 +102,17 @@ public class Connection implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final Socket socket;
+    // Only set if the connection is handled by the NioEventLoop instead of a blocking InputHandler thread
+    @Nullable
+    private final NioConnectionChannel nioChannel;
     // private final MessageListener messageListener;
     private final ConnectionListener connectionListener;
     private final String portInfo;
     private final String uid;
     private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
     private final ReentrantLock protoOutputStreamLock = cycleDetectingLockFactory.newReentrantLock("protoOutputStreamLock");
+    private final OutboundQueue outboundQueue = new OutboundQueue(MAX_OUTBOUND_QUEUE_SIZE);
+    private final AtomicBoolean deferredDrainScheduled = new AtomicBoolean();
     // holder of state shared between InputHandler and Connection
     private final SharedModel sharedModel;
     private final Statistic statistic;
@@ -121,7 +137,19 @@ public class Connection implements MessageListener {
 
     Connection(Socket socket, MessageListener messageListener, ConnectionListener connectionListener,
                @Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
+        this(socket, null, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
+
+    Connection(NioConnectionChannel nioChannel, MessageListener messageListener, ConnectionListener connectionListener,
+               @Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
+        this(nioChannel.getSocket(), nioChannel, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
+
+    private Connection(Socket socket, @Nullable NioConnectionChannel nioChannel, MessageListener messageListener,
+                       ConnectionListener connectionListener, @Nullable NodeAddress peersNodeAddress,
+                       NetworkProtoResolver networkProtoResolver) {
         this.socket = socket;
+        this.nioChannel = nioChannel;
         this.connectionListener = connectionListener;
         uid = UUID.randomUUID().toString();
         statistic = new Statistic();
@@ -140,17 +168,25 @@ public class Connection implements MessageListener {
 
     private void init(@Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
         try {
-            socket.setSoTimeout(SOCKET_TIMEOUT);
-            // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
-            // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
-            // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
-            // the associated ObjectOutputStream on the other end of the connection has written.
-            // It will not return until that header has been read.
-            protoOutputStream = socket.getOutputStream();
-            InputStream protoInputStream = socket.getInputStream();
-            // We create a thread for handling inputStream data
-            inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
-            singleThreadExecutor.submit(inputHandler);
+            if (nioChannel != null) {
+                // The NioEventLoop reads the frames and passes them to the inputHandler, so we don't need a thread
+                // and streams here.
+                inputHandler = new InputHandler(sharedModel, null, portInfo, this, networkProtoResolver);
+                nioChannel.start(this, SOCKET_TIMEOUT);
+            } else {
+                socket.setSoTimeout(SOCKET_TIMEOUT);
+                // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
+                // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
+                // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
+                // the associated ObjectOutputStream on the other end of the connection has written.
+                // It will not return until that header has been read.
+                // We flush once after writing all queued messages
+                protoOutputStream = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+                InputStream protoInputStream = socket.getInputStream();
+                // We create a thread for handling inputStream data
+                inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
+                singleThreadExecutor.submit(inputHandler);
+            }
 
             // Use Peer as default, in case of other types they will set it as soon as possible.
             peerType = PeerType.PEER;
@@ -186,63 +222,15 @@ public class Connection implements MessageListener {
                 try {
                     Log.traceCall();
 
-                    // Throttle outbound network_messages
-                    long now = System.currentTimeMillis();
-                    long elapsed = now - lastSendTimeStamp;
-                    if (elapsed < 20) {
-                        log.debug("We got 2 sendMessage requests in less than 20 ms. We set the thread to sleep " +
-                                        "for 50 ms to avoid flooding our peer. lastSendTimeStamp={}, now={}, elapsed={}",
-                                lastSendTimeStamp, now, elapsed);
-                        Thread.sleep(50);
-                    }
-
-                    lastSendTimeStamp = now;
-                    String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
-
-                    PB.NetworkEnvelope proto = networkEnvelope.toProtoNetworkEnvelope();
-                    log.debug("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
-
-                    if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage) {
-                        // pings and offer refresh msg we dont want to log in production
-                        log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, proto.toString(), proto.getSerializedSize());
-                    } else if (networkEnvelope instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent()) {
-                        setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                        log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), -1);
-                    } else if (networkEnvelope instanceof GetDataResponse && ((GetDataResponse) networkEnvelope).isGetUpdatedDataResponse()) {
-                        setPeerType(Connection.PeerType.PEER);
+                    if (outboundQueue.add(networkEnvelope)) {
+                        drainOutboundQueue();
                     } else {
-                        log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), proto.getSerializedSize());
-                    }
-
-                    if (!stopped) {
-                        protoOutputStreamLock.lock();
-                        proto.writeDelimitedTo(protoOutputStream);
-                        protoOutputStream.flush();
-
-                        statistic.addSentBytes(proto.getSerializedSize());
-                        statistic.addSentMessage(networkEnvelope);
-
-                        // We don't want to get the activity ts updated by ping/pong msg
-                        if (!(networkEnvelope instanceof KeepAliveMessage))
-                            statistic.updateLastActivityTimestamp();
+                        log.warn("Outbound queue is full with {} direct messages. We close the connection. " +
+                                "peersNodeAddress={}", outboundQueue.size(), peersNodeAddressOptional);
+                        shutDown(CloseConnectionReason.SEND_MSG_FAILURE);
                     }
                 } catch (Throwable t) {
                     handleException(t);
-                } finally {
-                    if (protoOutputStreamLock.isLocked())
-                        protoOutputStreamLock.unlock();
                 }
             } else {
                 log.debug("We did not send the message because the peer does not support our required capabilities. message={}, peers supportedCapabilities={}", networkEnvelope, sharedModel.getSupportedCapabilities());
@@ -270,6 +258,114 @@ public class Connection implements MessageListener {
         return Capabilities.isCapabilitySupported(requiredCapabilities, supportedCapabilities);
     }
 
+    // The thread which gets the lock writes all queued messages and flushes once at the end. Other threads only add
+    // their message to the queue and return, so a burst of relayed messages does not block the senders and a direct
+    // message added in between gets written before the remaining broadcast messages.
+    // The NioConnectionChannel only takes a few encoded messages and throttles with a token bucket, so we don't pause
+    // for it. It calls onNioWriteQueueAvailable if it can take more messages.
+    private void drainOutboundQueue() throws Exception {
+        while (!outboundQueue.isEmpty() && (nioChannel == null || nioChannel.canQueueFrame()) &&
+                protoOutputStreamLock.tryLock()) {
+            try {
+                if (nioChannel != null) {
+                    NetworkEnvelope networkEnvelope;
+                    while (nioChannel.canQueueFrame() && (networkEnvelope = outboundQueue.poll()) != null)
+                        writeMessage(networkEnvelope, null);
+                    continue;
+                }
+
+                // Throttle outbound network_messages
+                long now = System.currentTimeMillis();
+                long elapsed = now - lastSendTimeStamp;
+                if (elapsed < 20) {
+                    log.debug("We got 2 sendMessage requests in less than 20 ms. We write the queued messages " +
+                                    "after {} ms to avoid flooding our peer. lastSendTimeStamp={}, now={}, elapsed={}",
+                            FLOOD_PAUSE_MS, lastSendTimeStamp, now, elapsed);
+                    scheduleDeferredDrain();
+                    return;
+                }
+
+                NetworkEnvelope networkEnvelope;
+                while ((networkEnvelope = outboundQueue.poll()) != null)
+                    writeMessage(networkEnvelope, protoOutputStream);
+
+                protoOutputStream.flush();
+                lastSendTimeStamp = System.currentTimeMillis();
+            } finally {
+                protoOutputStreamLock.unlock();
+            }
+        }
+    }
+
+    private void scheduleDeferredDrain() {
+        if (deferredDrainScheduled.compareAndSet(false, true)) {
+            deferredDrainExecutor.schedule(() -> {
+                deferredDrainScheduled.set(false);
+                try {
+                    drainOutboundQueue();
+                } catch (Throwable t) {
+                    // A CloseConnectionMessage is written after the stop flags are set, so we only handle the
+                    // exception if we are not stopped already
+                    if (!stopped)
+                        handleException(t);
+                }
+            }, FLOOD_PAUSE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // If outputStream is null we send to the nioChannel
+    private void writeMessage(NetworkEnvelope networkEnvelope, @Nullable OutputStream outputStream) throws IOException {
+        String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
+
+        PB.NetworkEnvelope proto = networkEnvelope.toProtoNetworkEnvelope();
+        log.debug("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
+
+        if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage) {
+            // pings and offer refresh msg we dont want to log in production
+            log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                            "Sending direct message to peer" +
+                            "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
+                            "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
+                    peersNodeAddress, uid, proto.toString(), proto.getSerializedSize());
+        } else if (networkEnvelope instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent()) {
+            setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+
+            log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                            "Sending direct message to peer" +
+                            "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
+                            "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
+                    peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), -1);
+        } else if (networkEnvelope instanceof GetDataResponse && ((GetDataResponse) networkEnvelope).isGetUpdatedDataResponse()) {
+            setPeerType(Connection.PeerType.PEER);
+        } else {
+            log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                            "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
+                            "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
+                    peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), proto.getSerializedSize());
+        }
+
+        int size = proto.getSerializedSize();
+        if (networkEnvelope instanceof ExtendedDataSizePermission && size > COMPRESSION_THRESHOLD &&
+                isCompressionSupported()) {
+            proto = EnvelopeCompressor.compress(proto);
+            log.debug("Compressed {} from {} to {} bytes", networkEnvelope.getClass().getSimpleName(), size,
+                    proto.getSerializedSize());
+            statistic.addCompressedSentMessage(proto.getSerializedSize(), size);
+        }
+
+        if (outputStream != null)
+            proto.writeDelimitedTo(outputStream);
+        else if (nioChannel != null)
+            nioChannel.send(proto);
+
+        statistic.addSentBytes(proto.getSerializedSize());
+        statistic.addSentMessage(networkEnvelope);
+
+        // We don't want to get the activity ts updated by ping/pong msg
+        if (!(networkEnvelope instanceof KeepAliveMessage))
+            statistic.updateLastActivityTimestamp();
+    }
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean isCapabilityRequired(NetworkEnvelope networkEnvelop) {
         return (networkEnvelop instanceof AddDataMessage &&
@@ -282,6 +378,12 @@ public class Connection implements MessageListener {
         return sharedModel.getSupportedCapabilities();
     }
 
+    private boolean isCompressionSupported() {
+        return Capabilities.isCapabilitySupported(
+                Collections.singletonList(Capabilities.Capability.COMPRESSED_ENVELOPE.ordinal()),
+                sharedModel.getSupportedCapabilities());
+    }
+
     public void addMessageListener(MessageListener messageListener) {
         boolean isNewEntry = messageListeners.add(messageListener);
         if (!isNewEntry)
@@ -354,6 +456,36 @@ public class Connection implements MessageListener {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // NioConnectionChannel callbacks
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from a decoder thread of the NioConnectionChannel. Returns false if no further messages should be read.
+    boolean onNioFrame(PB.NetworkEnvelope proto) {
+        return inputHandler != null && inputHandler.handleProto(proto);
+    }
+
+    // We encode the next messages at the deferredDrainExecutor, the NioEventLoop thread must not do that work
+    void onNioWriteQueueAvailable() {
+        if (!outboundQueue.isEmpty())
+            deferredDrainExecutor.execute(() -> {
+                try {
+                    drainOutboundQueue();
+                } catch (Throwable t) {
+                    if (!stopped)
+                        handleException(t);
+                }
+            });
+    }
+
+    void onNioException(Throwable throwable) {
+        if (inputHandler != null)
+            inputHandler.handleException(throwable);
+        else
+            handleException(throwable);
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Setters
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -482,7 +614,11 @@ public class Connection implements MessageListener {
     private void doShutDown(CloseConnectionReason closeConnectionReason, @Nullable Runnable shutDownCompleteHandler) {
         // Use UserThread.execute as its not clear if that is called from a non-UserThread
         UserThread.execute(() -> connectionListener.onDisconnect(closeConnectionReason, this));
+        outboundQueue.clear();
         try {
+            if (nioChannel != null)
+                nioChannel.close();
+
             sharedModel.getSocket().close();
         } catch (SocketException e) {
             log.trace("SocketException at shutdown might be expected " + e.getMessage());
@@ -505,7 +641,8 @@ public class Connection implements MessageListener {
             } catch (Throwable ignore) {
             }
             try {
-                protoOutputStream.close();
+                if (protoOutputStream != null)
+                    protoOutputStream.close();
             } catch (Throwable ignore) {
             }
             MoreExecutors.shutdownAndAwaitTermination(singleThreadExecutor, 500, TimeUnit.MILLISECONDS);
@@ -699,7 +836,11 @@ public class Connection implements MessageListener {
         private static final Logger log = LoggerFactory.getLogger(InputHandler.class);
 
         private final SharedModel sharedModel;
+        // Null if frames are delivered by the NioEventLoop
+        @Nullable
         private final InputStream protoInputStream;
+        @Nullable
+        private final ProtoFrameReader protoFrameReader;
         private final String portInfo;
         private final MessageListener messageListener;
         private final NetworkProtoResolver networkProtoResolver;
@@ -709,12 +850,13 @@ public class Connection implements MessageListener {
         private boolean threadNameSet;
 
         public InputHandler(SharedModel sharedModel,
-                            InputStream protoInputStream,
+                            @Nullable InputStream protoInputStream,
                             String portInfo,
                             MessageListener messageListener,
                             NetworkProtoResolver networkProtoResolver) {
             this.sharedModel = sharedModel;
             this.protoInputStream = protoInputStream;
+            this.protoFrameReader = protoInputStream != null ? new ProtoFrameReader(protoInputStream) : null;
             this.portInfo = portInfo;
             this.messageListener = messageListener;
             this.networkProtoResolver = networkProtoResolver;
@@ -723,7 +865,8 @@ public class Connection implements MessageListener {
         public void stop() {
             if (!stopped) {
                 try {
-                    protoInputStream.close();
+                    if (protoInputStream != null)
+                        protoInputStream.close();
                 } catch (IOException e) {
                     log.error("IOException at InputHandler.stop\n" + e.getMessage());
                     e.printStackTrace();
@@ -765,153 +908,28 @@ public class Connection implements MessageListener {
                         }
 
                         // Reading the protobuffer message from the inputstream
-                        PB.NetworkEnvelope proto = PB.NetworkEnvelope.parseDelimitedFrom(protoInputStream);
-
-                        if (proto == null) {
-                            if (protoInputStream.read() == -1)
-                                log.info("proto is null because protoInputStream.read()=-1 (EOF). That is expected if client got stopped without proper shutdown.");
-                            else
-                                log.warn("proto is null. protoInputStream.read()=" + protoInputStream.read());
+                        ProtoFrameReader protoFrameReader = checkNotNull(this.protoFrameReader, "protoFrameReader must not be null");
+                        int size = protoFrameReader.readFrameSize();
+                        if (size == ProtoFrameReader.EOF) {
+                            log.info("protoInputStream reached EOF. That is expected if client got stopped without proper shutdown.");
                             stopAndShutDown(CloseConnectionReason.NO_PROTO_BUFFER_ENV);
                             return;
                         }
 
-                        NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
-                        lastReadTimeStamp = now;
-                        log.debug("<< Received networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
-
-                        int size = proto.getSerializedSize();
-                        if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
-                            // We only log Pong and RefreshOfferMsg when in dev environment (trace)
-                            log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        } else {
-                            // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
-                            // so we log before the data type checks
-                            //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
-                            log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        }
-
-                        // We want to track the size of each object even if it is invalid data
-                        connection.statistic.addReceivedBytes(size);
-
-                        // We want to track the network_messages also before the checks, so do it early...
-                        connection.statistic.addReceivedMessage(networkEnvelope);
-
-                        // First we check the size
-                        boolean exceeds;
-                        if (networkEnvelope instanceof ExtendedDataSizePermission) {
-                            exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
-                            log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
-                        } else {
-                            exceeds = size > PERMITTED_MESSAGE_SIZE;
-                        }
-
-                        if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
-                                !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
-                            log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
-                                    ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
-                                    Utilities.toTruncatedString(proto));
-                            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                                return;
-                        }
-
-                        if (exceeds) {
-                            log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
-
+                        if (size > MAX_PERMITTED_MESSAGE_SIZE) {
+                            // We reject the frame before allocating memory for it
+                            log.warn("Frame size exceeds MAX_PERMITTED_MESSAGE_SIZE. size={}; connection={}", size, connection);
                             if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
                                 return;
-                        }
 
-                        if (connection.violatesThrottleLimit(networkEnvelope)
-                                && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
-                            return;
-
-                        // Check P2P network ID
-                        if (proto.getMessageVersion() != Version.getP2PMessageVersion()
-                                && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
-                            log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
-                                            "proto.toTruncatedString={}", proto.getMessageVersion(),
-                                    Version.getP2PMessageVersion(),
-                                    Utilities.toTruncatedString(proto.toString()));
-                            return;
+                            protoFrameReader.skipFrame(size);
+                            continue;
                         }
 
-                        if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
-                            sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
-
-                        if (networkEnvelope instanceof CloseConnectionMessage) {
-                            // If we get a CloseConnectionMessage we shut down
-                            log.info("CloseConnectionMessage received. Reason={}\n\t" +
-                                    "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
-                            if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
-                                log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
-                                stopAndShutDown(CloseConnectionReason.PEER_BANNED);
-                            } else {
-                                stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
-                            }
+                        PB.NetworkEnvelope proto = protoFrameReader.readFrame(size);
+                        lastReadTimeStamp = now;
+                        if (!handleProto(proto))
                             return;
-                        } else if (!stopped) {
-                            // We don't want to get the activity ts updated by ping/pong msg
-                            if (!(networkEnvelope instanceof KeepAliveMessage))
-                                connection.statistic.updateLastActivityTimestamp();
-
-                            if (networkEnvelope instanceof GetDataRequest)
-                                connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
-
-                            // First a seed node gets a message from a peer (PreliminaryDataRequest using
-                            // AnonymousMessage interface) which does not have its hidden service
-                            // published, so it does not know its address. As the IncomingConnection does not have the
-                            // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
-                            // get the address set.
-                            // At the data update message (DataRequest using SendersNodeAddressMessage interface)
-                            // after the HS is published we get the peer's address set.
-
-                            // There are only those network_messages used for new connections to a peer:
-                            // 1. PreliminaryDataRequest
-                            // 2. DataRequest (implements SendersNodeAddressMessage)
-                            // 3. GetPeersRequest (implements SendersNodeAddressMessage)
-                            // 4. DirectMessage (implements SendersNodeAddressMessage)
-                            if (networkEnvelope instanceof SendersNodeAddressMessage) {
-                                NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
-                                Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
-                                if (peersNodeAddressOptional.isPresent()) {
-                                    // If we have already the peers address we check again if it matches our stored one
-                                    checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
-                                            "senderNodeAddress not matching connections peer address.\n\t" +
-                                                    "message=" + networkEnvelope);
-                                } else {
-                                    // We must not shut down a banned peer at that moment as it would trigger a connection termination
-                                    // and we could not send the CloseConnectionMessage.
-                                    // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
-                                    connection.setPeersNodeAddress(senderNodeAddress);
-                                }
-                            }
-
-                            if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
-                                connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                            messageListener.onMessage(networkEnvelope, connection);
-                        }
-                    } catch (InvalidClassException e) {
-                        log.error(e.getMessage());
-                        e.printStackTrace();
-                        reportInvalidRequest(RuleViolation.INVALID_CLASS);
-                    } catch (NoClassDefFoundError e) {
-                        log.error(e.getMessage());
-                        e.printStackTrace();
-                        reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
                     } catch (Throwable t) {
                         handleException(t);
                     }
@@ -921,6 +939,183 @@ public class Connection implements MessageListener {
             }
         }
 
+        // Called from our own thread or from a decoder thread of the NioConnectionChannel.
+        // Returns false if no further messages should be read.
+        boolean handleProto(PB.NetworkEnvelope proto) {
+            try {
+                // We want to track the size on the wire, the size checks are done with the uncompressed size
+                int wireSize = proto.getSerializedSize();
+                if (proto.getMessageCase() == PB.NetworkEnvelope.MessageCase.COMPRESSED_ENVELOPE) {
+                    proto = EnvelopeCompressor.decompress(proto.getCompressedEnvelope(), MAX_PERMITTED_MESSAGE_SIZE);
+                    checkNotNull(sharedModel.connection, "connection must not be null").statistic
+                            .addCompressedReceivedMessage(wireSize, proto.getSerializedSize());
+                }
+                return processProto(proto, wireSize);
+            } catch (InvalidClassException e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                reportInvalidRequest(RuleViolation.INVALID_CLASS);
+            } catch (NoClassDefFoundError e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
+            } catch (Throwable t) {
+                handleException(t);
+            }
+            return !stopped;
+        }
+
+        private boolean processProto(PB.NetworkEnvelope proto, int wireSize) throws Exception {
+            Connection connection = checkNotNull(sharedModel.connection, "connection must not be null");
+            NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
+            log.debug("<< Received networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
+
+            int size = proto.getSerializedSize();
+            if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
+                // We only log Pong and RefreshOfferMsg when in dev environment (trace)
+                log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                "New data arrived at inputHandler of connection {}.\n" +
+                                "Received object (truncated)={} / size={}"
+                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                        connection,
+                        Utilities.toTruncatedString(proto.toString()),
+                        size);
+            } else {
+                // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
+                // so we log before the data type checks
+                //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
+                log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                "New data arrived at inputHandler of connection {}.\n" +
+                                "Received object (truncated)={} / size={}"
+                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                        connection,
+                        Utilities.toTruncatedString(proto.toString()),
+                        size);
+            }
+
+            // We want to track the size of each object even if it is invalid data
+            connection.statistic.addReceivedBytes(wireSize);
+
+            // We want to track the network_messages also before the checks, so do it early...
+            // The envelopes of a bundle are counted one by one when we dispatch them.
+            boolean isBundle = networkEnvelope instanceof BundleOfEnvelopes;
+            if (!isBundle)
+                connection.statistic.addReceivedMessage(networkEnvelope);
+
+            // First we check the size
+            boolean exceeds;
+            if (networkEnvelope instanceof ExtendedDataSizePermission) {
+                exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
+                log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
+            } else {
+                exceeds = size > PERMITTED_MESSAGE_SIZE;
+            }
+
+            if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
+                    !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
+                log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
+                        ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
+                        Utilities.toTruncatedString(proto));
+                if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                    return false;
+            }
+
+            if (exceeds) {
+                log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
+
+                if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                    return false;
+            }
+
+            // A bundle counts with each contained envelope, otherwise a peer could bypass the limit by bundling
+            if (!isBundle && connection.violatesThrottleLimit(networkEnvelope)
+                    && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
+                return false;
+
+            // Check P2P network ID
+            if (proto.getMessageVersion() != Version.getP2PMessageVersion()
+                    && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
+                log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
+                                "proto.toTruncatedString={}", proto.getMessageVersion(),
+                        Version.getP2PMessageVersion(),
+                        Utilities.toTruncatedString(proto.toString()));
+                return false;
+            }
+
+            if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
+                sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
+
+            if (isBundle) {
+                // A bundle contains only broadcast messages, so none of the connection setup handling below applies.
+                // We pass the contained messages to the listeners as if we had received them one by one.
+                if (!stopped) {
+                    connection.statistic.updateLastActivityTimestamp();
+                    for (NetworkEnvelope envelope : ((BundleOfEnvelopes) networkEnvelope).getEnvelopes()) {
+                        connection.statistic.addReceivedMessage(envelope);
+                        if (connection.violatesThrottleLimit(envelope)
+                                && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
+                            return false;
+
+                        messageListener.onMessage(envelope, connection);
+                    }
+                }
+                return true;
+            } else if (networkEnvelope instanceof CloseConnectionMessage) {
+                // If we get a CloseConnectionMessage we shut down
+                log.info("CloseConnectionMessage received. Reason={}\n\t" +
+                        "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
+                if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
+                    log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
+                    stopAndShutDown(CloseConnectionReason.PEER_BANNED);
+                } else {
+                    stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
+                }
+                return false;
+            } else if (!stopped) {
+                // We don't want to get the activity ts updated by ping/pong msg
+                if (!(networkEnvelope instanceof KeepAliveMessage))
+                    connection.statistic.updateLastActivityTimestamp();
+
+                if (networkEnvelope instanceof GetDataRequest)
+                    connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
+
+                // First a seed node gets a message from a peer (PreliminaryDataRequest using
+                // AnonymousMessage interface) which does not have its hidden service
+                // published, so it does not know its address. As the IncomingConnection does not have the
+                // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
+                // get the address set.
+                // At the data update message (DataRequest using SendersNodeAddressMessage interface)
+                // after the HS is published we get the peer's address set.
+
+                // There are only those network_messages used for new connections to a peer:
+                // 1. PreliminaryDataRequest
+                // 2. DataRequest (implements SendersNodeAddressMessage)
+                // 3. GetPeersRequest (implements SendersNodeAddressMessage)
+                // 4. DirectMessage (implements SendersNodeAddressMessage)
+                if (networkEnvelope instanceof SendersNodeAddressMessage) {
+                    NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
+                    Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
+                    if (peersNodeAddressOptional.isPresent()) {
+                        // If we have already the peers address we check again if it matches our stored one
+                        checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
+                                "senderNodeAddress not matching connections peer address.\n\t" +
+                                        "message=" + networkEnvelope);
+                    } else {
+                        // We must not shut down a banned peer at that moment as it would trigger a connection termination
+                        // and we could not send the CloseConnectionMessage.
+                        // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
+                        connection.setPeersNodeAddress(senderNodeAddress);
+                    }
+                }
+
+                if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
+                    connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+
+                messageListener.onMessage(networkEnvelope, connection);
+            }
+            return true;
+        }
+
         private void stopAndShutDown(CloseConnectionReason reason) {
             stop();
             sharedModel.shutDown(reason);
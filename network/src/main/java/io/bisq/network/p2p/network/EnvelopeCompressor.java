@@ -0,0 +1,130 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.generated.protobuffer.PB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresses large NetworkEnvelopes (GetDataResponse, GetBsqBlocksResponse) into a CompressedEnvelope. The initial
+ * data responses are full of repeated currency codes, payment method ids, country codes and onion addresses, so they
+ * compress well even though they contain hashes, signatures and pubkeys.
+ * <p/>
+ * We use raw deflate with a preset dictionary of values which appear in most offers and trade statistics. Both sides
+ * need the same dictionary, so it must never be changed. A new dictionary needs a new DICTIONARY_VERSION and the
+ * old one must be kept for decompression.
+ */
+class EnvelopeCompressor {
+    static final int DICTIONARY_VERSION = 1;
+
+    // Payment method ids, currency and country codes ordered by frequency, the most frequent at the end as deflate
+    // encodes shorter distances with fewer bits.
+    private static final List<String> DICTIONARY_V1_VALUES = Arrays.asList(
+            "DASH", "ETH", "LTC", "XMR", "ZEC", "DOGE", "BSQ", "DCR", "ETC", "SC", "STEEM", "GBYTE", "NMC",
+            "AUD", "BRL", "CAD", "CHF", "CNY", "CZK", "DKK", "HKD", "INR", "JPY", "MXN", "NOK", "NZD", "PLN", "RUB",
+            "SEK", "SGD", "TRY", "ZAR",
+            "AT", "AU", "BE", "BR", "CA", "CH", "CZ", "DK", "ES", "FI", "FR", "IE", "IT", "NL", "NO", "PL", "PT",
+            "SE", "CN", "IN", "JP", "MX", "RU", "ZA",
+            "PERFECT_MONEY", "FASTER_PAYMENTS", "SAME_BANK", "SPECIFIC_BANKS", "SWISH", "ALI_PAY", "CLEAR_X_CHANGE",
+            "CHASE_QUICK_PAY", "INTERAC_E_TRANSFER", "US_POSTAL_MONEY_ORDER", "CASH_DEPOSIT", "WESTERN_UNION",
+            "OK_PAY", "SEPA_INSTANT", "NATIONAL_BANK", "SEPA", "BLOCK_CHAINS",
+            "GB", "US", "DE", "GBP", "USD", "EUR", "BTC",
+            ".onion", ":9999", ":8000", ".onion:9999");
+
+    private static final byte[] DICTIONARY_V1 = String.join(" ", DICTIONARY_V1_VALUES)
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static PB.NetworkEnvelope compress(PB.NetworkEnvelope proto) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            ByteString.Output output = ByteString.newOutput(proto.getSerializedSize() / 4);
+            // The envelope is serialized directly into the compressor, so we don't need a copy of the
+            // uncompressed message
+            try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(output, deflater, 8192)) {
+                proto.writeTo(deflaterOutputStream);
+            }
+            return PB.NetworkEnvelope.newBuilder()
+                    .setMessageVersion(proto.getMessageVersion())
+                    .setCompressedEnvelope(PB.CompressedEnvelope.newBuilder()
+                            .setData(output.toByteString())
+                            .setUncompressedSize(proto.getSerializedSize())
+                            .setDictionaryVersion(DICTIONARY_VERSION))
+                    .build();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // We never inflate more than maxSize bytes and allocate only what the inflated data needs, so a small compressed
+    // message cannot make us allocate a lot of memory
+    static PB.NetworkEnvelope decompress(PB.CompressedEnvelope compressedEnvelope, int maxSize) throws IOException {
+        if (compressedEnvelope.getDictionaryVersion() != DICTIONARY_VERSION)
+            throw new InvalidProtocolBufferException("Unknown dictionary version: " + compressedEnvelope.getDictionaryVersion());
+
+        int uncompressedSize = compressedEnvelope.getUncompressedSize();
+        if (uncompressedSize < 0 || uncompressedSize > maxSize)
+            throw new InvalidProtocolBufferException("Uncompressed size of CompressedEnvelope exceeds the limit. " +
+                    "uncompressedSize=" + uncompressedSize);
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY_V1);
+            byte[] frame = inflate(compressedEnvelope.getData(), inflater, maxSize);
+            if (frame.length != uncompressedSize)
+                throw new InvalidProtocolBufferException("Uncompressed size of CompressedEnvelope does not match. " +
+                        "uncompressedSize=" + uncompressedSize + ", inflated=" + frame.length);
+
+            PB.NetworkEnvelope proto = ProtoFrameReader.parseFrame(frame);
+            if (proto.getMessageCase() == PB.NetworkEnvelope.MessageCase.COMPRESSED_ENVELOPE)
+                throw new InvalidProtocolBufferException("Nested CompressedEnvelope");
+            return proto;
+        } finally {
+            inflater.end();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The buffer grows with the inflated data instead of being allocated with the size the peer has declared
+    private static byte[] inflate(ByteString data, Inflater inflater, int maxSize) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(maxSize, Math.max(INITIAL_BUFFER_SIZE, data.size() * 4L))];
+        int size = 0;
+        try (InputStream inputStream = new InflaterInputStream(data.newInput(), inflater)) {
+            while (true) {
+                if (size == buffer.length) {
+                    if (buffer.length == maxSize) {
+                        if (inputStream.read() != -1)
+                            throw new InvalidProtocolBufferException("Inflated CompressedEnvelope exceeds the limit. " +
+                                    "maxSize=" + maxSize);
+                        break;
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxSize, buffer.length * 2L));
+                }
+                int numRead = inputStream.read(buffer, size, buffer.length - size);
+                if (numRead == -1)
+                    break;
+                size += numRead;
+            }
+        }
+        return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+    }
+}
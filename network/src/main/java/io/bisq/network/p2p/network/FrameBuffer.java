@@ -0,0 +1,152 @@
+package io.bisq.network.p2p.network;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.bisq.generated.protobuffer.PB;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Collects the bytes of one frame in chunks taken from a pool. Memory is only used for the bytes we have received and
+ * not for the size a peer announces in the length prefix. The bytes held by all frames which are not parsed yet are
+ * limited to MAX_PENDING_FRAME_BYTES, so peers cannot make us hold lots of incomplete frames.
+ * <p/>
+ * A frame which fits into one chunk is parsed from the chunk without aliasing and the chunk gets reused. A larger frame
+ * is copied into one array once it is complete and parsed with aliasing, so the bytes fields (e.g. the SealedAndSigned
+ * blobs) are views on that array and not copied a second time. protobuf 3.3 has no CodedInputStream which aliases
+ * over several buffers, so we cannot parse the chunks directly.
+ * <p/>
+ * Not thread safe. After parse or release the FrameBuffer must not be used anymore.
+ */
+class FrameBuffer {
+    static final int CHUNK_SIZE = 16 * 1024;
+    static final long MAX_PENDING_FRAME_BYTES = 100 * 1024 * 1024;
+
+    private static final ByteBufferPool CHUNK_POOL = new ByteBufferPool(CHUNK_SIZE, 1024, false);
+    private static final AtomicLong pendingFrameBytes = new AtomicLong();
+
+    private final int size;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int position;
+    // Bytes we have added to pendingFrameBytes
+    private long reservedBytes;
+    private boolean released;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    FrameBuffer(int size) {
+        this.size = size;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    boolean isComplete() {
+        return position == size;
+    }
+
+    // Copies the bytes of our frame from the buffer. Bytes after our frame stay in the buffer.
+    void put(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && position < size) {
+            ByteBuffer chunk = getWritableChunk();
+            int length = Math.min(Math.min(buffer.remaining(), chunk.remaining()), size - position);
+            reserve(length);
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + length);
+            chunk.put(buffer);
+            buffer.limit(limit);
+            position += length;
+        }
+    }
+
+    // Blocks until the frame is complete
+    void readFrom(InputStream inputStream) throws IOException {
+        while (position < size) {
+            ByteBuffer chunk = getWritableChunk();
+            int length = Math.min(chunk.remaining(), size - position);
+            int numBytes = inputStream.read(chunk.array(), chunk.arrayOffset() + chunk.position(), length);
+            if (numBytes == -1)
+                throw new EOFException("End of stream reached before the frame was complete");
+
+            reserve(numBytes);
+            chunk.position(chunk.position() + numBytes);
+            position += numBytes;
+        }
+    }
+
+    // The frame must be complete. The chunks get released.
+    PB.NetworkEnvelope parse() throws IOException {
+        checkState(isComplete(), "Frame is not complete");
+        try {
+            if (chunks.size() <= 1) {
+                ByteBuffer chunk = chunks.isEmpty() ? ByteBuffer.allocate(0) : chunks.get(0);
+                chunk.flip();
+                return ProtoFrameReader.parseFrame(chunk);
+            }
+
+            byte[] frame = new byte[size];
+            int offset = 0;
+            for (ByteBuffer chunk : chunks) {
+                chunk.flip();
+                int length = chunk.remaining();
+                chunk.get(frame, offset, length);
+                offset += length;
+            }
+            return ProtoFrameReader.parseFrame(frame);
+        } finally {
+            release();
+        }
+    }
+
+    // Called if the frame does not get parsed, e.g. because the connection got closed
+    void release() {
+        if (!released) {
+            released = true;
+            chunks.forEach(CHUNK_POOL::release);
+            chunks.clear();
+            pendingFrameBytes.addAndGet(-reservedBytes);
+            reservedBytes = 0;
+        }
+    }
+
+    @VisibleForTesting
+    static long getPendingFrameBytes() {
+        return pendingFrameBytes.get();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private ByteBuffer getWritableChunk() {
+        checkState(!released, "FrameBuffer is released already");
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || !chunk.hasRemaining()) {
+            chunk = CHUNK_POOL.acquire();
+            chunks.add(chunk);
+        }
+        return chunk;
+    }
+
+    private void reserve(int numBytes) throws IOException {
+        if (pendingFrameBytes.addAndGet(numBytes) > MAX_PENDING_FRAME_BYTES) {
+            pendingFrameBytes.addAndGet(-numBytes);
+            throw new IOException("Received frames which are not parsed yet exceed " + MAX_PENDING_FRAME_BYTES +
+                    " bytes. We reject the frame.");
+        }
+        reservedBytes += numBytes;
+    }
+}
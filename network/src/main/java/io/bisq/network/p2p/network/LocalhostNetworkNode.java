@@ -53,7 +53,7 @@ public class LocalhostNetworkNode extends NetworkNode {
             UserThread.runAfter(() -> {
                 Log.traceCall("hiddenService created");
                 try {
-                    startServer(new ServerSocket(servicePort));
+                    startServer(createServerSocket(servicePort));
                 } catch (IOException e) {
                     e.printStackTrace();
                     log.error("Exception at startServer: " + e.getMessage());
@@ -70,4 +70,9 @@ public class LocalhostNetworkNode extends NetworkNode {
     protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
         return new Socket(peerNodeAddress.getHostName(), peerNodeAddress.getPort());
     }
+
+    // Subclasses can use their own sockets for the inbound connections, e.g. for simulating the Tor latency
+    protected ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port);
+    }
 }
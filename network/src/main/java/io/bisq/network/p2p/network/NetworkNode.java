@@ -36,7 +36,7 @@ public abstract class NetworkNode implements MessageListener {
     private static final int CREATE_SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
 
     final int servicePort;
-    private final NetworkProtoResolver networkProtoResolver;
+    final NetworkProtoResolver networkProtoResolver;
 
     private final CopyOnWriteArraySet<InboundConnection> inBoundConnections = new CopyOnWriteArraySet<>();
     private final CopyOnWriteArraySet<MessageListener> messageListeners = new CopyOnWriteArraySet<>();
@@ -143,11 +143,7 @@ public abstract class NetworkNode implements MessageListener {
                                 connectionListeners.stream().forEach(e -> e.onError(throwable));
                             }
                         };
-                        outboundConnection = new OutboundConnection(socket,
-                                NetworkNode.this,
-                                connectionListener,
-                                peersNodeAddress,
-                                networkProtoResolver);
+                        outboundConnection = createOutboundConnection(socket, connectionListener, peersNodeAddress);
 
                         log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
                                 "NetworkNode created new outbound connection:"
@@ -355,7 +351,27 @@ public abstract class NetworkNode implements MessageListener {
     }
 
     void startServer(ServerSocket serverSocket) {
-        final ConnectionListener connectionListener = new ConnectionListener() {
+        server = new Server(serverSocket,
+                NetworkNode.this,
+                createInboundConnectionListener(),
+                networkProtoResolver);
+        executorService.submit(server);
+    }
+
+    // Can be overridden by NetworkNode implementations which don't use a blocking socket per connection.
+    // Called from NetworkNode thread
+    OutboundConnection createOutboundConnection(Socket socket,
+                                                ConnectionListener connectionListener,
+                                                NodeAddress peersNodeAddress) throws IOException {
+        return new OutboundConnection(socket,
+                NetworkNode.this,
+                connectionListener,
+                peersNodeAddress,
+                networkProtoResolver);
+    }
+
+    ConnectionListener createInboundConnectionListener() {
+        return new ConnectionListener() {
             @Override
             public void onConnection(Connection connection) {
                 if (!connection.isStopped()) {
@@ -380,11 +396,6 @@ public abstract class NetworkNode implements MessageListener {
                 connectionListeners.stream().forEach(e -> e.onError(throwable));
             }
         };
-        server = new Server(serverSocket,
-                NetworkNode.this,
-                connectionListener,
-                networkProtoResolver);
-        executorService.submit(server);
     }
 
     private Optional<OutboundConnection> lookupOutBoundConnection(NodeAddress peersNodeAddress) {
@@ -0,0 +1,344 @@
+package io.bisq.network.p2p.network;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.generated.protobuffer.PB;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking transport of a Connection. Frames are length delimited protobuf messages (same wire format as
+ * writeDelimitedTo/parseDelimitedFrom), so NioNetworkNodes can talk to nodes using the blocking transport.
+ * <p/>
+ * Reading, writing and throttling happens at the NioEventLoop thread. Instead of sleeping like the InputHandler and
+ * Connection.sendMessage we use token buckets and stop reading or writing until new tokens are available.
+ * <p/>
+ * The event loop only copies the frames out of the read buffer. Parsing, decompression and the message handling
+ * happen at the decoder threads, one frame after the other per connection. Outbound messages stay in the
+ * OutboundQueue of the Connection until we can take them, so the priorities of the queue apply. We only hold a few
+ * encoded frames which are ready to be written.
+ */
+@Slf4j
+class NioConnectionChannel {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Read buffers of closed connections get reused. We don't keep more than that.
+    private static final ByteBufferPool READ_BUFFER_POOL = new ByteBufferPool(READ_BUFFER_SIZE, 64);
+    // Shared by all connections. Frames of one connection are never decoded concurrently.
+    private static final ExecutorService DECODER_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            new ThreadFactoryBuilder()
+                    .setNameFormat("NioConnectionChannel.decoder-%d")
+                    .setDaemon(true)
+                    .build());
+    // Encoded frames we take from the OutboundQueue of the Connection before they get written
+    private static final int MAX_QUEUED_FRAMES = 2;
+
+    // Inbound: Burst of 20 messages, 50 msg/sec sustained. Similar to the 20 ms sleep at InputHandler.
+    private static final int INBOUND_BURST = 20;
+    private static final int INBOUND_MSG_PER_SEC = 50;
+    // Outbound: Burst of 20 messages, 20 msg/sec sustained. Similar to the 50 ms sleep at Connection.sendMessage.
+    private static final int OUTBOUND_BURST = 20;
+    private static final int OUTBOUND_MSG_PER_SEC = 20;
+
+    private final NioEventLoop eventLoop;
+    private final SocketChannel socketChannel;
+    private final ConcurrentLinkedQueue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeRequested = new AtomicBoolean();
+    private final AtomicInteger numQueuedFrames = new AtomicInteger();
+    private final ConcurrentLinkedQueue<FrameBuffer> inboundFrames = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean decoding = new AtomicBoolean();
+    // Set at the event loop thread, also used by the decoder threads
+    private volatile Connection connection;
+
+    // Accessed only from the event loop thread
+    private ByteBuffer readBuffer = READ_BUFFER_POOL.acquire();
+    private final TokenBucket inboundTokenBucket = new TokenBucket(INBOUND_BURST, INBOUND_MSG_PER_SEC);
+    private final TokenBucket outboundTokenBucket = new TokenBucket(OUTBOUND_BURST, OUTBOUND_MSG_PER_SEC);
+    private SelectionKey selectionKey;
+    private long socketTimeoutNanos;
+    private long lastReadNanos;
+    private final NioFrameDecoder frameDecoder = new NioFrameDecoder(Connection.MAX_PERMITTED_MESSAGE_SIZE);
+    private final NioFrameDecoder.Listener frameListener = new NioFrameDecoder.Listener() {
+        @Override
+        public boolean onFrame(FrameBuffer frame) {
+            return NioConnectionChannel.this.onFrame(frame);
+        }
+
+        @Override
+        public boolean onOversizeFrame(int size) {
+            return NioConnectionChannel.this.onOversizeFrame(size);
+        }
+    };
+    private boolean readPaused;
+    private boolean writePaused;
+    private ByteBuffer currentWrite;
+    private volatile boolean closed;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioConnectionChannel(NioEventLoop eventLoop, SocketChannel socketChannel) {
+        this.eventLoop = eventLoop;
+        this.socketChannel = socketChannel;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    Socket getSocket() {
+        return socketChannel.socket();
+    }
+
+    // Called from the Connection constructor
+    void start(Connection connection, int socketTimeoutMillis) {
+        eventLoop.execute(() -> {
+            this.connection = connection;
+            this.socketTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(socketTimeoutMillis);
+            this.lastReadNanos = System.nanoTime();
+            try {
+                selectionKey = eventLoop.register(socketChannel, this);
+                // Messages might have been queued before we got registered
+                if (!writeQueue.isEmpty())
+                    enableWrite();
+            } catch (IOException e) {
+                connection.onNioException(e);
+            }
+        });
+    }
+
+    // Called from any thread. If false the Connection keeps its messages in the OutboundQueue until we call
+    // onNioWriteQueueAvailable.
+    boolean canQueueFrame() {
+        return numQueuedFrames.get() < MAX_QUEUED_FRAMES;
+    }
+
+    // Called from any thread
+    void send(PB.NetworkEnvelope proto) throws IOException {
+        int size = proto.getSerializedSize();
+        byte[] bytes = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+        codedOutputStream.writeUInt32NoTag(size);
+        proto.writeTo(codedOutputStream);
+        codedOutputStream.checkNoSpaceLeft();
+        numQueuedFrames.incrementAndGet();
+        writeQueue.add(ByteBuffer.wrap(bytes));
+
+        if (writeRequested.compareAndSet(false, true))
+            eventLoop.execute(this::enableWrite);
+    }
+
+    // Called from any thread
+    void close() {
+        if (!closed) {
+            closed = true;
+            eventLoop.execute(() -> {
+                if (selectionKey != null)
+                    selectionKey.cancel();
+                writeQueue.clear();
+                releaseInboundFrames();
+                READ_BUFFER_POOL.release(readBuffer);
+                readBuffer = null;
+                frameDecoder.clear();
+            });
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Called from NioEventLoop
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onReadable() {
+        if (closed)
+            return;
+
+        try {
+            int numBytes = socketChannel.read(readBuffer);
+            if (numBytes == -1) {
+                disableRead();
+                connection.onNioException(new EOFException("End of stream reached"));
+                return;
+            }
+            lastReadNanos = System.nanoTime();
+            processReadBuffer();
+        } catch (IOException e) {
+            handleIOException(e);
+        }
+    }
+
+    void onWritable() {
+        try {
+            while (!closed) {
+                if (currentWrite == null) {
+                    if (writeQueue.isEmpty()) {
+                        writeRequested.set(false);
+                        // A message might have been added after our isEmpty check but before we reset the flag
+                        if (writeQueue.isEmpty() || !writeRequested.compareAndSet(false, true)) {
+                            setInterest(SelectionKey.OP_WRITE, false);
+                            return;
+                        }
+                    }
+                    if (!outboundTokenBucket.tryConsume()) {
+                        pauseWrite();
+                        return;
+                    }
+                    currentWrite = writeQueue.poll();
+                    numQueuedFrames.decrementAndGet();
+                    connection.onNioWriteQueueAvailable();
+                }
+
+                socketChannel.write(currentWrite);
+                if (currentWrite.hasRemaining()) {
+                    // Socket buffer is full, we continue when we get writable again
+                    return;
+                }
+                currentWrite = null;
+            }
+        } catch (IOException e) {
+            handleIOException(e);
+        }
+    }
+
+    void checkIdle(long now) {
+        if (!closed && connection != null && now - lastReadNanos > socketTimeoutNanos)
+            connection.onNioException(new SocketTimeoutException("No data received for " +
+                    TimeUnit.NANOSECONDS.toSeconds(socketTimeoutNanos) + " sec."));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void processReadBuffer() {
+        readBuffer.flip();
+        try {
+            if (!readPaused && !closed)
+                frameDecoder.decode(readBuffer, frameListener);
+        } catch (IOException e) {
+            handleIOException(e);
+        } finally {
+            // The connection might have been closed while handling the frame
+            if (readBuffer != null)
+                readBuffer.compact();
+        }
+    }
+
+    private boolean onFrame(FrameBuffer frame) {
+        inboundFrames.add(frame);
+        if (decoding.compareAndSet(false, true))
+            DECODER_EXECUTOR.execute(this::decodeFrames);
+
+        if (!inboundTokenBucket.tryConsume())
+            pauseRead();
+        return !readPaused && !closed;
+    }
+
+    private boolean onOversizeFrame(int size) {
+        log.warn("Frame size exceeds MAX_PERMITTED_MESSAGE_SIZE. size={}; connection={}", size, connection);
+        return !connection.reportIllegalRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED) && !closed;
+    }
+
+    // Runs at a decoder thread. Only one decodeFrames task per connection is scheduled at a time, so the frames are
+    // handled in the order we received them.
+    private void decodeFrames() {
+        do {
+            FrameBuffer frame;
+            while ((frame = inboundFrames.poll()) != null) {
+                if (closed) {
+                    frame.release();
+                    releaseInboundFrames();
+                    return;
+                }
+
+                try {
+                    if (!connection.onNioFrame(frame.parse())) {
+                        releaseInboundFrames();
+                        return;
+                    }
+                } catch (IOException e) {
+                    releaseInboundFrames();
+                    handleIOException(e);
+                    return;
+                }
+            }
+            decoding.set(false);
+            // A frame might have been added after our last poll but before we reset the flag
+        } while (!inboundFrames.isEmpty() && decoding.compareAndSet(false, true));
+    }
+
+    private void releaseInboundFrames() {
+        FrameBuffer frame;
+        while ((frame = inboundFrames.poll()) != null)
+            frame.release();
+    }
+
+    private void pauseRead() {
+        readPaused = true;
+        disableRead();
+        eventLoop.schedule(this::resumeRead, inboundTokenBucket.getNanosUntilAvailable());
+    }
+
+    private void resumeRead() {
+        if (!closed) {
+            readPaused = false;
+            // Process what we have buffered already before reading more
+            processReadBuffer();
+            if (!readPaused)
+                setInterest(SelectionKey.OP_READ, true);
+        }
+    }
+
+    private void disableRead() {
+        setInterest(SelectionKey.OP_READ, false);
+    }
+
+    private void pauseWrite() {
+        writePaused = true;
+        setInterest(SelectionKey.OP_WRITE, false);
+        eventLoop.schedule(() -> {
+            writePaused = false;
+            enableWrite();
+        }, outboundTokenBucket.getNanosUntilAvailable());
+    }
+
+    private void enableWrite() {
+        if (!writePaused)
+            setInterest(SelectionKey.OP_WRITE, true);
+    }
+
+    private void setInterest(int op, boolean enabled) {
+        if (selectionKey != null && selectionKey.isValid()) {
+            int ops = selectionKey.interestOps();
+            selectionKey.interestOps(enabled ? ops | op : ops & ~op);
+        }
+    }
+
+    private void handleIOException(IOException e) {
+        if (!closed) {
+            // We map the NIO exceptions to the ones the blocking socket would throw so we get the same
+            // CloseConnectionReason
+            Throwable throwable = e instanceof SocketException || e instanceof EOFException ? e :
+                    new SocketException(e.getMessage());
+            connection.onNioException(throwable);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.bisq.network.p2p.network;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Single thread selector loop serving all connections of a NioNetworkNode.
+ * Channel registrations and interest changes requested from other threads are queued as tasks and executed at the
+ * loop thread. Throttled channels are resumed by delayed tasks instead of sleeping.
+ */
+@Slf4j
+class NioEventLoop implements Runnable {
+    private static final long IDLE_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static class DelayedTask implements Comparable<DelayedTask> {
+        private final long deadlineNanos;
+        private final Runnable task;
+
+        DelayedTask(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(DelayedTask other) {
+            return Long.compare(deadlineNanos, other.deadlineNanos);
+        }
+    }
+
+    private final String name;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Only accessed from the loop thread
+    private final PriorityQueue<DelayedTask> delayedTasks = new PriorityQueue<>();
+    private Thread thread;
+    private volatile boolean stopped;
+    private long lastIdleCheckNanos = System.nanoTime();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioEventLoop(String name) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void start() {
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void shutDown() {
+        if (!stopped) {
+            stopped = true;
+            selector.wakeup();
+        }
+    }
+
+    // Can be called from any thread
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread)
+            selector.wakeup();
+    }
+
+    // Must be called from the loop thread
+    void schedule(Runnable task, long delayNanos) {
+        delayedTasks.add(new DelayedTask(System.nanoTime() + delayNanos, task));
+    }
+
+    boolean isInEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void bind(ServerSocketChannel serverSocketChannel, Consumer<SocketChannel> acceptHandler) {
+        execute(() -> {
+            try {
+                serverSocketChannel.configureBlocking(false);
+                serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT, acceptHandler);
+            } catch (IOException e) {
+                log.error("Could not register serverSocketChannel. " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Must be called from the loop thread
+    SelectionKey register(SocketChannel socketChannel, NioConnectionChannel nioChannel) throws IOException {
+        socketChannel.configureBlocking(false);
+        return socketChannel.register(selector, SelectionKey.OP_READ, nioChannel);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Runnable
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            try {
+                runTasks();
+                runDelayedTasks();
+
+                long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(IDLE_CHECK_INTERVAL_NANOS);
+                DelayedTask next = delayedTasks.peek();
+                if (next != null)
+                    timeoutMillis = Math.min(timeoutMillis, TimeUnit.NANOSECONDS.toMillis(next.deadlineNanos - System.nanoTime()));
+
+                if (timeoutMillis > 0)
+                    selector.select(timeoutMillis);
+                else
+                    selector.selectNow();
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    handleKey(key);
+                }
+
+                checkIdleChannels();
+            } catch (Throwable t) {
+                log.error("Exception at NioEventLoop. " + t.toString());
+                t.printStackTrace();
+            }
+        }
+
+        selector.keys().forEach(key -> {
+            try {
+                key.channel().close();
+            } catch (IOException ignore) {
+            }
+        });
+        try {
+            selector.close();
+        } catch (IOException ignore) {
+        }
+        log.info("NioEventLoop {} stopped", name);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid())
+            return;
+
+        if (key.isAcceptable()) {
+            try {
+                SocketChannel socketChannel = ((ServerSocketChannel) key.channel()).accept();
+                if (socketChannel != null)
+                    ((Consumer<SocketChannel>) key.attachment()).accept(socketChannel);
+            } catch (IOException e) {
+                if (!stopped)
+                    log.warn("Exception at accept. " + e.getMessage());
+            }
+            return;
+        }
+
+        NioConnectionChannel nioChannel = (NioConnectionChannel) key.attachment();
+        if (key.isReadable())
+            nioChannel.onReadable();
+        if (key.isValid() && key.isWritable())
+            nioChannel.onWritable();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Exception at NioEventLoop task. " + t.toString());
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private void runDelayedTasks() {
+        long now = System.nanoTime();
+        while (!delayedTasks.isEmpty() && delayedTasks.peek().deadlineNanos <= now) {
+            try {
+                delayedTasks.poll().task.run();
+            } catch (Throwable t) {
+                log.error("Exception at NioEventLoop delayed task. " + t.toString());
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private void checkIdleChannels() {
+        long now = System.nanoTime();
+        if (now - lastIdleCheckNanos >= IDLE_CHECK_INTERVAL_NANOS) {
+            lastIdleCheckNanos = now;
+            selector.keys().stream()
+                    .filter(key -> key.attachment() instanceof NioConnectionChannel)
+                    .forEach(key -> ((NioConnectionChannel) key.attachment()).checkIdle(now));
+        }
+    }
+}
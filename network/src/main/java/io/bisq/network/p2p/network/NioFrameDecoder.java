@@ -0,0 +1,121 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the bytes read by a NioConnectionChannel into length delimited frames. Frames might be split over several
+ * reads or several frames might arrive in one read, so the decoder keeps the state of an incomplete frame.
+ * The frames are only copied out of the read buffer into the pooled chunks of a FrameBuffer, parsing them is left to
+ * the caller so it can be done off the NioEventLoop thread.
+ * <p/>
+ * Like ProtoFrameReader the length prefix is read first, so frames exceeding maxFrameSize are skipped without
+ * allocating memory for them. Memory for the other frames is only taken for the bytes which have arrived. A negative
+ * length is a protocol violation and fails the decoding.
+ * Not thread safe, it is only accessed from the NioEventLoop thread.
+ */
+class NioFrameDecoder {
+    private static final long INCOMPLETE = -1;
+
+    interface Listener {
+        // The frame is complete. The listener has to parse or release it.
+        // Returns false if the decoding should stop, e.g. because reading got paused
+        boolean onFrame(FrameBuffer frame);
+
+        // The frame gets skipped. Returns false if the decoding should stop, e.g. because the connection got closed
+        boolean onOversizeFrame(int size);
+    }
+
+    private final int maxFrameSize;
+    @Nullable
+    private FrameBuffer frame;
+    private int bytesToDiscard;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioFrameDecoder(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The buffer must be in read mode. An incomplete length prefix stays in the buffer, the caller has to compact it
+    // and call us again once more bytes are read.
+    void decode(ByteBuffer buffer, Listener listener) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (bytesToDiscard > 0) {
+                int skip = Math.min(bytesToDiscard, buffer.remaining());
+                buffer.position(buffer.position() + skip);
+                bytesToDiscard -= skip;
+                continue;
+            }
+
+            if (frame == null) {
+                long varInt = readVarInt(buffer);
+                if (varInt == INCOMPLETE)
+                    return;
+
+                if (varInt > Integer.MAX_VALUE)
+                    throw new InvalidProtocolBufferException("Negative frame size: " + (int) varInt);
+
+                int size = (int) varInt;
+                if (size > maxFrameSize) {
+                    // We reject the frame before allocating memory for it
+                    bytesToDiscard = size;
+                    if (!listener.onOversizeFrame(size))
+                        return;
+                    continue;
+                }
+
+                frame = new FrameBuffer(size);
+            }
+
+            frame.put(buffer);
+            if (frame.isComplete()) {
+                FrameBuffer completeFrame = frame;
+                frame = null;
+                if (!listener.onFrame(completeFrame))
+                    return;
+            }
+        }
+    }
+
+    void clear() {
+        if (frame != null)
+            frame.release();
+        frame = null;
+        bytesToDiscard = 0;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns the unsigned 32 bit value or INCOMPLETE if the buffer does not contain the complete varint. In the
+    // latter case the position of the buffer is not changed.
+    private static long readVarInt(ByteBuffer buffer) throws IOException {
+        buffer.mark();
+        long result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                buffer.reset();
+                return INCOMPLETE;
+            }
+            byte b = buffer.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return result & 0xFFFFFFFFL;
+        }
+        throw new InvalidProtocolBufferException("Malformed frame length");
+    }
+}
@@ -0,0 +1,124 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.UserThread;
+import io.bisq.common.app.Log;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.network.p2p.NodeAddress;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Localhost/clearnet NetworkNode which reads and writes all connections at one NioEventLoop thread instead of using a
+ * thread with a blocking socket per connection. The received frames are parsed at a small shared pool of decoder
+ * threads. Used for seed nodes and monitors with a large number of connections. The wire format is the same as with
+ * the other NetworkNodes.
+ * <p/>
+ * Tor is not supported. The HiddenServiceSocket and TorSocket provided by netlayer are blocking sockets without a
+ * SocketChannel, so they cannot be registered at the selector. Nodes running over Tor use the TorNetworkNode.
+ */
+// Run in UserThread
+public class NioNetworkNode extends NetworkNode {
+    private static final Logger log = LoggerFactory.getLogger(NioNetworkNode.class);
+
+    // Time we give the event loop for flushing the CloseConnectionMessages at shutdown
+    private static final long SHUT_DOWN_DELAY_MS = 500;
+
+    @Nullable
+    private NioEventLoop eventLoop;
+    @Nullable
+    private ServerSocketChannel serverSocketChannel;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public NioNetworkNode(int port, NetworkProtoResolver networkProtoResolver) {
+        super(port, networkProtoResolver);
+    }
+
+    @Override
+    public void start(@Nullable SetupListener setupListener) {
+        if (setupListener != null)
+            addSetupListener(setupListener);
+
+        createExecutorService();
+
+        try {
+            eventLoop = new NioEventLoop("NioEventLoop-" + servicePort);
+            eventLoop.start();
+
+            serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.socket().bind(new InetSocketAddress(servicePort));
+            final NioEventLoop loop = eventLoop;
+            final ConnectionListener inboundConnectionListener = createInboundConnectionListener();
+            loop.bind(serverSocketChannel, socketChannel -> new InboundConnection(new NioConnectionChannel(loop, socketChannel),
+                    NioNetworkNode.this,
+                    inboundConnectionListener,
+                    networkProtoResolver));
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Exception at start: " + e.getMessage());
+            UserThread.execute(() -> setupListeners.stream().forEach(s -> s.onSetupFailed(e)));
+            return;
+        }
+
+        UserThread.execute(() -> {
+            Log.traceCall("NioNetworkNode started");
+            nodeAddressProperty.set(new NodeAddress("localhost", servicePort));
+            setupListeners.stream().forEach(SetupListener::onTorNodeReady);
+            setupListeners.stream().forEach(SetupListener::onHiddenServicePublished);
+        });
+    }
+
+    @Override
+    public void shutDown(Runnable shutDownCompleteHandler) {
+        super.shutDown(() -> {
+            try {
+                if (serverSocketChannel != null)
+                    serverSocketChannel.close();
+            } catch (IOException e) {
+                log.warn("Exception at closing serverSocketChannel: " + e.getMessage());
+            }
+
+            if (eventLoop != null) {
+                final NioEventLoop loop = eventLoop;
+                eventLoop = null;
+                UserThread.runAfter(loop::shutDown, SHUT_DOWN_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+
+            if (shutDownCompleteHandler != null)
+                shutDownCompleteHandler.run();
+        });
+    }
+
+    // Called from NetworkNode thread
+    @Override
+    protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
+        // We connect in blocking mode (we are at the NetworkNode thread) and switch to non-blocking at registration
+        return SocketChannel.open(new InetSocketAddress(peerNodeAddress.getHostName(), peerNodeAddress.getPort())).socket();
+    }
+
+    // Called from NetworkNode thread
+    @Override
+    OutboundConnection createOutboundConnection(Socket socket,
+                                                ConnectionListener connectionListener,
+                                                NodeAddress peersNodeAddress) throws IOException {
+        if (eventLoop == null)
+            throw new IOException("NioNetworkNode is not started or already shut down");
+
+        return new OutboundConnection(new NioConnectionChannel(eventLoop, socket.getChannel()),
+                NioNetworkNode.this,
+                connectionListener,
+                peersNodeAddress,
+                networkProtoResolver);
+    }
+}
@@ -13,4 +13,12 @@ public class OutboundConnection extends Connection {
                               NetworkProtoResolver networkProtoResolver) {
         super(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
     }
+
+    OutboundConnection(NioConnectionChannel nioChannel,
+                       MessageListener messageListener,
+                       ConnectionListener connectionListener,
+                       NodeAddress peersNodeAddress,
+                       NetworkProtoResolver networkProtoResolver) {
+        super(nioChannel, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
 }
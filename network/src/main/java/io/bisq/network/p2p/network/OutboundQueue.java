@@ -0,0 +1,176 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.network.p2p.BundleOfEnvelopes;
+import io.bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Queue of the messages waiting to be written to a connection.
+ * <p/>
+ * Messages are polled by priority: direct messages (trade protocol, mailbox, data requests, close connection) go
+ * before relayed broadcast messages, which go before keep alive messages. Within one priority we keep the order.
+ * A RefreshOfferMessage replaces a pending RefreshOfferMessage for the same payload at its position in the queue, as
+ * only the one with the highest sequence number has any effect at the peer.
+ * <p/>
+ * The queue is bounded. If it is full we drop the oldest keep alive message, then the oldest broadcast message. A new
+ * broadcast or keep alive message is dropped if only messages of higher priority are queued. If the queue is full
+ * with direct messages the new message is rejected and the caller has to give up the connection.
+ */
+@Slf4j
+class OutboundQueue {
+    enum Priority {
+        DIRECT,
+        BROADCAST,
+        KEEP_ALIVE
+    }
+
+    private static final class Item {
+        private NetworkEnvelope networkEnvelope;
+
+        Item(NetworkEnvelope networkEnvelope) {
+            this.networkEnvelope = networkEnvelope;
+        }
+    }
+
+    private final int maxSize;
+    private final Map<Priority, ArrayDeque<Item>> queues = new EnumMap<>(Priority.class);
+    private final Map<P2PDataStorage.ByteArray, Item> pendingRefreshOfferMessages = new HashMap<>();
+    private int size;
+    private long numCoalesced;
+    private long numDropped;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    OutboundQueue(int maxSize) {
+        this.maxSize = maxSize;
+        for (Priority priority : Priority.values())
+            queues.put(priority, new ArrayDeque<>());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static Priority getPriority(NetworkEnvelope networkEnvelope) {
+        if (networkEnvelope instanceof KeepAliveMessage)
+            return Priority.KEEP_ALIVE;
+        else if (networkEnvelope instanceof BroadcastMessage || networkEnvelope instanceof BundleOfEnvelopes)
+            return Priority.BROADCAST;
+        else
+            return Priority.DIRECT;
+    }
+
+    // Returns false if the queue is full with direct messages
+    synchronized boolean add(NetworkEnvelope networkEnvelope) {
+        P2PDataStorage.ByteArray hashOfPayload = null;
+        if (networkEnvelope instanceof RefreshOfferMessage) {
+            RefreshOfferMessage refreshOfferMessage = (RefreshOfferMessage) networkEnvelope;
+            hashOfPayload = new P2PDataStorage.ByteArray(refreshOfferMessage.getHashOfPayload());
+            Item pending = pendingRefreshOfferMessages.get(hashOfPayload);
+            if (pending != null) {
+                numCoalesced++;
+                if (refreshOfferMessage.getSequenceNumber() > ((RefreshOfferMessage) pending.networkEnvelope).getSequenceNumber())
+                    pending.networkEnvelope = refreshOfferMessage;
+                log.trace("We replaced a pending RefreshOfferMessage. numCoalesced={}", numCoalesced);
+                return true;
+            }
+        }
+
+        Priority priority = getPriority(networkEnvelope);
+        if (size >= maxSize && !dropLowerOrSamePriority(priority)) {
+            if (priority == Priority.DIRECT)
+                return false;
+
+            numDropped++;
+            log.debug("Outbound queue is full. We drop the {}. numDropped={}",
+                    networkEnvelope.getClass().getSimpleName(), numDropped);
+            return true;
+        }
+
+        Item item = new Item(networkEnvelope);
+        if (hashOfPayload != null)
+            pendingRefreshOfferMessages.put(hashOfPayload, item);
+        queues.get(priority).add(item);
+        size++;
+        return true;
+    }
+
+    @Nullable
+    synchronized NetworkEnvelope poll() {
+        for (ArrayDeque<Item> queue : queues.values()) {
+            Item item = queue.poll();
+            if (item != null) {
+                onRemoved(item);
+                return item.networkEnvelope;
+            }
+        }
+        return null;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long getNumCoalesced() {
+        return numCoalesced;
+    }
+
+    synchronized long getNumDropped() {
+        return numDropped;
+    }
+
+    synchronized void clear() {
+        queues.values().forEach(ArrayDeque::clear);
+        pendingRefreshOfferMessages.clear();
+        size = 0;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Drops the oldest message of the lowest priority which is not higher than the given one. Direct messages are
+    // never dropped.
+    private boolean dropLowerOrSamePriority(Priority priority) {
+        for (Priority candidate : new Priority[]{Priority.KEEP_ALIVE, Priority.BROADCAST}) {
+            if (candidate.compareTo(priority) < 0)
+                break;
+
+            Item item = queues.get(candidate).poll();
+            if (item != null) {
+                onRemoved(item);
+                numDropped++;
+                log.debug("Outbound queue is full. We dropped a queued {}. numDropped={}",
+                        item.networkEnvelope.getClass().getSimpleName(), numDropped);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onRemoved(Item item) {
+        size--;
+        if (item.networkEnvelope instanceof RefreshOfferMessage)
+            pendingRefreshOfferMessages.remove(new P2PDataStorage.ByteArray(
+                    ((RefreshOfferMessage) item.networkEnvelope).getHashOfPayload()));
+    }
+}
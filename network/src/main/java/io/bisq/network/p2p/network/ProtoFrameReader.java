@@ -0,0 +1,81 @@
+package io.bisq.network.p2p.network;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.generated.protobuffer.PB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads length delimited NetworkEnvelopes (same wire format as writeDelimitedTo/parseDelimitedFrom). In contrast to
+ * PB.NetworkEnvelope.parseDelimitedFrom the varint length prefix is read first, so the caller can reject a frame
+ * exceeding MAX_PERMITTED_MESSAGE_SIZE before any memory gets allocated for it.
+ * <p/>
+ * The frame is read into pooled chunks of a FrameBuffer as the bytes arrive, so a peer cannot make us allocate the
+ * announced size without sending the data.
+ * <p/>
+ * A frame which is read into its own byte array is parsed with aliasing enabled, so the bytes fields (e.g. the
+ * SealedAndSigned blobs) become ByteString views on the frame instead of copies. A frame inside a reused buffer must
+ * not be aliased as the buffer gets overwritten by the next read, so there the bytes fields are copied.
+ */
+class ProtoFrameReader {
+    static final int EOF = -1;
+
+    private final InputStream inputStream;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ProtoFrameReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Blocks until the length prefix of the next frame is read. Returns EOF if the stream ended before a new frame.
+    int readFrameSize() throws IOException {
+        int firstByte = inputStream.read();
+        if (firstByte == -1)
+            return EOF;
+
+        int size = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        if (size < 0)
+            throw new InvalidProtocolBufferException("Negative frame size: " + size);
+        return size;
+    }
+
+    PB.NetworkEnvelope readFrame(int size) throws IOException {
+        FrameBuffer frame = new FrameBuffer(size);
+        try {
+            frame.readFrom(inputStream);
+            return frame.parse();
+        } finally {
+            frame.release();
+        }
+    }
+
+    // Used for frames we have rejected, so we stay in sync with the stream
+    void skipFrame(int size) throws IOException {
+        ByteStreams.skipFully(inputStream, size);
+    }
+
+    // The frame must not be modified afterwards as the bytes fields of the result are views on it
+    static PB.NetworkEnvelope parseFrame(byte[] frame) throws IOException {
+        CodedInputStream codedInputStream = CodedInputStream.newInstance(frame);
+        codedInputStream.enableAliasing(true);
+        return PB.NetworkEnvelope.parseFrom(codedInputStream);
+    }
+
+    // Parses the remaining bytes of the buffer without aliasing, the buffer can be reused afterwards
+    static PB.NetworkEnvelope parseFrame(ByteBuffer buffer) throws IOException {
+        return PB.NetworkEnvelope.parseFrom(CodedInputStream.newInstance(buffer));
+    }
+}
@@ -1,39 +1,115 @@
 package io.bisq.network.p2p.network;
 
-import io.bisq.common.UserThread;
+import com.google.common.collect.ImmutableMap;
 import io.bisq.common.proto.network.NetworkEnvelope;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.LongProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleLongProperty;
+import lombok.Value;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters of a connection and of all connections (static).
+ * <p/>
+ * The counters are updated from the connection threads for each message, so we use LongAdders instead of posting
+ * the updates to the UserThread. Consumers (network view in the GUI, seed node, monitor) pull a Snapshot at their
+ * own rate.
+ */
 public class Statistic {
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Snapshot
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Value
+    public static class Snapshot {
+        private final Date creationDate;
+        private final long lastActivityTimestamp;
+        private final long sentBytes;
+        private final long receivedBytes;
+        // Size on the wire and size before compression of the compressed messages
+        private final long compressedSentBytes;
+        private final long uncompressedSentBytes;
+        private final long compressedReceivedBytes;
+        private final long uncompressedReceivedBytes;
+        private final Map<String, Long> sentMessages;
+        private final Map<String, Long> receivedMessages;
+        // Last round trip time in ms, 0 if not known yet
+        private final int roundTripTime;
+        // Number of round trip times per bucket, see ROUND_TRIP_TIME_BUCKETS
+        private final long[] roundTripTimeHistogram;
+
+        public long getNumSentMessages() {
+            return sentMessages.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long getNumReceivedMessages() {
+            return receivedMessages.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "creationDate=" + creationDate +
+                    ", lastActivityTimestamp=" + lastActivityTimestamp +
+                    ", sentBytes=" + sentBytes +
+                    ", receivedBytes=" + receivedBytes +
+                    ", compressedSentBytes=" + compressedSentBytes +
+                    ", uncompressedSentBytes=" + uncompressedSentBytes +
+                    ", compressedReceivedBytes=" + compressedReceivedBytes +
+                    ", uncompressedReceivedBytes=" + uncompressedReceivedBytes +
+                    ", sentMessages=" + sentMessages +
+                    ", receivedMessages=" + receivedMessages +
+                    ", roundTripTime=" + roundTripTime +
+                    ", roundTripTimeHistogram=" + Arrays.toString(roundTripTimeHistogram) +
+                    '}';
+        }
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Static
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private final static LongProperty totalSentBytes = new SimpleLongProperty(0);
-    private final static LongProperty totalReceivedBytes = new SimpleLongProperty(0);
+    // Upper bounds (exclusive) of the round trip time histogram buckets in ms. The last bucket counts all above.
+    public static final int[] ROUND_TRIP_TIME_BUCKETS = {100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final Date startDate = new Date();
+    private static final LongAdder totalSentBytes = new LongAdder();
+    private static final LongAdder totalReceivedBytes = new LongAdder();
+    private static final LongAdder totalCompressedSentBytes = new LongAdder();
+    private static final LongAdder totalUncompressedSentBytes = new LongAdder();
+    private static final LongAdder totalCompressedReceivedBytes = new LongAdder();
+    private static final LongAdder totalUncompressedReceivedBytes = new LongAdder();
+    private static final Map<String, LongAdder> totalSentMessages = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> totalReceivedMessages = new ConcurrentHashMap<>();
+    private static final LongAdder[] totalRoundTripTimeHistogram = createHistogram();
+    private static volatile long totalLastActivityTimestamp = System.currentTimeMillis();
 
     public static long getTotalSentBytes() {
-        return totalSentBytes.get();
-    }
-
-    public static LongProperty totalSentBytesProperty() {
-        return totalSentBytes;
+        return totalSentBytes.sum();
     }
 
     public static long getTotalReceivedBytes() {
-        return totalReceivedBytes.get();
+        return totalReceivedBytes.sum();
     }
 
-    public static LongProperty totalReceivedBytesProperty() {
-        return totalReceivedBytes;
+    // Totals of all connections since startup
+    public static Snapshot getTotalSnapshot() {
+        return new Snapshot(startDate,
+                totalLastActivityTimestamp,
+                totalSentBytes.sum(),
+                totalReceivedBytes.sum(),
+                totalCompressedSentBytes.sum(),
+                totalUncompressedSentBytes.sum(),
+                totalCompressedReceivedBytes.sum(),
+                totalUncompressedReceivedBytes.sum(),
+                toMap(totalSentMessages),
+                toMap(totalReceivedMessages),
+                0,
+                toArray(totalRoundTripTimeHistogram));
     }
 
 
@@ -42,12 +118,19 @@ public class Statistic {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final Date creationDate;
-    private long lastActivityTimestamp = System.currentTimeMillis();
-    private final LongProperty sentBytes = new SimpleLongProperty(0);
-    private final LongProperty receivedBytes = new SimpleLongProperty(0);
-    private final Map<String, Integer> receivedMessages = new ConcurrentHashMap<>();
-    private final Map<String, Integer> sentMessages = new ConcurrentHashMap<>();
-    private final IntegerProperty roundTripTime = new SimpleIntegerProperty(0);
+    private volatile long lastActivityTimestamp = System.currentTimeMillis();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder compressedSentBytes = new LongAdder();
+    private final LongAdder uncompressedSentBytes = new LongAdder();
+    private final LongAdder compressedReceivedBytes = new LongAdder();
+    private final LongAdder uncompressedReceivedBytes = new LongAdder();
+    private final Map<String, LongAdder> receivedMessages = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> sentMessages = new ConcurrentHashMap<>();
+    private volatile int roundTripTime;
+    // Only measured by us. The peer can report any value in its Ping.
+    private volatile int measuredRoundTripTime;
+    private final LongAdder[] roundTripTimeHistogram = createHistogram();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -63,50 +146,82 @@ public class Statistic {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void updateLastActivityTimestamp() {
-        UserThread.execute(() -> lastActivityTimestamp = System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        lastActivityTimestamp = now;
+        totalLastActivityTimestamp = now;
     }
 
     public void addSentBytes(int value) {
-        UserThread.execute(() -> {
-            sentBytes.set(sentBytes.get() + value);
-            totalSentBytes.set(totalSentBytes.get() + value);
-        });
+        sentBytes.add(value);
+        totalSentBytes.add(value);
     }
 
     public void addReceivedBytes(int value) {
-        UserThread.execute(() -> {
-            receivedBytes.set(receivedBytes.get() + value);
-            totalReceivedBytes.set(totalReceivedBytes.get() + value);
-        });
+        receivedBytes.add(value);
+        totalReceivedBytes.add(value);
+    }
+
+    // Sent bytes are added with addSentBytes, here we only track the gain of the compression
+    public void addCompressedSentMessage(int compressedSize, int uncompressedSize) {
+        compressedSentBytes.add(compressedSize);
+        totalCompressedSentBytes.add(compressedSize);
+        uncompressedSentBytes.add(uncompressedSize);
+        totalUncompressedSentBytes.add(uncompressedSize);
+    }
+
+    public void addCompressedReceivedMessage(int compressedSize, int uncompressedSize) {
+        compressedReceivedBytes.add(compressedSize);
+        totalCompressedReceivedBytes.add(compressedSize);
+        uncompressedReceivedBytes.add(uncompressedSize);
+        totalUncompressedReceivedBytes.add(uncompressedSize);
     }
 
-    // TODO would need msg inspection to get useful information...
     public void addReceivedMessage(NetworkEnvelope networkEnvelop) {
         String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (receivedMessages.containsKey(messageClassName))
-            counter = receivedMessages.get(messageClassName) + 1;
-
-        receivedMessages.put(messageClassName, counter);
+        increment(receivedMessages, messageClassName);
+        increment(totalReceivedMessages, messageClassName);
     }
 
     public void addSentMessage(NetworkEnvelope networkEnvelop) {
         String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (sentMessages.containsKey(messageClassName))
-            counter = sentMessages.get(messageClassName) + 1;
-
-        sentMessages.put(messageClassName, counter);
+        increment(sentMessages, messageClassName);
+        increment(totalSentMessages, messageClassName);
     }
 
     public void setRoundTripTime(int roundTripTime) {
-        this.roundTripTime.set(roundTripTime);
+        this.roundTripTime = roundTripTime;
+        if (roundTripTime > 0) {
+            int bucket = getBucket(roundTripTime);
+            roundTripTimeHistogram[bucket].increment();
+            totalRoundTripTimeHistogram[bucket].increment();
+        }
+    }
+
+    // Called with the round trip time of our own Ping/Pong
+    public void setMeasuredRoundTripTime(int measuredRoundTripTime) {
+        this.measuredRoundTripTime = measuredRoundTripTime;
+        setRoundTripTime(measuredRoundTripTime);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Getters
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    public Snapshot getSnapshot() {
+        return new Snapshot(creationDate,
+                lastActivityTimestamp,
+                sentBytes.sum(),
+                receivedBytes.sum(),
+                compressedSentBytes.sum(),
+                uncompressedSentBytes.sum(),
+                compressedReceivedBytes.sum(),
+                uncompressedReceivedBytes.sum(),
+                toMap(sentMessages),
+                toMap(receivedMessages),
+                roundTripTime,
+                toArray(roundTripTimeHistogram));
+    }
+
     public long getLastActivityTimestamp() {
         return lastActivityTimestamp;
     }
@@ -116,29 +231,25 @@ public class Statistic {
     }
 
     public long getSentBytes() {
-        return sentBytes.get();
-    }
-
-    public LongProperty sentBytesProperty() {
-        return sentBytes;
+        return sentBytes.sum();
     }
 
     public long getReceivedBytes() {
-        return receivedBytes.get();
-    }
-
-    public LongProperty receivedBytesProperty() {
-        return receivedBytes;
+        return receivedBytes.sum();
     }
 
     public Date getCreationDate() {
         return creationDate;
     }
 
-    public IntegerProperty roundTripTimeProperty() {
+    public int getRoundTripTime() {
         return roundTripTime;
     }
 
+    public int getMeasuredRoundTripTime() {
+        return measuredRoundTripTime;
+    }
+
     @Override
     public String toString() {
         return "Statistic{" +
@@ -149,4 +260,37 @@ public class Statistic {
                 '}';
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void increment(Map<String, LongAdder> map, String key) {
+        map.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> toMap(Map<String, LongAdder> map) {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        map.forEach((key, value) -> builder.put(key, value.sum()));
+        return builder.build();
+    }
+
+    private static LongAdder[] createHistogram() {
+        LongAdder[] histogram = new LongAdder[ROUND_TRIP_TIME_BUCKETS.length + 1];
+        for (int i = 0; i < histogram.length; i++)
+            histogram[i] = new LongAdder();
+        return histogram;
+    }
+
+    private static long[] toArray(LongAdder[] histogram) {
+        return Arrays.stream(histogram).mapToLong(LongAdder::sum).toArray();
+    }
+
+    private static int getBucket(int roundTripTime) {
+        for (int i = 0; i < ROUND_TRIP_TIME_BUCKETS.length; i++) {
+            if (roundTripTime < ROUND_TRIP_TIME_BUCKETS[i])
+                return i;
+        }
+        return ROUND_TRIP_TIME_BUCKETS.length;
+    }
 }
@@ -0,0 +1,40 @@
+package io.bisq.network.p2p.network;
+
+/**
+ * Simple token bucket used for throttling without blocking a thread.
+ * Not thread safe, it is only accessed from the NioEventLoop thread.
+ */
+class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(int capacity, int tokensPerSec) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSec / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    boolean tryConsume() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    long getNanosUntilAvailable() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -1,28 +1,21 @@
 package io.bisq.network.p2p.peers;
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.SettableFuture;
-import io.bisq.common.Timer;
-import io.bisq.common.UserThread;
 import io.bisq.common.app.Log;
 import io.bisq.common.util.Utilities;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.Connection;
 import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.storage.P2PDataStorage;
 import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class BroadcastHandler implements PeerManager.Listener {
-    private static final long TIMEOUT = 60;
-
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Listener
@@ -54,24 +47,30 @@ public class BroadcastHandler implements PeerManager.Listener {
     private final NetworkNode networkNode;
     public final String uid;
     private final PeerManager peerManager;
+    private final BroadcastScheduler broadcastScheduler;
+    private final BroadcastStatistics broadcastStatistics;
+    @Getter
     private boolean stopped = false;
     private int numOfCompletedBroadcasts = 0;
     private int numOfFailedBroadcasts = 0;
+    @Getter
     private BroadcastMessage message;
     private ResultHandler resultHandler;
     @Nullable
     private Listener listener;
     private int numPeers;
-    private Timer timeoutTimer;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public BroadcastHandler(NetworkNode networkNode, PeerManager peerManager) {
+    BroadcastHandler(NetworkNode networkNode, PeerManager peerManager, BroadcastScheduler broadcastScheduler,
+                     BroadcastStatistics broadcastStatistics) {
         this.networkNode = networkNode;
         this.peerManager = peerManager;
+        this.broadcastScheduler = broadcastScheduler;
+        this.broadcastStatistics = broadcastStatistics;
         peerManager.addListener(this);
         uid = UUID.randomUUID().toString();
     }
@@ -101,99 +100,86 @@ public class BroadcastHandler implements PeerManager.Listener {
         if (!connectedPeersSet.isEmpty()) {
             numOfCompletedBroadcasts = 0;
 
-            List<Connection> connectedPeersList = new ArrayList<>(connectedPeersSet);
+            // We skip peers which don't support the required capabilities and peers which have sent us that
+            // message already.
+            P2PDataStorage.ByteArray messageKey = P2PDataStorage.getBroadcastMessageKey(message);
+            List<Connection> connectedPeersList = connectedPeersSet.stream()
+                    .filter(connection -> !connection.isCapabilityRequired(message) || connection.isCapabilitySupported(message))
+                    .filter(connection -> messageKey == null ||
+                            !broadcastStatistics.hasMessage(messageKey, connection.getPeersNodeAddressOptional().get()))
+                    .collect(Collectors.toList());
             Collections.shuffle(connectedPeersList);
             numPeers = connectedPeersList.size();
-            int delay = 50;
             if (!isDataOwner) {
-                // for not data owner (relay nodes) we send to max. 7 nodes and use a longer delay
-                numPeers = Math.min(7, connectedPeersList.size());
-                delay = 100;
+                // For not data owner (relay nodes) we send to max. 3-7 nodes depending on how many duplicates we get
+                numPeers = Math.min(broadcastStatistics.getRelayFanOut(), connectedPeersList.size());
             }
 
-            long timeoutDelay = TIMEOUT + delay * numPeers;
-            timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                String errorMessage = "Timeout: Broadcast did not complete after " + timeoutDelay + " sec.";
-
-                log.debug(errorMessage + "\n\t" +
-                        "numOfPeers=" + numPeers + "\n\t" +
-                        "numOfCompletedBroadcasts=" + numOfCompletedBroadcasts + "\n\t" +
-                        "numOfFailedBroadcasts=" + numOfFailedBroadcasts);
-                onFault(errorMessage, false);
-            }, timeoutDelay);
+            if (numPeers == 0) {
+                log.debug("All {} connected peers have that message already or don't support it.", connectedPeersSet.size());
+                if (listener != null)
+                    listener.onBroadcastCompleted(message, 0, 0);
+                cleanup();
+                resultHandler.onCompleted(this);
+                return;
+            }
 
             log.debug("Broadcast message to {} peers out of {} total connected peers.", numPeers, connectedPeersSet.size());
-            for (int i = 0; i < numPeers; i++) {
-                if (stopped)
-                    break;  // do not continue sending after a timeout or a cancellation
-
-                final long minDelay = (i + 1) * delay;
-                final long maxDelay = (i + 2) * delay;
-                final Connection connection = connectedPeersList.get(i);
-                UserThread.runAfterRandomDelay(() -> sendToPeer(connection, message), minDelay, maxDelay, TimeUnit.MILLISECONDS);
-            }
+            for (int i = 0; i < numPeers; i++)
+                broadcastScheduler.schedule(connectedPeersList.get(i), this);
         } else {
             onFault("Message not broadcasted because we have no available peers yet.\n\t" +
                     "message = " + Utilities.toTruncatedString(message), false);
         }
     }
 
-    private void sendToPeer(Connection connection, BroadcastMessage message) {
-        String errorMessage = "Message not broadcasted because we have stopped the handler already.\n\t" +
-                "message = " + Utilities.toTruncatedString(message);
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // BroadcastScheduler callbacks
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onSent(Connection connection) {
+        numOfCompletedBroadcasts++;
         if (!stopped) {
-            if (!connection.isStopped()) {
-                if (!connection.isCapabilityRequired(message) || connection.isCapabilitySupported(message)) {
-                    NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
-                    log.trace("Broadcast message to " + nodeAddress + ".");
-                    SettableFuture<Connection> future = networkNode.sendMessage(connection, message);
-                    Futures.addCallback(future, new FutureCallback<Connection>() {
-                        @Override
-                        public void onSuccess(Connection connection) {
-                            numOfCompletedBroadcasts++;
-                            if (!stopped) {
-                                log.trace("Broadcast to " + nodeAddress + " succeeded.");
-
-                                if (listener != null)
-                                    listener.onBroadcasted(message, numOfCompletedBroadcasts);
-
-                                if (listener != null && numOfCompletedBroadcasts == 1)
-                                    listener.onBroadcastedToFirstPeer(message);
-
-                                if (numOfCompletedBroadcasts + numOfFailedBroadcasts == numPeers) {
-                                    if (listener != null)
-                                        listener.onBroadcastCompleted(message, numOfCompletedBroadcasts, numOfFailedBroadcasts);
-
-                                    cleanup();
-                                    resultHandler.onCompleted(BroadcastHandler.this);
-                                }
-                            } else {
-                                // TODO investigate why that is called very often at seed nodes
-                                onFault("stopped at onSuccess: " + errorMessage, false);
-                            }
-                        }
-
-                        @Override
-                        public void onFailure(@NotNull Throwable throwable) {
-                            numOfFailedBroadcasts++;
-                            if (!stopped) {
-                                log.info("Broadcast to " + nodeAddress + " failed.\n\t" +
-                                        "ErrorMessage=" + throwable.getMessage());
-                                if (numOfCompletedBroadcasts + numOfFailedBroadcasts == numPeers)
-                                    onFault("stopped at onFailure: " + errorMessage);
-                            } else {
-                                onFault("stopped at onFailure: " + errorMessage);
-                            }
-                        }
-                    });
-                } else {
-                    log.debug("We did not send the message because the peer does not support our required capabilities. message={}, peers supportedCapabilities={}", Utilities.toTruncatedString(message, 200), connection.getSupportedCapabilities());
-                }
-            } else {
-                onFault("Connection stopped already", false);
-            }
+            log.trace("Broadcast to " + connection.getPeersNodeAddressOptional() + " succeeded.");
+
+            if (listener != null)
+                listener.onBroadcasted(message, numOfCompletedBroadcasts);
+
+            if (listener != null && numOfCompletedBroadcasts == 1)
+                listener.onBroadcastedToFirstPeer(message);
+
+            checkCompleted();
         } else {
-            onFault("stopped at sendToPeer: " + errorMessage, false);
+            log.trace("We have stopped already. We ignore that onSent call.");
+        }
+    }
+
+    // The peer has the message already, we count it as completed
+    void onSkipped(Connection connection) {
+        log.trace("We skip the broadcast to {} as the peer has the message already.", connection.getPeersNodeAddressOptional());
+        numOfCompletedBroadcasts++;
+        if (!stopped)
+            checkCompleted();
+    }
+
+    void onFailed(Connection connection, String errorMessage) {
+        numOfFailedBroadcasts++;
+        if (!stopped) {
+            log.debug("Broadcast to {} failed. ErrorMessage={}", connection.getPeersNodeAddressOptional(), errorMessage);
+            if (numOfCompletedBroadcasts + numOfFailedBroadcasts == numPeers)
+                onFault("Broadcast failed at the last peer. ErrorMessage=" + errorMessage);
+        }
+    }
+
+    void onTimeout() {
+        if (!stopped) {
+            String errorMessage = "Timeout: Broadcast did not complete after " + BroadcastScheduler.TIMEOUT + " sec.";
+            log.debug(errorMessage + "\n\t" +
+                    "numOfPeers=" + numPeers + "\n\t" +
+                    "numOfCompletedBroadcasts=" + numOfCompletedBroadcasts + "\n\t" +
+                    "numOfFailedBroadcasts=" + numOfFailedBroadcasts);
+            onFault(errorMessage, false);
         }
     }
 
@@ -220,13 +206,19 @@ public class BroadcastHandler implements PeerManager.Listener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private void checkCompleted() {
+        if (numOfCompletedBroadcasts + numOfFailedBroadcasts == numPeers) {
+            if (listener != null)
+                listener.onBroadcastCompleted(message, numOfCompletedBroadcasts, numOfFailedBroadcasts);
+
+            cleanup();
+            resultHandler.onCompleted(this);
+        }
+    }
+
     private void cleanup() {
         stopped = true;
         peerManager.removeListener(this);
-        if (timeoutTimer != null) {
-            timeoutTimer.stop();
-            timeoutTimer = null;
-        }
     }
 
     private void onFault(String errorMessage) {
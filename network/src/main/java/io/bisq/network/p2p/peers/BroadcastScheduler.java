@@ -0,0 +1,200 @@
+package io.bisq.network.p2p.peers;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import io.bisq.common.Timer;
+import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.network.p2p.BundleOfEnvelopes;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the broadcast messages of all BroadcastHandlers and sends them with one timer per batch instead of one
+ * timer per message and peer. The messages for the same peer are sent as one BundleOfEnvelopes if the peer supports
+ * it. At the moment of sending we skip peers which have sent us that message in between.
+ * Only accessed from the UserThread.
+ */
+@Slf4j
+class BroadcastScheduler {
+    private static final long MIN_DELAY_MS = 50;
+    private static final long MAX_DELAY_MS = 150;
+    static final long TIMEOUT = 60;
+    // Keeps a bundle well below Connection.PERMITTED_MESSAGE_SIZE
+    private static final int MAX_BUNDLE_SIZE = 100 * 1024;
+
+    private static final class PendingBroadcast {
+        private final BroadcastHandler broadcastHandler;
+        @Nullable
+        private final P2PDataStorage.ByteArray messageKey;
+        private final long queuedTimeStamp = System.currentTimeMillis();
+
+        private PendingBroadcast(BroadcastHandler broadcastHandler) {
+            this.broadcastHandler = broadcastHandler;
+            this.messageKey = P2PDataStorage.getBroadcastMessageKey(broadcastHandler.getMessage());
+        }
+    }
+
+    private final NetworkNode networkNode;
+    private final BroadcastStatistics statistics;
+    private final Map<Connection, List<PendingBroadcast>> pendingBroadcastsByConnection = new LinkedHashMap<>();
+    private Timer flushTimer;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    BroadcastScheduler(NetworkNode networkNode, BroadcastStatistics statistics) {
+        this.networkNode = networkNode;
+        this.statistics = statistics;
+    }
+
+    void shutDown() {
+        stopFlushTimer();
+        pendingBroadcastsByConnection.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void schedule(Connection connection, BroadcastHandler broadcastHandler) {
+        pendingBroadcastsByConnection.computeIfAbsent(connection, e -> new ArrayList<>())
+                .add(new PendingBroadcast(broadcastHandler));
+
+        if (flushTimer == null)
+            flushTimer = UserThread.runAfterRandomDelay(this::flush, MIN_DELAY_MS, MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void flush() {
+        flushTimer = null;
+        Map<Connection, List<PendingBroadcast>> pendingBroadcastsByConnection = new LinkedHashMap<>(this.pendingBroadcastsByConnection);
+        this.pendingBroadcastsByConnection.clear();
+
+        Set<BroadcastHandler> broadcastHandlers = new HashSet<>();
+        pendingBroadcastsByConnection.forEach((connection, pendingBroadcasts) -> {
+            List<PendingBroadcast> toSend = getPendingBroadcastsToSend(connection, pendingBroadcasts);
+            if (toSend.isEmpty())
+                return;
+
+            toSend.forEach(e -> broadcastHandlers.add(e.broadcastHandler));
+            if (toSend.size() > 1 && isBundleSupported(connection)) {
+                getBundles(toSend).forEach(bundle -> send(connection, bundle));
+            } else {
+                toSend.forEach(e -> send(connection, Collections.singletonList(e)));
+            }
+        });
+
+        if (!broadcastHandlers.isEmpty()) {
+            // One timeout for all messages of that batch
+            UserThread.runAfter(() -> broadcastHandlers.forEach(BroadcastHandler::onTimeout), TIMEOUT);
+            log.debug("We sent {} broadcast messages to {} peers. {}", broadcastHandlers.size(),
+                    pendingBroadcastsByConnection.size(), statistics);
+        }
+    }
+
+    private List<PendingBroadcast> getPendingBroadcastsToSend(Connection connection, List<PendingBroadcast> pendingBroadcasts) {
+        List<PendingBroadcast> toSend = new ArrayList<>();
+        for (PendingBroadcast pendingBroadcast : pendingBroadcasts) {
+            BroadcastHandler broadcastHandler = pendingBroadcast.broadcastHandler;
+            if (broadcastHandler.isStopped())
+                continue;
+
+            if (connection.isStopped()) {
+                broadcastHandler.onFailed(connection, "Connection stopped already");
+            } else if (pendingBroadcast.messageKey != null &&
+                    connection.getPeersNodeAddressOptional().isPresent() &&
+                    statistics.hasMessage(pendingBroadcast.messageKey, connection.getPeersNodeAddressOptional().get())) {
+                // The peer has sent us that message since we have scheduled it
+                statistics.onMessageSkipped();
+                broadcastHandler.onSkipped(connection);
+            } else {
+                toSend.add(pendingBroadcast);
+            }
+        }
+        return toSend;
+    }
+
+    private List<List<PendingBroadcast>> getBundles(List<PendingBroadcast> pendingBroadcasts) {
+        List<List<PendingBroadcast>> bundles = new ArrayList<>();
+        List<PendingBroadcast> bundle = new ArrayList<>();
+        int bundleSize = 0;
+        for (PendingBroadcast pendingBroadcast : pendingBroadcasts) {
+            int size = pendingBroadcast.broadcastHandler.getMessage().toProtoNetworkEnvelope().getSerializedSize();
+            if (!bundle.isEmpty() && (bundleSize + size > MAX_BUNDLE_SIZE || bundle.size() == BundleOfEnvelopes.MAX_ENVELOPES)) {
+                bundles.add(bundle);
+                bundle = new ArrayList<>();
+                bundleSize = 0;
+            }
+            bundle.add(pendingBroadcast);
+            bundleSize += size;
+        }
+        bundles.add(bundle);
+        return bundles;
+    }
+
+    private void send(Connection connection, List<PendingBroadcast> pendingBroadcasts) {
+        NetworkEnvelope networkEnvelope;
+        if (pendingBroadcasts.size() == 1) {
+            networkEnvelope = pendingBroadcasts.get(0).broadcastHandler.getMessage();
+        } else {
+            List<BroadcastMessage> messages = pendingBroadcasts.stream()
+                    .map(e -> e.broadcastHandler.getMessage())
+                    .collect(Collectors.toList());
+            networkEnvelope = new BundleOfEnvelopes(messages);
+        }
+
+        NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().orElse(null);
+        log.trace("Broadcast {} to {}.", networkEnvelope.getClass().getSimpleName(), nodeAddress);
+        SettableFuture<Connection> future = networkNode.sendMessage(connection, networkEnvelope);
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                long now = System.currentTimeMillis();
+                pendingBroadcasts.forEach(e -> {
+                    statistics.onMessageSent(now - e.queuedTimeStamp);
+                    e.broadcastHandler.onSent(connection);
+                });
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                log.info("Broadcast to " + nodeAddress + " failed.\n\t" +
+                        "ErrorMessage=" + throwable.getMessage());
+                pendingBroadcasts.forEach(e -> e.broadcastHandler.onFailed(connection, throwable.getMessage()));
+            }
+        });
+    }
+
+    private static boolean isBundleSupported(Connection connection) {
+        return Capabilities.isCapabilitySupported(
+                Collections.singletonList(Capabilities.Capability.BUNDLE_OF_ENVELOPES.ordinal()),
+                connection.getSupportedCapabilities());
+    }
+
+    private void stopFlushTimer() {
+        if (flushTimer != null) {
+            flushTimer.stop();
+            flushTimer = null;
+        }
+    }
+}
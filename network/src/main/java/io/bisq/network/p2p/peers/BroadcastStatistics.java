@@ -0,0 +1,100 @@
+package io.bisq.network.p2p.peers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters of the broadcast messages we receive and send. Only accessed from the UserThread.
+ * <p/>
+ * We remember which peers have sent us a broadcast message, so we don't send it back to them. The ratio of the
+ * received duplicates tells us how saturated the gossip is: if most messages reach us several times we send relayed
+ * messages to fewer peers, if we get mostly new messages we send to more peers.
+ */
+class BroadcastStatistics {
+    static final int MIN_RELAY_FAN_OUT = 3;
+    static final int MAX_RELAY_FAN_OUT = 7;
+    // Weight of a new sample at the moving averages
+    private static final double ALPHA = 0.02;
+
+    // Peers which have sent us the broadcast message with that key
+    private final Cache<P2PDataStorage.ByteArray, Set<NodeAddress>> peersByMessageKey = CacheBuilder.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    private double duplicateRatio;
+    private double propagationLatency;
+    private long numReceivedMessages;
+    private long numDuplicateMessages;
+    private long numSentMessages;
+    private long numSkippedMessages;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns true if we have received that message already
+    boolean onMessageReceived(P2PDataStorage.ByteArray messageKey, NodeAddress sender) {
+        Set<NodeAddress> peers = peersByMessageKey.getIfPresent(messageKey);
+        boolean isDuplicate = peers != null;
+        if (!isDuplicate) {
+            peers = new HashSet<>();
+            peersByMessageKey.put(messageKey, peers);
+        }
+        peers.add(sender);
+
+        numReceivedMessages++;
+        if (isDuplicate)
+            numDuplicateMessages++;
+        duplicateRatio += ALPHA * ((isDuplicate ? 1 : 0) - duplicateRatio);
+        return isDuplicate;
+    }
+
+    boolean hasMessage(P2PDataStorage.ByteArray messageKey, NodeAddress peer) {
+        Set<NodeAddress> peers = peersByMessageKey.getIfPresent(messageKey);
+        return peers != null && peers.contains(peer);
+    }
+
+    // Latency from the broadcast call until the message was sent to the peer
+    void onMessageSent(long latency) {
+        numSentMessages++;
+        propagationLatency = numSentMessages == 1 ? latency : propagationLatency + ALPHA * (latency - propagationLatency);
+    }
+
+    void onMessageSkipped() {
+        numSkippedMessages++;
+    }
+
+    int getRelayFanOut() {
+        return (int) Math.round(MAX_RELAY_FAN_OUT - (MAX_RELAY_FAN_OUT - MIN_RELAY_FAN_OUT) * duplicateRatio);
+    }
+
+    // Moving average of the ratio of received duplicates (0 - 1)
+    double getDuplicateRatio() {
+        return duplicateRatio;
+    }
+
+    // Moving average in ms
+    long getPropagationLatency() {
+        return Math.round(propagationLatency);
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastStatistics{" +
+                "duplicateRatio=" + String.format("%.2f", duplicateRatio) +
+                ", propagationLatency=" + getPropagationLatency() +
+                ", numReceivedMessages=" + numReceivedMessages +
+                ", numDuplicateMessages=" + numDuplicateMessages +
+                ", numSentMessages=" + numSentMessages +
+                ", numSkippedMessages=" + numSkippedMessages +
+                ", relayFanOut=" + getRelayFanOut() +
+                '}';
+    }
+}
@@ -4,6 +4,7 @@ import io.bisq.common.app.Log;
 import io.bisq.common.util.Utilities;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.storage.P2PDataStorage;
 import io.bisq.network.p2p.storage.messages.BroadcastMessage;
 import org.jetbrains.annotations.Nullable;
 
@@ -16,6 +17,8 @@ public class Broadcaster implements BroadcastHandler.ResultHandler {
     private final PeerManager peerManager;
 
     private final Set<BroadcastHandler> broadcastHandlers = new CopyOnWriteArraySet<>();
+    private final BroadcastStatistics broadcastStatistics = new BroadcastStatistics();
+    private final BroadcastScheduler broadcastScheduler;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -26,9 +29,11 @@ public class Broadcaster implements BroadcastHandler.ResultHandler {
     public Broadcaster(NetworkNode networkNode, PeerManager peerManager) {
         this.networkNode = networkNode;
         this.peerManager = peerManager;
+        broadcastScheduler = new BroadcastScheduler(networkNode, broadcastStatistics);
     }
 
     public void shutDown() {
+        broadcastScheduler.shutDown();
         broadcastHandlers.stream().forEach(BroadcastHandler::cancel);
         broadcastHandlers.clear();
     }
@@ -43,9 +48,31 @@ public class Broadcaster implements BroadcastHandler.ResultHandler {
         Log.traceCall("Sender=" + sender + "\n\t" +
             "Message=" + Utilities.toTruncatedString(message));
 
-        BroadcastHandler broadcastHandler = new BroadcastHandler(networkNode, peerManager);
-        broadcastHandler.broadcast(message, sender, this, listener, isDataOwner);
+        BroadcastHandler broadcastHandler = new BroadcastHandler(networkNode, peerManager, broadcastScheduler,
+                broadcastStatistics);
         broadcastHandlers.add(broadcastHandler);
+        broadcastHandler.broadcast(message, sender, this, listener, isDataOwner);
+    }
+
+    // Called for each broadcast message we receive, so we know which peers have it already.
+    // Returns true if we have received that message already from another peer.
+    public boolean onBroadcastMessageReceived(BroadcastMessage message, NodeAddress sender) {
+        P2PDataStorage.ByteArray messageKey = P2PDataStorage.getBroadcastMessageKey(message);
+        return messageKey != null && broadcastStatistics.onMessageReceived(messageKey, sender);
+    }
+
+    // Moving average of the ratio of received broadcast messages we had received already from another peer
+    public double getDuplicateRatio() {
+        return broadcastStatistics.getDuplicateRatio();
+    }
+
+    // Moving average of the time in ms from the broadcast call until the message was sent to a peer
+    public long getPropagationLatency() {
+        return broadcastStatistics.getPropagationLatency();
+    }
+
+    public String getStatistics() {
+        return broadcastStatistics.toString();
     }
 
 
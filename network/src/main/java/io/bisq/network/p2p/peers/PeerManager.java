@@ -13,6 +13,7 @@ import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.*;
 import io.bisq.network.p2p.peers.peerexchange.Peer;
 import io.bisq.network.p2p.peers.peerexchange.PeerList;
+import io.bisq.network.p2p.peers.peerexchange.PeerScore;
 import io.bisq.network.p2p.seed.SeedNodesRepository;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -72,6 +73,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     private final Storage<PeerList> storage;
     private final HashSet<Peer> persistedPeers = new HashSet<>();
     private final Set<Peer> reportedPeers = new HashSet<>();
+    private final Map<NodeAddress, PeerScore> peerScores = new HashMap<>();
     private final Clock.Listener listener;
     private final List<Listener> listeners = new CopyOnWriteArrayList<>();
     private Timer checkMaxConnectionsTimer;
@@ -114,6 +116,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
 
             @Override
             public void onMinuteTick() {
+                updatePeerScores();
             }
 
             @Override
@@ -144,8 +147,10 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     @Override
     public void readPersisted() {
         PeerList persistedPeerList = storage.initAndGetPersistedWithFileName("PeerList", 1000);
-        if (persistedPeerList != null)
+        if (persistedPeerList != null) {
             this.persistedPeers.addAll(persistedPeerList.getList());
+            persistedPeerList.getPeerScores().forEach(e -> peerScores.put(e.getNodeAddress(), e));
+        }
     }
 
     public int getMaxConnections() {
@@ -214,6 +219,9 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
                 isSeedNode(connection) ? " (SeedNode)" : "",
                 closeConnectionReason);
 
+        if (addressOptional.isPresent() && !isSeedNode(connection))
+            getPeerScore(addressOptional.get()).onConnectionClosed(!closeConnectionReason.isIntended);
+
         handleConnectionFault(connection);
 
         lostAllConnections = networkNode.getAllConnections().isEmpty();
@@ -311,10 +319,14 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
             }
 
             if (!candidates.isEmpty()) {
-                candidates.sort((o1, o2) -> ((Long) o1.getStatistic().getLastActivityTimestamp()).compareTo(((Long) o2.getStatistic().getLastActivityTimestamp())));
+                // We close the connection to the peer with the lowest score. If the scores are the same (e.g. unknown
+                // peers) we close the oldest connection.
+                candidates.sort(Comparator.comparingDouble(this::getScoreOfConnection)
+                        .thenComparingLong(e -> e.getStatistic().getLastActivityTimestamp()));
                 Connection connection = candidates.remove(0);
-                log.info("checkMaxConnections: Num candidates for shut down={}. We close oldest connection: {}", candidates.size(), connection);
-                log.debug("We are going to shut down the oldest connection.\n\tconnection=" + connection.toString());
+                log.info("checkMaxConnections: Num candidates for shut down={}. We close the connection with the " +
+                        "lowest score: {}", candidates.size(), connection);
+                log.debug("We are going to shut down the connection with the lowest score.\n\tconnection=" + connection.toString());
                 if (!connection.isStopped())
                     connection.shutDown(CloseConnectionReason.TOO_MANY_CONNECTIONS_OPEN, () -> UserThread.runAfter(this::checkMaxConnections, 100, TimeUnit.MILLISECONDS));
                 return true;
@@ -413,7 +425,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
 
             persistedPeers.addAll(reportedPeersToAdd);
             purgePersistedPeersIfExceeds();
-            storage.queueUpForSave(new PeerList(new ArrayList<>(persistedPeers)), 2000);
+            persistPeers();
 
             printReportedPeers();
         } else {
@@ -478,7 +490,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     private boolean removePersistedPeer(Peer persistedPeer) {
         if (persistedPeers.contains(persistedPeer)) {
             persistedPeers.remove(persistedPeer);
-            storage.queueUpForSave(new PeerList(new ArrayList<>(persistedPeers)), 2000);
+            persistPeers();
             return true;
         } else {
             return false;
@@ -502,6 +514,18 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
                 .filter(reportedPeer -> new Date().getTime() - reportedPeer.getDate().getTime() > MAX_AGE)
                 .collect(Collectors.toSet());
         persistedPeersToRemove.forEach(this::removePersistedPeer);
+
+        long now = new Date().getTime();
+        peerScores.values().removeIf(peerScore -> now - peerScore.getLastUpdate() > MAX_AGE);
+    }
+
+    private void persistPeers() {
+        // We keep the most recently updated scores, the others get purged
+        List<PeerScore> peerScoreList = peerScores.values().stream()
+                .sorted(Comparator.comparingLong(PeerScore::getLastUpdate).reversed())
+                .limit(MAX_PERSISTED_PEERS)
+                .collect(Collectors.toList());
+        storage.queueUpForSave(new PeerList(new ArrayList<>(persistedPeers), peerScoreList), 2000);
     }
 
     private void purgePersistedPeersIfExceeds() {
@@ -580,6 +604,10 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
         log.debug("handleConnectionFault called: nodeAddress=" + nodeAddress);
         boolean doRemovePersistedPeer = false;
         removeReportedPeer(nodeAddress);
+        // If we don't have a connection we could not connect to the peer
+        if (connection == null && !isSeedNode(nodeAddress))
+            getPeerScore(nodeAddress).onFailure();
+
         Optional<Peer> persistedPeerOptional = getPersistedPeerOptional(nodeAddress);
         if (persistedPeerOptional.isPresent()) {
             Peer persistedPeer = persistedPeerOptional.get();
@@ -608,6 +636,35 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
                 .ifPresent(connection -> connection.shutDown(closeConnectionReason));
     }
 
+    public double getScore(NodeAddress nodeAddress) {
+        PeerScore peerScore = peerScores.get(nodeAddress);
+        return peerScore != null ? peerScore.getScore() : PeerScore.DEFAULT_SCORE;
+    }
+
+    // Peers with a better score than an unknown peer, best first
+    public List<NodeAddress> getBestScoredPeers(int maxPeers) {
+        return peerScores.values().stream()
+                .filter(e -> e.getScore() > PeerScore.DEFAULT_SCORE)
+                .filter(e -> !isSeedNode(e.getNodeAddress()))
+                .filter(e -> !isSelf(e.getNodeAddress()))
+                .sorted(Comparator.comparingDouble(PeerScore::getScore).reversed())
+                .limit(maxPeers)
+                .map(PeerScore::getNodeAddress)
+                .collect(Collectors.toList());
+    }
+
+    // We also remember the capabilities of seed nodes as we send our first data request to them
+    public void onSupportedCapabilities(NodeAddress nodeAddress, List<Integer> supportedCapabilities) {
+        getPeerScore(nodeAddress).onSupportedCapabilities(supportedCapabilities);
+        persistPeers();
+    }
+
+    // The capabilities the peer has reported on a former connection. Empty if we don't know the peer.
+    public List<Integer> getKnownSupportedCapabilities(NodeAddress nodeAddress) {
+        PeerScore peerScore = peerScores.get(nodeAddress);
+        return peerScore != null ? peerScore.getSupportedCapabilities() : new ArrayList<>();
+    }
+
     // Delivers the live peers from the last 30 min (MAX_AGE_LIVE_PEERS)
     // We include older peers to avoid risks for network partitioning
     public Set<Peer> getLivePeers(NodeAddress excludedNodeAddress) {
@@ -638,6 +695,27 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
                 .collect(Collectors.toSet());
     }
 
+    private PeerScore getPeerScore(NodeAddress nodeAddress) {
+        return peerScores.computeIfAbsent(nodeAddress, PeerScore::new);
+    }
+
+    private double getScoreOfConnection(Connection connection) {
+        return connection.getPeersNodeAddressOptional().map(this::getScore).orElse(PeerScore.DEFAULT_SCORE);
+    }
+
+    // Called every minute. We add the uptime and the last round trip time we measured at our live connections.
+    // The round trip time a peer reports in its Ping is not used as the peer could improve its own score with it.
+    private void updatePeerScores() {
+        List<Connection> connections = networkNode.getConfirmedConnections().stream()
+                .filter(connection -> !isSeedNode(connection))
+                .collect(Collectors.toList());
+        if (!connections.isEmpty()) {
+            connections.forEach(connection -> getPeerScore(connection.getPeersNodeAddressOptional().get())
+                    .onUptime(TimeUnit.MINUTES.toMillis(1), connection.getStatistic().getMeasuredRoundTripTime()));
+            persistPeers();
+        }
+    }
+
     private void stopCheckMaxConnectionsTimer() {
         if (checkMaxConnectionsTimer != null) {
             checkMaxConnectionsTimer.stop();
@@ -22,15 +22,15 @@ import io.bisq.network.p2p.storage.payload.ProtectedStoragePayload;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 @Slf4j
 public class GetDataRequestHandler {
     private static final long TIMEOUT = 60;
+    // Max. number of items in a GetDataResponse if the request contains a KeyRange
+    static final int MAX_ITEMS_PER_CHUNK = 1000;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -73,19 +73,61 @@ public class GetDataRequestHandler {
     public void handle(GetDataRequest getDataRequest, final Connection connection) {
         Log.traceCall(getDataRequest + "\n\tconnection=" + connection);
 
-        GetDataResponse getDataResponse = new GetDataResponse(getFilteredProtectedStorageEntries(getDataRequest, connection),
-                getFilteredPersistableNetworkPayload(getDataRequest, connection),
-                getDataRequest.getNonce(),
-                getDataRequest instanceof GetUpdatedDataRequest);
-
-        if (timeoutTimer == null) {
-            timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                        String errorMessage = "A timeout occurred for getDataResponse " +
-                                " on connection:" + connection;
-                        handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
-                    },
-                    TIMEOUT, TimeUnit.SECONDS);
+        // Building the responses only reads the storage, so if the UserThread is sharded the requests of different
+        // connections are processed in parallel. Sending is done at the UserThread again.
+        UserThread.execute(connection.getUid(), () -> {
+            List<GetDataResponse> getDataResponses = getDataResponses(getDataRequest, connection);
+            UserThread.execute(() -> {
+                if (!stopped)
+                    sendResponse(getDataResponses.iterator(), connection);
+            });
+        });
+    }
+
+    public void stop() {
+        cleanup();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private List<GetDataResponse> getDataResponses(GetDataRequest getDataRequest, Connection connection) {
+        final Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> protectedStorageEntries =
+                getFilteredProtectedStorageEntries(getDataRequest, connection);
+        final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> persistableNetworkPayloads =
+                getFilteredPersistableNetworkPayload(getDataRequest, connection);
+        final boolean isGetUpdatedDataResponse = getDataRequest instanceof GetUpdatedDataRequest;
+
+        if (getDataRequest.getKeyRange() != null) {
+            List<GetDataResponse> getDataResponses = getChunkedResponses(getDataRequest.getKeyRange(),
+                    protectedStorageEntries, persistableNetworkPayloads, getDataRequest.getNonce(),
+                    isGetUpdatedDataResponse);
+            log.info("We send {} chunks for {} to peer {}", getDataResponses.size(), getDataRequest.getKeyRange(),
+                    connection.getPeersNodeAddressOptional());
+            return getDataResponses;
+        } else {
+            return Collections.singletonList(new GetDataResponse(new HashSet<>(protectedStorageEntries.values()),
+                    new HashSet<>(persistableNetworkPayloads.values()),
+                    getDataRequest.getNonce(),
+                    isGetUpdatedDataResponse));
         }
+    }
+
+    // We send the chunks one after another, so the chunks of several parallel requests get interleaved and the peer
+    // can process the first chunks while we are sending the rest.
+    private void sendResponse(Iterator<GetDataResponse> iterator, Connection connection) {
+        GetDataResponse getDataResponse = iterator.next();
+
+        // setup before sending to avoid race conditions. We restart the timer for each chunk.
+        stopTimeoutTimer();
+        timeoutTimer = UserThread.runAfter(() -> {
+                    String errorMessage = "A timeout occurred for getDataResponse " +
+                            " on connection:" + connection;
+                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
+                },
+                TIMEOUT, TimeUnit.SECONDS);
 
         SettableFuture<Connection> future = networkNode.sendMessage(connection, getDataResponse);
         Futures.addCallback(future, new FutureCallback<Connection>() {
@@ -94,8 +136,15 @@ public class GetDataRequestHandler {
                 if (!stopped) {
                     log.trace("Send DataResponse to {} succeeded. getDataResponse={}",
                             connection.getPeersNodeAddressOptional(), getDataResponse);
-                    cleanup();
-                    listener.onComplete();
+                    if (iterator.hasNext()) {
+                        UserThread.execute(() -> {
+                            if (!stopped)
+                                sendResponse(iterator, connection);
+                        });
+                    } else {
+                        cleanup();
+                        listener.onComplete();
+                    }
                 } else {
                     log.trace("We have stopped already. We ignore that networkNode.sendMessage.onSuccess call.");
                 }
@@ -115,30 +164,77 @@ public class GetDataRequestHandler {
         });
     }
 
-    private Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayload(GetDataRequest getDataRequest, Connection connection) {
+    // We sort the items of both maps by their key and split them into chunks of MAX_ITEMS_PER_CHUNK. The last key of
+    // a chunk is its continuation token.
+    private static List<GetDataResponse> getChunkedResponses(KeyRange keyRange,
+                                                             Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> protectedStorageEntries,
+                                                             Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> persistableNetworkPayloads,
+                                                             int nonce,
+                                                             boolean isGetUpdatedDataResponse) {
+        TreeMap<byte[], Object> sortedItems = new TreeMap<>(KeyRange.KEY_COMPARATOR);
+        protectedStorageEntries.forEach((key, value) -> sortedItems.put(key.bytes, value));
+        persistableNetworkPayloads.forEach((key, value) -> sortedItems.putIfAbsent(key.bytes, value));
+
+        List<GetDataResponse> getDataResponses = new ArrayList<>();
+        Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        byte[] continuationToken = keyRange.getContinuationToken();
+        int numItems = 0;
+        for (Map.Entry<byte[], Object> entry : sortedItems.entrySet()) {
+            if (entry.getValue() instanceof ProtectedStorageEntry)
+                dataSet.add((ProtectedStorageEntry) entry.getValue());
+            else
+                persistableNetworkPayloadSet.add((PersistableNetworkPayload) entry.getValue());
+            continuationToken = entry.getKey();
+            numItems++;
+
+            if (numItems % MAX_ITEMS_PER_CHUNK == 0 && numItems < sortedItems.size()) {
+                getDataResponses.add(new GetDataResponse(dataSet, persistableNetworkPayloadSet, nonce,
+                        isGetUpdatedDataResponse, keyRange.withContinuationToken(continuationToken), true));
+                dataSet = new HashSet<>();
+                persistableNetworkPayloadSet = new HashSet<>();
+            }
+        }
+        getDataResponses.add(new GetDataResponse(dataSet, persistableNetworkPayloadSet, nonce,
+                isGetUpdatedDataResponse, keyRange.withContinuationToken(continuationToken), false));
+        return getDataResponses;
+    }
+
+    private Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getFilteredPersistableNetworkPayload(GetDataRequest getDataRequest, Connection connection) {
         final Set<P2PDataStorage.ByteArray> tempLookupSet = new HashSet<>();
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+        final Predicate<P2PDataStorage.ByteArray> isExcluded;
+        final KeyBloomFilter excludedKeysFilter = getDataRequest.getExcludedKeysFilter();
+        if (excludedKeysFilter != null) {
+            // Compact mode: we don't need to build the lookup set of the peer's keys, we only test our keys.
+            isExcluded = key -> excludedKeysFilter.mightContain(key.bytes);
+        } else {
+            Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+            isExcluded = excludedKeysAsByteArray::contains;
+        }
+        final KeyRange keyRange = getDataRequest.getKeyRange();
 
         return dataStorage.getPersistableNetworkPayloadCollection().getMap().entrySet().stream()
-                .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
-                .map(Map.Entry::getValue)
-                .filter(payload -> (!(payload instanceof CapabilityRequiringPayload) ||
+                .filter(e -> keyRange == null || keyRange.isPending(e.getKey().bytes))
+                .filter(e -> !isExcluded.test(e.getKey()))
+                .filter(e -> (!(e.getValue() instanceof CapabilityRequiringPayload) ||
                         connection.isCapabilitySupported(getDataRequest)))
-                .filter(payload -> tempLookupSet.add(new P2PDataStorage.ByteArray(payload.getHash())))
-                .collect(Collectors.toSet());
+                .filter(e -> tempLookupSet.add(new P2PDataStorage.ByteArray(e.getValue().getHash())))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
-    private Set<ProtectedStorageEntry> getFilteredProtectedStorageEntries(GetDataRequest getDataRequest, Connection connection) {
-        final Set<ProtectedStorageEntry> filteredDataSet = new HashSet<>();
-        final Set<Integer> lookupSet = new HashSet<>();
+    private Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> getFilteredProtectedStorageEntries(GetDataRequest getDataRequest, Connection connection) {
+        final Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> filteredDataMap = new HashMap<>();
 
+        // The keys of the map are the hashes of the payloads, so we don't need to serialize or hash the payloads.
         Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
-        Set<ProtectedStorageEntry> filteredSet = dataStorage.getMap().entrySet().stream()
+        final KeyRange keyRange = getDataRequest.getKeyRange();
+        List<Map.Entry<P2PDataStorage.ByteArray, ProtectedStorageEntry>> filteredList = dataStorage.getMap().entrySet().stream()
+                .filter(e -> keyRange == null || keyRange.isPending(e.getKey().bytes))
                 .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toList());
 
-        for (ProtectedStorageEntry protectedStorageEntry : filteredSet) {
+        for (Map.Entry<P2PDataStorage.ByteArray, ProtectedStorageEntry> entry : filteredList) {
+            final ProtectedStorageEntry protectedStorageEntry = entry.getValue();
             final ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
             boolean doAdd = false;
             if (protectedStoragePayload instanceof CapabilityRequiringPayload) {
@@ -167,29 +263,19 @@ public class GetDataRequestHandler {
                 doAdd = true;
             }
             if (doAdd) {
-                boolean notContained = lookupSet.add(protectedStoragePayload.hashCode());
                 // We want to ignore TradeStatistics but the class it not known in network module so we use PersistablePayload
                 // as it was the only protectedStoragePayload object implementing PersistablePayload.
                 // CompensationRequestPayload was the other class but once we impl. that we don't need
                 // to support the old TradeStatistics data anymore...
                 //TODO PersistablePayload check can be removed once old TradeStatistics are not supported anymore
-                if (notContained && !(protectedStoragePayload instanceof PersistablePayload))
-                    filteredDataSet.add(protectedStorageEntry);
+                if (!(protectedStoragePayload instanceof PersistablePayload))
+                    filteredDataMap.put(entry.getKey(), protectedStorageEntry);
             }
         }
 
-        return filteredDataSet;
+        return filteredDataMap;
     }
 
-    public void stop() {
-        cleanup();
-    }
-
-
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Private
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
     private void handleFault(String errorMessage, CloseConnectionReason closeConnectionReason, Connection connection) {
         if (!stopped) {
             log.info(errorMessage + "\n\tcloseConnectionReason=" + closeConnectionReason);
@@ -202,6 +288,10 @@ public class GetDataRequestHandler {
 
     private void cleanup() {
         stopped = true;
+        stopTimeoutTimer();
+    }
+
+    private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
             timeoutTimer = null;
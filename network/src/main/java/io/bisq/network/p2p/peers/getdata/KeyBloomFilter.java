@@ -0,0 +1,154 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.generated.protobuffer.PB;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Bloom filter over the hashes of the data a node has already. It is sent instead of the full list of excluded keys
+ * in a GetDataRequest if the peer supports the COMPACT_DATA_SYNC capability. With a false positive rate of 0.1% it
+ * uses about 15 bits per key instead of 20-32 bytes.
+ * <p/>
+ * A false positive causes the responding node to skip an item we don't have. As the tweak is random per request
+ * the same item is very unlikely to get skipped again at the GetUpdatedDataRequest or at the next startup.
+ */
+@Slf4j
+@EqualsAndHashCode
+public final class KeyBloomFilter implements NetworkPayload {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+    // 1 MB. Protects the receiving node against huge allocations caused by malicious requests.
+    private static final int MAX_SIZE_IN_BYTES = 1024 * 1024;
+    private static final int MAX_HASH_FUNCTIONS = 30;
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final byte[] bits;
+    @Getter
+    private final int numHashFunctions;
+    @Getter
+    private final int tweak;
+
+    public static KeyBloomFilter create(Collection<byte[]> keys, double falsePositiveRate) {
+        return create(keys, falsePositiveRate, new Random().nextInt());
+    }
+
+    public static KeyBloomFilter create(Collection<byte[]> keys, double falsePositiveRate, int tweak) {
+        int numKeys = Math.max(1, keys.size());
+        long numBits = (long) Math.ceil(-numKeys * Math.log(falsePositiveRate) / LN2_SQUARED);
+        int sizeInBytes = (int) Math.min(MAX_SIZE_IN_BYTES, Math.max(1, (numBits + 7) / 8));
+        int numHashFunctions = (int) Math.round((sizeInBytes * 8d / numKeys) * Math.log(2));
+        numHashFunctions = Math.max(1, Math.min(MAX_HASH_FUNCTIONS, numHashFunctions));
+
+        KeyBloomFilter filter = new KeyBloomFilter(new byte[sizeInBytes], numHashFunctions, tweak);
+        keys.forEach(filter::add);
+        return filter;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private KeyBloomFilter(byte[] bits, int numHashFunctions, int tweak) {
+        this.bits = bits;
+        this.numHashFunctions = numHashFunctions;
+        this.tweak = tweak;
+    }
+
+    @Override
+    public PB.KeyBloomFilter toProtoMessage() {
+        return PB.KeyBloomFilter.newBuilder()
+                .setBits(ByteString.copyFrom(bits))
+                .setNumHashFunctions(numHashFunctions)
+                .setTweak(tweak)
+                .build();
+    }
+
+    // Returns null if the filter exceeds our limits, in which case the request is handled as if no filter was sent.
+    public static KeyBloomFilter fromProto(PB.KeyBloomFilter proto) {
+        if (proto.getBits().isEmpty() ||
+                proto.getBits().size() > MAX_SIZE_IN_BYTES ||
+                proto.getNumHashFunctions() < 1 ||
+                proto.getNumHashFunctions() > MAX_HASH_FUNCTIONS) {
+            log.warn("We received an invalid KeyBloomFilter. size={}, numHashFunctions={}",
+                    proto.getBits().size(), proto.getNumHashFunctions());
+            return null;
+        }
+        return new KeyBloomFilter(proto.getBits().toByteArray(), proto.getNumHashFunctions(), proto.getTweak());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean mightContain(byte[] key) {
+        long hash1 = getHash1(key);
+        long hash2 = getHash2(hash1);
+        long numBits = getNumBits();
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            if ((bits[(int) (index >>> 3)] & (1 << (index & 7))) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    public int getSizeInBytes() {
+        return bits.length;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyBloomFilter{" +
+                "sizeInBytes=" + bits.length +
+                ", numHashFunctions=" + numHashFunctions +
+                ", tweak=" + tweak +
+                '}';
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(byte[] key) {
+        long hash1 = getHash1(key);
+        long hash2 = getHash2(hash1);
+        long numBits = getNumBits();
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            bits[(int) (index >>> 3)] |= (1 << (index & 7));
+        }
+    }
+
+    private long getNumBits() {
+        return bits.length * 8L;
+    }
+
+    // The keys are cryptographic hashes already so a cheap FNV-1a seeded with the tweak is sufficient.
+    private long getHash1(byte[] key) {
+        long hash = 0xcbf29ce484222325L ^ tweak;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Murmur3 finalizer, used to derive the second hash for double hashing
+    private static long getHash2(long hash1) {
+        long hash = hash1;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash | 1;
+    }
+}
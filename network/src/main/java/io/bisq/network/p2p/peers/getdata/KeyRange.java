@@ -0,0 +1,120 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.generated.protobuffer.PB;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * One of numPartitions disjoint ranges of the key space of the data (the keys are hashes, so they are evenly
+ * distributed). Used for the chunked data sync where a node requests the ranges from different seed nodes in parallel.
+ * <p/>
+ * The responding node sends the items of the range in the order of their keys. The continuation token is the last
+ * key we have received, so after a reconnect we can continue at the same or at another seed node with the next key.
+ */
+@EqualsAndHashCode(exclude = "continuationToken")
+@Getter
+public final class KeyRange implements NetworkPayload {
+    public static final int MAX_PARTITIONS = 256;
+    // Unsigned lexicographic order of the keys
+    public static final Comparator<byte[]> KEY_COMPARATOR = KeyRange::compareKeys;
+
+    private final int partitionIndex;
+    private final int numPartitions;
+    @Nullable
+    private final byte[] continuationToken;
+
+    public KeyRange(int partitionIndex, int numPartitions) {
+        this(partitionIndex, numPartitions, null);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private KeyRange(int partitionIndex, int numPartitions, @Nullable byte[] continuationToken) {
+        checkArgument(numPartitions > 0 && numPartitions <= MAX_PARTITIONS,
+                "numPartitions must be in range 1 - " + MAX_PARTITIONS);
+        checkArgument(partitionIndex >= 0 && partitionIndex < numPartitions,
+                "partitionIndex must be in range 0 - " + (numPartitions - 1));
+        this.partitionIndex = partitionIndex;
+        this.numPartitions = numPartitions;
+        this.continuationToken = continuationToken;
+    }
+
+    @Override
+    public PB.KeyRange toProtoMessage() {
+        final PB.KeyRange.Builder builder = PB.KeyRange.newBuilder()
+                .setPartitionIndex(partitionIndex)
+                .setNumPartitions(numPartitions);
+        if (continuationToken != null)
+            builder.setContinuationToken(ByteString.copyFrom(continuationToken));
+        return builder.build();
+    }
+
+    // Returns null if the key range is invalid, in which case the request is handled as if no key range was sent.
+    @Nullable
+    public static KeyRange fromProto(PB.KeyRange proto) {
+        if (proto.getNumPartitions() < 1 ||
+                proto.getNumPartitions() > MAX_PARTITIONS ||
+                proto.getPartitionIndex() < 0 ||
+                proto.getPartitionIndex() >= proto.getNumPartitions()) {
+            return null;
+        }
+        return new KeyRange(proto.getPartitionIndex(),
+                proto.getNumPartitions(),
+                proto.getContinuationToken().isEmpty() ? null : proto.getContinuationToken().toByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public KeyRange withContinuationToken(@Nullable byte[] continuationToken) {
+        return new KeyRange(partitionIndex, numPartitions, continuationToken);
+    }
+
+    // True if the key is in our partition
+    public boolean contains(byte[] key) {
+        return getPartitionIndex(key, numPartitions) == partitionIndex;
+    }
+
+    // True if the key is in our partition and was not received already
+    public boolean isPending(byte[] key) {
+        return contains(key) && (continuationToken == null || compareKeys(key, continuationToken) > 0);
+    }
+
+    public static int getPartitionIndex(byte[] key, int numPartitions) {
+        // We use the first 2 bytes of the key as prefix
+        int prefix = ((key.length > 0 ? key[0] & 0xff : 0) << 8) | (key.length > 1 ? key[1] & 0xff : 0);
+        return (prefix * numPartitions) >>> 16;
+    }
+
+    public static int compareKeys(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int result = (key1[i] & 0xff) - (key2[i] & 0xff);
+            if (result != 0)
+                return result;
+        }
+        return key1.length - key2.length;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyRange{" +
+                "partitionIndex=" + partitionIndex +
+                ", numPartitions=" + numPartitions +
+                ", continuationToken=" + (continuationToken != null ? Hex.toHexString(continuationToken) : "null") +
+                '}';
+    }
+}
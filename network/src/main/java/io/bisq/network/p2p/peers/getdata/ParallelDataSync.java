@@ -0,0 +1,121 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import io.bisq.network.p2p.NodeAddress;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of the key ranges of the initial data request which we request from several seed nodes in parallel.
+ * <p/>
+ * A node gets assigned a key range nobody else is working on. If there is none left it gets a key range another node
+ * is working on already (continuing at the last received key), so the fastest nodes finish the request and the first
+ * response wins. If a node fails its key range gets released with the last received continuation token, so the next
+ * node continues where the failed one stopped.
+ */
+@Slf4j
+class ParallelDataSync {
+    private final int numPartitions;
+    // Key ranges not completed yet with the latest continuation token
+    private final Map<Integer, KeyRange> pendingKeyRanges = new TreeMap<>();
+    // Partition index the node is working on
+    private final Map<NodeAddress, Integer> assignments = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ParallelDataSync(int numPartitions) {
+        this.numPartitions = numPartitions;
+        for (int i = 0; i < numPartitions; i++)
+            pendingKeyRanges.put(i, new KeyRange(i, numPartitions));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns null if there is nothing left to do for that node
+    @Nullable
+    KeyRange assign(NodeAddress nodeAddress) {
+        release(nodeAddress);
+
+        Map<Integer, Long> numAssignments = assignments.values().stream()
+                .collect(Collectors.groupingBy(index -> index, Collectors.counting()));
+        Optional<Integer> partitionIndex = pendingKeyRanges.keySet().stream()
+                .filter(index -> !numAssignments.containsKey(index))
+                .findFirst();
+        if (!partitionIndex.isPresent()) {
+            // We don't want more than 2 nodes working on the same key range
+            partitionIndex = pendingKeyRanges.keySet().stream()
+                    .filter(index -> numAssignments.get(index) == 1)
+                    .findFirst();
+        }
+
+        if (partitionIndex.isPresent()) {
+            assignments.put(nodeAddress, partitionIndex.get());
+            return pendingKeyRanges.get(partitionIndex.get());
+        } else {
+            return null;
+        }
+    }
+
+    void onChunkReceived(NodeAddress nodeAddress, KeyRange keyRange) {
+        KeyRange pending = pendingKeyRanges.get(keyRange.getPartitionIndex());
+        if (pending != null &&
+                pending.getNumPartitions() == keyRange.getNumPartitions() &&
+                keyRange.getContinuationToken() != null &&
+                (pending.getContinuationToken() == null ||
+                        KeyRange.compareKeys(keyRange.getContinuationToken(), pending.getContinuationToken()) > 0)) {
+            pendingKeyRanges.put(keyRange.getPartitionIndex(), keyRange);
+        }
+    }
+
+    // If keyRange is null the node has sent all data (older peers do not support key ranges).
+    // Returns the other nodes which have been working on the same key range. Their requests can be canceled.
+    Set<NodeAddress> onComplete(NodeAddress nodeAddress, @Nullable KeyRange keyRange) {
+        Integer partitionIndex = assignments.remove(nodeAddress);
+        Set<Integer> completedPartitions;
+        if (keyRange == null) {
+            log.info("Node {} has sent us all data. We don't need to request the remaining key ranges.", nodeAddress);
+            completedPartitions = new HashSet<>(pendingKeyRanges.keySet());
+        } else if (keyRange.getNumPartitions() == numPartitions) {
+            completedPartitions = Collections.singleton(keyRange.getPartitionIndex());
+        } else {
+            log.warn("We received an unexpected keyRange {} from node {}", keyRange, nodeAddress);
+            completedPartitions = partitionIndex != null ? Collections.singleton(partitionIndex) : Collections.emptySet();
+        }
+        pendingKeyRanges.keySet().removeAll(completedPartitions);
+
+        Set<NodeAddress> obsoleteNodes = assignments.entrySet().stream()
+                .filter(e -> completedPartitions.contains(e.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        assignments.keySet().removeAll(obsoleteNodes);
+        return obsoleteNodes;
+    }
+
+    void release(NodeAddress nodeAddress) {
+        assignments.remove(nodeAddress);
+    }
+
+    void releaseAll() {
+        assignments.clear();
+    }
+
+    boolean isComplete() {
+        return pendingKeyRanges.isEmpty();
+    }
+
+    boolean isAnyAssigned() {
+        return !assignments.isEmpty();
+    }
+
+    int getNumPendingKeyRanges() {
+        return pendingKeyRanges.size();
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.network.NetworkPayload;
@@ -44,7 +45,11 @@ class RequestDataHandler implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public interface Listener {
-        void onComplete();
+        // Called for each chunk if the peer splits the response into chunks. keyRange contains the continuation token.
+        void onChunkReceived(KeyRange keyRange);
+
+        // keyRange is null if the peer does not support key ranges and has sent all data
+        void onComplete(@Nullable KeyRange keyRange);
 
         @SuppressWarnings("UnusedParameters")
         void onFault(String errorMessage, @SuppressWarnings("SameParameterValue") @Nullable Connection connection);
@@ -87,8 +92,8 @@ class RequestDataHandler implements MessageListener {
     // API
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public void requestData(NodeAddress nodeAddress, boolean isPreliminaryDataRequest) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
+    public void requestData(NodeAddress nodeAddress, boolean isPreliminaryDataRequest, @Nullable KeyRange keyRange) {
+        Log.traceCall("nodeAddress=" + nodeAddress + " / keyRange=" + keyRange);
         peersNodeAddress = nodeAddress;
         if (!stopped) {
             GetDataRequest getDataRequest;
@@ -97,29 +102,29 @@ class RequestDataHandler implements MessageListener {
             // PersistedStoragePayload items don't get removed, so we don't have an issue with the case that
             // an object gets removed in between PreliminaryGetDataRequest and the GetUpdatedDataRequest and we would
             // miss that event if we do not load the full set or use some delta handling.
+            // If we request a key range we only need to exclude the keys of that range.
             Set<byte[]> excludedKeys = dataStorage.getPersistableNetworkPayloadCollection().getMap().entrySet().stream()
                     .map(e -> e.getKey().bytes)
+                    .filter(key -> keyRange == null || keyRange.isPending(key))
                     .collect(Collectors.toSet());
 
+            // If the peer supports compact data sync we send a bloom filter of our keys instead of the full key set.
+            // The size of the request is then about 15 bits per key instead of 20-32 bytes.
+            KeyBloomFilter excludedKeysFilter = null;
+            if (isCompactDataSyncSupported(nodeAddress)) {
+                excludedKeysFilter = KeyBloomFilter.create(excludedKeys, KeyBloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+                log.info("Peer {} supports compact data sync. We send a {} instead of {} excluded keys.",
+                        nodeAddress, excludedKeysFilter, excludedKeys.size());
+                excludedKeys = new HashSet<>();
+            }
+
             if (isPreliminaryDataRequest)
-                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, excludedKeysFilter, keyRange);
             else
-                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys);
-
-            if (timeoutTimer == null) {
-                timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                            if (!stopped) {
-                                String errorMessage = "A timeout occurred at sending getDataRequest:" + getDataRequest +
-                                        " on nodeAddress:" + nodeAddress;
-                                log.debug(errorMessage + " / RequestDataHandler=" + RequestDataHandler.this);
-                                handleFault(errorMessage, nodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
-                            } else {
-                                log.trace("We have stopped already. We ignore that timeoutTimer.run call. " +
-                                        "Might be caused by an previous networkNode.sendMessage.onFailure.");
-                            }
-                        },
-                        TIMEOUT);
-            }
+                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys, excludedKeysFilter, keyRange);
+
+            if (timeoutTimer == null)
+                startTimeoutTimer(getDataRequest, nodeAddress);  // setup before sending to avoid race conditions
 
             log.info("We send a {} to peer {}. ", getDataRequest.getClass().getSimpleName(), nodeAddress);
             networkNode.addMessageListener(this);
@@ -211,6 +216,7 @@ class RequestDataHandler implements MessageListener {
                     log.info(sb.toString());
 
                     if (getDataResponse.getRequestNonce() == nonce) {
+                        // If more chunks will follow we restart the timeout for the next one
                         stopTimeoutTimer();
                         checkArgument(connection.getPeersNodeAddressOptional().isPresent(),
                                 "RequestDataHandler.onMessage: connection.getPeersNodeAddressOptional() must be present " +
@@ -218,6 +224,10 @@ class RequestDataHandler implements MessageListener {
 
                         final NodeAddress sender = connection.getPeersNodeAddressOptional().get();
 
+                        // We remember the capabilities for the first request on our next startup
+                        if (getDataResponse.getSupportedCapabilities() != null)
+                            peerManager.onSupportedCapabilities(sender, getDataResponse.getSupportedCapabilities());
+
                         List<NetworkPayload> processDelayedItems = new ArrayList<>();
                         dataSet.stream().forEach(e -> {
                             if (e.getProtectedStoragePayload() instanceof LazyProcessedPayload) {
@@ -268,8 +278,15 @@ class RequestDataHandler implements MessageListener {
                             }), delay, TimeUnit.MILLISECONDS);
                         }
 
-                        cleanup();
-                        listener.onComplete();
+                        final KeyRange keyRange = getDataResponse.getKeyRange();
+                        if (getDataResponse.isHasMoreChunks() && keyRange != null) {
+                            log.info("We received a chunk for {}. We wait for the next chunk.", keyRange);
+                            startTimeoutTimer(getDataResponse, peersNodeAddress);
+                            listener.onChunkReceived(keyRange);
+                        } else {
+                            cleanup();
+                            listener.onComplete(keyRange);
+                        }
                     } else {
                         log.debug("Nonce not matching. That can happen rarely if we get a response after a canceled " +
                                         "handshake (timeout causes connection close but peer might have sent a msg before " +
@@ -295,6 +312,38 @@ class RequestDataHandler implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
 
+    private void startTimeoutTimer(NetworkEnvelope networkEnvelope, NodeAddress nodeAddress) {
+        timeoutTimer = UserThread.runAfter(() -> {
+                    if (!stopped) {
+                        String errorMessage = "A timeout occurred at " + networkEnvelope.getClass().getSimpleName() +
+                                ":" + networkEnvelope + " on nodeAddress:" + nodeAddress;
+                        log.debug(errorMessage + " / RequestDataHandler=" + RequestDataHandler.this);
+                        handleFault(errorMessage, nodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
+                    } else {
+                        log.trace("We have stopped already. We ignore that timeoutTimer.run call. " +
+                                "Might be caused by an previous networkNode.sendMessage.onFailure.");
+                    }
+                },
+                TIMEOUT);
+    }
+
+    // The peer reports its capabilities on a connection only with its first response. For a new connection, like the
+    // one for the PreliminaryGetDataRequest at startup, we use the capabilities it has reported on a former connection.
+    // If the peer does not support it anymore it ignores the filter and sends us all data, which we handle like
+    // a response to an empty excluded keys set.
+    private boolean isCompactDataSyncSupported(NodeAddress nodeAddress) {
+        final List<Integer> requiredCapabilities = Collections.singletonList(Capabilities.Capability.COMPACT_DATA_SYNC.ordinal());
+        Optional<Connection> connectionOptional = networkNode.getConfirmedConnections().stream()
+                .filter(connection -> connection.getPeersNodeAddressOptional().isPresent() &&
+                        connection.getPeersNodeAddressOptional().get().equals(nodeAddress))
+                .filter(connection -> connection.getSupportedCapabilities() != null)
+                .findAny();
+        List<Integer> supportedCapabilities = connectionOptional.isPresent() ?
+                connectionOptional.get().getSupportedCapabilities() :
+                peerManager.getKnownSupportedCapabilities(nodeAddress);
+        return Capabilities.isCapabilitySupported(requiredCapabilities, supportedCapabilities);
+    }
+
     @SuppressWarnings("UnusedParameters")
     private void handleFault(String errorMessage, NodeAddress nodeAddress, CloseConnectionReason closeConnectionReason) {
         cleanup();
@@ -31,6 +31,9 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     private static int NUM_SEEDS_FOR_PRELIMINARY_REQUEST = 2;
     // how many seeds additional to the first responding PreliminaryGetDataRequest seed we request the GetUpdatedDataRequest from
     private static int NUM_ADDITIONAL_SEEDS_FOR_UPDATE_REQUEST = 1;
+    // Number of key ranges we split the PreliminaryGetDataRequest into. The seeds we request from work on different
+    // key ranges in parallel. A seed which has completed its key range continues with the next open one.
+    private static final int NUM_KEY_RANGES = 4;
     private boolean isPreliminaryDataRequest = true;
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -63,6 +66,8 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     private final Map<NodeAddress, RequestDataHandler> handlerMap = new HashMap<>();
     private final Map<String, GetDataRequestHandler> getDataRequestHandlers = new HashMap<>();
     private Optional<NodeAddress> nodeAddressOfPreliminaryDataRequest = Optional.<NodeAddress>empty();
+    @Nullable
+    private ParallelDataSync parallelDataSync;
     private Timer retryTimer;
     private boolean dataUpdateRequested;
     private boolean stopped;
@@ -121,6 +126,7 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
         Log.traceCall();
         ArrayList<NodeAddress> nodeAddresses = new ArrayList<>(seedNodeAddresses);
         if (!nodeAddresses.isEmpty()) {
+            parallelDataSync = new ParallelDataSync(NUM_KEY_RANGES);
             Collections.shuffle(nodeAddresses);
             ArrayList<NodeAddress> finalNodeAddresses = new ArrayList<>(nodeAddresses);
             final int size = Math.min(NUM_SEEDS_FOR_PRELIMINARY_REQUEST, finalNodeAddresses.size());
@@ -290,10 +296,31 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
         Log.traceCall("nodeAddress=" + nodeAddress + " /  remainingNodeAddresses=" + remainingNodeAddresses);
         if (!stopped) {
             if (!handlerMap.containsKey(nodeAddress)) {
+                // The preliminary data is requested in key ranges from several seeds in parallel. The updated data is
+                // requested as one key range so it gets streamed in chunks as well.
+                final ParallelDataSync parallelDataSync = isPreliminaryDataRequest ? this.parallelDataSync : null;
+                final KeyRange keyRange;
+                if (parallelDataSync != null) {
+                    keyRange = parallelDataSync.assign(nodeAddress);
+                    if (keyRange == null) {
+                        log.info("There is no open key range left for node {}.", nodeAddress);
+                        return;
+                    }
+                } else {
+                    keyRange = new KeyRange(0, 1);
+                }
+
                 RequestDataHandler requestDataHandler = new RequestDataHandler(networkNode, dataStorage, peerManager,
                         new RequestDataHandler.Listener() {
                             @Override
-                            public void onComplete() {
+                            public void onChunkReceived(KeyRange receivedKeyRange) {
+                                stopRetryTimer();
+                                if (parallelDataSync != null)
+                                    parallelDataSync.onChunkReceived(nodeAddress, receivedKeyRange);
+                            }
+
+                            @Override
+                            public void onComplete(@Nullable KeyRange receivedKeyRange) {
                                 log.trace("RequestDataHandshake of outbound connection complete. nodeAddress={}",
                                         nodeAddress);
                                 stopRetryTimer();
@@ -301,6 +328,24 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
                                 // need to remove before listeners are notified as they cause the update call
                                 handlerMap.remove(nodeAddress);
 
+                                if (parallelDataSync != null) {
+                                    // Other nodes working on the same key range are not needed anymore. We don't
+                                    // request again from them as they are still busy with sending their response.
+                                    Set<NodeAddress> obsoleteNodes = parallelDataSync.onComplete(nodeAddress, receivedKeyRange);
+                                    obsoleteNodes.stream()
+                                            .map(handlerMap::remove)
+                                            .filter(Objects::nonNull)
+                                            .forEach(RequestDataHandler::cancel);
+
+                                    if (!parallelDataSync.isComplete()) {
+                                        log.info("Node {} has completed {}. {} key ranges are pending.", nodeAddress,
+                                                receivedKeyRange, parallelDataSync.getNumPendingKeyRanges());
+                                        requestData(nodeAddress, remainingNodeAddresses);
+                                        return;
+                                    }
+                                    RequestDataManager.this.parallelDataSync = null;
+                                }
+
                                 // 1. We get a response from requestPreliminaryData
                                 if (!nodeAddressOfPreliminaryDataRequest.isPresent()) {
                                     nodeAddressOfPreliminaryDataRequest = Optional.of(nodeAddress);
@@ -327,12 +372,20 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
                                 peerManager.handleConnectionFault(nodeAddress);
                                 handlerMap.remove(nodeAddress);
 
+                                // The next node continues at the last key we have received for that key range
+                                if (parallelDataSync != null)
+                                    parallelDataSync.release(nodeAddress);
+
                                 if (!remainingNodeAddresses.isEmpty()) {
                                     log.debug("There are remaining nodes available for requesting data. " +
                                             "We will try requestDataFromPeers again.");
                                     NodeAddress nextCandidate = remainingNodeAddresses.get(0);
                                     remainingNodeAddresses.remove(nextCandidate);
                                     requestData(nextCandidate, remainingNodeAddresses);
+                                } else if (parallelDataSync != null && parallelDataSync.isAnyAssigned()) {
+                                    log.debug("There is no remaining node available for requesting data but other " +
+                                            "nodes are still working on the preliminary data. They will continue with " +
+                                            "the key range of the failed node.");
                                 } else {
                                     log.debug("There is no remaining node available for requesting data. " +
                                             "That is expected if no other node is online.\n\t" +
@@ -352,7 +405,7 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
                             }
                         });
                 handlerMap.put(nodeAddress, requestDataHandler);
-                requestDataHandler.requestData(nodeAddress, isPreliminaryDataRequest);
+                requestDataHandler.requestData(nodeAddress, isPreliminaryDataRequest, keyRange);
             } else {
                 log.warn("We have started already a requestDataHandshake to peer. nodeAddress=" + nodeAddress + "\n" +
                         "We start a cleanup timer if the handler has not closed by itself in between 2 minutes.");
@@ -443,6 +496,14 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
             if (handlerMap.containsKey(nodeAddress)) {
                 handlerMap.get(nodeAddress).cancel();
                 handlerMap.remove(nodeAddress);
+
+                // The key range of that node gets continued by another node. If no other node is working on the
+                // preliminary data anymore we restart, which continues at the last received key.
+                if (parallelDataSync != null) {
+                    parallelDataSync.release(nodeAddress);
+                    if (!parallelDataSync.isComplete() && !parallelDataSync.isAnyAssigned() && !stopped)
+                        restart();
+                }
             }
         } else {
             log.trace("closeRequestDataHandler: nodeAddress not set in connection " + connection);
@@ -452,6 +513,8 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     private void closeAllHandlers() {
         handlerMap.values().stream().forEach(RequestDataHandler::cancel);
         handlerMap.clear();
+        if (parallelDataSync != null)
+            parallelDataSync.releaseAll();
     }
 
 }
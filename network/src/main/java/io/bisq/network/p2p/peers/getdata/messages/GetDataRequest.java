@@ -2,10 +2,13 @@ package io.bisq.network.p2p.peers.getdata.messages;
 
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.network.p2p.ExtendedDataSizePermission;
+import io.bisq.network.p2p.peers.getdata.KeyBloomFilter;
+import io.bisq.network.p2p.peers.getdata.KeyRange;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import javax.annotation.Nullable;
 import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
@@ -15,12 +18,24 @@ public abstract class GetDataRequest extends NetworkEnvelope implements Extended
     protected final int nonce;
     // Keys for ProtectedStorageEntry items to be excluded from the request because the peer has them already
     protected final Set<byte[]> excludedKeys;
+    // Compact representation of the excluded keys. Only used if peer supports the COMPACT_DATA_SYNC capability,
+    // in which case excludedKeys is empty.
+    @Nullable
+    protected final KeyBloomFilter excludedKeysFilter;
+    // If set the peer responds only with the data of that key range and splits the response into chunks.
+    // Older peers ignore it and respond with all data in one GetDataResponse.
+    @Nullable
+    protected final KeyRange keyRange;
 
     public GetDataRequest(int messageVersion,
                           int nonce,
-                          Set<byte[]> excludedKeys) {
+                          Set<byte[]> excludedKeys,
+                          @Nullable KeyBloomFilter excludedKeysFilter,
+                          @Nullable KeyRange keyRange) {
         super(messageVersion);
         this.nonce = nonce;
         this.excludedKeys = excludedKeys;
+        this.excludedKeysFilter = excludedKeysFilter;
+        this.keyRange = keyRange;
     }
 }
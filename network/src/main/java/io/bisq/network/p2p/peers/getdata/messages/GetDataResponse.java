@@ -7,6 +7,7 @@ import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.ExtendedDataSizePermission;
 import io.bisq.network.p2p.SupportedCapabilitiesMessage;
+import io.bisq.network.p2p.peers.getdata.KeyRange;
 import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
 import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
@@ -38,14 +39,32 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
     @Nullable
     private final List<Integer> supportedCapabilities;
 
+    // Set if the request contained a key range. The continuation token of the key range is the last key in that
+    // response. If null the response contains all data (older peers).
+    @Nullable
+    private final KeyRange keyRange;
+    // True if more responses will follow for that request
+    private final boolean hasMoreChunks;
+
     public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
                            @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                            int requestNonce,
                            boolean isGetUpdatedDataResponse) {
+        this(dataSet, persistableNetworkPayloadSet, requestNonce, isGetUpdatedDataResponse, null, false);
+    }
+
+    public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
+                           @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           @Nullable KeyRange keyRange,
+                           boolean hasMoreChunks) {
         this(dataSet,
                 persistableNetworkPayloadSet,
                 requestNonce,
                 isGetUpdatedDataResponse,
+                keyRange,
+                hasMoreChunks,
                 Capabilities.getSupportedCapabilities(),
                 Version.getP2PMessageVersion());
     }
@@ -58,6 +77,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                             @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                             int requestNonce,
                             boolean isGetUpdatedDataResponse,
+                            @Nullable KeyRange keyRange,
+                            boolean hasMoreChunks,
                             @Nullable List<Integer> supportedCapabilities,
                             int messageVersion) {
         super(messageVersion);
@@ -66,6 +87,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
         this.persistableNetworkPayloadSet = persistableNetworkPayloadSet;
         this.requestNonce = requestNonce;
         this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
+        this.keyRange = keyRange;
+        this.hasMoreChunks = hasMoreChunks;
         this.supportedCapabilities = supportedCapabilities;
     }
 
@@ -83,9 +106,11 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                                         .build())
                         .collect(Collectors.toList()))
                 .setRequestNonce(requestNonce)
-                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse);
+                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse)
+                .setHasMoreChunks(hasMoreChunks);
 
         Optional.ofNullable(supportedCapabilities).ifPresent(e -> builder.addAllSupportedCapabilities(supportedCapabilities));
+        Optional.ofNullable(keyRange).ifPresent(e -> builder.setKeyRange(keyRange.toProtoMessage()));
         Optional.ofNullable(persistableNetworkPayloadSet).ifPresent(set -> builder.addAllPersistableNetworkPayloadItems(set.stream()
                 .map(PersistableNetworkPayload::toProtoMessage)
                 .collect(Collectors.toList())));
@@ -113,6 +138,8 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                 persistableNetworkPayloadSet,
                 proto.getRequestNonce(),
                 proto.getIsGetUpdatedDataResponse(),
+                proto.hasKeyRange() ? KeyRange.fromProto(proto.getKeyRange()) : null,
+                proto.getHasMoreChunks(),
                 proto.getSupportedCapabilitiesList().isEmpty() ? null : proto.getSupportedCapabilitiesList(),
                 messageVersion);
     }
@@ -6,9 +6,13 @@ import io.bisq.common.proto.ProtoUtil;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.SendersNodeAddressMessage;
+import io.bisq.network.p2p.peers.getdata.KeyBloomFilter;
+import io.bisq.network.p2p.peers.getdata.KeyRange;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 
+import javax.annotation.Nullable;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,10 +25,14 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
 
     public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                  int nonce,
-                                 Set<byte[]> excludedKeys) {
+                                 Set<byte[]> excludedKeys,
+                                 @Nullable KeyBloomFilter excludedKeysFilter,
+                                 @Nullable KeyRange keyRange) {
         this(senderNodeAddress,
                 nonce,
                 excludedKeys,
+                excludedKeysFilter,
+                keyRange,
                 Version.getP2PMessageVersion());
     }
 
@@ -36,10 +44,14 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     private GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                   int nonce,
                                   Set<byte[]> excludedKeys,
+                                  @Nullable KeyBloomFilter excludedKeysFilter,
+                                  @Nullable KeyRange keyRange,
                                   int messageVersion) {
         super(messageVersion,
                 nonce,
-                excludedKeys);
+                excludedKeys,
+                excludedKeysFilter,
+                keyRange);
         checkNotNull(senderNodeAddress, "senderNodeAddress must not be null at GetUpdatedDataRequest");
         this.senderNodeAddress = senderNodeAddress;
     }
@@ -53,6 +65,9 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
                         .map(ByteString::copyFrom)
                         .collect(Collectors.toList()));
 
+        Optional.ofNullable(excludedKeysFilter).ifPresent(e -> builder.setExcludedKeysFilter(excludedKeysFilter.toProtoMessage()));
+        Optional.ofNullable(keyRange).ifPresent(e -> builder.setKeyRange(keyRange.toProtoMessage()));
+
         return getNetworkEnvelopeBuilder()
                 .setGetUpdatedDataRequest(builder)
                 .build();
@@ -62,6 +77,8 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
         return new GetUpdatedDataRequest(NodeAddress.fromProto(proto.getSenderNodeAddress()),
                 proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasExcludedKeysFilter() ? KeyBloomFilter.fromProto(proto.getExcludedKeysFilter()) : null,
+                proto.hasKeyRange() ? KeyRange.fromProto(proto.getKeyRange()) : null,
                 messageVersion);
     }
 }
@@ -7,6 +7,8 @@ import io.bisq.common.proto.ProtoUtil;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.AnonymousMessage;
 import io.bisq.network.p2p.SupportedCapabilitiesMessage;
+import io.bisq.network.p2p.peers.getdata.KeyBloomFilter;
+import io.bisq.network.p2p.peers.getdata.KeyRange;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
@@ -26,8 +28,10 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
     private final List<Integer> supportedCapabilities;
 
     public PreliminaryGetDataRequest(int nonce,
-                                     Set<byte[]> excludedKeys) {
-        this(nonce, excludedKeys, Capabilities.getSupportedCapabilities(), Version.getP2PMessageVersion());
+                                     Set<byte[]> excludedKeys,
+                                     @Nullable KeyBloomFilter excludedKeysFilter,
+                                     @Nullable KeyRange keyRange) {
+        this(nonce, excludedKeys, excludedKeysFilter, keyRange, Capabilities.getSupportedCapabilities(), Version.getP2PMessageVersion());
     }
 
 
@@ -37,9 +41,11 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
 
     private PreliminaryGetDataRequest(int nonce,
                                       Set<byte[]> excludedKeys,
+                                      @Nullable KeyBloomFilter excludedKeysFilter,
+                                      @Nullable KeyRange keyRange,
                                       @Nullable List<Integer> supportedCapabilities,
                                       int messageVersion) {
-        super(messageVersion, nonce, excludedKeys);
+        super(messageVersion, nonce, excludedKeys, excludedKeysFilter, keyRange);
 
         this.supportedCapabilities = supportedCapabilities;
     }
@@ -53,6 +59,8 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
                         .collect(Collectors.toList()));
 
         Optional.ofNullable(supportedCapabilities).ifPresent(e -> builder.addAllSupportedCapabilities(supportedCapabilities));
+        Optional.ofNullable(excludedKeysFilter).ifPresent(e -> builder.setExcludedKeysFilter(excludedKeysFilter.toProtoMessage()));
+        Optional.ofNullable(keyRange).ifPresent(e -> builder.setKeyRange(keyRange.toProtoMessage()));
 
         return getNetworkEnvelopeBuilder()
                 .setPreliminaryGetDataRequest(builder)
@@ -62,6 +70,8 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
     public static PreliminaryGetDataRequest fromProto(PB.PreliminaryGetDataRequest proto, int messageVersion) {
         return new PreliminaryGetDataRequest(proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasExcludedKeysFilter() ? KeyBloomFilter.fromProto(proto.getExcludedKeysFilter()) : null,
+                proto.hasKeyRange() ? KeyRange.fromProto(proto.getKeyRange()) : null,
                 proto.getSupportedCapabilitiesList().isEmpty() ? null : proto.getSupportedCapabilitiesList(),
                 messageVersion);
     }
@@ -23,6 +23,7 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener,
     private static final long RETRY_DELAY_SEC = 10;
     private static final long RETRY_DELAY_AFTER_ALL_CON_LOST_SEC = 3;
     private static final long REQUEST_PERIODICALLY_INTERVAL_MIN = 10;
+    private static final int WARM_POOL_SIZE = 4;
 
     private final NetworkNode networkNode;
     private final PeerManager peerManager;
@@ -79,6 +80,17 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener,
         startPeriodicTimer();
     }
 
+    // We connect to the peers with the best scores from our previous sessions in parallel. Called when our hidden
+    // service is published, so the Tor circuits get built while the initial data and the wallet are still loading.
+    // Called as well after standby to get connected again quickly.
+    public void requestFromBestScoredPeers() {
+        List<NodeAddress> bestScoredPeers = getFilteredList(peerManager.getBestScoredPeers(WARM_POOL_SIZE), new ArrayList<>());
+        if (!bestScoredPeers.isEmpty()) {
+            log.info("We request peers from our {} best scored peers: {}", bestScoredPeers.size(), bestScoredPeers);
+            bestScoredPeers.forEach(nodeAddress -> requestReportedPeers(nodeAddress, new ArrayList<>()));
+        }
+    }
+
     public void initialRequestPeersFromReportedOrPersistedPeers() {
         if (!peerManager.getReportedPeers().isEmpty() || !peerManager.getPersistedPeers().isEmpty()) {
             // We will likely get more connections as the GetPeersResponse onComplete handler triggers a new request if the confirmed
@@ -151,6 +163,8 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener,
         Log.traceCall();
         closeAllHandlers();
         stopped = false;
+        if (networkNode.getNodeAddress() != null)
+            requestFromBestScoredPeers();
         if (!networkNode.getAllConnections().isEmpty())
             restart();
     }
@@ -263,12 +277,15 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener,
                 // 1. shuffled reported peers
                 // 2. shuffled persisted peers
                 // 3. Add as last shuffled seedNodes (least priority)
+                // Peers with a better score than unknown peers are moved to the top, best first.
                 List<NodeAddress> list = getFilteredNonSeedNodeList(getNodeAddresses(peerManager.getReportedPeers()), new ArrayList<>());
                 Collections.shuffle(list);
 
                 List<NodeAddress> filteredPersistedPeers = getFilteredNonSeedNodeList(getNodeAddresses(peerManager.getPersistedPeers()), list);
                 Collections.shuffle(filteredPersistedPeers);
                 list.addAll(filteredPersistedPeers);
+                // The sort is stable, so the peers with the default score keep their order
+                list.sort(Comparator.comparingDouble(e -> -Math.max(PeerScore.DEFAULT_SCORE, peerManager.getScore(e))));
 
                 List<NodeAddress> filteredSeedNodeAddresses = getFilteredList(new ArrayList<>(seedNodeAddresses), list);
                 Collections.shuffle(filteredSeedNodeAddresses);
@@ -336,9 +353,11 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener,
                 .collect(Collectors.toList());
     }
 
+    // We exclude the peers we have a pending request to
     private List<NodeAddress> getFilteredList(Collection<NodeAddress> collection, List<NodeAddress> list) {
         return collection.stream()
                 .filter(e -> !list.contains(e) &&
+                        !handlerMap.containsKey(e) &&
                         !peerManager.isSelf(e) &&
                         !peerManager.isConfirmed(e))
                 .collect(Collectors.toList());
@@ -21,28 +21,40 @@ import com.google.protobuf.Message;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistableList;
 import io.bisq.generated.protobuffer.PB;
+import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class PeerList extends PersistableList<Peer> {
+    @Getter
+    private final List<PeerScore> peerScores;
 
     public PeerList(List<Peer> list) {
+        this(list, new ArrayList<>());
+    }
+
+    public PeerList(List<Peer> list, List<PeerScore> peerScores) {
         super(list);
+        this.peerScores = peerScores;
     }
 
     @Override
     public Message toProtoMessage() {
         return PB.PersistableEnvelope.newBuilder()
                 .setPeerList(PB.PeerList.newBuilder()
-                        .addAllPeer(getList().stream().map(Peer::toProtoMessage).collect(Collectors.toList())))
+                        .addAllPeer(getList().stream().map(Peer::toProtoMessage).collect(Collectors.toList()))
+                        .addAllPeerScore(peerScores.stream().map(PeerScore::toProtoMessage).collect(Collectors.toList())))
                 .build();
     }
 
     public static PersistableEnvelope fromProto(PB.PeerList proto) {
         return new PeerList(new ArrayList<>(proto.getPeerList().stream()
                 .map(Peer::fromProto)
-                .collect(Collectors.toList())));
+                .collect(Collectors.toList())),
+                new ArrayList<>(proto.getPeerScoreList().stream()
+                        .map(PeerScore::fromProto)
+                        .collect(Collectors.toList())));
     }
 }
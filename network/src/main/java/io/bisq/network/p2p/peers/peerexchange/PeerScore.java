@@ -0,0 +1,147 @@
+package io.bisq.network.p2p.peers.peerexchange;
+
+import io.bisq.common.proto.persistable.PersistablePayload;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.NodeAddress;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Our local experience with a peer. Only persisted in our PeerList, never sent to other peers as anybody could
+ * report arbitrary scores.
+ * <p/>
+ * The score combines the ratio of successful connections, the round trip time we measured with our own keep alive
+ * Ping/Pong (only at outbound connections, the value a peer reports in its Ping is ignored) and the uptime of our
+ * connections to that peer. A peer we don't know anything about has a score of 0.25.
+ */
+@Getter
+@ToString
+public final class PeerScore implements PersistablePayload {
+    public static final double DEFAULT_SCORE = 0.25;
+
+    // Typical round trip time over Tor. Used for peers we have not measured yet.
+    private static final int DEFAULT_ROUND_TRIP_TIME = 1000;
+    // Weight of a new sample at the moving average of the round trip time
+    private static final double ALPHA = 0.3;
+    // If we have more events we halve the counters so that the recent behaviour of the peer counts more
+    private static final int MAX_EVENTS = 100;
+    private static final double MAX_UPTIME_FACTOR = 3;
+
+    private final NodeAddress nodeAddress;
+    private int averageRoundTripTime;
+    private int numConnections;
+    private int numFailures;
+    // In ms
+    private long totalUptime;
+    private long lastUpdate;
+    private List<Integer> supportedCapabilities;
+
+    public PeerScore(NodeAddress nodeAddress) {
+        this(nodeAddress, 0, 0, 0, 0, 0, new ArrayList<>());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private PeerScore(NodeAddress nodeAddress,
+                      int averageRoundTripTime,
+                      int numConnections,
+                      int numFailures,
+                      long totalUptime,
+                      long lastUpdate,
+                      List<Integer> supportedCapabilities) {
+        this.nodeAddress = nodeAddress;
+        this.averageRoundTripTime = averageRoundTripTime;
+        this.numConnections = numConnections;
+        this.numFailures = numFailures;
+        this.totalUptime = totalUptime;
+        this.lastUpdate = lastUpdate;
+        this.supportedCapabilities = supportedCapabilities;
+    }
+
+    @Override
+    public PB.PeerScore toProtoMessage() {
+        return PB.PeerScore.newBuilder()
+                .setNodeAddress(nodeAddress.toProtoMessage())
+                .setAverageRoundTripTime(averageRoundTripTime)
+                .setNumConnections(numConnections)
+                .setNumFailures(numFailures)
+                .setTotalUptime(totalUptime)
+                .setLastUpdate(lastUpdate)
+                .addAllSupportedCapabilities(supportedCapabilities)
+                .build();
+    }
+
+    public static PeerScore fromProto(PB.PeerScore proto) {
+        return new PeerScore(NodeAddress.fromProto(proto.getNodeAddress()),
+                proto.getAverageRoundTripTime(),
+                proto.getNumConnections(),
+                proto.getNumFailures(),
+                proto.getTotalUptime(),
+                proto.getLastUpdate(),
+                new ArrayList<>(proto.getSupportedCapabilitiesList()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void onConnectionClosed(boolean isFailure) {
+        if (isFailure)
+            numFailures++;
+        else
+            numConnections++;
+        lastUpdate = System.currentTimeMillis();
+        limitEvents();
+    }
+
+    // Called if we could not connect to the peer
+    public void onFailure() {
+        numFailures++;
+        lastUpdate = System.currentTimeMillis();
+        limitEvents();
+    }
+
+    public void onUptime(long uptime, int roundTripTime) {
+        totalUptime += uptime;
+        lastUpdate = System.currentTimeMillis();
+        if (roundTripTime > 0)
+            averageRoundTripTime = averageRoundTripTime == 0 ?
+                    roundTripTime :
+                    (int) Math.round(averageRoundTripTime + ALPHA * (roundTripTime - averageRoundTripTime));
+    }
+
+    public void onSupportedCapabilities(List<Integer> supportedCapabilities) {
+        this.supportedCapabilities = new ArrayList<>(supportedCapabilities);
+        lastUpdate = System.currentTimeMillis();
+    }
+
+    // Higher is better
+    public double getScore() {
+        // Laplace smoothed, so an unknown peer gets 0.5
+        double reliability = (numConnections + 1d) / (numConnections + numFailures + 2d);
+        int roundTripTime = averageRoundTripTime > 0 ? averageRoundTripTime : DEFAULT_ROUND_TRIP_TIME;
+        double latencyFactor = DEFAULT_ROUND_TRIP_TIME / (double) (DEFAULT_ROUND_TRIP_TIME + roundTripTime);
+        double uptimeHours = totalUptime / 3_600_000d;
+        double uptimeFactor = Math.min(MAX_UPTIME_FACTOR, 1 + Math.log10(1 + uptimeHours));
+        return reliability * latencyFactor * uptimeFactor;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void limitEvents() {
+        if (numConnections + numFailures > MAX_EVENTS) {
+            numConnections /= 2;
+            numFailures /= 2;
+        }
+    }
+}
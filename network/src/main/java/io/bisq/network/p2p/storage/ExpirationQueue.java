@@ -0,0 +1,70 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Priority queue of the expiration time stamps of the ProtectedStorageEntries in the P2PDataStorage map.
+ * <p/>
+ * Instead of updating the queue when an entry gets refreshed, back dated or removed we add a new item and ignore the
+ * outdated items once they are due (lazy removal). So the number of items is bounded by the number of entries times
+ * the number of TTL changes within one TTL period, and a check only touches the items which are due.
+ * <p/>
+ * Not thread safe, only used from the UserThread.
+ */
+class ExpirationQueue {
+    private static class Item implements Comparable<Item> {
+        private final long expirationTimeStamp;
+        private final P2PDataStorage.ByteArray hashOfPayload;
+        private final ProtectedStorageEntry entry;
+
+        Item(long expirationTimeStamp, P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry entry) {
+            this.expirationTimeStamp = expirationTimeStamp;
+            this.hashOfPayload = hashOfPayload;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(Item other) {
+            return Long.compare(expirationTimeStamp, other.expirationTimeStamp);
+        }
+    }
+
+    interface EntryLookup {
+        ProtectedStorageEntry get(P2PDataStorage.ByteArray hashOfPayload);
+    }
+
+    private final PriorityQueue<Item> queue = new PriorityQueue<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Has to be called whenever an entry is added or its creationTimeStamp has changed
+    void schedule(P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry entry) {
+        queue.add(new Item(entry.getExpirationTimeStamp(), hashOfPayload, entry));
+    }
+
+    // Returns the hashes of the entries which are expired at now and still stored in the map.
+    Set<P2PDataStorage.ByteArray> pollExpired(long now, EntryLookup lookup) {
+        // An entry might have been scheduled multiple times with the same time stamp (e.g. re-added), so we use a set
+        Set<P2PDataStorage.ByteArray> result = new LinkedHashSet<>();
+        while (!queue.isEmpty() && queue.peek().expirationTimeStamp < now) {
+            Item item = queue.poll();
+            // We ignore the item if the entry got removed or replaced in the meantime or if its TTL has changed
+            // (then a new item was scheduled).
+            if (lookup.get(item.hashOfPayload) == item.entry &&
+                    item.entry.getExpirationTimeStamp() == item.expirationTimeStamp)
+                result.add(item.hashOfPayload);
+        }
+        return result;
+    }
+
+    int size() {
+        return queue.size();
+    }
+}
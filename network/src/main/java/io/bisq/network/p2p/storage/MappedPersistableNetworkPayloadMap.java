@@ -0,0 +1,378 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.CodedInputStream;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.ChunkedFileFormat;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.payload.LazyProcessedPayload;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map view of the PersistableNetworkPayloadMap file which does not deserialize the payloads at startup.
+ * <p/>
+ * The file gets memory mapped and we only build an index from the payload hash to the position of the serialized
+ * payload in the file. The index is stored in an extra file, so at the next startup we don't need to parse the
+ * items at all as long as the data file has not changed. Payloads are deserialized at the first get. Payloads which
+ * are marked as LazyProcessedPayload (TradeStatistics2, AccountAgeWitness) are only softly referenced afterwards,
+ * so the GC can drop them again, all others are kept.
+ * <p/>
+ * The file itself is never written again (new payloads are persisted in the PersistableNetworkPayloadLog), payloads
+ * added at runtime are kept in memory. We never remove payloads.
+ */
+@Slf4j
+class MappedPersistableNetworkPayloadMap extends AbstractMap<P2PDataStorage.ByteArray, PersistableNetworkPayload> {
+    private static final String INDEX_FILE_SUFFIX = ".index";
+    private static final int INDEX_VERSION = 1;
+
+    private final PersistenceProtoResolver persistenceProtoResolver;
+    @Nullable
+    private final ByteBuffer buffer;
+    // Position and length of the serialized payload in the buffer, packed into a long
+    private final Map<P2PDataStorage.ByteArray, Long> index;
+
+    private final Cache<P2PDataStorage.ByteArray, PersistableNetworkPayload> lazyProcessedPayloadCache = CacheBuilder.newBuilder()
+            .softValues()
+            .build();
+    private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> materializedPayloads = new ConcurrentHashMap<>();
+    // Payloads added after loading
+    private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> addedPayloads = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // If the file does not exist or cannot be read we start with an empty map
+    MappedPersistableNetworkPayloadMap(File file, PersistenceProtoResolver persistenceProtoResolver) {
+        this.persistenceProtoResolver = persistenceProtoResolver;
+
+        ByteBuffer buffer = null;
+        Map<P2PDataStorage.ByteArray, Long> index = new HashMap<>();
+        if (file.exists()) {
+            long ts = System.currentTimeMillis();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer mappedByteBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer = mappedByteBuffer;
+                File indexFile = new File(file.getParentFile(), file.getName() + INDEX_FILE_SUFFIX);
+                if (!readIndex(indexFile, file, index)) {
+                    index.clear();
+                    buildIndex(mappedByteBuffer, index);
+                    writeIndex(indexFile, file, index);
+                }
+                log.info("Loaded index of {} with {} items in {} ms", file.getName(), index.size(),
+                        System.currentTimeMillis() - ts);
+            } catch (Throwable t) {
+                log.error("Could not load " + file + ". We start with an empty map. " + t.toString());
+                t.printStackTrace();
+                buffer = null;
+                index.clear();
+            }
+        }
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Map implementation
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int size() {
+        return index.size() + addedPayloads.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        //noinspection SuspiciousMethodCalls
+        return index.containsKey(key) || addedPayloads.containsKey(key);
+    }
+
+    @Override
+    public PersistableNetworkPayload get(Object key) {
+        if (!(key instanceof P2PDataStorage.ByteArray))
+            return null;
+
+        Long position = index.get(key);
+        if (position != null)
+            return getMaterializedPayload((P2PDataStorage.ByteArray) key, position);
+        else
+            return addedPayloads.get(key);
+    }
+
+    @Override
+    public PersistableNetworkPayload put(P2PDataStorage.ByteArray key, PersistableNetworkPayload payload) {
+        // Payloads are immutable and identified by their hash, so we don't replace existing ones
+        if (index.containsKey(key))
+            return get(key);
+        else
+            return addedPayloads.put(key, payload);
+    }
+
+    @Override
+    public PersistableNetworkPayload putIfAbsent(P2PDataStorage.ByteArray key, PersistableNetworkPayload payload) {
+        if (index.containsKey(key))
+            return get(key);
+        else
+            return addedPayloads.putIfAbsent(key, payload);
+    }
+
+    @Override
+    public PersistableNetworkPayload remove(Object key) {
+        throw new UnsupportedOperationException("PersistableNetworkPayloads are never removed");
+    }
+
+    // The values of the entries are deserialized only when accessed, so filtering by key is cheap
+    @Override
+    public Set<Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload>> entrySet() {
+        return new AbstractSet<Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload>>() {
+            @Override
+            public Iterator<Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload>> iterator() {
+                Iterator<Entry<P2PDataStorage.ByteArray, Long>> indexIterator = index.entrySet().iterator();
+                Iterator<Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload>> addedIterator = addedPayloads.entrySet().iterator();
+                return new Iterator<Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return indexIterator.hasNext() || addedIterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload> next() {
+                        if (indexIterator.hasNext()) {
+                            Entry<P2PDataStorage.ByteArray, Long> entry = indexIterator.next();
+                            return new LazyEntry(entry.getKey(), entry.getValue());
+                        }
+                        return addedIterator.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return MappedPersistableNetworkPayloadMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<P2PDataStorage.ByteArray> keySet() {
+        return new AbstractSet<P2PDataStorage.ByteArray>() {
+            @Override
+            public Iterator<P2PDataStorage.ByteArray> iterator() {
+                Iterator<P2PDataStorage.ByteArray> indexIterator = index.keySet().iterator();
+                Iterator<P2PDataStorage.ByteArray> addedIterator = addedPayloads.keySet().iterator();
+                return new Iterator<P2PDataStorage.ByteArray>() {
+                    @Override
+                    public boolean hasNext() {
+                        return indexIterator.hasNext() || addedIterator.hasNext();
+                    }
+
+                    @Override
+                    public P2PDataStorage.ByteArray next() {
+                        return indexIterator.hasNext() ? indexIterator.next() : addedIterator.next();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return MappedPersistableNetworkPayloadMap.this.size();
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final class LazyEntry implements Entry<P2PDataStorage.ByteArray, PersistableNetworkPayload> {
+        private final P2PDataStorage.ByteArray key;
+        private final long position;
+
+        LazyEntry(P2PDataStorage.ByteArray key, long position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public P2PDataStorage.ByteArray getKey() {
+            return key;
+        }
+
+        @Override
+        public PersistableNetworkPayload getValue() {
+            return getMaterializedPayload(key, position);
+        }
+
+        @Override
+        public PersistableNetworkPayload setValue(PersistableNetworkPayload value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private PersistableNetworkPayload getMaterializedPayload(P2PDataStorage.ByteArray key, long position) {
+        PersistableNetworkPayload payload = materializedPayloads.get(key);
+        if (payload == null)
+            payload = lazyProcessedPayloadCache.getIfPresent(key);
+        if (payload == null) {
+            payload = PersistableNetworkPayload.fromProto(parseItem(getSlice(buffer, position)), persistenceProtoResolver);
+            if (payload instanceof LazyProcessedPayload)
+                lazyProcessedPayloadCache.put(key, payload);
+            else
+                materializedPayloads.put(key, payload);
+        }
+        return payload;
+    }
+
+    private static PB.PersistableNetworkPayload parseItem(ByteBuffer slice) {
+        try {
+            return PB.PersistableNetworkPayload.parseFrom(CodedInputStream.newInstance(slice));
+        } catch (IOException e) {
+            // The data have been parsed already when we built the index, so that should never happen
+            throw new IllegalStateException("Could not parse PersistableNetworkPayload", e);
+        }
+    }
+
+    // The file contains a delimited PB.PersistableEnvelope with a PersistableNetworkPayloadList. We walk through the
+    // wire format and only parse the protobuf message of each item to get its hash.
+    // The file is either a single envelope message or in the ChunkedFileFormat, where each envelope message after the
+    // header holds a part of the items
+    private void buildIndex(ByteBuffer mappedBuffer, Map<P2PDataStorage.ByteArray, Long> index) throws IOException {
+        ByteBuffer buffer = mappedBuffer.duplicate();
+        boolean isChunked = ChunkedFileFormat.hasHeader(buffer);
+        if (isChunked)
+            buffer.position(buffer.position() + ChunkedFileFormat.HEADER_LENGTH);
+
+        do {
+            int envelopeLength = readVarint32(buffer);
+            int envelopeEnd = buffer.position() + envelopeLength;
+            while (buffer.position() < envelopeEnd) {
+                int tag = readVarint32(buffer);
+                if (tag >>> 3 == PB.PersistableEnvelope.PERSISTABLE_NETWORK_PAYLOAD_LIST_FIELD_NUMBER && (tag & 7) == 2) {
+                    int listEnd = readVarint32(buffer) + buffer.position();
+                    while (buffer.position() < listEnd) {
+                        int itemTag = readVarint32(buffer);
+                        if (itemTag >>> 3 == PB.PersistableNetworkPayloadList.ITEMS_FIELD_NUMBER && (itemTag & 7) == 2) {
+                            int length = readVarint32(buffer);
+                            long position = ((long) buffer.position() << 32) | length;
+                            buffer.position(buffer.position() + length);
+                            index.put(new P2PDataStorage.ByteArray(getHash(parseItem(getSlice(mappedBuffer, position)))),
+                                    position);
+                        } else {
+                            skipField(buffer, itemTag);
+                        }
+                    }
+                } else {
+                    skipField(buffer, tag);
+                }
+            }
+        } while (isChunked && buffer.hasRemaining());
+    }
+
+    // We only need the hash for the index, the payload itself is not kept
+    private byte[] getHash(PB.PersistableNetworkPayload proto) {
+        return PersistableNetworkPayload.fromProto(proto, persistenceProtoResolver).getHash();
+    }
+
+    private static ByteBuffer getSlice(ByteBuffer buffer, long position) {
+        ByteBuffer slice = buffer.duplicate();
+        int offset = (int) (position >>> 32);
+        slice.position(offset);
+        slice.limit(offset + (int) position);
+        return slice.slice();
+    }
+
+    private static int readVarint32(ByteBuffer buffer) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void skipField(ByteBuffer buffer, int tag) throws IOException {
+        int wireType = tag & 7;
+        if (wireType == 0)
+            readVarint64(buffer);
+        else if (wireType == 1)
+            buffer.position(buffer.position() + 8);
+        else if (wireType == 2)
+            buffer.position(readVarint32(buffer) + buffer.position());
+        else if (wireType == 5)
+            buffer.position(buffer.position() + 4);
+        else
+            throw new IOException("Unsupported wire type " + wireType);
+    }
+
+    private static void readVarint64(ByteBuffer buffer) throws IOException {
+        for (int i = 0; i < 10; i++) {
+            if ((buffer.get() & 0x80) == 0)
+                return;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // The index is only valid for the same data file, so we store its length and last modification date
+    private static boolean readIndex(File indexFile, File dataFile, Map<P2PDataStorage.ByteArray, Long> index) {
+        if (!indexFile.exists())
+            return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_VERSION || in.readLong() != dataFile.length() ||
+                    in.readLong() != dataFile.lastModified())
+                return false;
+
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                byte[] key = new byte[in.readUnsignedByte()];
+                in.readFully(key);
+                index.put(new P2PDataStorage.ByteArray(key), in.readLong());
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not read index file {}. We build the index again. {}", indexFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void writeIndex(File indexFile, File dataFile, Map<P2PDataStorage.ByteArray, Long> index) {
+        File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.writeInt(index.size());
+            for (Map.Entry<P2PDataStorage.ByteArray, Long> entry : index.entrySet()) {
+                out.writeByte(entry.getKey().bytes.length);
+                out.write(entry.getKey().bytes);
+                out.writeLong(entry.getValue());
+            }
+        } catch (IOException e) {
+            log.warn("Could not write index file {}. {}", indexFile, e.getMessage());
+            return;
+        }
+        if (!tempFile.renameTo(indexFile) && (!indexFile.delete() || !tempFile.renameTo(indexFile)))
+            log.warn("Could not rename {} to {}", tempFile, indexFile);
+    }
+}
@@ -1,8 +1,11 @@
 package io.bisq.network.p2p.storage;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.name.Named;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
 import io.bisq.common.app.Log;
@@ -37,6 +40,8 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.security.KeyPair;
 import java.security.PublicKey;
@@ -54,24 +59,45 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
      * How many days to keep an entry before it is purged.
      */
     private static final int PURGE_AGE_DAYS = 10;
+    private static final long PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
 
     @VisibleForTesting
     public static int CHECK_TTL_INTERVAL_SEC = 60;
 
+    // Payloads are immutable, so we keep the hash as long as the payload instance is referenced instead of
+    // serializing and hashing it again at each lookup. Weak keys are compared by identity, so the equals/hashCode
+    // of the payload are not called.
+    private static final Cache<ProtectedStoragePayload, ByteArray> payloadHashCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+    // The serialized payload is needed for the hash of the payload and for the hash of the DataAndSeqNrPair, which
+    // are usually calculated shortly after each other. As it can be large we keep only the recently used ones.
+    private static final Cache<ProtectedStoragePayload, byte[]> serializedPayloadCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1000)
+            .build();
+
     private final Broadcaster broadcaster;
     private final File storageDir;
 
-    @Getter
     private final Map<ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
+    // Secondary indexes of map. map must only be changed via putEntry and removeEntry to keep them in sync.
+    private final ProtectedStorageEntryIndex index = new ProtectedStorageEntryIndex();
+    private final ExpirationQueue expirationQueue = new ExpirationQueue();
+    private long lastSequenceNumberMapPurge;
     private final CopyOnWriteArraySet<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
     private Timer removeExpiredEntriesTimer;
+    @Getter
+    private final SignatureVerificationQueue signatureVerificationQueue = new SignatureVerificationQueue();
 
-    private final Storage<SequenceNumberMap> sequenceNumberMapStorage;
+    private final SequenceNumberMapLog sequenceNumberMapLog;
     private final SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
 
     @Getter
     private PersistableNetworkPayloadCollection persistableNetworkPayloadCollection;
-    private final Storage<PersistableNetworkPayloadCollection> persistableNetworkPayloadMapStorage;
+    private final PersistenceProtoResolver persistenceProtoResolver;
+    // New payloads are appended to the log instead of writing the whole PersistableNetworkPayloadMap again
+    private final PersistableNetworkPayloadLog persistableNetworkPayloadLog;
     private final CopyOnWriteArraySet<PersistableNetworkPayloadMapListener> persistableNetworkPayloadMapListeners = new CopyOnWriteArraySet<>();
 
 
@@ -90,18 +116,16 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         networkNode.addMessageListener(this);
         networkNode.addConnectionListener(this);
 
-        sequenceNumberMapStorage = new Storage<>(storageDir, persistenceProtoResolver);
-        sequenceNumberMapStorage.setNumMaxBackupFiles(5);
+        sequenceNumberMapLog = new SequenceNumberMapLog(storageDir, persistenceProtoResolver,
+                P2PDataStorage::getPurgedSequenceNumberMap);
 
-        persistableNetworkPayloadMapStorage = new Storage<>(storageDir, persistenceProtoResolver);
-        persistableNetworkPayloadMapStorage.setNumMaxBackupFiles(1);
+        this.persistenceProtoResolver = persistenceProtoResolver;
+        persistableNetworkPayloadLog = new PersistableNetworkPayloadLog(storageDir, persistenceProtoResolver);
     }
 
     @Override
     public void readPersisted() {
-        SequenceNumberMap persistedSequenceNumberMap = sequenceNumberMapStorage.initAndGetPersisted(sequenceNumberMap, 300);
-        if (persistedSequenceNumberMap != null)
-            sequenceNumberMap.setMap(getPurgedSequenceNumberMap(persistedSequenceNumberMap.getMap()));
+        sequenceNumberMap.setMap(sequenceNumberMapLog.read());
 
         // PersistedEntryMap cannot be set here as we dont know yet the selected base currency
         // We get it called in readEntryMapFromResources once ready
@@ -130,16 +154,20 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         } else {
             log.debug(storageFileName + " file exists already.");
         }
-        persistableNetworkPayloadCollection = persistableNetworkPayloadMapStorage.initAndGetPersistedWithFileName(storageFileName, 100);
-        if (persistableNetworkPayloadCollection != null) {
-            log.info("persistableNetworkPayloadMap size=" + persistableNetworkPayloadCollection.getMap().size());
-
-            // In case another object is already listening...
-            if (!persistableNetworkPayloadMapListeners.isEmpty())
-                persistableNetworkPayloadCollection.getMap().values().stream()
-                        .forEach(payload -> persistableNetworkPayloadMapListeners.stream().forEach(e -> e.onAdded(payload)));
-        } else {
-            persistableNetworkPayloadCollection = new PersistableNetworkPayloadCollection();
+        // We only build an index of the hashes, the payloads get deserialized when accessed
+        Map<ByteArray, PersistableNetworkPayload> map = new MappedPersistableNetworkPayloadMap(destinationFile,
+                persistenceProtoResolver);
+        persistableNetworkPayloadCollection = PersistableNetworkPayloadCollection.wrap(map);
+        log.info("persistableNetworkPayloadMap size=" + map.size());
+
+        // We add the payloads we have received since the snapshot was written
+        persistableNetworkPayloadLog.readAll(payload -> map.putIfAbsent(new ByteArray(payload.getHash()), payload));
+        log.info("persistableNetworkPayloadMap size after reading the log=" + map.size());
+
+        // In case another object is already listening...
+        if (!persistableNetworkPayloadMapListeners.isEmpty()) {
+            Collection<PersistableNetworkPayload> payloads = Collections.unmodifiableCollection(map.values());
+            persistableNetworkPayloadMapListeners.forEach(e -> e.onInitialSet(payloads));
         }
     }
 
@@ -151,6 +179,10 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void shutDown() {
         if (removeExpiredEntriesTimer != null)
             removeExpiredEntriesTimer.stop();
+
+        signatureVerificationQueue.shutDown();
+        persistableNetworkPayloadLog.shutDown();
+        sequenceNumberMapLog.shutDown();
     }
 
     public void onBootstrapComplete() {
@@ -161,17 +193,16 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             // object when we get it sent from new peers, we don’t remove the sequence number from the map.
             // That way an ADD message for an already expired data will fail because the sequence number
             // is equal and not larger as expected.
-            Map<ByteArray, ProtectedStorageEntry> temp = new HashMap<>(map);
+            // We only look at the entries which are due according to the expirationQueue instead of iterating
+            // the whole map.
             Set<ProtectedStorageEntry> toRemoveSet = new HashSet<>();
-            temp.entrySet().stream()
-                    .filter(entry -> entry.getValue().isExpired())
-                    .forEach(entry -> {
-                        ByteArray hashOfPayload = entry.getKey();
+            expirationQueue.pollExpired(System.currentTimeMillis(), map::get)
+                    .forEach(hashOfPayload -> {
                         ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
                         if (!(protectedStorageEntry.getProtectedStoragePayload() instanceof PersistableNetworkPayload)) {
                             toRemoveSet.add(protectedStorageEntry);
                             log.info("We found an expired data entry. We remove the protectedDataPayload:\n\t" + Utilities.toTruncatedString(protectedStorageEntry.getProtectedStoragePayload(), 100));
-                            map.remove(hashOfPayload);
+                            removeEntry(hashOfPayload);
                         }
                     });
 
@@ -179,8 +210,18 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                     protectedDataToRemove -> hashMapChangedListeners.stream().forEach(
                             listener -> listener.onRemoved(protectedDataToRemove)));
 
-            if (sequenceNumberMap.size() > 1000)
-                sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
+            if (signatureVerificationQueue.getNumVerified() > 0)
+                log.debug(signatureVerificationQueue.toString());
+
+            // Purging rebuilds the whole map, as entries only get purged after PURGE_AGE_DAYS we don't need to do it
+            // at each check. The persisted map gets purged when the log is compacted.
+            long now = System.currentTimeMillis();
+            if (now - lastSequenceNumberMapPurge > PURGE_INTERVAL_MS) {
+                lastSequenceNumberMapPurge = now;
+                if (sequenceNumberMap.size() > 1000)
+                    sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
+                sequenceNumberMapLog.compact();
+            }
         }, CHECK_TTL_INTERVAL_SEC);
     }
 
@@ -194,14 +235,27 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         if (networkEnvelop instanceof BroadcastMessage) {
             Log.traceCall(Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
             connection.getPeersNodeAddressOptional().ifPresent(peersNodeAddress -> {
+                // We remember that the peer has that message, so we don't send it back to it
+                broadcaster.onBroadcastMessageReceived((BroadcastMessage) networkEnvelop, peersNodeAddress);
+
                 if (networkEnvelop instanceof AddDataMessage) {
-                    addProtectedStorageEntry(((AddDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, null, false);
+                    // The check if we have the data already and the hashing only read the storage, so we run it on
+                    // the lane of the payload if the UserThread is sharded.
+                    AddDataMessage addDataMessage = (AddDataMessage) networkEnvelop;
+                    UserThread.execute(addDataMessage.getProtectedStorageEntry().getProtectedStoragePayload(),
+                            () -> onAddDataMessage(addDataMessage, peersNodeAddress));
                 } else if (networkEnvelop instanceof RemoveDataMessage) {
-                    remove(((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, false);
+                    ProtectedStorageEntry protectedStorageEntry = ((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry();
+                    UserThread.execute(protectedStorageEntry.getProtectedStoragePayload(),
+                            () -> onRemoveMessage(protectedStorageEntry,
+                                    () -> remove(protectedStorageEntry, peersNodeAddress, false)));
                 } else if (networkEnvelop instanceof RemoveMailboxDataMessage) {
-                    removeMailboxData(((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry(), peersNodeAddress, false);
+                    ProtectedMailboxStorageEntry protectedMailboxStorageEntry = ((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry();
+                    UserThread.execute(protectedMailboxStorageEntry.getProtectedStoragePayload(),
+                            () -> onRemoveMessage(protectedMailboxStorageEntry,
+                                    () -> removeMailboxData(protectedMailboxStorageEntry, peersNodeAddress, false)));
                 } else if (networkEnvelop instanceof RefreshOfferMessage) {
-                    refreshTTL((RefreshOfferMessage) networkEnvelop, peersNodeAddress, false);
+                    onRefreshOfferMessage((RefreshOfferMessage) networkEnvelop, peersNodeAddress);
                 } else if (networkEnvelop instanceof AddPersistableNetworkPayloadMessage) {
                     addPersistableNetworkPayload(((AddPersistableNetworkPayloadMessage) networkEnvelop).getPersistableNetworkPayload(),
                             peersNodeAddress, false, true, false, true);
@@ -211,6 +265,57 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
 
+    // The signature verification is done at the signatureVerificationQueue, the data gets added at the UserThread
+    // once verified. Might be called in parallel for different payloads, so we must not change any state here.
+    private void onAddDataMessage(AddDataMessage addDataMessage, NodeAddress peersNodeAddress) {
+        ProtectedStorageEntry protectedStorageEntry = addDataMessage.getProtectedStorageEntry();
+        ByteArray hashOfPayload = getHashAsByteArray(protectedStorageEntry.getProtectedStoragePayload());
+        int sequenceNumber = protectedStorageEntry.getSequenceNumber();
+        if (map.containsKey(hashOfPayload) && sequenceNumberMap.containsKey(hashOfPayload) &&
+                sequenceNumber <= sequenceNumberMap.get(hashOfPayload).sequenceNr) {
+            // We have that version already, adding would neither store nor broadcast it, so we skip the crypto.
+            log.trace("We got that version of the data already. We ignore the AddDataMessage.");
+            return;
+        }
+
+        signatureVerificationQueue.submit(SignatureVerificationQueue.Type.ADD,
+                hashOfPayload,
+                sequenceNumber,
+                () -> checkSignature(protectedStorageEntry),
+                isSignatureValid -> addProtectedStorageEntry(protectedStorageEntry, peersNodeAddress, null,
+                        false, true, isSignatureValid));
+    }
+
+    // The remove must not overtake an add of the same data which is still at the signatureVerificationQueue, otherwise
+    // it would be ignored and the data added afterwards. We run on the lane of the payload like onAddDataMessage, so
+    // the remove gets submitted after the add. The handler is called at the UserThread.
+    private void onRemoveMessage(ProtectedStorageEntry protectedStorageEntry, Runnable handler) {
+        signatureVerificationQueue.submitInOrder(SignatureVerificationQueue.Type.REMOVE,
+                getHashAsByteArray(protectedStorageEntry.getProtectedStoragePayload()),
+                protectedStorageEntry.getSequenceNumber(),
+                handler);
+    }
+
+    private void onRefreshOfferMessage(RefreshOfferMessage refreshOfferMessage, NodeAddress peersNodeAddress) {
+        ByteArray hashOfPayload = new ByteArray(refreshOfferMessage.getHashOfPayload());
+        ProtectedStorageEntry storedData = map.get(hashOfPayload);
+        int sequenceNumber = refreshOfferMessage.getSequenceNumber();
+        if (storedData == null ||
+                (sequenceNumberMap.containsKey(hashOfPayload) && sequenceNumberMap.get(hashOfPayload).sequenceNr == sequenceNumber)) {
+            // No crypto required, refreshTTL ignores the message
+            refreshTTL(refreshOfferMessage, peersNodeAddress, false);
+            return;
+        }
+
+        PublicKey ownerPubKey = storedData.getProtectedStoragePayload().getOwnerPubKey();
+        signatureVerificationQueue.submit(SignatureVerificationQueue.Type.REFRESH,
+                hashOfPayload,
+                sequenceNumber,
+                () -> checkSignature(ownerPubKey, refreshOfferMessage.getHashOfDataAndSeqNr(), refreshOfferMessage.getSignature()),
+                isSignatureValid -> refreshTTL(refreshOfferMessage, peersNodeAddress, false, ownerPubKey, isSignatureValid));
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // ConnectionListener implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -222,50 +327,46 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Override
     public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
         if (connection.hasPeersNodeAddress() && !closeConnectionReason.isIntended) {
-            map.values().stream()
-                    .forEach(protectedData -> {
-                        ExpirablePayload expirablePayload = protectedData.getProtectedStoragePayload();
-                        if (expirablePayload instanceof RequiresOwnerIsOnlinePayload) {
-                            RequiresOwnerIsOnlinePayload requiresOwnerIsOnlinePayload = (RequiresOwnerIsOnlinePayload) expirablePayload;
-                            NodeAddress ownerNodeAddress = requiresOwnerIsOnlinePayload.getOwnerNodeAddress();
-                            if (ownerNodeAddress.equals(connection.getPeersNodeAddressOptional().get())) {
-                                // We have a RequiresLiveOwnerData data object with the node address of the
-                                // disconnected peer. We remove that data from our map.
-
-                                // Check if we have the data (e.g. OfferPayload)
-                                ByteArray hashOfPayload = getHashAsByteArray(expirablePayload);
-                                boolean containsKey = map.containsKey(hashOfPayload);
-                                if (containsKey) {
-                                    log.debug("We remove the data as the data owner got disconnected with " +
-                                            "closeConnectionReason=" + closeConnectionReason);
-
-                                    //noinspection ConstantConditions
-                                    Log.logIfStressTests("We remove the data as the data owner got disconnected with " +
-                                            "closeConnectionReason=" + closeConnectionReason +
-                                            " / isIntended=" + closeConnectionReason.isIntended +
-                                            " / peer=" + (connection.getPeersNodeAddressOptional().isPresent() ? connection.getPeersNodeAddressOptional().get() : "PeersNode unknown"));
-
-                                    // We only set the data back by half of the TTL and remove the data only if is has
-                                    // expired after tha back dating.
-                                    // We might get connection drops which are not caused by the node going offline, so
-                                    // we give more tolerance with that approach, giving the node the change to
-                                    // refresh the TTL with a refresh message.
-                                    // We observed those issues during stress tests, but it might have been caused by the
-                                    // test set up (many nodes/connections over 1 router)
-                                    // TODO investigate what causes the disconnections.
-                                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
-                                    protectedData.backDate();
-                                    if (protectedData.isExpired()) {
-                                        log.warn("We found an expired data entry which we have already back dated. " +
-                                                "We remove the protectedStoragePayload:\n\t" + Utilities.toTruncatedString(protectedData.getProtectedStoragePayload(), 100));
-                                        doRemoveProtectedExpirableData(protectedData, hashOfPayload);
-                                    }
-                                } else {
-                                    log.debug("Remove data ignored as we don't have an entry for that data.");
-                                }
-                            }
-                        }
-                    });
+            NodeAddress peersNodeAddress = connection.getPeersNodeAddressOptional().get();
+            // We only look up the RequiresOwnerIsOnlinePayload entries owned by the disconnected peer
+            index.getEntriesByOwnerNodeAddress(peersNodeAddress).forEach(protectedData -> {
+                // We have a RequiresLiveOwnerData data object with the node address of the
+                // disconnected peer. We remove that data from our map.
+
+                // Check if we have the data (e.g. OfferPayload)
+                ProtectedStoragePayload expirablePayload = protectedData.getProtectedStoragePayload();
+                ByteArray hashOfPayload = getHashAsByteArray(expirablePayload);
+                boolean containsKey = map.containsKey(hashOfPayload);
+                if (containsKey) {
+                    log.debug("We remove the data as the data owner got disconnected with " +
+                            "closeConnectionReason=" + closeConnectionReason);
+
+                    //noinspection ConstantConditions
+                    Log.logIfStressTests("We remove the data as the data owner got disconnected with " +
+                            "closeConnectionReason=" + closeConnectionReason +
+                            " / isIntended=" + closeConnectionReason.isIntended +
+                            " / peer=" + peersNodeAddress);
+
+                    // We only set the data back by half of the TTL and remove the data only if is has
+                    // expired after tha back dating.
+                    // We might get connection drops which are not caused by the node going offline, so
+                    // we give more tolerance with that approach, giving the node the change to
+                    // refresh the TTL with a refresh message.
+                    // We observed those issues during stress tests, but it might have been caused by the
+                    // test set up (many nodes/connections over 1 router)
+                    // TODO investigate what causes the disconnections.
+                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
+                    protectedData.backDate();
+                    expirationQueue.schedule(hashOfPayload, protectedData);
+                    if (protectedData.isExpired()) {
+                        log.warn("We found an expired data entry which we have already back dated. " +
+                                "We remove the protectedStoragePayload:\n\t" + Utilities.toTruncatedString(protectedData.getProtectedStoragePayload(), 100));
+                        doRemoveProtectedExpirableData(protectedData, hashOfPayload);
+                    }
+                } else {
+                    log.debug("Remove data ignored as we don't have an entry for that data.");
+                }
+            });
         }
     }
 
@@ -294,7 +395,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 if (!(payload instanceof DateTolerantPayload) || !checkDate || ((DateTolerantPayload) payload).isDateInTolerance()) {
                     if (!containsKey) {
                         persistableNetworkPayloadCollection.getMap().put(hashAsByteArray, payload);
-                        persistableNetworkPayloadMapStorage.queueUpForSave(persistableNetworkPayloadCollection, 2000);
+                        persistableNetworkPayloadLog.append(payload);
                         persistableNetworkPayloadMapListeners.stream().forEach(e -> e.onAdded(payload));
                     }
                     if (allowBroadcast)
@@ -324,12 +425,19 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     public boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
                                             @Nullable BroadcastHandler.Listener listener, boolean isDataOwner, boolean allowBroadcast) {
+        return addProtectedStorageEntry(protectedStorageEntry, sender, listener, isDataOwner, allowBroadcast, null);
+    }
+
+    // If isSignatureValid is set the signature has been verified already at the signatureVerificationQueue
+    private boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
+                                             @Nullable BroadcastHandler.Listener listener, boolean isDataOwner,
+                                             boolean allowBroadcast, @Nullable Boolean isSignatureValid) {
         Log.traceCall("with allowBroadcast=" + allowBroadcast);
         final ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
         ByteArray hashOfPayload = getHashAsByteArray(protectedStoragePayload);
         boolean sequenceNrValid = isSequenceNrValid(protectedStorageEntry.getSequenceNumber(), hashOfPayload);
         boolean result = checkPublicKeys(protectedStorageEntry, true)
-                && checkSignature(protectedStorageEntry)
+                && (isSignatureValid != null ? isSignatureValid : checkSignature(protectedStorageEntry))
                 && sequenceNrValid;
 
         boolean containsKey = map.containsKey(hashOfPayload);
@@ -342,7 +450,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
             if (!containsKey || hasSequenceNrIncreased) {
                 // At startup we don't have the item so we store it. At updates of the seq nr we store as well.
-                map.put(hashOfPayload, protectedStorageEntry);
+                putEntry(hashOfPayload, protectedStorageEntry);
                 hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedStorageEntry));
                 // printData("after add");
             } else {
@@ -350,9 +458,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             }
 
             if (hasSequenceNrIncreased) {
-                sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-                // We set the delay higher as we might receive a batch of items
-                sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 2000);
+                putSequenceNumber(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
 
                 if (allowBroadcast)
                     broadcast(new AddDataMessage(protectedStorageEntry), sender, listener, isDataOwner);
@@ -366,6 +472,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     public boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner) {
+        return refreshTTL(refreshTTLMessage, sender, isDataOwner, null, false);
+    }
+
+    // If verifiedPubKey is set the signature has been verified already with that key at the signatureVerificationQueue
+    private boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner,
+                               @Nullable PublicKey verifiedPubKey, boolean isSignatureValid) {
         Log.traceCall();
 
         byte[] hashOfDataAndSeqNr = refreshTTLMessage.getHashOfDataAndSeqNr();
@@ -381,7 +493,10 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 return true;
             } else {
                 PublicKey ownerPubKey = storedData.getProtectedStoragePayload().getOwnerPubKey();
-                final boolean checkSignature = checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
+                // The stored data might have been replaced since the verification, in that case we verify again
+                final boolean checkSignature = ownerPubKey.equals(verifiedPubKey) ?
+                        isSignatureValid :
+                        checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
                 final boolean hasSequenceNrIncreased = hasSequenceNrIncreased(sequenceNumber, hashOfPayload);
                 final boolean checkIfStoredDataPubKeyMatchesNewDataPubKey = checkIfStoredDataPubKeyMatchesNewDataPubKey(ownerPubKey,
                         hashOfPayload);
@@ -393,11 +508,11 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 if (allValid) {
                     log.debug("refreshDate called for storedData:\n\t" + StringUtils.abbreviate(storedData.toString(), 100));
                     storedData.refreshTTL();
+                    expirationQueue.schedule(hashOfPayload, storedData);
                     storedData.updateSequenceNumber(sequenceNumber);
                     storedData.updateSignature(signature);
                     printData("after refreshTTL");
-                    sequenceNumberMap.put(hashOfPayload, new MapValue(sequenceNumber, System.currentTimeMillis()));
-                    sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 1000);
+                    putSequenceNumber(hashOfPayload, new MapValue(sequenceNumber, System.currentTimeMillis()));
 
                     broadcast(refreshTTLMessage, sender, null, isDataOwner);
                 }
@@ -425,8 +540,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         if (result) {
             doRemoveProtectedExpirableData(protectedStorageEntry, hashOfPayload);
             printData("after remove");
-            sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            putSequenceNumber(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
 
             broadcast(new RemoveDataMessage(protectedStorageEntry), sender, null, isDataOwner);
         } else {
@@ -453,8 +567,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         if (result) {
             doRemoveProtectedExpirableData(protectedMailboxStorageEntry, hashOfData);
             printData("after removeMailboxData");
-            sequenceNumberMap.put(hashOfData, new MapValue(protectedMailboxStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            putSequenceNumber(hashOfData, new MapValue(protectedMailboxStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
 
             broadcast(new RemoveMailboxDataMessage(protectedMailboxStorageEntry), sender, null, isDataOwner);
         } else {
@@ -472,7 +585,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHash(new DataAndSeqNrPair(protectedStoragePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHashOfDataAndSeqNr(protectedStoragePayload, sequenceNumber);
         byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new ProtectedStorageEntry(protectedStoragePayload, ownerStoragePubKey.getPublic(), sequenceNumber, signature);
     }
@@ -486,7 +599,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHash(new DataAndSeqNrPair(protectedStoragePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHashOfDataAndSeqNr(protectedStoragePayload, sequenceNumber);
         byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new RefreshOfferMessage(hashOfDataAndSeqNr, signature, hashOfPayload.bytes, sequenceNumber);
     }
@@ -501,12 +614,33 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHash(new DataAndSeqNrPair(expirableMailboxStoragePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHashOfDataAndSeqNr(expirableMailboxStoragePayload, sequenceNumber);
         byte[] signature = Sig.sign(storageSignaturePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new ProtectedMailboxStorageEntry(expirableMailboxStoragePayload,
                 storageSignaturePubKey.getPublic(), sequenceNumber, signature, receiversPublicKey);
     }
 
+    // Read only view. Changes must be done via the add/remove methods to keep the indexes in sync.
+    public Map<ByteArray, ProtectedStorageEntry> getMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    // Includes entries with payloads of subclasses of payloadClass
+    public List<ProtectedStorageEntry> getEntriesByPayloadClass(Class<? extends ProtectedStoragePayload> payloadClass) {
+        return index.getEntriesByPayloadClass(payloadClass);
+    }
+
+    public <T extends ProtectedStoragePayload> List<T> getPayloadsByClass(Class<T> payloadClass) {
+        return index.getEntriesByPayloadClass(payloadClass).stream()
+                .map(entry -> payloadClass.cast(entry.getProtectedStoragePayload()))
+                .collect(Collectors.toList());
+    }
+
+    // Only entries with a RequiresOwnerIsOnlinePayload are indexed by the owner node address
+    public Collection<ProtectedStorageEntry> getEntriesByOwnerNodeAddress(NodeAddress ownerNodeAddress) {
+        return index.getEntriesByOwnerNodeAddress(ownerNodeAddress);
+    }
+
     public void addHashMapChangedListener(HashMapChangedListener hashMapChangedListener) {
         hashMapChangedListeners.add(hashMapChangedListener);
     }
@@ -529,11 +663,25 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private void doRemoveProtectedExpirableData(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
-        map.remove(hashOfPayload);
+        removeEntry(hashOfPayload);
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.stream().forEach(e -> e.onRemoved(protectedStorageEntry));
     }
 
+    private void putEntry(ByteArray hashOfPayload, ProtectedStorageEntry protectedStorageEntry) {
+        ProtectedStorageEntry previous = map.put(hashOfPayload, protectedStorageEntry);
+        if (previous != null)
+            index.remove(hashOfPayload, previous);
+        index.put(hashOfPayload, protectedStorageEntry);
+        expirationQueue.schedule(hashOfPayload, protectedStorageEntry);
+    }
+
+    private void removeEntry(ByteArray hashOfPayload) {
+        ProtectedStorageEntry removed = map.remove(hashOfPayload);
+        if (removed != null)
+            index.remove(hashOfPayload, removed);
+    }
+
     private boolean isSequenceNrValid(int newSequenceNumber, ByteArray hashOfData) {
         if (sequenceNumberMap.containsKey(hashOfData)) {
             int storedSequenceNumber = sequenceNumberMap.get(hashOfData).sequenceNr;
@@ -598,7 +746,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     private boolean checkSignature(ProtectedStorageEntry protectedStorageEntry) {
-        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHash(new DataAndSeqNrPair(protectedStorageEntry.getProtectedStoragePayload(), protectedStorageEntry.getSequenceNumber()));
+        byte[] hashOfDataAndSeqNr = P2PDataStorage.getHashOfDataAndSeqNr(protectedStorageEntry.getProtectedStoragePayload(), protectedStorageEntry.getSequenceNumber());
         return checkSignature(protectedStorageEntry.getOwnerPubKey(), hashOfDataAndSeqNr, protectedStorageEntry.getSignature());
     }
 
@@ -668,12 +816,17 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         broadcaster.broadcast(message, sender, listener, isDataOwner);
     }
 
-    private ByteArray getHashAsByteArray(ExpirablePayload data) {
-        return new ByteArray(P2PDataStorage.getHash(data));
+    private ByteArray getHashAsByteArray(ProtectedStoragePayload protectedStoragePayload) {
+        return getHashOfPayload(protectedStoragePayload);
+    }
+
+    private void putSequenceNumber(ByteArray hashOfPayload, MapValue mapValue) {
+        sequenceNumberMap.put(hashOfPayload, mapValue);
+        sequenceNumberMapLog.put(hashOfPayload, mapValue);
     }
 
     // Get a new map with entries older than PURGE_AGE_DAYS purged from the given map.
-    private Map<ByteArray, MapValue> getPurgedSequenceNumberMap(Map<ByteArray, MapValue> persisted) {
+    private static Map<ByteArray, MapValue> getPurgedSequenceNumberMap(Map<ByteArray, MapValue> persisted) {
         Map<ByteArray, MapValue> purged = new HashMap<>();
         long maxAgeTs = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(PURGE_AGE_DAYS);
         persisted.entrySet().stream().forEach(entry -> {
@@ -726,6 +879,88 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         return Hash.getSha256Hash(data.toProtoMessage().toByteArray());
     }
 
+    // Same result as getHash(protectedStoragePayload) but cached per payload instance
+    public static ByteArray getHashOfPayload(ProtectedStoragePayload protectedStoragePayload) {
+        ByteArray hash = payloadHashCache.getIfPresent(protectedStoragePayload);
+        if (hash == null) {
+            hash = new ByteArray(Hash.getSha256Hash(getSerializedPayload(protectedStoragePayload)));
+            payloadHashCache.put(protectedStoragePayload, hash);
+        }
+        return hash;
+    }
+
+    // Same result as getHash(new DataAndSeqNrPair(protectedStoragePayload, sequenceNumber)) but we reuse the
+    // serialized payload. The bytes are written in the same way as protobuf serializes a PB.DataAndSeqNrPair.
+    public static byte[] getHashOfDataAndSeqNr(ProtectedStoragePayload protectedStoragePayload, int sequenceNumber) {
+        byte[] serializedPayload = getSerializedPayload(protectedStoragePayload);
+        int size = CodedOutputStream.computeByteArraySize(1, serializedPayload);
+        // Default values are not serialized in proto3
+        if (sequenceNumber != 0)
+            size += CodedOutputStream.computeInt32Size(2, sequenceNumber);
+
+        byte[] bytes = new byte[size];
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+        try {
+            codedOutputStream.writeByteArray(1, serializedPayload);
+            if (sequenceNumber != 0)
+                codedOutputStream.writeInt32(2, sequenceNumber);
+            codedOutputStream.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // Cannot happen as we write to a byte array of the exact size
+            throw new RuntimeException(e);
+        }
+        return Hash.getSha256Hash(bytes);
+    }
+
+    // Key identifying a broadcast message independent of the peer we got it from: the message type, the hash of the
+    // payload and the sequence number. Returns null for message types we don't know.
+    @Nullable
+    public static ByteArray getBroadcastMessageKey(BroadcastMessage message) {
+        byte type;
+        byte[] hash;
+        int sequenceNumber;
+        if (message instanceof AddDataMessage) {
+            ProtectedStorageEntry entry = ((AddDataMessage) message).getProtectedStorageEntry();
+            type = 1;
+            hash = getHashOfPayload(entry.getProtectedStoragePayload()).bytes;
+            sequenceNumber = entry.getSequenceNumber();
+        } else if (message instanceof RefreshOfferMessage) {
+            type = 2;
+            hash = ((RefreshOfferMessage) message).getHashOfPayload();
+            sequenceNumber = ((RefreshOfferMessage) message).getSequenceNumber();
+        } else if (message instanceof RemoveDataMessage) {
+            ProtectedStorageEntry entry = ((RemoveDataMessage) message).getProtectedStorageEntry();
+            type = 3;
+            hash = getHashOfPayload(entry.getProtectedStoragePayload()).bytes;
+            sequenceNumber = entry.getSequenceNumber();
+        } else if (message instanceof RemoveMailboxDataMessage) {
+            ProtectedStorageEntry entry = ((RemoveMailboxDataMessage) message).getProtectedMailboxStorageEntry();
+            type = 4;
+            hash = getHashOfPayload(entry.getProtectedStoragePayload()).bytes;
+            sequenceNumber = entry.getSequenceNumber();
+        } else if (message instanceof AddPersistableNetworkPayloadMessage) {
+            type = 5;
+            hash = ((AddPersistableNetworkPayloadMessage) message).getPersistableNetworkPayload().getHash();
+            sequenceNumber = 0;
+        } else {
+            return null;
+        }
+        return new ByteArray(ByteBuffer.allocate(1 + hash.length + 4)
+                .put(type)
+                .put(hash)
+                .putInt(sequenceNumber)
+                .array());
+    }
+
+    private static byte[] getSerializedPayload(ProtectedStoragePayload protectedStoragePayload) {
+        byte[] serializedPayload = serializedPayloadCache.getIfPresent(protectedStoragePayload);
+        if (serializedPayload == null) {
+            serializedPayload = protectedStoragePayload.toProtoMessage().toByteArray();
+            serializedPayloadCache.put(protectedStoragePayload, serializedPayload);
+        }
+        return serializedPayload;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Static class
@@ -17,7 +17,9 @@
 
 package io.bisq.network.p2p.storage;
 
+import com.google.common.collect.Iterators;
 import com.google.protobuf.Message;
+import io.bisq.common.proto.persistable.ChunkedPersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
 import io.bisq.generated.protobuffer.PB;
@@ -26,6 +28,7 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,13 +38,20 @@ import java.util.stream.Collectors;
 // PB also does not support a byte array as key and would require some quirks to support such a map (using hex string
 // would render our 20 byte keys to 40 bytes as HEX encoded).
 @Slf4j
-public class PersistableNetworkPayloadCollection implements PersistableEnvelope {
+public class PersistableNetworkPayloadCollection implements ChunkedPersistableEnvelope {
     @Getter
     private Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new ConcurrentHashMap<>();
 
     public PersistableNetworkPayloadCollection() {
     }
 
+    // Wraps the given map without copying it. Used for the lazily loaded MappedPersistableNetworkPayloadMap.
+    static PersistableNetworkPayloadCollection wrap(Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map) {
+        PersistableNetworkPayloadCollection collection = new PersistableNetworkPayloadCollection();
+        collection.map = map;
+        return collection;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // PROTO BUFFER
@@ -62,6 +72,32 @@ public class PersistableNetworkPayloadCollection implements PersistableEnvelope
                 .build();
     }
 
+    @Override
+    public Iterator<Message> toProtoChunks(int maxItemsPerChunk) {
+        // We need at least one chunk
+        if (map.isEmpty())
+            return Iterators.singletonIterator(toProtoMessage());
+
+        return Iterators.transform(Iterators.partition(map.values().iterator(), maxItemsPerChunk),
+                payloads -> PB.PersistableEnvelope.newBuilder()
+                        .setPersistableNetworkPayloadList(PB.PersistableNetworkPayloadList.newBuilder()
+                                .addAllItems(payloads.stream()
+                                        .map(PersistableNetworkPayload::toProtoMessage)
+                                        .collect(Collectors.toList())))
+                        .build());
+    }
+
+    @Override
+    public void mergeChunk(PersistableEnvelope chunk) {
+        map.putAll(((PersistableNetworkPayloadCollection) chunk).getMap());
+    }
+
+    // The payloads are immutable and we never remove them
+    @Override
+    public boolean canBeChunkedConcurrently() {
+        return true;
+    }
+
     public static PersistableEnvelope fromProto(PB.PersistableNetworkPayloadList proto,
                                                 PersistenceProtoResolver resolver) {
         Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new HashMap<>();
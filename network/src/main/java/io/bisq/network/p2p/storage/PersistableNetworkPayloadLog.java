@@ -0,0 +1,335 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of PersistableNetworkPayloads which have been added after the PersistableNetworkPayloadMap
+ * snapshot (the one we copy from the resources) was written. Instead of rewriting the whole snapshot for each new
+ * payload we append one record to the active segment file.
+ * <p/>
+ * Record format: varint length, 4 bytes CRC32 of the data, data (serialized PB.PersistableNetworkPayload).
+ * At startup we read all segments. A torn or corrupted record at the end of a segment (crash during a write) is
+ * truncated. If there are too many segments or records which are duplicated in an other segment we compact the
+ * closed segments into one. Records we cannot parse (e.g. a payload type added by a newer version) are kept as they
+ * are.
+ * <p/>
+ * Writes are done at a single background thread. The PersistableNetworkPayloadCollection map serves as hash index,
+ * P2PDataStorage only appends payloads which are not in the map yet.
+ */
+@Slf4j
+class PersistableNetworkPayloadLog {
+    private static final String DIR_NAME = "PersistableNetworkPayloadLog";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final long MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_CLOSED_SEGMENTS = 8;
+    // Protects against allocating huge buffers from a corrupted length field
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private final File dir;
+    private final PersistenceProtoResolver persistenceProtoResolver;
+    private final long maxSegmentSize;
+    private final ExecutorService executor;
+
+    // Accessed only from the executor thread after init
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private FileChannel activeChannel;
+    private long activeSegmentId;
+    private int numDuplicateRecords;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PersistableNetworkPayloadLog(File storageDir, PersistenceProtoResolver persistenceProtoResolver) {
+        this(storageDir, persistenceProtoResolver, MAX_SEGMENT_SIZE);
+    }
+
+    @VisibleForTesting
+    PersistableNetworkPayloadLog(File storageDir, PersistenceProtoResolver persistenceProtoResolver, long maxSegmentSize) {
+        this.dir = new File(storageDir, DIR_NAME);
+        this.persistenceProtoResolver = persistenceProtoResolver;
+        this.maxSegmentSize = maxSegmentSize;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("PersistableNetworkPayloadLog")
+                .setDaemon(true)
+                .build());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called once at startup before any append. Passes all payloads of the log to the consumer.
+    synchronized void readAll(Consumer<PersistableNetworkPayload> consumer) {
+        if (!dir.exists() && !dir.mkdirs())
+            log.warn("make dir failed.\ndir=" + dir.getAbsolutePath());
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    segments.put(Long.parseLong(file.getName().replace(SEGMENT_SUFFIX, "")), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Unexpected file in " + dir + ": " + file.getName());
+                }
+            }
+        }
+
+        int numRecords = 0;
+        Set<P2PDataStorage.ByteArray> keys = new HashSet<>();
+        for (File segment : segments.values()) {
+            numRecords += readSegment(segment, data -> {
+                try {
+                    PersistableNetworkPayload payload = PersistableNetworkPayload.fromProto(
+                            PB.PersistableNetworkPayload.parseFrom(data), persistenceProtoResolver);
+                    if (keys.add(new P2PDataStorage.ByteArray(payload.getHash())))
+                        consumer.accept(payload);
+                    else
+                        numDuplicateRecords++;
+                } catch (Throwable t) {
+                    // Not a duplicate, compaction keeps the record
+                    log.warn("Could not parse record. " + t.toString());
+                }
+            });
+        }
+        log.info("Read {} records from {} segments of the PersistableNetworkPayloadLog. numDuplicateRecords={}",
+                numRecords, segments.size(), numDuplicateRecords);
+
+        executor.execute(() -> {
+            try {
+                openActiveSegment();
+                maybeCompact();
+            } catch (IOException e) {
+                log.error("Could not open PersistableNetworkPayloadLog. " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Called from UserThread
+    void append(PersistableNetworkPayload payload) {
+        byte[] data = payload.toProtoMessage().toByteArray();
+        executor.execute(() -> {
+            try {
+                if (activeChannel == null)
+                    openActiveSegment();
+
+                writeRecord(activeChannel, data);
+                if (activeChannel.size() >= maxSegmentSize) {
+                    activeChannel.force(true);
+                    activeChannel.close();
+                    activeChannel = null;
+                    activeSegmentId++;
+                    openActiveSegment();
+                    maybeCompact();
+                }
+            } catch (IOException e) {
+                log.error("Could not append to PersistableNetworkPayloadLog. " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    void shutDown() {
+        executor.execute(() -> {
+            try {
+                if (activeChannel != null) {
+                    activeChannel.force(true);
+                    activeChannel.close();
+                    activeChannel = null;
+                }
+            } catch (IOException e) {
+                log.warn("Could not close PersistableNetworkPayloadLog. " + e.getMessage());
+            }
+        });
+        MoreExecutors.shutdownAndAwaitTermination(executor, 5, TimeUnit.SECONDS);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void openActiveSegment() throws IOException {
+        if (segments.isEmpty()) {
+            activeSegmentId = 1;
+        } else if (activeSegmentId <= segments.lastKey()) {
+            activeSegmentId = segments.lastKey();
+        }
+        File file = getSegmentFile(activeSegmentId);
+        segments.put(activeSegmentId, file);
+        activeChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Merges all closed segments into the first one if we have too many of them or duplicate records
+    private void maybeCompact() {
+        SortedMap<Long, File> closedSegments = segments.headMap(activeSegmentId);
+        if (closedSegments.size() <= 1 ||
+                (closedSegments.size() <= MAX_CLOSED_SEGMENTS && numDuplicateRecords == 0))
+            return;
+
+        long ts = System.currentTimeMillis();
+        long targetId = closedSegments.firstKey();
+        File tempFile = new File(dir, "compact.tmp");
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Set<P2PDataStorage.ByteArray> keys = new HashSet<>();
+            // We don't know the hash of records we cannot parse, so we dedupe them by their data
+            Set<P2PDataStorage.ByteArray> unparsedRecords = new HashSet<>();
+            for (File segment : closedSegments.values()) {
+                readSegment(segment, data -> {
+                    P2PDataStorage.ByteArray key;
+                    try {
+                        key = new P2PDataStorage.ByteArray(PersistableNetworkPayload.fromProto(
+                                PB.PersistableNetworkPayload.parseFrom(data), persistenceProtoResolver).getHash());
+                    } catch (Throwable t) {
+                        key = null;
+                    }
+
+                    try {
+                        if (key != null ? keys.add(key) : unparsedRecords.add(new P2PDataStorage.ByteArray(data)))
+                            writeRecord(channel, data);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            channel.force(true);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Compaction of PersistableNetworkPayloadLog failed. " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            // If we crash after the move the remaining segments only contain duplicates, which get removed at the
+            // next compaction.
+            Files.move(tempFile.toPath(), getSegmentFile(targetId).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            List<Long> merged = new ArrayList<>(closedSegments.keySet());
+            merged.stream()
+                    .filter(id -> id != targetId)
+                    .forEach(id -> {
+                        File file = segments.remove(id);
+                        if (!file.delete())
+                            log.warn("Could not delete segment " + file);
+                    });
+            numDuplicateRecords = 0;
+            log.info("Compacted {} segments of the PersistableNetworkPayloadLog in {} ms", merged.size(),
+                    System.currentTimeMillis() - ts);
+        } catch (IOException e) {
+            log.error("Could not replace segment at compaction. " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private File getSegmentFile(long id) {
+        return new File(dir, String.format("%012d", id) + SEGMENT_SUFFIX);
+    }
+
+    private static void writeRecord(FileChannel channel, byte[] data) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        ByteBuffer buffer = ByteBuffer.allocate(5 + 4 + data.length);
+        int length = data.length;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        buffer.putInt((int) crc32.getValue());
+        buffer.put(data);
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    // Returns the number of valid records. If the segment ends with an incomplete or corrupted record (e.g. we
+    // crashed during a write) we truncate it after the last valid record.
+    private static int readSegment(File segment, Consumer<byte[]> recordConsumer) {
+        int numRecords = 0;
+        long validLength = 0;
+        boolean corrupted = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            while (true) {
+                int length = 0;
+                int shift = 0;
+                int varIntSize = 0;
+                int b;
+                do {
+                    b = in.read();
+                    if (b == -1) {
+                        corrupted = varIntSize > 0;
+                        return numRecords;
+                    }
+                    length |= (b & 0x7F) << shift;
+                    shift += 7;
+                    varIntSize++;
+                } while ((b & 0x80) != 0 && shift < 35);
+
+                if ((b & 0x80) != 0 || length < 0 || length > MAX_RECORD_SIZE) {
+                    log.warn("Invalid record length {} in segment {}.", length, segment);
+                    corrupted = true;
+                    return numRecords;
+                }
+
+                int crc = in.readInt();
+                byte[] data = new byte[length];
+                in.readFully(data);
+                CRC32 crc32 = new CRC32();
+                crc32.update(data);
+                if ((int) crc32.getValue() != crc) {
+                    log.warn("CRC mismatch in segment {}.", segment);
+                    corrupted = true;
+                    return numRecords;
+                }
+
+                validLength += varIntSize + 4 + length;
+                recordConsumer.accept(data);
+                numRecords++;
+            }
+        } catch (EOFException e) {
+            corrupted = true;
+            return numRecords;
+        } catch (IOException e) {
+            log.error("Could not read segment {}. {}", segment, e.getMessage());
+            return numRecords;
+        } finally {
+            if (corrupted)
+                truncate(segment, validLength);
+        }
+    }
+
+    private static void truncate(File segment, long validLength) {
+        log.warn("Segment {} ends with an incomplete or corrupted record. We truncate it from {} to {} bytes.",
+                segment, segment.length(), validLength);
+        try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+            channel.force(true);
+        } catch (IOException e) {
+            log.error("Could not truncate segment {}. {}", segment, e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,14 @@ package io.bisq.network.p2p.storage;
 
 import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 
+import java.util.Collection;
+
 public interface PersistableNetworkPayloadMapListener {
     void onAdded(PersistableNetworkPayload payload);
+
+    // Called once with all payloads we have loaded at startup. The payloads get deserialized when accessed, so
+    // listeners which are only interested in some of them should override it and not iterate all.
+    default void onInitialSet(Collection<PersistableNetworkPayload> payloads) {
+        payloads.forEach(this::onAdded);
+    }
 }
@@ -0,0 +1,87 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import io.bisq.network.p2p.storage.payload.ProtectedStoragePayload;
+import io.bisq.network.p2p.storage.payload.RequiresOwnerIsOnlinePayload;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes of the ProtectedStorageEntries in the P2PDataStorage map, by payload class and by the owner
+ * node address of RequiresOwnerIsOnlinePayloads. Updated by P2PDataStorage at each put and remove, so lookups don't
+ * need to iterate the whole map.
+ */
+class ProtectedStorageEntryIndex {
+    private final Map<Class<? extends ProtectedStoragePayload>, Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> byPayloadClass = new ConcurrentHashMap<>();
+    private final Map<NodeAddress, Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> byOwnerNodeAddress = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Update
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void put(P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry entry) {
+        ProtectedStoragePayload payload = entry.getProtectedStoragePayload();
+        byPayloadClass.computeIfAbsent(payload.getClass(), k -> new ConcurrentHashMap<>()).put(hashOfPayload, entry);
+
+        NodeAddress ownerNodeAddress = getOwnerNodeAddress(payload);
+        if (ownerNodeAddress != null)
+            byOwnerNodeAddress.computeIfAbsent(ownerNodeAddress, k -> new ConcurrentHashMap<>()).put(hashOfPayload, entry);
+    }
+
+    void remove(P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry entry) {
+        ProtectedStoragePayload payload = entry.getProtectedStoragePayload();
+        removeFromIndex(byPayloadClass, payload.getClass(), hashOfPayload);
+
+        NodeAddress ownerNodeAddress = getOwnerNodeAddress(payload);
+        if (ownerNodeAddress != null)
+            removeFromIndex(byOwnerNodeAddress, ownerNodeAddress, hashOfPayload);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Query
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Includes entries with payloads of subclasses of payloadClass
+    List<ProtectedStorageEntry> getEntriesByPayloadClass(Class<? extends ProtectedStoragePayload> payloadClass) {
+        List<ProtectedStorageEntry> result = new ArrayList<>();
+        byPayloadClass.forEach((clazz, entries) -> {
+            if (payloadClass.isAssignableFrom(clazz))
+                result.addAll(entries.values());
+        });
+        return result;
+    }
+
+    Collection<ProtectedStorageEntry> getEntriesByOwnerNodeAddress(NodeAddress ownerNodeAddress) {
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> entries = byOwnerNodeAddress.get(ownerNodeAddress);
+        return entries != null ? new ArrayList<>(entries.values()) : Collections.emptyList();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static <K> void removeFromIndex(Map<K, Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> index,
+                                            K key,
+                                            P2PDataStorage.ByteArray hashOfPayload) {
+        // We remove empty buckets so the index does not grow with the number of peers we have ever seen
+        index.computeIfPresent(key, (k, entries) -> {
+            entries.remove(hashOfPayload);
+            return entries.isEmpty() ? null : entries;
+        });
+    }
+
+    private static NodeAddress getOwnerNodeAddress(ProtectedStoragePayload payload) {
+        return payload instanceof RequiresOwnerIsOnlinePayload ?
+                ((RequiresOwnerIsOnlinePayload) payload).getOwnerNodeAddress() :
+                null;
+    }
+}
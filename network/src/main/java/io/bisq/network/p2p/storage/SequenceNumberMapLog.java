@@ -0,0 +1,200 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.Storage;
+import io.bisq.generated.protobuffer.PB;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persists the SequenceNumberMap as snapshot plus a write-ahead log of the updates since the snapshot was written.
+ * Previously each update cloned the whole map at the UserThread and wrote the whole file again.
+ * <p/>
+ * Each update is appended as delimited PB.SequenceNumberEntry to the delta file at a background thread. The writer
+ * keeps its own copy of the map which gets compacted (purged and written as new snapshot) after MAX_DELTAS updates
+ * or when requested. The delta file is truncated only after the snapshot was written successfully, so a crash in
+ * between only leads to replaying updates which are in the snapshot already.
+ */
+@Slf4j
+class SequenceNumberMapLog {
+    private static final String DELTA_FILE_NAME = "SequenceNumberMapDeltas";
+    private static final int MAX_DELTAS = 10_000;
+
+    private final File deltaFile;
+    private final Storage<SequenceNumberMap> snapshotStorage;
+    private final UnaryOperator<Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue>> purger;
+    private final ExecutorService executor;
+
+    // Accessed only from the executor thread after read
+    private final Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = new HashMap<>();
+    private FileOutputStream deltaOutputStream;
+    private int numDeltas;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SequenceNumberMapLog(File storageDir,
+                         PersistenceProtoResolver persistenceProtoResolver,
+                         UnaryOperator<Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue>> purger) {
+        this.deltaFile = new File(storageDir, DELTA_FILE_NAME);
+        this.purger = purger;
+        snapshotStorage = new Storage<>(storageDir, persistenceProtoResolver);
+        snapshotStorage.setNumMaxBackupFiles(5);
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("SequenceNumberMapLog")
+                .setDaemon(true)
+                .build());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called once at startup. Returns the purged map of the snapshot with all deltas applied.
+    Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> read() {
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> result = new HashMap<>();
+        SequenceNumberMap snapshot = snapshotStorage.initAndGetPersisted(new SequenceNumberMap(), 300);
+        if (snapshot != null)
+            result.putAll(snapshot.getMap());
+
+        int numReplayed = readDeltas(result);
+        log.info("Read SequenceNumberMap snapshot with {} entries and {} deltas", snapshot != null ? snapshot.size() : 0,
+                numReplayed);
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> purged = purger.apply(result);
+
+        executor.execute(() -> {
+            map.putAll(purged);
+            numDeltas = numReplayed;
+            try {
+                deltaOutputStream = new FileOutputStream(deltaFile, true);
+            } catch (IOException e) {
+                log.error("Could not open " + deltaFile + ". " + e.getMessage());
+                e.printStackTrace();
+            }
+            // Snapshot and deltas are merged in memory anyway, so we write them as new snapshot
+            if (numDeltas > 0 || purged.size() != result.size())
+                doCompact();
+        });
+        return purged;
+    }
+
+    // Called from UserThread
+    void put(P2PDataStorage.ByteArray hash, P2PDataStorage.MapValue mapValue) {
+        PB.SequenceNumberEntry entry = PB.SequenceNumberEntry.newBuilder()
+                .setBytes(hash.toProtoMessage())
+                .setMapValue(mapValue.toProtoMessage())
+                .build();
+        executor.execute(() -> {
+            map.put(hash, mapValue);
+            try {
+                if (deltaOutputStream == null)
+                    deltaOutputStream = new FileOutputStream(deltaFile, true);
+                entry.writeDelimitedTo(deltaOutputStream);
+            } catch (IOException e) {
+                log.error("Could not write to " + deltaFile + ". " + e.getMessage());
+                e.printStackTrace();
+            }
+            // If a compaction failed we keep the deltas and try again after the next MAX_DELTAS updates
+            if (++numDeltas % MAX_DELTAS == 0)
+                doCompact();
+        });
+    }
+
+    void compact() {
+        executor.execute(() -> {
+            if (numDeltas > 0)
+                doCompact();
+        });
+    }
+
+    void shutDown() {
+        executor.execute(() -> {
+            try {
+                if (deltaOutputStream != null) {
+                    deltaOutputStream.getFD().sync();
+                    deltaOutputStream.close();
+                    deltaOutputStream = null;
+                }
+            } catch (IOException e) {
+                log.warn("Could not close " + deltaFile + ". " + e.getMessage());
+            }
+        });
+        MoreExecutors.shutdownAndAwaitTermination(executor, 5, TimeUnit.SECONDS);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void doCompact() {
+        long ts = System.currentTimeMillis();
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> purged = purger.apply(map);
+        int numPurged = map.size() - purged.size();
+        map.clear();
+        map.putAll(purged);
+
+        SequenceNumberMap snapshot = new SequenceNumberMap();
+        snapshot.setMap(purged);
+        if (!snapshotStorage.saveNow(snapshot)) {
+            // The deltas are still needed to restore the map from the old snapshot
+            log.error("Could not write SequenceNumberMap snapshot. We keep the {} deltas.", numDeltas);
+            return;
+        }
+
+        try {
+            if (deltaOutputStream != null)
+                deltaOutputStream.close();
+            // Truncates the file
+            deltaOutputStream = new FileOutputStream(deltaFile, false);
+            numDeltas = 0;
+            log.info("Compacted SequenceNumberMap in {} ms. size={}, numPurged={}", System.currentTimeMillis() - ts,
+                    map.size(), numPurged);
+        } catch (IOException e) {
+            log.error("Could not truncate " + deltaFile + ". " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Returns the number of applied deltas. A torn record at the end (crash during a write) is truncated.
+    private int readDeltas(Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> result) {
+        if (!deltaFile.exists())
+            return 0;
+
+        int numReplayed = 0;
+        long validLength = 0;
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(deltaFile)))) {
+            PB.SequenceNumberEntry entry;
+            while ((entry = PB.SequenceNumberEntry.parseDelimitedFrom(in)) != null) {
+                result.put(P2PDataStorage.ByteArray.fromProto(entry.getBytes()),
+                        P2PDataStorage.MapValue.fromProto(entry.getMapValue()));
+                validLength = in.getCount();
+                numReplayed++;
+            }
+        } catch (IOException e) {
+            log.warn("Could not read all deltas of {}. We truncate it from {} to {} bytes. {}",
+                    deltaFile, deltaFile.length(), validLength, e.getMessage());
+            try (FileChannel channel = FileChannel.open(deltaFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            } catch (IOException e2) {
+                log.error("Could not truncate " + deltaFile + ". " + e2.getMessage());
+            }
+        }
+        return numReplayed;
+    }
+}
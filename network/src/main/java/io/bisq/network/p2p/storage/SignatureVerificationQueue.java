@@ -0,0 +1,284 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.UserThread;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Verifies the signatures of incoming AddDataMessages and RefreshOfferMessages on a small worker pool instead of the
+ * UserThread. After a reconnect or on seed nodes we get hundreds of those messages at once and the DSA verification
+ * (plus the serialisation for the hash of the DataAndSeqNrPair) would block the UserThread.
+ * <p/>
+ * Requests for the same payload hash, sequence number and type as a pending request are only verified if the pending
+ * one turns out to be invalid, otherwise they are dropped without any crypto. So a copy with an invalid signature
+ * which arrives first cannot suppress the valid message. The results are applied at the UserThread in the order the
+ * requests have been submitted, so the storage sees the same order as without the queue. Removes are verified by the
+ * storage against the stored entry, but they pass the queue as well, so they cannot overtake a pending add of the same
+ * data. As we don't know the result of their verification they are never deduplicated.
+ */
+@Slf4j
+public class SignatureVerificationQueue {
+    // If we are flooded beyond that we drop the messages. We will get the data again at the next data request or
+    // from other peers.
+    private static final int MAX_PENDING = 10_000;
+    private static final int NUM_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    public enum Type {
+        ADD,
+        REFRESH,
+        REMOVE
+    }
+
+    @EqualsAndHashCode
+    private static final class Key {
+        private final Type type;
+        private final P2PDataStorage.ByteArray hashOfPayload;
+        private final int sequenceNumber;
+
+        Key(Type type, P2PDataStorage.ByteArray hashOfPayload, int sequenceNumber) {
+            this.type = type;
+            this.hashOfPayload = hashOfPayload;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+
+    private static final class Request {
+        private final Key key;
+        private final Supplier<Boolean> verification;
+        private final Consumer<Boolean> resultHandler;
+        private final long submitTimeNanos = System.nanoTime();
+        private volatile boolean done;
+        private volatile boolean result;
+        // Duplicate of a valid request, we don't call its handler
+        private volatile boolean dropped;
+        // Requests with the same key which wait for our result. Guarded by pending.
+        private final List<Request> duplicates = new ArrayList<>();
+
+        Request(Key key, Supplier<Boolean> verification, Consumer<Boolean> resultHandler) {
+            this.key = key;
+            this.verification = verification;
+            this.resultHandler = resultHandler;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+    // The pending request of each key which gets verified, later requests with the same key wait for its result
+    private final Map<Key, Request> pendingByKey = new HashMap<>();
+
+    // Metrics
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong numVerified = new AtomicLong();
+    private final AtomicLong numDeduplicated = new AtomicLong();
+    private final AtomicLong numDropped = new AtomicLong();
+    private final AtomicLong totalVerifyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public SignatureVerificationQueue() {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("SignatureVerification-%d")
+                        .setDaemon(true)
+                        .build());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from UserThread, might be called from several lanes of a ShardedExecutor in parallel.
+    // The verification is executed at a worker thread so it must not access any state of the storage.
+    // The resultHandler is called at the UserThread.
+    public void submit(Type type,
+                       P2PDataStorage.ByteArray hashOfPayload,
+                       int sequenceNumber,
+                       Supplier<Boolean> verification,
+                       Consumer<Boolean> resultHandler) {
+        Key key = new Key(type, hashOfPayload, sequenceNumber);
+        Request request = new Request(key, verification, resultHandler);
+        synchronized (pending) {
+            Request pendingRequest = pendingByKey.get(key);
+            if (pendingRequest != null && pendingRequest.done && pendingRequest.result) {
+                log.trace("We have a valid request for that data and sequence number pending already. type={}, sequenceNumber={}",
+                        type, sequenceNumber);
+                numDeduplicated.incrementAndGet();
+                return;
+            }
+            if (pending.size() >= MAX_PENDING) {
+                if (numDropped.incrementAndGet() % 1000 == 1)
+                    log.warn("Too many pending signature verifications. We drop the message. queueDepth={}", pending.size());
+                return;
+            }
+            pending.add(request);
+            queueDepth.set(pending.size());
+            if (pendingRequest != null && !pendingRequest.done) {
+                pendingRequest.duplicates.add(request);
+                return;
+            }
+            pendingByKey.put(key, request);
+        }
+
+        verify(request);
+    }
+
+    // Called from UserThread, might be called from several lanes of a ShardedExecutor in parallel.
+    // The handler is called at the UserThread once all requests submitted before have been applied. We don't drop
+    // those requests if we are flooded as a lost remove would leave the data in our storage until it expires.
+    public void submitInOrder(Type type,
+                              P2PDataStorage.ByteArray hashOfPayload,
+                              int sequenceNumber,
+                              Runnable handler) {
+        Request request = new Request(new Key(type, hashOfPayload, sequenceNumber), null, isValid -> handler.run());
+        request.result = true;
+        request.done = true;
+        synchronized (pending) {
+            pending.add(request);
+            queueDepth.set(pending.size());
+        }
+
+        UserThread.execute(this::applyCompletedRequests);
+    }
+
+    public void shutDown() {
+        MoreExecutors.shutdownAndAwaitTermination(executor, 500, TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getNumVerified() {
+        return numVerified.get();
+    }
+
+    public long getNumDeduplicated() {
+        return numDeduplicated.get();
+    }
+
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+
+    // Time spent in Sig.verify and hashing
+    public double getAverageVerifyTimeMs() {
+        long num = numVerified.get();
+        return num > 0 ? totalVerifyNanos.get() / (double) num / 1_000_000 : 0;
+    }
+
+    // Time from submitting until the verification is done, including the waiting time in the queue
+    public double getAverageLatencyMs() {
+        long num = numVerified.get();
+        return num > 0 ? totalLatencyNanos.get() / (double) num / 1_000_000 : 0;
+    }
+
+    public double getMaxLatencyMs() {
+        return maxLatencyNanos.get() / 1_000_000d;
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureVerificationQueue{" +
+                "queueDepth=" + getQueueDepth() +
+                ", numVerified=" + getNumVerified() +
+                ", numDeduplicated=" + getNumDeduplicated() +
+                ", numDropped=" + getNumDropped() +
+                ", averageVerifyTimeMs=" + String.format("%.2f", getAverageVerifyTimeMs()) +
+                ", averageLatencyMs=" + String.format("%.2f", getAverageLatencyMs()) +
+                ", maxLatencyMs=" + String.format("%.2f", getMaxLatencyMs()) +
+                '}';
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void verify(Request request) {
+        executor.execute(() -> {
+            long startNanos = System.nanoTime();
+            boolean result;
+            try {
+                result = request.verification.get();
+            } catch (Throwable t) {
+                log.error("Exception at signature verification. " + t.toString());
+                result = false;
+            }
+            long now = System.nanoTime();
+            totalVerifyNanos.addAndGet(now - startNanos);
+            long latency = now - request.submitTimeNanos;
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            numVerified.incrementAndGet();
+
+            Request nextRequest = null;
+            synchronized (pending) {
+                request.result = result;
+                request.done = true;
+                if (!request.duplicates.isEmpty()) {
+                    if (result) {
+                        request.duplicates.forEach(duplicate -> {
+                            duplicate.dropped = true;
+                            duplicate.done = true;
+                        });
+                        numDeduplicated.addAndGet(request.duplicates.size());
+                    } else {
+                        // The next duplicate gets verified, the others wait for its result
+                        nextRequest = request.duplicates.remove(0);
+                        nextRequest.duplicates.addAll(request.duplicates);
+                        pendingByKey.put(request.key, nextRequest);
+                    }
+                    request.duplicates.clear();
+                }
+            }
+            if (nextRequest != null)
+                verify(nextRequest);
+
+            UserThread.execute(this::applyCompletedRequests);
+        });
+    }
+
+    // We only apply the results from the head of the queue to keep the order of the submitted requests
+    private void applyCompletedRequests() {
+        List<Request> completed = new ArrayList<>();
+        synchronized (pending) {
+            while (!pending.isEmpty() && pending.peek().done) {
+                Request request = pending.poll();
+                if (pendingByKey.get(request.key) == request)
+                    pendingByKey.remove(request.key);
+                if (!request.dropped)
+                    completed.add(request);
+            }
+            queueDepth.set(pending.size());
+        }
+        completed.forEach(request -> {
+            try {
+                request.resultHandler.accept(request.result);
+            } catch (Throwable t) {
+                log.error("Exception at applying signature verification result. " + t.toString());
+                t.printStackTrace();
+            }
+        });
+    }
+}
@@ -104,6 +104,10 @@ public class ProtectedStorageEntry implements NetworkPayload, PersistablePayload
         this.signature = signature;
     }
 
+    public long getExpirationTimeStamp() {
+        return creationTimeStamp + protectedStoragePayload.getTTL();
+    }
+
     public boolean isExpired() {
         return (System.currentTimeMillis() - creationTimeStamp) > protectedStoragePayload.getTTL();
     }
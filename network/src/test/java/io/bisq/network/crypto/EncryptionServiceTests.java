@@ -18,27 +18,40 @@
 package io.bisq.network.crypto;
 
 
+import io.bisq.common.Payload;
 import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.Encryption;
 import io.bisq.common.crypto.KeyRing;
 import io.bisq.common.crypto.KeyStorage;
 import io.bisq.common.crypto.PubKeyRing;
+import io.bisq.common.crypto.SealedAndSigned;
 import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.DecryptedMessageWithPubKey;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.crypto.SecretKey;
 import java.io.File;
 import java.io.IOException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Security;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
 
 public class EncryptionServiceTests {
     private static final Logger log = LoggerFactory.getLogger(EncryptionServiceTests.class);
@@ -68,6 +81,43 @@ public class EncryptionServiceTests {
         FileUtil.deleteDirectory(dir);
     }
 
+    @Test
+    public void testSessionKeyIsReused() throws CryptoException {
+        EncryptionService encryptionService = new EncryptionService(keyRing, new PingProtoResolver());
+        SealedAndSigned sealedAndSigned1 = encryptionService.encryptAndSign(pubKeyRing, new Ping(1, 0), true);
+        SealedAndSigned sealedAndSigned2 = encryptionService.encryptAndSign(pubKeyRing, new Ping(2, 0), true);
+        assertArrayEquals(sealedAndSigned1.getEncryptedSecretKey(), sealedAndSigned2.getEncryptedSecretKey());
+        assertFalse(Arrays.equals(sealedAndSigned1.getIv(), sealedAndSigned2.getIv()));
+
+        DecryptedMessageWithPubKey decrypted1 = encryptionService.decryptAndVerify(
+                SealedAndSigned.fromProto(sealedAndSigned1.toProtoMessage()));
+        DecryptedMessageWithPubKey decrypted2 = encryptionService.decryptAndVerify(sealedAndSigned2);
+        assertEquals(1, ((Ping) decrypted1.getNetworkEnvelope()).getNonce());
+        assertEquals(2, ((Ping) decrypted2.getNetworkEnvelope()).getNonce());
+
+        // Without session key we use a fresh secret key for each message
+        SealedAndSigned sealedAndSigned3 = encryptionService.encryptAndSign(pubKeyRing, new Ping(3, 0), false);
+        assertNull(sealedAndSigned3.getIv());
+        assertFalse(Arrays.equals(sealedAndSigned1.getEncryptedSecretKey(), sealedAndSigned3.getEncryptedSecretKey()));
+        assertEquals(3, ((Ping) encryptionService.decryptAndVerify(sealedAndSigned3).getNetworkEnvelope()).getNonce());
+    }
+
+    @Test
+    public void testTamperedSessionPayloadIsRejected() throws CryptoException {
+        SecretKey secretKey = Encryption.generateSecretKey();
+        byte[] nonce = Encryption.generateSessionNonce();
+        byte[] payload = "test".getBytes();
+        byte[] encryptedPayload = Encryption.encryptSessionPayload(payload, secretKey, nonce);
+        assertArrayEquals(payload, Encryption.decryptSessionPayload(encryptedPayload, secretKey, nonce));
+
+        encryptedPayload[0] ^= 1;
+        try {
+            Encryption.decryptSessionPayload(encryptedPayload, secretKey, nonce);
+            fail("Expected CryptoException");
+        } catch (CryptoException expected) {
+        }
+    }
+
     //TODO Use NetworkProtoResolver, PersistenceProtoResolver or ProtoResolver which are all in io.bisq.common. 
 /*
     @Test
@@ -117,6 +167,33 @@ public class EncryptionServiceTests {
         log.trace("took " + (System.currentTimeMillis() - ts) + " ms.");
     }*/
 
+    private static class PingProtoResolver implements NetworkProtoResolver {
+        @Override
+        public NetworkEnvelope fromProto(PB.NetworkEnvelope proto) {
+            return Ping.fromProto(proto.getPing(), proto.getMessageVersion());
+        }
+
+        @Override
+        public NetworkPayload fromProto(PB.StoragePayload proto) {
+            return null;
+        }
+
+        @Override
+        public NetworkPayload fromProto(PB.StorageEntryWrapper proto) {
+            return null;
+        }
+
+        @Override
+        public Payload fromProto(PB.PaymentAccountPayload proto) {
+            return null;
+        }
+
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+            return null;
+        }
+    }
+
     private static class MockMessage extends NetworkEnvelope {
         public final int nonce;
 
@@ -0,0 +1,117 @@
+package io.bisq.network.p2p;
+
+import io.bisq.common.UserThread;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MailboxMessageProcessorTest {
+    private final NodeAddress myNodeAddress = new NodeAddress("myaddress.onion:8000");
+    private final NodeAddress otherNodeAddress = new NodeAddress("otheraddress.onion:8000");
+    private KeyPair keyPair;
+    private Executor userThreadExecutor;
+    private ExecutorService userThread;
+    private MailboxMessageProcessor processor;
+
+    @Before
+    public void setup() throws NoSuchAlgorithmException {
+        keyPair = KeyPairGenerator.getInstance("DSA").generateKeyPair();
+        userThreadExecutor = UserThread.getExecutor();
+        userThread = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(userThread);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        userThread.submit(() -> processor.shutDown());
+        userThread.shutdown();
+        userThread.awaitTermination(1, TimeUnit.SECONDS);
+        UserThread.setExecutor(userThreadExecutor);
+    }
+
+    @Test
+    public void testOnlyCandidatesAreDecryptedAndDeliveredInOrder() throws InterruptedException {
+        int numCandidates = 30;
+        Map<SealedAndSigned, Integer> indexBySealedAndSigned = new HashMap<>();
+        List<ProtectedMailboxStorageEntry> entries = new ArrayList<>();
+        for (int i = 0; i < numCandidates; i++) {
+            ProtectedMailboxStorageEntry entry = getEntry(myNodeAddress);
+            indexBySealedAndSigned.put(getSealedAndSigned(entry), i);
+            entries.add(entry);
+            entries.add(getEntry(otherNodeAddress));
+        }
+
+        AtomicInteger numDecryptions = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(numCandidates);
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        processor = new MailboxMessageProcessor(sealedAndSigned -> {
+            numDecryptions.incrementAndGet();
+            int index = indexBySealedAndSigned.get(sealedAndSigned);
+            // Let earlier entries finish later
+            sleep(numCandidates - index);
+            if (index % 3 == 0)
+                throw new CryptoException("Not for us");
+            return new DecryptedMessageWithPubKey(null, keyPair.getPublic());
+        }, myNodeAddress::getAddressPrefixHash, (entry, decryptedMessageWithPubKey) -> {
+            delivered.add(indexBySealedAndSigned.get(getSealedAndSigned(entry)));
+            latch.countDown();
+        });
+
+        userThread.execute(() -> {
+            entries.forEach(processor::add);
+            // The failed decryptions are not delivered
+            for (int i = 0; i < numCandidates; i += 3)
+                latch.countDown();
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(numCandidates, numDecryptions.get());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < numCandidates; i++) {
+            if (i % 3 != 0)
+                expected.add(i);
+        }
+        assertEquals(expected, delivered);
+    }
+
+    private ProtectedMailboxStorageEntry getEntry(NodeAddress receiverNodeAddress) {
+        SealedAndSigned sealedAndSigned = new SealedAndSigned(RandomUtils.nextBytes(10), RandomUtils.nextBytes(10),
+                RandomUtils.nextBytes(10), keyPair.getPublic());
+        PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = new PrefixedSealedAndSignedMessage(
+                otherNodeAddress, sealedAndSigned, receiverNodeAddress.getAddressPrefixHash(), UUID.randomUUID().toString());
+        MailboxStoragePayload mailboxStoragePayload = new MailboxStoragePayload(prefixedSealedAndSignedMessage,
+                keyPair.getPublic(), keyPair.getPublic());
+        return new ProtectedMailboxStorageEntry(mailboxStoragePayload, keyPair.getPublic(), 1,
+                RandomUtils.nextBytes(10), keyPair.getPublic());
+    }
+
+    private static SealedAndSigned getSealedAndSigned(ProtectedMailboxStorageEntry entry) {
+        return entry.getMailboxStoragePayload().getPrefixedSealedAndSignedMessage().getSealedAndSigned();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignore) {
+        }
+    }
+}
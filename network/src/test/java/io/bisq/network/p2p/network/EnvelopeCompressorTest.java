@@ -0,0 +1,99 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.generated.protobuffer.PB;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EnvelopeCompressorTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        PB.NetworkEnvelope proto = getGetDataResponse(200);
+        PB.NetworkEnvelope compressed = EnvelopeCompressor.compress(proto);
+        assertEquals(PB.NetworkEnvelope.MessageCase.COMPRESSED_ENVELOPE, compressed.getMessageCase());
+        assertEquals(proto.getSerializedSize(), compressed.getCompressedEnvelope().getUncompressedSize());
+        assertTrue(compressed.getSerializedSize() < proto.getSerializedSize() / 2);
+
+        assertEquals(proto, EnvelopeCompressor.decompress(compressed.getCompressedEnvelope(),
+                Connection.MAX_PERMITTED_MESSAGE_SIZE));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testRejectUncompressedSizeAboveLimit() throws IOException {
+        PB.NetworkEnvelope proto = getGetDataResponse(200);
+        PB.NetworkEnvelope compressed = EnvelopeCompressor.compress(proto);
+        EnvelopeCompressor.decompress(compressed.getCompressedEnvelope(), proto.getSerializedSize() - 1);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testRejectWrongUncompressedSize() throws IOException {
+        PB.NetworkEnvelope proto = getGetDataResponse(10);
+        PB.NetworkEnvelope compressed = EnvelopeCompressor.compress(proto);
+        // A declared size within the limit must not be trusted for the allocation
+        EnvelopeCompressor.decompress(compressed.getCompressedEnvelope().toBuilder()
+                .setUncompressedSize(Connection.MAX_PERMITTED_MESSAGE_SIZE)
+                .build(), Connection.MAX_PERMITTED_MESSAGE_SIZE);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testRejectInflatedDataAboveLimit() throws IOException {
+        PB.NetworkEnvelope proto = getGetDataResponse(200);
+        PB.NetworkEnvelope compressed = EnvelopeCompressor.compress(proto);
+        // The declared size is below the limit but the data inflates beyond it
+        EnvelopeCompressor.decompress(compressed.getCompressedEnvelope().toBuilder()
+                .setUncompressedSize(100)
+                .build(), proto.getSerializedSize() - 1);
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testRejectUnknownDictionaryVersion() throws IOException {
+        PB.NetworkEnvelope compressed = EnvelopeCompressor.compress(getGetDataResponse(10));
+        EnvelopeCompressor.decompress(compressed.getCompressedEnvelope().toBuilder()
+                .setDictionaryVersion(EnvelopeCompressor.DICTIONARY_VERSION + 1)
+                .build(), Connection.MAX_PERMITTED_MESSAGE_SIZE);
+    }
+
+    @Test
+    public void testStatistic() {
+        Statistic statistic = new Statistic();
+        statistic.addCompressedSentMessage(100, 400);
+        statistic.addCompressedReceivedMessage(50, 150);
+        Statistic.Snapshot snapshot = statistic.getSnapshot();
+        assertEquals(100, snapshot.getCompressedSentBytes());
+        assertEquals(400, snapshot.getUncompressedSentBytes());
+        assertEquals(50, snapshot.getCompressedReceivedBytes());
+        assertEquals(150, snapshot.getUncompressedReceivedBytes());
+    }
+
+    // The hashes don't compress, the repeated currency codes and payment method ids do
+    private static PB.NetworkEnvelope getGetDataResponse(int numEntries) {
+        PB.GetDataResponse.Builder builder = PB.GetDataResponse.newBuilder().setRequestNonce(1);
+        for (int i = 0; i < numEntries; i++) {
+            builder.addPersistableNetworkPayloadItems(PB.PersistableNetworkPayload.newBuilder()
+                    .setTradeStatistics2(PB.TradeStatistics2.newBuilder()
+                            .setBaseCurrency("BTC")
+                            .setCounterCurrency(i % 2 == 0 ? "EUR" : "USD")
+                            .setTradePrice(50_000_000L)
+                            .setTradeAmount(1_000_000L)
+                            .setTradeDate(1500000000000L + i)
+                            .setPaymentMethodId(i % 2 == 0 ? "SEPA" : "NATIONAL_BANK")
+                            .setOfferDate(1500000000000L)
+                            .setOfferAmount(1_000_000L)
+                            .setOfferMinAmount(500_000L)
+                            .setOfferId("offer-id-of-the-trade-" + (i % 10))
+                            .setDepositTxId("deposit-tx-id-of-the-trade-" + (i % 10))
+                            .setHash(ByteString.copyFrom(RandomUtils.nextBytes(20)))));
+        }
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setGetDataResponse(builder)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NioFrameDecoderTest {
+    private final List<PB.NetworkEnvelope> frames = new ArrayList<>();
+    private final List<Integer> oversizeFrames = new ArrayList<>();
+    private final NioFrameDecoder.Listener listener = new NioFrameDecoder.Listener() {
+        @Override
+        public boolean onFrame(FrameBuffer frame) {
+            frames.add(parse(frame));
+            return true;
+        }
+
+        @Override
+        public boolean onOversizeFrame(int size) {
+            oversizeFrames.add(size);
+            return true;
+        }
+    };
+
+    @Test
+    public void testCoalescedFrames() throws IOException {
+        PB.NetworkEnvelope ping1 = getPing(1);
+        PB.NetworkEnvelope ping2 = getPing(2);
+        ByteBuffer buffer = ByteBuffer.wrap(toDelimited(ping1, ping2));
+
+        new NioFrameDecoder(1000).decode(buffer, listener);
+        assertEquals(Arrays.asList(ping1, ping2), frames);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testSplitFrames() throws IOException {
+        PB.NetworkEnvelope ping1 = getPing(300);
+        PB.NetworkEnvelope ping2 = getPing(400);
+        // A frame larger than 127 bytes has a 2 byte length prefix, so the prefix gets split as well
+        PB.NetworkEnvelope large = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPrefixedSealedAndSignedMessage(PB.PrefixedSealedAndSignedMessage.newBuilder()
+                        .setSealedAndSigned(PB.SealedAndSigned.newBuilder()
+                                .setEncryptedPayloadWithHmac(ByteString.copyFrom(new byte[200])))
+                        .setUid("uid"))
+                .build();
+        byte[] bytes = toDelimited(ping1, large, ping2);
+
+        // We feed the decoder byte by byte like the channel does with a compacted read buffer
+        NioFrameDecoder decoder = new NioFrameDecoder(1000);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (byte b : bytes) {
+            buffer.put(b);
+            buffer.flip();
+            decoder.decode(buffer, listener);
+            buffer.compact();
+        }
+        assertEquals(Arrays.asList(ping1, large, ping2), frames);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testOversizeFrameIsSkipped() throws IOException {
+        PB.NetworkEnvelope ping = getPing(1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(outputStream);
+        codedOutputStream.writeUInt32NoTag(100);
+        codedOutputStream.writeRawBytes(new byte[100]);
+        codedOutputStream.flush();
+        outputStream.write(toDelimited(ping));
+
+        NioFrameDecoder decoder = new NioFrameDecoder(50);
+        byte[] bytes = outputStream.toByteArray();
+        // The skipped frame spans two reads
+        decoder.decode(ByteBuffer.wrap(bytes, 0, 60), listener);
+        assertEquals(Arrays.asList(100), oversizeFrames);
+        assertTrue(frames.isEmpty());
+
+        decoder.decode(ByteBuffer.wrap(bytes, 60, bytes.length - 60), listener);
+        assertEquals(Arrays.asList(ping), frames);
+    }
+
+    @Test
+    public void testNegativeFrameSize() throws IOException {
+        // -1 is the largest varint32 and must not be taken as an incomplete length prefix
+        for (int size : new int[]{-1, Integer.MIN_VALUE}) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(outputStream);
+            codedOutputStream.writeUInt32NoTag(size);
+            codedOutputStream.flush();
+            try {
+                new NioFrameDecoder(Integer.MAX_VALUE).decode(ByteBuffer.wrap(outputStream.toByteArray()), listener);
+                fail("Expected IOException for frame size " + size);
+            } catch (IOException expected) {
+            }
+        }
+        assertTrue(frames.isEmpty());
+    }
+
+    @Test
+    public void testIncompleteLengthPrefixIsKept() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{(byte) 0x80});
+        new NioFrameDecoder(1000).decode(buffer, listener);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testStopAfterFrame() throws IOException {
+        PB.NetworkEnvelope ping1 = getPing(1);
+        PB.NetworkEnvelope ping2 = getPing(2);
+        ByteBuffer buffer = ByteBuffer.wrap(toDelimited(ping1, ping2));
+        NioFrameDecoder decoder = new NioFrameDecoder(1000);
+        decoder.decode(buffer, new NioFrameDecoder.Listener() {
+            @Override
+            public boolean onFrame(FrameBuffer frame) {
+                frames.add(parse(frame));
+                return false;
+            }
+
+            @Override
+            public boolean onOversizeFrame(int size) {
+                return false;
+            }
+        });
+        assertEquals(Arrays.asList(ping1), frames);
+
+        // Resumes with the next frame
+        decoder.decode(buffer, listener);
+        assertEquals(Arrays.asList(ping1, ping2), frames);
+    }
+
+    private static PB.NetworkEnvelope parse(FrameBuffer frame) {
+        try {
+            return frame.parse();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] toDelimited(PB.NetworkEnvelope... protos) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PB.NetworkEnvelope proto : protos)
+            proto.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static PB.NetworkEnvelope getPing(int nonce) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.network.p2p.CloseConnectionMessage;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutboundQueueTest {
+
+    @Test
+    public void testPriority() {
+        OutboundQueue queue = new OutboundQueue(100);
+        Ping ping = new Ping(1, 0);
+        RefreshOfferMessage refresh1 = getRefreshOfferMessage(1, 1);
+        RefreshOfferMessage refresh2 = getRefreshOfferMessage(2, 1);
+        CloseConnectionMessage direct = new CloseConnectionMessage("test");
+        queue.add(ping);
+        queue.add(refresh1);
+        queue.add(refresh2);
+        queue.add(direct);
+
+        assertEquals(4, queue.size());
+        assertSame(direct, queue.poll());
+        assertSame(refresh1, queue.poll());
+        assertSame(refresh2, queue.poll());
+        assertSame(ping, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testSupersededRefreshOfferMessagesAreDropped() {
+        OutboundQueue queue = new OutboundQueue(100);
+        RefreshOfferMessage refresh1 = getRefreshOfferMessage(1, 1);
+        RefreshOfferMessage other = getRefreshOfferMessage(2, 1);
+        RefreshOfferMessage refresh3 = getRefreshOfferMessage(1, 3);
+        RefreshOfferMessage refresh2 = getRefreshOfferMessage(1, 2);
+        queue.add(refresh1);
+        queue.add(other);
+        queue.add(refresh3);
+        // An older one must not replace a newer one
+        queue.add(refresh2);
+
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.getNumCoalesced());
+        // The newest one keeps the position of the first one
+        assertSame(refresh3, queue.poll());
+        assertSame(other, queue.poll());
+
+        // After it was polled a new one is queued again
+        queue.add(refresh2);
+        NetworkEnvelope polled = queue.poll();
+        assertSame(refresh2, polled);
+    }
+
+    @Test
+    public void testBoundedQueue() {
+        OutboundQueue queue = new OutboundQueue(3);
+        Ping ping = new Ping(1, 0);
+        RefreshOfferMessage refresh1 = getRefreshOfferMessage(1, 1);
+        RefreshOfferMessage refresh2 = getRefreshOfferMessage(2, 1);
+        assertTrue(queue.add(ping));
+        assertTrue(queue.add(refresh1));
+        assertTrue(queue.add(refresh2));
+
+        // A direct message drops the keep alive message first, then the oldest broadcast message
+        CloseConnectionMessage direct1 = new CloseConnectionMessage("1");
+        CloseConnectionMessage direct2 = new CloseConnectionMessage("2");
+        assertTrue(queue.add(direct1));
+        assertTrue(queue.add(direct2));
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.getNumDropped());
+
+        // A keep alive message must not replace a broadcast message
+        assertTrue(queue.add(new Ping(2, 0)));
+        assertEquals(3, queue.getNumDropped());
+
+        // A broadcast message replaces the oldest broadcast message
+        RefreshOfferMessage refresh3 = getRefreshOfferMessage(3, 1);
+        assertTrue(queue.add(refresh3));
+        assertEquals(4, queue.getNumDropped());
+
+        // Full with direct messages: the broadcast message gets dropped and a direct message is rejected
+        assertTrue(queue.add(new CloseConnectionMessage("3")));
+        assertFalse(queue.add(new CloseConnectionMessage("4")));
+        assertTrue(queue.add(getRefreshOfferMessage(4, 1)));
+        assertEquals(6, queue.getNumDropped());
+
+        assertSame(direct1, queue.poll());
+        assertSame(direct2, queue.poll());
+        assertEquals(1, queue.size());
+
+        // The dropped refresh is not pending anymore, so a new one for the same payload gets queued
+        assertTrue(queue.add(getRefreshOfferMessage(2, 2)));
+        assertEquals(2, queue.size());
+    }
+
+    private static RefreshOfferMessage getRefreshOfferMessage(int payload, int sequenceNumber) {
+        return new RefreshOfferMessage(new byte[]{(byte) sequenceNumber}, new byte[]{}, new byte[]{(byte) payload},
+                sequenceNumber);
+    }
+}
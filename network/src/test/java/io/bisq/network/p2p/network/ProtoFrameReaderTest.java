@@ -0,0 +1,163 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.generated.protobuffer.PB;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ProtoFrameReaderTest {
+
+    @Test
+    public void testReadFrames() throws IOException {
+        PB.NetworkEnvelope ping = getPing(1);
+        PB.NetworkEnvelope sealed = getPrefixedSealedAndSignedMessage(RandomUtils.nextBytes(50_000));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ping.writeDelimitedTo(outputStream);
+        sealed.writeDelimitedTo(outputStream);
+
+        ProtoFrameReader reader = new ProtoFrameReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        int size = reader.readFrameSize();
+        assertEquals(ping.getSerializedSize(), size);
+        assertEquals(ping, reader.readFrame(size));
+
+        size = reader.readFrameSize();
+        assertEquals(sealed.getSerializedSize(), size);
+        assertEquals(sealed, reader.readFrame(size));
+
+        assertEquals(ProtoFrameReader.EOF, reader.readFrameSize());
+    }
+
+    @Test
+    public void testSkipFrame() throws IOException {
+        byte[] bytes = new byte[100];
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+        // A frame size we would reject, followed by the frame and a valid message
+        codedOutputStream.writeUInt32NoTag(10);
+        codedOutputStream.writeRawBytes(new byte[10]);
+        PB.NetworkEnvelope ping = getPing(2);
+        codedOutputStream.writeUInt32NoTag(ping.getSerializedSize());
+        ping.writeTo(codedOutputStream);
+
+        ProtoFrameReader reader = new ProtoFrameReader(new ByteArrayInputStream(bytes));
+        reader.skipFrame(reader.readFrameSize());
+        assertEquals(ping, reader.readFrame(reader.readFrameSize()));
+    }
+
+    @Test
+    public void testParseFrameFromReusedBuffer() throws IOException {
+        byte[] payload = RandomUtils.nextBytes(1000);
+        PB.NetworkEnvelope sealed = getPrefixedSealedAndSignedMessage(payload);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        buffer.put(sealed.toByteArray());
+        buffer.flip();
+
+        PB.NetworkEnvelope proto = ProtoFrameReader.parseFrame(buffer);
+        // Overwriting the buffer must not change the parsed message
+        buffer.clear();
+        buffer.put(new byte[4096]);
+        assertEquals(sealed, proto);
+        assertArrayEquals(payload, proto.getPrefixedSealedAndSignedMessage().getSealedAndSigned()
+                .getEncryptedPayloadWithHmac().toByteArray());
+    }
+
+    @Test
+    public void testFrameBufferWithSeveralChunks() throws IOException {
+        byte[] payload = RandomUtils.nextBytes(3 * FrameBuffer.CHUNK_SIZE);
+        PB.NetworkEnvelope sealed = getPrefixedSealedAndSignedMessage(payload);
+        byte[] bytes = sealed.toByteArray();
+        long pendingFrameBytes = FrameBuffer.getPendingFrameBytes();
+
+        FrameBuffer frame = new FrameBuffer(bytes.length);
+        // We get the frame in pieces which don't match the chunks
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, 1000);
+        frame.put(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertFalse(frame.isComplete());
+        assertEquals(pendingFrameBytes + 1000, FrameBuffer.getPendingFrameBytes());
+
+        // Bytes after the frame stay in the buffer
+        byte[] withNextFrame = Arrays.copyOfRange(bytes, 1000, bytes.length + 10);
+        buffer = ByteBuffer.wrap(withNextFrame);
+        frame.put(buffer);
+        assertTrue(frame.isComplete());
+        assertEquals(10, buffer.remaining());
+
+        PB.NetworkEnvelope proto = frame.parse();
+        assertEquals(sealed, proto);
+        assertEquals(pendingFrameBytes, FrameBuffer.getPendingFrameBytes());
+    }
+
+    @Test
+    public void testFrameBufferOnlyHoldsReceivedBytes() throws IOException {
+        long pendingFrameBytes = FrameBuffer.getPendingFrameBytes();
+        // The announced size does not get allocated
+        FrameBuffer frame = new FrameBuffer(Connection.MAX_PERMITTED_MESSAGE_SIZE);
+        frame.put(ByteBuffer.wrap(new byte[100]));
+        assertEquals(pendingFrameBytes + 100, FrameBuffer.getPendingFrameBytes());
+
+        frame.release();
+        assertEquals(pendingFrameBytes, FrameBuffer.getPendingFrameBytes());
+        // A second release does not change the count
+        frame.release();
+        assertEquals(pendingFrameBytes, FrameBuffer.getPendingFrameBytes());
+    }
+
+    @Test
+    public void testIncompleteFrameAtEndOfStream() {
+        ProtoFrameReader reader = new ProtoFrameReader(new ByteArrayInputStream(new byte[10]));
+        long pendingFrameBytes = FrameBuffer.getPendingFrameBytes();
+        try {
+            reader.readFrame(100);
+            fail("Expected EOFException");
+        } catch (IOException expected) {
+        }
+        assertEquals(pendingFrameBytes, FrameBuffer.getPendingFrameBytes());
+    }
+
+    @Test
+    public void testByteBufferPool() {
+        ByteBufferPool pool = new ByteBufferPool(1024, 1);
+        ByteBuffer buffer1 = pool.acquire();
+        ByteBuffer buffer2 = pool.acquire();
+        assertTrue(buffer1.isDirect());
+        buffer1.put((byte) 1);
+
+        pool.release(buffer1);
+        pool.release(buffer2);
+        // Not pooled as it has another size
+        pool.release(ByteBuffer.allocateDirect(512));
+        assertEquals(1, pool.getNumPooledBuffers());
+
+        ByteBuffer reused = pool.acquire();
+        assertSame(buffer1, reused);
+        assertEquals(0, reused.position());
+        assertEquals(0, pool.getNumPooledBuffers());
+    }
+
+    private static PB.NetworkEnvelope getPing(int nonce) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+
+    private static PB.NetworkEnvelope getPrefixedSealedAndSignedMessage(byte[] payload) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPrefixedSealedAndSignedMessage(PB.PrefixedSealedAndSignedMessage.newBuilder()
+                        .setSealedAndSigned(PB.SealedAndSigned.newBuilder()
+                                .setEncryptedSecretKey(ByteString.copyFrom(RandomUtils.nextBytes(256)))
+                                .setEncryptedPayloadWithHmac(ByteString.copyFrom(payload)))
+                        .setUid("uid"))
+                .build();
+    }
+}
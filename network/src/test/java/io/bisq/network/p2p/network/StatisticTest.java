@@ -0,0 +1,62 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.network.p2p.CloseConnectionMessage;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class StatisticTest {
+
+    @Test
+    public void testSnapshot() throws InterruptedException {
+        Statistic statistic = new Statistic();
+        long totalSentBytes = Statistic.getTotalSentBytes();
+        int numThreads = 4;
+        int numMessages = 1000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < numMessages; j++) {
+                    statistic.addSentBytes(10);
+                    statistic.addSentMessage(new Ping(j, 0));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        statistic.addReceivedBytes(5);
+        statistic.addReceivedMessage(new CloseConnectionMessage("test"));
+        statistic.setRoundTripTime(50);
+        statistic.setRoundTripTime(300);
+        statistic.setRoundTripTime(20000);
+
+        Statistic.Snapshot snapshot = statistic.getSnapshot();
+        assertEquals(numThreads * numMessages * 10, snapshot.getSentBytes());
+        assertEquals(numThreads * numMessages, (long) snapshot.getSentMessages().get("Ping"));
+        assertEquals(numThreads * numMessages, snapshot.getNumSentMessages());
+        assertEquals(5, snapshot.getReceivedBytes());
+        assertEquals(1, (long) snapshot.getReceivedMessages().get("CloseConnectionMessage"));
+        assertEquals(20000, snapshot.getRoundTripTime());
+        assertArrayEquals(new long[]{1, 0, 1, 0, 0, 0, 0, 1}, snapshot.getRoundTripTimeHistogram());
+        assertEquals(totalSentBytes + numThreads * numMessages * 10, Statistic.getTotalSentBytes());
+    }
+
+    @Test
+    public void testReportedRoundTripTimeIsNotMeasured() {
+        Statistic statistic = new Statistic();
+        statistic.setMeasuredRoundTripTime(400);
+        // Reported by the peer in its Ping
+        statistic.setRoundTripTime(1);
+
+        assertEquals(1, statistic.getRoundTripTime());
+        assertEquals(400, statistic.getMeasuredRoundTripTime());
+    }
+}
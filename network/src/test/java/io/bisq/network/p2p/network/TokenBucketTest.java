@@ -0,0 +1,37 @@
+package io.bisq.network.p2p.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstAndRefill() throws InterruptedException {
+        TokenBucket tokenBucket = new TokenBucket(2, 100);
+        assertEquals(0, tokenBucket.getNanosUntilAvailable());
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+
+        // One token per 10 ms
+        long nanosUntilAvailable = tokenBucket.getNanosUntilAvailable();
+        assertTrue(nanosUntilAvailable > 0);
+        assertTrue(nanosUntilAvailable <= 10_000_000);
+
+        Thread.sleep(15);
+        assertTrue(tokenBucket.tryConsume());
+    }
+
+    @Test
+    public void testRefillIsCappedAtCapacity() throws InterruptedException {
+        // Would be 5 tokens without the cap
+        TokenBucket tokenBucket = new TokenBucket(2, 10);
+        Thread.sleep(500);
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+    }
+}
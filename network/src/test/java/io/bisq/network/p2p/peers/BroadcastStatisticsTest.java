@@ -0,0 +1,56 @@
+package io.bisq.network.p2p.peers;
+
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BroadcastStatisticsTest {
+    private final NodeAddress peer1 = new NodeAddress("peer1.onion:8000");
+    private final NodeAddress peer2 = new NodeAddress("peer2.onion:8000");
+
+    @Test
+    public void testPeersHavingMessage() {
+        BroadcastStatistics statistics = new BroadcastStatistics();
+        P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(new byte[]{1, 2, 3});
+        assertFalse(statistics.onMessageReceived(key, peer1));
+        assertTrue(statistics.onMessageReceived(new P2PDataStorage.ByteArray(new byte[]{1, 2, 3}), peer2));
+
+        assertTrue(statistics.hasMessage(key, peer1));
+        assertTrue(statistics.hasMessage(key, peer2));
+        assertFalse(statistics.hasMessage(key, new NodeAddress("peer3.onion:8000")));
+        assertFalse(statistics.hasMessage(new P2PDataStorage.ByteArray(new byte[]{4}), peer1));
+    }
+
+    @Test
+    public void testRelayFanOutAdaptsToDuplicateRatio() {
+        BroadcastStatistics statistics = new BroadcastStatistics();
+        assertEquals(BroadcastStatistics.MAX_RELAY_FAN_OUT, statistics.getRelayFanOut());
+
+        // Every message reaches us from 2 peers
+        for (int i = 0; i < 1000; i++) {
+            P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(new byte[]{(byte) i, (byte) (i >> 8)});
+            statistics.onMessageReceived(key, peer1);
+            statistics.onMessageReceived(key, peer2);
+        }
+        assertEquals(0.5, statistics.getDuplicateRatio(), 0.05);
+        assertEquals(5, statistics.getRelayFanOut());
+
+        // Only duplicates
+        P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(new byte[]{1});
+        for (int i = 0; i < 1000; i++)
+            statistics.onMessageReceived(key, peer1);
+        assertEquals(BroadcastStatistics.MIN_RELAY_FAN_OUT, statistics.getRelayFanOut());
+    }
+
+    @Test
+    public void testPropagationLatency() {
+        BroadcastStatistics statistics = new BroadcastStatistics();
+        statistics.onMessageSent(100);
+        assertEquals(100, statistics.getPropagationLatency());
+        for (int i = 0; i < 1000; i++)
+            statistics.onMessageSent(200);
+        assertEquals(200, statistics.getPropagationLatency());
+    }
+}
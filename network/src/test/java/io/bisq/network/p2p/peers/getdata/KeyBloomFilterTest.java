@@ -0,0 +1,47 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import io.bisq.common.crypto.Hash;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyBloomFilterTest {
+
+    @Test
+    public void testMightContain() {
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+            keys.add(Hash.getSha256Hash(("key" + i).getBytes()));
+
+        KeyBloomFilter filter = KeyBloomFilter.create(keys, KeyBloomFilter.DEFAULT_FALSE_POSITIVE_RATE, 1);
+
+        // no false negatives
+        keys.forEach(key -> assertTrue(filter.mightContain(key)));
+
+        // false positive rate is in expected range
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(Hash.getSha256Hash(("other" + i).getBytes())))
+                falsePositives++;
+        }
+        assertTrue(falsePositives < 50);
+
+        // about 15 bits per key
+        assertTrue(filter.getSizeInBytes() < 10000 * 2);
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(Hash.getSha256Hash("key".getBytes()));
+        KeyBloomFilter filter = KeyBloomFilter.create(keys, KeyBloomFilter.DEFAULT_FALSE_POSITIVE_RATE, 1);
+        KeyBloomFilter fromProto = KeyBloomFilter.fromProto(filter.toProtoMessage());
+        assertTrue(filter.equals(fromProto));
+        assertTrue(fromProto.mightContain(keys.get(0)));
+        assertFalse(fromProto.mightContain(Hash.getSha256Hash("other".getBytes())));
+    }
+}
@@ -0,0 +1,89 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import io.bisq.network.p2p.NodeAddress;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ParallelDataSyncTest {
+    private final NodeAddress seed1 = new NodeAddress("seed1.onion:8000");
+    private final NodeAddress seed2 = new NodeAddress("seed2.onion:8000");
+    private final NodeAddress seed3 = new NodeAddress("seed3.onion:8000");
+
+    @Test
+    public void testFastestNodeTakesOverOpenKeyRanges() {
+        ParallelDataSync sync = new ParallelDataSync(3);
+        KeyRange keyRange1 = sync.assign(seed1);
+        KeyRange keyRange2 = sync.assign(seed2);
+        assertNotNull(keyRange1);
+        assertNotNull(keyRange2);
+        assertNotEquals(keyRange1.getPartitionIndex(), keyRange2.getPartitionIndex());
+
+        assertTrue(sync.onComplete(seed1, keyRange1).isEmpty());
+        KeyRange keyRange3 = sync.assign(seed1);
+        assertNotNull(keyRange3);
+        assertEquals(2, keyRange3.getPartitionIndex());
+        assertTrue(sync.onComplete(seed1, keyRange3).isEmpty());
+
+        // seed2 is still working on its key range, so seed1 gets the same one
+        KeyRange duplicate = sync.assign(seed1);
+        assertNotNull(duplicate);
+        assertEquals(keyRange2.getPartitionIndex(), duplicate.getPartitionIndex());
+        // But no third node
+        assertNull(sync.assign(seed3));
+
+        Set<NodeAddress> obsoleteNodes = sync.onComplete(seed1, duplicate);
+        assertEquals(1, obsoleteNodes.size());
+        assertTrue(obsoleteNodes.contains(seed2));
+        assertTrue(sync.isComplete());
+        assertFalse(sync.isAnyAssigned());
+    }
+
+    @Test
+    public void testReleasedKeyRangeContinuesAtContinuationToken() {
+        ParallelDataSync sync = new ParallelDataSync(2);
+        KeyRange keyRange = sync.assign(seed1);
+        assertNotNull(keyRange);
+        byte[] token1 = new byte[]{0x01, 0x02};
+        byte[] token2 = new byte[]{0x01, 0x05};
+        sync.onChunkReceived(seed1, keyRange.withContinuationToken(token2));
+        // An older token must not move the continuation token back
+        sync.onChunkReceived(seed1, keyRange.withContinuationToken(token1));
+        sync.release(seed1);
+
+        KeyRange continued = sync.assign(seed2);
+        assertNotNull(continued);
+        assertEquals(keyRange, continued);
+        assertArrayEquals(token2, continued.getContinuationToken());
+    }
+
+    @Test
+    public void testCompleteResponseOfOldPeerCompletesAll() {
+        ParallelDataSync sync = new ParallelDataSync(4);
+        sync.assign(seed1);
+        sync.assign(seed2);
+        Set<NodeAddress> obsoleteNodes = sync.onComplete(seed1, null);
+        assertTrue(obsoleteNodes.contains(seed2));
+        assertTrue(sync.isComplete());
+    }
+
+    @Test
+    public void testKeyRange() {
+        KeyRange keyRange = new KeyRange(1, 4);
+        assertFalse(keyRange.contains(new byte[]{0x3f, (byte) 0xff}));
+        assertTrue(keyRange.contains(new byte[]{0x40, 0x00}));
+        assertTrue(keyRange.contains(new byte[]{0x7f, (byte) 0xff, 0x01}));
+        assertFalse(keyRange.contains(new byte[]{(byte) 0x80}));
+
+        KeyRange continued = keyRange.withContinuationToken(new byte[]{0x50});
+        assertFalse(continued.isPending(new byte[]{0x45}));
+        assertFalse(continued.isPending(new byte[]{0x50}));
+        assertTrue(continued.isPending(new byte[]{0x50, 0x00}));
+        assertTrue(continued.isPending(new byte[]{0x60}));
+
+        assertEquals(continued, KeyRange.fromProto(continued.toProtoMessage()));
+        assertNull(KeyRange.fromProto(new KeyRange(0, 1).toProtoMessage().toBuilder().setPartitionIndex(2).build()));
+    }
+}
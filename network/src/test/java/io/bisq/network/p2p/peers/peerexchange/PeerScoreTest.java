@@ -0,0 +1,60 @@
+package io.bisq.network.p2p.peers.peerexchange;
+
+import io.bisq.network.p2p.NodeAddress;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PeerScoreTest {
+    private final NodeAddress nodeAddress = new NodeAddress("peer.onion:8000");
+
+    @Test
+    public void testUnknownPeerHasDefaultScore() {
+        assertEquals(PeerScore.DEFAULT_SCORE, new PeerScore(nodeAddress).getScore(), 0.0001);
+    }
+
+    @Test
+    public void testFastAndReliablePeerScoresHigher() {
+        PeerScore good = new PeerScore(nodeAddress);
+        good.onUptime(TimeUnit.HOURS.toMillis(5), 300);
+        good.onConnectionClosed(false);
+
+        PeerScore slow = new PeerScore(nodeAddress);
+        slow.onUptime(TimeUnit.HOURS.toMillis(5), 5000);
+        slow.onConnectionClosed(false);
+
+        PeerScore unreliable = new PeerScore(nodeAddress);
+        unreliable.onUptime(TimeUnit.HOURS.toMillis(5), 300);
+        unreliable.onFailure();
+        unreliable.onFailure();
+        unreliable.onConnectionClosed(true);
+
+        assertTrue(good.getScore() > PeerScore.DEFAULT_SCORE);
+        assertTrue(good.getScore() > slow.getScore());
+        assertTrue(good.getScore() > unreliable.getScore());
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        PeerScore peerScore = new PeerScore(nodeAddress);
+        peerScore.onUptime(60_000, 800);
+        peerScore.onFailure();
+        peerScore.onSupportedCapabilities(Arrays.asList(0, 3));
+        PeerScore fromProto = PeerScore.fromProto(peerScore.toProtoMessage());
+        assertEquals(peerScore.getScore(), fromProto.getScore(), 0.0001);
+        assertEquals(peerScore.getLastUpdate(), fromProto.getLastUpdate());
+        assertEquals(nodeAddress, fromProto.getNodeAddress());
+        assertEquals(Arrays.asList(0, 3), fromProto.getSupportedCapabilities());
+    }
+
+    @Test
+    public void testSupportedCapabilitiesDoNotChangeScore() {
+        PeerScore peerScore = new PeerScore(nodeAddress);
+        peerScore.onSupportedCapabilities(Arrays.asList(0, 3));
+        assertEquals(PeerScore.DEFAULT_SCORE, peerScore.getScore(), 0.0001);
+    }
+}
@@ -0,0 +1,80 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.crypto.Sig;
+import io.bisq.network.p2p.storage.mocks.MockData;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExpirationQueueTest {
+    private static final long TTL = 1000;
+
+    private PublicKey publicKey;
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+        publicKey = Sig.generateKeyPair().getPublic();
+    }
+
+    @Test
+    public void testPollExpired() {
+        ExpirationQueue queue = new ExpirationQueue();
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = new HashMap<>();
+        P2PDataStorage.ByteArray hash1 = new P2PDataStorage.ByteArray(new byte[]{1});
+        P2PDataStorage.ByteArray hash2 = new P2PDataStorage.ByteArray(new byte[]{2});
+        ProtectedStorageEntry entry1 = getEntry("entry1");
+        ProtectedStorageEntry entry2 = getEntry("entry2");
+        map.put(hash1, entry1);
+        map.put(hash2, entry2);
+        queue.schedule(hash1, entry1);
+        queue.schedule(hash2, entry2);
+
+        long now = System.currentTimeMillis();
+        assertTrue(queue.pollExpired(now, map::get).isEmpty());
+
+        // back dated entry is due earlier
+        entry1.backDate();
+        queue.schedule(hash1, entry1);
+        assertEquals(1, queue.pollExpired(entry1.getExpirationTimeStamp() + 1, map::get).size());
+
+        // removed entries are ignored
+        map.remove(hash2);
+        assertTrue(queue.pollExpired(now + TTL * 2, map::get).isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRefreshedEntryIsNotExpired() {
+        ExpirationQueue queue = new ExpirationQueue();
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = new HashMap<>();
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(new byte[]{1});
+        ProtectedStorageEntry entry = getEntry("entry");
+        map.put(hash, entry);
+        entry.backDate();
+        queue.schedule(hash, entry);
+        long oldExpirationTimeStamp = entry.getExpirationTimeStamp();
+
+        entry.refreshTTL();
+        queue.schedule(hash, entry);
+
+        // The outdated item is due but the entry got refreshed
+        assertTrue(queue.pollExpired(oldExpirationTimeStamp + 1, map::get).isEmpty());
+        assertEquals(1, queue.pollExpired(entry.getExpirationTimeStamp() + 1, map::get).size());
+    }
+
+    private ProtectedStorageEntry getEntry(String msg) {
+        MockData payload = new MockData(msg, publicKey);
+        payload.ttl = TTL;
+        return new ProtectedStorageEntry(payload, publicKey, 1, new byte[]{});
+    }
+}
@@ -0,0 +1,186 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.Payload;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.ChunkedFileFormat;
+import io.bisq.common.storage.FileManager;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MappedPersistableNetworkPayloadMapTest {
+    // More than 2 chunks of the ChunkedFileFormat
+    private static final int NUM_PAYLOADS = 2500;
+
+    // Carries its hash in the hash field of the AccountAgeWitness proto like our real payloads
+    private static class TestPayload implements PersistableNetworkPayload, PersistableEnvelope {
+        private final PB.PersistableNetworkPayload proto;
+
+        private TestPayload(PB.PersistableNetworkPayload proto) {
+            this.proto = proto;
+        }
+
+        @Override
+        public PB.PersistableNetworkPayload toProtoMessage() {
+            return proto;
+        }
+
+        @Override
+        public byte[] getHash() {
+            return proto.getAccountAgeWitness().getHash().toByteArray();
+        }
+
+        @Override
+        public boolean verifyHashSize() {
+            return true;
+        }
+    }
+
+    private File dir;
+    private File storageFile;
+    private File indexFile;
+    private PersistenceProtoResolver persistenceProtoResolver;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("MappedPersistableNetworkPayloadMapTest").toFile();
+        storageFile = new File(dir, "PersistableNetworkPayloadMap");
+        indexFile = new File(dir, "PersistableNetworkPayloadMap.index");
+        persistenceProtoResolver = new PersistenceProtoResolver() {
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableEnvelope proto) {
+                return PersistableNetworkPayloadCollection.fromProto(proto.getPersistableNetworkPayloadList(), this);
+            }
+
+            @Override
+            public Payload fromProto(PB.PaymentAccountPayload proto) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+                return new TestPayload(proto);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSingleMessageFile() throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(storageFile)) {
+            createCollection().toProtoMessage().writeDelimitedTo(outputStream);
+        }
+        assertFalse(hasChunkedHeader());
+
+        assertMapContent();
+        assertIndexIsReused();
+    }
+
+    @Test
+    public void testChunkedFile() throws IOException {
+        FileManager<PersistableNetworkPayloadCollection> fileManager = new FileManager<>(dir, storageFile, 0,
+                persistenceProtoResolver);
+        assertTrue(fileManager.saveNow(createCollection()));
+        assertTrue(hasChunkedHeader());
+
+        assertMapContent();
+        assertIndexIsReused();
+    }
+
+    @Test
+    public void testMissingFile() {
+        MappedPersistableNetworkPayloadMap map = new MappedPersistableNetworkPayloadMap(storageFile,
+                persistenceProtoResolver);
+        assertEquals(0, map.size());
+        assertFalse(indexFile.exists());
+    }
+
+    private void assertMapContent() {
+        MappedPersistableNetworkPayloadMap map = new MappedPersistableNetworkPayloadMap(storageFile,
+                persistenceProtoResolver);
+        assertTrue(indexFile.exists());
+        assertEquals(NUM_PAYLOADS, map.size());
+
+        Set<P2PDataStorage.ByteArray> expectedKeys = new HashSet<>();
+        for (int i = 0; i < NUM_PAYLOADS; i++) {
+            P2PDataStorage.ByteArray key = getHash(i);
+            expectedKeys.add(key);
+            assertTrue(map.containsKey(key));
+            assertEquals(getPayload(i).toProtoMessage(), map.get(key).toProtoMessage());
+        }
+        assertEquals(expectedKeys, new HashSet<>(map.keySet()));
+        assertNull(map.get(getHash(NUM_PAYLOADS)));
+
+        // Payloads added at runtime are kept in memory
+        TestPayload added = getPayload(NUM_PAYLOADS);
+        assertNull(map.putIfAbsent(getHash(NUM_PAYLOADS), added));
+        assertEquals(NUM_PAYLOADS + 1, map.size());
+        assertSame(added, map.get(getHash(NUM_PAYLOADS)));
+    }
+
+    // If the index file is reused it does not get written again
+    private void assertIndexIsReused() {
+        assertTrue(indexFile.setLastModified(0));
+        long indexFileLength = indexFile.length();
+
+        MappedPersistableNetworkPayloadMap map = new MappedPersistableNetworkPayloadMap(storageFile,
+                persistenceProtoResolver);
+        assertEquals(0, indexFile.lastModified());
+        assertEquals(indexFileLength, indexFile.length());
+        assertEquals(NUM_PAYLOADS, map.size());
+        assertEquals(getPayload(7).toProtoMessage(), map.get(getHash(7)).toProtoMessage());
+
+        // A changed data file invalidates the index
+        assertTrue(storageFile.setLastModified(storageFile.lastModified() - 10_000));
+        map = new MappedPersistableNetworkPayloadMap(storageFile, persistenceProtoResolver);
+        assertNotEquals(0, indexFile.lastModified());
+        assertEquals(NUM_PAYLOADS, map.size());
+    }
+
+    private boolean hasChunkedHeader() throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(storageFile)) {
+            byte[] header = new byte[ChunkedFileFormat.HEADER_LENGTH];
+            assertEquals(header.length, inputStream.read(header));
+            return ChunkedFileFormat.hasHeader(ByteBuffer.wrap(header));
+        }
+    }
+
+    private static PersistableNetworkPayloadCollection createCollection() {
+        PersistableNetworkPayloadCollection collection = new PersistableNetworkPayloadCollection();
+        for (int i = 0; i < NUM_PAYLOADS; i++)
+            collection.getMap().put(getHash(i), getPayload(i));
+        return collection;
+    }
+
+    private static TestPayload getPayload(int i) {
+        return new TestPayload(PB.PersistableNetworkPayload.newBuilder()
+                .setAccountAgeWitness(PB.AccountAgeWitness.newBuilder()
+                        .setHash(ByteString.copyFrom(ByteBuffer.allocate(20).putInt(i).array()))
+                        .setDate(i))
+                .build());
+    }
+
+    private static P2PDataStorage.ByteArray getHash(int i) {
+        return new P2PDataStorage.ByteArray(getPayload(i).getHash());
+    }
+}
@@ -0,0 +1,47 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.common.crypto.Sig;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.PrefixedSealedAndSignedMessage;
+import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.Security;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+public class PayloadHashTest {
+    private MailboxStoragePayload payload;
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+        KeyPair keyPair = Sig.generateKeyPair();
+        SealedAndSigned sealedAndSigned = new SealedAndSigned(new byte[]{1, 2}, new byte[]{3, 4}, new byte[]{5, 6},
+                keyPair.getPublic());
+        PrefixedSealedAndSignedMessage message = new PrefixedSealedAndSignedMessage(new NodeAddress("localhost", 1000),
+                sealedAndSigned, new byte[]{7}, "uid");
+        payload = new MailboxStoragePayload(message, keyPair.getPublic(), keyPair.getPublic());
+    }
+
+    @Test
+    public void testHashOfPayload() {
+        P2PDataStorage.ByteArray hash = P2PDataStorage.getHashOfPayload(payload);
+        assertArrayEquals(P2PDataStorage.getHash(payload), hash.bytes);
+        // cached
+        assertSame(hash, P2PDataStorage.getHashOfPayload(payload));
+    }
+
+    @Test
+    public void testHashOfDataAndSeqNr() {
+        for (int sequenceNumber : new int[]{0, 1, 127, 128, Integer.MAX_VALUE, -1}) {
+            assertArrayEquals(P2PDataStorage.getHash(new P2PDataStorage.DataAndSeqNrPair(payload, sequenceNumber)),
+                    P2PDataStorage.getHashOfDataAndSeqNr(payload, sequenceNumber));
+        }
+    }
+}
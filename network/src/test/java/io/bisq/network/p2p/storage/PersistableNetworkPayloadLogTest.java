@@ -0,0 +1,232 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.Payload;
+import io.bisq.common.proto.ProtobufferException;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PersistableNetworkPayloadLogTest {
+    // Resolves AccountAgeWitness protos. TradeStatistics2 protos are only resolved if supportsTradeStatistics is set,
+    // so we can simulate a payload type we don't know.
+    private static class TestPayload implements PersistableNetworkPayload, PersistableEnvelope {
+        private final PB.PersistableNetworkPayload proto;
+
+        private TestPayload(PB.PersistableNetworkPayload proto) {
+            this.proto = proto;
+        }
+
+        @Override
+        public PB.PersistableNetworkPayload toProtoMessage() {
+            return proto;
+        }
+
+        @Override
+        public byte[] getHash() {
+            return proto.toByteArray();
+        }
+
+        @Override
+        public boolean verifyHashSize() {
+            return true;
+        }
+    }
+
+    private File dir;
+    private boolean supportsTradeStatistics;
+    private PersistenceProtoResolver persistenceProtoResolver;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("PersistableNetworkPayloadLogTest").toFile();
+        persistenceProtoResolver = new PersistenceProtoResolver() {
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableEnvelope proto) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Payload fromProto(PB.PaymentAccountPayload proto) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+                if (proto.hasTradeStatistics2() && !supportsTradeStatistics)
+                    throw new ProtobufferException("Unknown proto message case. proto=" + proto);
+                return new TestPayload(proto);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testTruncatedLastRecordIsRemoved() throws IOException {
+        PersistableNetworkPayloadLog payloadLog = createLog(Long.MAX_VALUE);
+        payloadLog.readAll(payload -> {
+        });
+        payloadLog.append(getPayload(1));
+        payloadLog.append(getPayload(2));
+        payloadLog.shutDown();
+
+        File segment = getSegmentFiles().get(0);
+        long validLength = segment.length();
+        // Simulate a crash during a write: the length prefix announces more data than was written
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[]{50, 1, 2, 3, 4, 5});
+        }
+
+        assertEquals(Arrays.asList(getHash(1), getHash(2)), readHashes());
+        assertEquals(validLength, segment.length());
+
+        // We can append after the truncated record
+        payloadLog = createLog(Long.MAX_VALUE);
+        payloadLog.readAll(payload -> {
+        });
+        payloadLog.append(getPayload(3));
+        payloadLog.shutDown();
+        assertEquals(3, readHashes().size());
+    }
+
+    @Test
+    public void testRecordWithCrcMismatchIsRemoved() throws IOException {
+        PersistableNetworkPayloadLog payloadLog = createLog(Long.MAX_VALUE);
+        payloadLog.readAll(payload -> {
+        });
+        payloadLog.append(getPayload(1));
+        payloadLog.shutDown();
+        File segment = getSegmentFiles().get(0);
+        long validLength = segment.length();
+
+        payloadLog = createLog(Long.MAX_VALUE);
+        payloadLog.readAll(payload -> {
+        });
+        payloadLog.append(getPayload(2));
+        payloadLog.shutDown();
+
+        // Flip the last data byte of the second record
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(file.length() - 1);
+            int b = file.read();
+            file.seek(file.length() - 1);
+            file.write(b ^ 0xFF);
+        }
+
+        assertEquals(Arrays.asList(getHash(1)), readHashes());
+        assertEquals(validLength, segment.length());
+    }
+
+    @Test
+    public void testSegmentRollOver() {
+        // Each record exceeds the max. segment size, so each append starts a new segment
+        PersistableNetworkPayloadLog payloadLog = createLog(1);
+        payloadLog.readAll(payload -> {
+        });
+        for (int i = 1; i <= 3; i++)
+            payloadLog.append(getPayload(i));
+        payloadLog.shutDown();
+
+        // 3 closed segments and the empty active one
+        assertEquals(4, getSegmentFiles().size());
+        assertEquals(Arrays.asList(getHash(1), getHash(2), getHash(3)), readHashes());
+    }
+
+    @Test
+    public void testCompactionRemovesDuplicatesAndKeepsUnknownRecords() {
+        PersistableNetworkPayloadLog payloadLog = createLog(1);
+        payloadLog.readAll(payload -> {
+        });
+        payloadLog.append(getPayload(1));
+        payloadLog.append(getPayload(1));
+        payloadLog.append(getUnknownPayload());
+        payloadLog.append(getUnknownPayload());
+        payloadLog.shutDown();
+        assertEquals(5, getSegmentFiles().size());
+
+        // The duplicate triggers the compaction of the closed segments into the first one
+        assertEquals(Arrays.asList(getHash(1)), readHashes());
+        assertEquals(2, getSegmentFiles().size());
+
+        // Once we know the payload type we get the record which we could not parse before
+        supportsTradeStatistics = true;
+        P2PDataStorage.ByteArray unknownHash = new P2PDataStorage.ByteArray(getUnknownPayload().getHash());
+        assertEquals(Arrays.asList(getHash(1), unknownHash), readHashes());
+    }
+
+    @Test
+    public void testCompactionOfTooManySegments() {
+        PersistableNetworkPayloadLog payloadLog = createLog(1);
+        payloadLog.readAll(payload -> {
+        });
+        // After the 9th closed segment the closed segments get merged
+        for (int i = 1; i <= 9; i++)
+            payloadLog.append(getPayload(i));
+        payloadLog.shutDown();
+
+        assertEquals(2, getSegmentFiles().size());
+        List<P2PDataStorage.ByteArray> hashes = readHashes();
+        assertEquals(9, hashes.size());
+        for (int i = 1; i <= 9; i++)
+            assertEquals(getHash(i), hashes.get(i - 1));
+    }
+
+    private PersistableNetworkPayloadLog createLog(long maxSegmentSize) {
+        return new PersistableNetworkPayloadLog(dir, persistenceProtoResolver, maxSegmentSize);
+    }
+
+    private List<P2PDataStorage.ByteArray> readHashes() {
+        List<P2PDataStorage.ByteArray> hashes = new ArrayList<>();
+        PersistableNetworkPayloadLog payloadLog = createLog(Long.MAX_VALUE);
+        payloadLog.readAll(payload -> hashes.add(new P2PDataStorage.ByteArray(payload.getHash())));
+        payloadLog.shutDown();
+        return hashes;
+    }
+
+    private List<File> getSegmentFiles() {
+        File[] files = new File(dir, "PersistableNetworkPayloadLog").listFiles((d, name) -> name.endsWith(".seg"));
+        List<File> list = new ArrayList<>(Arrays.asList(files));
+        list.sort(null);
+        return list;
+    }
+
+    private static TestPayload getPayload(int i) {
+        return new TestPayload(PB.PersistableNetworkPayload.newBuilder()
+                .setAccountAgeWitness(PB.AccountAgeWitness.newBuilder()
+                        .setHash(ByteString.copyFrom(new byte[]{(byte) i}))
+                        .setDate(i))
+                .build());
+    }
+
+    private static P2PDataStorage.ByteArray getHash(int i) {
+        return new P2PDataStorage.ByteArray(getPayload(i).getHash());
+    }
+
+    private static TestPayload getUnknownPayload() {
+        return new TestPayload(PB.PersistableNetworkPayload.newBuilder()
+                .setTradeStatistics2(PB.TradeStatistics2.newBuilder()
+                        .setBaseCurrency("BTC")
+                        .setTradePrice(1))
+                .build());
+    }
+}
@@ -0,0 +1,73 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.crypto.Sig;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.storage.mocks.MockData;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import io.bisq.network.p2p.storage.payload.RequiresOwnerIsOnlinePayload;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.PublicKey;
+import java.security.Security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProtectedStorageEntryIndexTest {
+    private static class MockOwnerData extends MockData implements RequiresOwnerIsOnlinePayload {
+        private final NodeAddress ownerNodeAddress;
+
+        MockOwnerData(String msg, PublicKey publicKey, NodeAddress ownerNodeAddress) {
+            super(msg, publicKey);
+            this.ownerNodeAddress = ownerNodeAddress;
+        }
+
+        @Override
+        public NodeAddress getOwnerNodeAddress() {
+            return ownerNodeAddress;
+        }
+    }
+
+    private PublicKey publicKey;
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+        publicKey = Sig.generateKeyPair().getPublic();
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        ProtectedStorageEntryIndex index = new ProtectedStorageEntryIndex();
+        NodeAddress owner1 = new NodeAddress("localhost", 1000);
+        NodeAddress owner2 = new NodeAddress("localhost", 2000);
+
+        ProtectedStorageEntry data = getEntry(new MockData("data", publicKey));
+        ProtectedStorageEntry offer1 = getEntry(new MockOwnerData("offer1", publicKey, owner1));
+        ProtectedStorageEntry offer2 = getEntry(new MockOwnerData("offer2", publicKey, owner1));
+        ProtectedStorageEntry offer3 = getEntry(new MockOwnerData("offer3", publicKey, owner2));
+        index.put(new P2PDataStorage.ByteArray(new byte[]{0}), data);
+        index.put(new P2PDataStorage.ByteArray(new byte[]{1}), offer1);
+        index.put(new P2PDataStorage.ByteArray(new byte[]{2}), offer2);
+        index.put(new P2PDataStorage.ByteArray(new byte[]{3}), offer3);
+
+        assertEquals(4, index.getEntriesByPayloadClass(MockData.class).size());
+        assertEquals(3, index.getEntriesByPayloadClass(MockOwnerData.class).size());
+        assertEquals(2, index.getEntriesByOwnerNodeAddress(owner1).size());
+        assertEquals(1, index.getEntriesByOwnerNodeAddress(owner2).size());
+
+        index.remove(new P2PDataStorage.ByteArray(new byte[]{1}), offer1);
+        assertEquals(2, index.getEntriesByPayloadClass(MockOwnerData.class).size());
+        assertEquals(1, index.getEntriesByOwnerNodeAddress(owner1).size());
+        assertTrue(index.getEntriesByOwnerNodeAddress(owner1).contains(offer2));
+
+        index.remove(new P2PDataStorage.ByteArray(new byte[]{2}), offer2);
+        assertTrue(index.getEntriesByOwnerNodeAddress(owner1).isEmpty());
+    }
+
+    private ProtectedStorageEntry getEntry(MockData payload) {
+        return new ProtectedStorageEntry(payload, publicKey, 1, new byte[]{});
+    }
+}
@@ -0,0 +1,132 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.Payload;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SequenceNumberMapLogTest {
+    private File dir;
+    private PersistenceProtoResolver persistenceProtoResolver;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("SequenceNumberMapLogTest").toFile();
+        persistenceProtoResolver = new PersistenceProtoResolver() {
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableEnvelope proto) {
+                return SequenceNumberMap.fromProto(proto.getSequenceNumberMap());
+            }
+
+            @Override
+            public Payload fromProto(PB.PaymentAccountPayload proto) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public PersistableEnvelope fromProto(PB.PersistableNetworkPayload proto) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testReplaySnapshotAndDeltas() {
+        long now = System.currentTimeMillis();
+        SequenceNumberMapLog sequenceNumberMapLog = createLog();
+        assertEquals(0, sequenceNumberMapLog.read().size());
+        sequenceNumberMapLog.put(getHash(1), new P2PDataStorage.MapValue(1, now));
+        sequenceNumberMapLog.put(getHash(2), new P2PDataStorage.MapValue(1, now));
+        sequenceNumberMapLog.compact();
+        sequenceNumberMapLog.put(getHash(1), new P2PDataStorage.MapValue(2, now));
+        sequenceNumberMapLog.put(getHash(3), new P2PDataStorage.MapValue(1, now));
+        sequenceNumberMapLog.shutDown();
+
+        sequenceNumberMapLog = createLog();
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = sequenceNumberMapLog.read();
+        sequenceNumberMapLog.shutDown();
+        assertEquals(3, map.size());
+        assertEquals(2, map.get(getHash(1)).sequenceNr);
+        assertEquals(1, map.get(getHash(2)).sequenceNr);
+        assertEquals(1, map.get(getHash(3)).sequenceNr);
+    }
+
+    @Test
+    public void testTornDeltaIsIgnoredAndOldEntriesArePurged() throws IOException {
+        long now = System.currentTimeMillis();
+        SequenceNumberMapLog sequenceNumberMapLog = createLog();
+        sequenceNumberMapLog.read();
+        sequenceNumberMapLog.put(getHash(1), new P2PDataStorage.MapValue(1, now));
+        sequenceNumberMapLog.put(getHash(2), new P2PDataStorage.MapValue(1, 0));
+        sequenceNumberMapLog.shutDown();
+
+        // Simulate a crash during a write
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "SequenceNumberMapDeltas"), true)) {
+            out.write(new byte[]{50, 1, 2});
+        }
+
+        sequenceNumberMapLog = createLog();
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = sequenceNumberMapLog.read();
+        sequenceNumberMapLog.shutDown();
+        assertEquals(1, map.size());
+        assertEquals(1, map.get(getHash(1)).sequenceNr);
+    }
+
+    @Test
+    public void testDeltasAreKeptIfSnapshotFails() throws IOException {
+        long now = System.currentTimeMillis();
+        SequenceNumberMapLog sequenceNumberMapLog = createLog();
+        sequenceNumberMapLog.read();
+        sequenceNumberMapLog.put(getHash(1), new P2PDataStorage.MapValue(1, now));
+        sequenceNumberMapLog.put(getHash(2), new P2PDataStorage.MapValue(1, now));
+
+        // A non empty directory at the path of the snapshot lets the rename of the written temp file fail
+        File snapshotFile = new File(dir, "SequenceNumberMap");
+        assertTrue(new File(snapshotFile, "blocker").mkdirs());
+        sequenceNumberMapLog.compact();
+        sequenceNumberMapLog.shutDown();
+        assertTrue(new File(dir, "SequenceNumberMapDeltas").length() > 0);
+
+        FileUtil.deleteDirectory(snapshotFile);
+        sequenceNumberMapLog = createLog();
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = sequenceNumberMapLog.read();
+        sequenceNumberMapLog.shutDown();
+        assertEquals(2, map.size());
+        assertEquals(1, map.get(getHash(1)).sequenceNr);
+        assertEquals(1, map.get(getHash(2)).sequenceNr);
+    }
+
+    private SequenceNumberMapLog createLog() {
+        return new SequenceNumberMapLog(dir, persistenceProtoResolver, map -> {
+            Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> purged = new HashMap<>();
+            map.forEach((key, value) -> {
+                if (value.timeStamp > 0)
+                    purged.put(key, value);
+            });
+            return purged;
+        });
+    }
+
+    private static P2PDataStorage.ByteArray getHash(int i) {
+        return new P2PDataStorage.ByteArray(new byte[]{(byte) i});
+    }
+}
@@ -0,0 +1,156 @@
+package io.bisq.network.p2p.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SignatureVerificationQueueTest {
+    private SignatureVerificationQueue queue;
+
+    @Before
+    public void setup() {
+        queue = new SignatureVerificationQueue();
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutDown();
+    }
+
+    @Test
+    public void testResultsAreAppliedInOrder() throws InterruptedException {
+        int numRequests = 50;
+        CountDownLatch latch = new CountDownLatch(numRequests);
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < numRequests; i++) {
+            final int index = i;
+            queue.submit(SignatureVerificationQueue.Type.ADD,
+                    new P2PDataStorage.ByteArray(new byte[]{(byte) i}),
+                    1,
+                    () -> {
+                        // Let earlier requests finish later
+                        sleep(numRequests - index);
+                        return index % 2 == 0;
+                    },
+                    isValid -> {
+                        assertEquals(index % 2 == 0, isValid);
+                        applied.add(index);
+                        latch.countDown();
+                    });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < numRequests; i++)
+            assertEquals(i, (int) applied.get(i));
+        assertEquals(numRequests, queue.getNumVerified());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void testPendingDuplicatesAreDropped() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(new byte[]{1});
+        queue.submit(SignatureVerificationQueue.Type.ADD, hash, 1, () -> {
+            await(release);
+            return true;
+        }, isValid -> done.countDown());
+        queue.submit(SignatureVerificationQueue.Type.ADD, hash, 1, () -> true, isValid -> done.countDown());
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, queue.getNumDeduplicated());
+    }
+
+    @Test
+    public void testInvalidDuplicateDoesNotSuppressValidRequest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(new byte[]{1});
+        // A forged copy with the same payload and sequence number arrives first
+        queue.submit(SignatureVerificationQueue.Type.ADD, hash, 1, () -> {
+            await(release);
+            return false;
+        }, isValid -> {
+            results.add(isValid);
+            done.countDown();
+        });
+        queue.submit(SignatureVerificationQueue.Type.ADD, hash, 1, () -> true, isValid -> {
+            results.add(isValid);
+            done.countDown();
+        });
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(false, true), results);
+        assertEquals(0, queue.getNumDeduplicated());
+        assertEquals(2, queue.getNumVerified());
+    }
+
+    @Test
+    public void testRemovesAreNotDeduplicated() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(2);
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(new byte[]{1});
+        queue.submitInOrder(SignatureVerificationQueue.Type.REMOVE, hash, 1, done::countDown);
+        queue.submitInOrder(SignatureVerificationQueue.Type.REMOVE, hash, 1, done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRemoveIsAppliedAfterPendingAdd() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(new byte[]{1});
+        queue.submit(SignatureVerificationQueue.Type.ADD, hash, 1, () -> {
+            await(release);
+            return true;
+        }, isValid -> {
+            applied.add("add");
+            done.countDown();
+        });
+        queue.submitInOrder(SignatureVerificationQueue.Type.REMOVE, hash, 2, () -> {
+            applied.add("remove");
+            done.countDown();
+        });
+        assertTrue(applied.isEmpty());
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("add", "remove"), applied);
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void testRemoveWithoutPendingRequestIsApplied() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.submitInOrder(SignatureVerificationQueue.Type.REMOVE, new P2PDataStorage.ByteArray(new byte[]{1}), 1,
+                done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignore) {
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignore) {
+        }
+    }
+}
@@ -107,14 +107,22 @@ public class SeedNode {
                     Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
                     Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
                     Capabilities.Capability.SEED_NODE.ordinal(),
-                    Capabilities.Capability.DAO_FULL_NODE.ordinal()
+                    Capabilities.Capability.DAO_FULL_NODE.ordinal(),
+                    Capabilities.Capability.COMPACT_DATA_SYNC.ordinal(),
+                    Capabilities.Capability.BUNDLE_OF_ENVELOPES.ordinal(),
+                    Capabilities.Capability.SESSION_KEY_ENCRYPTION.ordinal(),
+                    Capabilities.Capability.COMPRESSED_ENVELOPE.ordinal()
             )));
         else
             Capabilities.setSupportedCapabilities(new ArrayList<>(Arrays.asList(
                     Capabilities.Capability.TRADE_STATISTICS.ordinal(),
                     Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
                     Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
-                    Capabilities.Capability.SEED_NODE.ordinal()
+                    Capabilities.Capability.SEED_NODE.ordinal(),
+                    Capabilities.Capability.COMPACT_DATA_SYNC.ordinal(),
+                    Capabilities.Capability.BUNDLE_OF_ENVELOPES.ordinal(),
+                    Capabilities.Capability.SESSION_KEY_ENCRYPTION.ordinal(),
+                    Capabilities.Capability.COMPRESSED_ENVELOPE.ordinal()
             )));
         appSetup.start();
     }
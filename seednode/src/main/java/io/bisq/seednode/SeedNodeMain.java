@@ -18,6 +18,8 @@
 package io.bisq.seednode;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.HashedWheelTimer;
+import io.bisq.common.ShardedExecutor;
 import io.bisq.common.UserThread;
 import io.bisq.common.util.Profiler;
 import io.bisq.common.util.RestartUtil;
@@ -25,6 +27,7 @@ import io.bisq.common.util.Utilities;
 import io.bisq.core.app.AppOptionKeys;
 import io.bisq.core.app.BisqEnvironment;
 import io.bisq.core.app.BisqExecutable;
+import io.bisq.network.p2p.network.Statistic;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -61,6 +64,7 @@ public class SeedNodeMain extends BisqExecutable {
                 .setDaemon(true)
                 .build();
         UserThread.setExecutor(Executors.newSingleThreadExecutor(threadFactory));
+        UserThread.setTimerClass(HashedWheelTimer.class);
 
         // We don't want to do the full argument parsing here as that might easily change in update versions
         // So we only handle the absolute minimum which is APP_NAME, APP_DATA_DIR_KEY and USER_DATA_DIR
@@ -100,6 +104,8 @@ public class SeedNodeMain extends BisqExecutable {
         final BisqEnvironment bisqEnvironment = getBisqEnvironment(options);
         SeedNode.setEnvironment(bisqEnvironment);
 
+        useShardedUserThreadIfConfigured(bisqEnvironment, "SeedNodeMain");
+
         UserThread.execute(() -> {
             try {
                 seedNode = new SeedNode();
@@ -138,6 +144,10 @@ public class SeedNodeMain extends BisqExecutable {
 
         UserThread.runPeriodically(() -> {
             Profiler.printSystemLoad(log);
+            log.info("Network traffic: " + Statistic.getTotalSnapshot());
+            log.info("Live timers: " + HashedWheelTimer.getNumLiveTimers());
+            if (UserThread.getExecutor() instanceof ShardedExecutor)
+                log.info("UserThread lanes: " + ((ShardedExecutor) UserThread.getExecutor()).getAndResetSnapshot());
             if (!stopped) {
                 long usedMemoryInMB = Profiler.getUsedMemoryInMB();
                 if (usedMemoryInMB > (maxMemory * 0.7)) {
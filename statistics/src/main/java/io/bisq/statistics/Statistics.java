@@ -129,7 +129,11 @@ public class Statistics {
         Capabilities.setSupportedCapabilities(new ArrayList<>(Arrays.asList(
                 Capabilities.Capability.TRADE_STATISTICS.ordinal(),
                 Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
-                Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal()
+                Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
+                Capabilities.Capability.COMPACT_DATA_SYNC.ordinal(),
+                Capabilities.Capability.BUNDLE_OF_ENVELOPES.ordinal(),
+                Capabilities.Capability.SESSION_KEY_ENCRYPTION.ordinal(),
+                Capabilities.Capability.COMPRESSED_ENVELOPE.ordinal()
         )));
         appSetup.start();
     }
@@ -18,6 +18,7 @@
 package io.bisq.statistics;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.ShardedExecutor;
 import io.bisq.common.UserThread;
 import io.bisq.common.util.Profiler;
 import io.bisq.common.util.RestartUtil;
@@ -101,6 +102,8 @@ public class StatisticsMain extends BisqExecutable {
         final BisqEnvironment bisqEnvironment = getBisqEnvironment(options);
         Statistics.setEnvironment(bisqEnvironment);
 
+        useShardedUserThreadIfConfigured(bisqEnvironment, "Statistics");
+
         UserThread.execute(() -> statistics = new Statistics());
 
         Thread.UncaughtExceptionHandler handler = (thread, throwable) -> {
@@ -133,6 +136,8 @@ public class StatisticsMain extends BisqExecutable {
 
         UserThread.runPeriodically(() -> {
             Profiler.printSystemLoad(log);
+            if (UserThread.getExecutor() instanceof ShardedExecutor)
+                log.info("UserThread lanes: " + ((ShardedExecutor) UserThread.getExecutor()).getAndResetSnapshot());
             if (!stopped) {
                 long usedMemoryInMB = Profiler.getUsedMemoryInMB();
                 if (usedMemoryInMB > (maxMemory * 0.8)) {